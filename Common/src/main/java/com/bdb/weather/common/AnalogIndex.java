@@ -0,0 +1,612 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * Index of the weather of each hour for finding the hours that were most like the current weather, the analogs, and
+ * what followed them. The archive records are reduced to hourly means of the pressure, temperature, humidity and wind
+ * vector and the hourly rainfall, in primitive columns. Each complete hour has a feature vector of the pressure, the
+ * pressure tendency over the previous 3 hours, the wind direction as a unit vector, the temperature and the humidity,
+ * each divided by a scale so that a difference of one scale in any feature is equally dissimilar.
+ * <br>
+ * The feature vectors are kept in a KD-tree. Vectors of new hours go into a pending list that is searched linearly
+ * until it is large enough that the tree is rebuilt with all of the vectors, so the index is kept up to date as
+ * archive records arrive without rebuilding for each hour. A query only visits the leaves of the tree that are near the
+ * query vector, rather than comparing it with every hour.
+ * <br>
+ * An hour is added to the index when a record of a later hour is applied. A record that is applied after its hour was
+ * added changes what followed the analogs, but not the feature vector of its hour.
+ */
+public class AnalogIndex {
+    /**
+     * The number of hours over which the pressure tendency is measured
+     */
+    public static final int TENDENCY_HOURS = 3;
+    private static final int SECONDS_PER_HOUR = 3600;
+    private static final int INITIAL_CAPACITY = 24 * 366;
+    private static final int DIMENSIONS = 6;
+    private static final int LEAF_SIZE = 8;
+    private static final int MIN_PENDING = 256;
+    //
+    // Analogs from the hours around the hour of a query are the same weather, not analogs
+    //
+    private static final int EXCLUDED_HOURS = 48;
+    private static final int PRESSURE = 0;
+    private static final int TEMPERATURE = 1;
+    private static final int HUMIDITY = 2;
+    private static final int WIND_X = 3;
+    private static final int WIND_Y = 4;
+    private static final int RAIN = 5;
+    private static final int NUM_COLUMNS = 6;
+
+    /**
+     * An hour that was like the weather of a query and what followed it.
+     */
+    public static final class Analog {
+        private final LocalDateTime time;
+        private final double distance;
+        private final double temperatureChange;
+        private final double pressureChange;
+        private final double rainfall;
+
+        private Analog(LocalDateTime time, double distance, double temperatureChange, double pressureChange, double rainfall) {
+            this.time = time;
+            this.distance = distance;
+            this.temperatureChange = temperatureChange;
+            this.pressureChange = pressureChange;
+            this.rainfall = rainfall;
+        }
+
+        /**
+         * Get the start of the hour.
+         *
+         * @return The time
+         */
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        /**
+         * Get the distance of the hour from the query, in scaled units.
+         *
+         * @return The distance
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * Get the change of the temperature from the hour to the end of the horizon.
+         *
+         * @return The change in Celsius or NaN if a temperature is missing
+         */
+        public double getTemperatureChange() {
+            return temperatureChange;
+        }
+
+        /**
+         * Get the change of the pressure from the hour to the end of the horizon.
+         *
+         * @return The change in millibars or NaN if a pressure is missing
+         */
+        public double getPressureChange() {
+            return pressureChange;
+        }
+
+        /**
+         * Get the rainfall of the hours of the horizon.
+         *
+         * @return The rainfall in millimeters
+         */
+        public double getRainfall() {
+            return rainfall;
+        }
+
+        @Override
+        public String toString() {
+            return time + " distance " + distance + " temperature change " + temperatureChange + " pressure change " + pressureChange + " rainfall " + rainfall;
+        }
+    }
+
+    private final double[] scales;
+
+    //
+    // The hourly columns, indexed from the first hour
+    //
+    private long firstHour = Long.MIN_VALUE;
+    private int numHours = 0;
+    private double[][] sums = new double[NUM_COLUMNS][INITIAL_CAPACITY];
+    private int[][] counts = new int[NUM_COLUMNS][INITIAL_CAPACITY];
+    private boolean[] indexed = new boolean[INITIAL_CAPACITY];
+    private int dirtyFrom = Integer.MAX_VALUE;
+
+    //
+    // The feature vectors, the first treeSize of which are in the tree
+    //
+    private float[] coordinates = new float[INITIAL_CAPACITY * DIMENSIONS];
+    private long[] pointHours = new long[INITIAL_CAPACITY];
+    private int numPoints = 0;
+    private int[] order = new int[0];
+    private byte[] splitDimensions = new byte[0];
+    private int treeSize = 0;
+
+    /**
+     * Constructor that uses scales of 5 millibars of pressure, 1 millibar of tendency, 1 for the wind direction vector
+     * (a difference of 60 degrees), 3 Celsius and 10 percent humidity.
+     */
+    public AnalogIndex() {
+        this(5.0, 1.0, 1.0, 3.0, 10.0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pressureScale The scale of the pressure in millibars
+     * @param tendencyScale The scale of the pressure tendency in millibars
+     * @param windScale The scale of the wind direction unit vector
+     * @param temperatureScale The scale of the temperature in Celsius
+     * @param humidityScale The scale of the humidity in percent
+     */
+    public AnalogIndex(double pressureScale, double tendencyScale, double windScale, double temperatureScale, double humidityScale) {
+        scales = new double[]{pressureScale, tendencyScale, windScale, windScale, temperatureScale, humidityScale};
+        for (double scale : scales)
+            if (!(scale > 0.0))
+                throw new IllegalArgumentException("Feature scales must be positive");
+    }
+
+    /**
+     * Apply an archive record.
+     *
+     * @param rec The archive record
+     */
+    public synchronized void applyHistoricalRecord(HistoricalRecord rec) {
+        long middle = rec.getTime().toEpochSecond(ZoneOffset.UTC) - rec.getDuration().getSeconds() / 2;
+        int h = hourIndex(Math.floorDiv(middle, SECONDS_PER_HOUR));
+        add(PRESSURE, h, ArchiveField.BARO_PRESSURE.getValue(rec));
+        add(TEMPERATURE, h, ArchiveField.AVG_OUTDOOR_TEMPERATURE.getValue(rec));
+        add(HUMIDITY, h, ArchiveField.OUTDOOR_HUMIDITY.getValue(rec));
+        add(RAIN, h, ArchiveField.RAINFALL.getValue(rec));
+        double speed = ArchiveField.AVG_WIND_SPEED.getValue(rec);
+        double direction = Math.toRadians(ArchiveField.AVG_WIND_DIRECTION.getValue(rec));
+        if (speed == 0.0)
+            direction = 0.0;
+
+        add(WIND_X, h, speed * Math.sin(direction));
+        add(WIND_Y, h, speed * Math.cos(direction));
+        dirtyFrom = Math.min(dirtyFrom, h);
+    }
+
+    /**
+     * Apply a collection of archive records.
+     *
+     * @param records The archive records
+     */
+    public synchronized void applyHistoricalRecords(Collection<HistoricalRecord> records) {
+        for (HistoricalRecord rec : records)
+            applyHistoricalRecord(rec);
+
+        update();
+    }
+
+    private void add(int column, int hour, double value) {
+        if (!Double.isNaN(value)) {
+            sums[column][hour] += value;
+            counts[column][hour]++;
+        }
+    }
+
+    private double mean(int column, int hour) {
+        if (hour < 0 || hour >= numHours || counts[column][hour] == 0)
+            return Double.NaN;
+
+        return sums[column][hour] / counts[column][hour];
+    }
+
+    /**
+     * Get the number of hours in the index.
+     *
+     * @return The number of feature vectors
+     */
+    public synchronized int size() {
+        update();
+        return numPoints;
+    }
+
+    /**
+     * Find the hours that were most like a set of weather values.
+     *
+     * @param pressure The pressure in millibars
+     * @param tendency The change of the pressure over the last 3 hours in millibars
+     * @param windDirection The wind direction in degrees or NaN if the wind is calm
+     * @param temperature The temperature in Celsius
+     * @param humidity The humidity in percent
+     * @param k The number of analogs
+     * @param horizonHours The number of hours after each analog for which what followed is reported
+     * @return The analogs, the most similar first
+     */
+    public synchronized List<Analog> findAnalogs(double pressure, double tendency, double windDirection, double temperature, double humidity, int k, int horizonHours) {
+        update();
+        double[] features = {pressure, tendency, Double.NaN, Double.NaN, temperature, humidity};
+        setWind(features, Double.isNaN(windDirection) ? 0.0 : Math.sin(Math.toRadians(windDirection)), Double.isNaN(windDirection) ? 0.0 : Math.cos(Math.toRadians(windDirection)));
+        return search(features, k, horizonHours, Long.MIN_VALUE);
+    }
+
+    /**
+     * Find the hours that were most like the current weather. The pressure tendency is the change from the pressure of
+     * the hour 3 hours earlier in the index.
+     *
+     * @param current The current weather
+     * @param k The number of analogs
+     * @param horizonHours The number of hours after each analog for which what followed is reported
+     * @return The analogs, the most similar first, or an empty list if the current weather is missing a value
+     */
+    public synchronized List<Analog> findAnalogs(CurrentWeather current, int k, int horizonHours) {
+        update();
+        if (numHours == 0 || current.getBarometricPressure() == null || current.getOutsideTemperature() == null || current.getOutsideHumidity() == null)
+            return new ArrayList<>();
+
+        long hour = Math.floorDiv(current.getTime().toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR);
+        double pressure = current.getBarometricPressure().get(Pressure.Unit.MILLIBAR);
+        double tendency = pressure - mean(PRESSURE, (int)Math.max(-1, Math.min(numHours, hour - TENDENCY_HOURS - firstHour)));
+        if (Double.isNaN(tendency))
+            return new ArrayList<>();
+
+        double windDirection = Double.NaN;
+        if (current.getWindSpeed() != null && current.getWindDirection() != null && current.getWindSpeed().get() > 0.0)
+            windDirection = current.getWindDirection().get(Heading.Unit.DEGREES);
+
+        return findAnalogs(pressure, tendency, windDirection, current.getOutsideTemperature().get(Temperature.Unit.CELSIUS),
+                           current.getOutsideHumidity().get(Humidity.Unit.RELATIVE_HUMIDITY), k, horizonHours);
+    }
+
+    /**
+     * Find the hours that were most like an hour in the index, leaving out the hours within 2 days of it.
+     *
+     * @param time A time within the hour
+     * @param k The number of analogs
+     * @param horizonHours The number of hours after each analog for which what followed is reported
+     * @return The analogs, the most similar first, or an empty list if the hour does not have a feature vector
+     */
+    public synchronized List<Analog> findAnalogs(LocalDateTime time, int k, int horizonHours) {
+        update();
+        long hour = Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR);
+        double[] features = new double[DIMENSIONS];
+        if (numHours == 0 || hour < firstHour || hour >= firstHour + numHours || !features(features, (int)(hour - firstHour)))
+            return new ArrayList<>();
+
+        return search(features, k, horizonHours, hour);
+    }
+
+    /**
+     * The features of an hour.
+     *
+     * @return False if a value of the hour is missing
+     */
+    private boolean features(double[] features, int h) {
+        features[0] = mean(PRESSURE, h);
+        features[1] = features[0] - mean(PRESSURE, h - TENDENCY_HOURS);
+        features[4] = mean(TEMPERATURE, h);
+        features[5] = mean(HUMIDITY, h);
+        setWind(features, mean(WIND_X, h), mean(WIND_Y, h));
+        for (double feature : features)
+            if (Double.isNaN(feature))
+                return false;
+
+        return true;
+    }
+
+    private static void setWind(double[] features, double x, double y) {
+        double length = Math.sqrt(x * x + y * y);
+        features[2] = length > 0.0 ? x / length : x;
+        features[3] = length > 0.0 ? y / length : y;
+    }
+
+    /**
+     * Add the feature vectors of the complete hours that changed, and rebuild the tree if there are enough pending
+     * vectors.
+     */
+    private void update() {
+        for (int h = dirtyFrom; h < numHours - 1; h++) {
+            if (indexed[h])
+                continue;
+
+            double[] features = new double[DIMENSIONS];
+            if (features(features, h)) {
+                addPoint(features, firstHour + h);
+                indexed[h] = true;
+            }
+        }
+
+        dirtyFrom = Math.max(0, numHours - 1);
+        int pending = numPoints - treeSize;
+        if (pending > Math.max(MIN_PENDING, (int)Math.sqrt(numPoints) * 4))
+            rebuild();
+    }
+
+    private void addPoint(double[] features, long hour) {
+        if (numPoints == pointHours.length) {
+            pointHours = Arrays.copyOf(pointHours, numPoints * 2);
+            coordinates = Arrays.copyOf(coordinates, numPoints * 2 * DIMENSIONS);
+        }
+
+        for (int d = 0; d < DIMENSIONS; d++)
+            coordinates[numPoints * DIMENSIONS + d] = (float)(features[d] / scales[d]);
+
+        pointHours[numPoints++] = hour;
+    }
+
+    private void rebuild() {
+        order = new int[numPoints];
+        for (int i = 0; i < numPoints; i++)
+            order[i] = i;
+
+        splitDimensions = new byte[numPoints];
+        treeSize = numPoints;
+        build(0, numPoints);
+    }
+
+    /**
+     * Build the subtree of order[lo, hi). The point at the middle is the node, split on the dimension with the largest
+     * spread, with the points below it on the left.
+     */
+    private void build(int lo, int hi) {
+        if (hi - lo <= LEAF_SIZE)
+            return;
+
+        int dimension = 0;
+        float widest = -1.0f;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                float value = coordinates[order[i] * DIMENSIONS + d];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+
+            if (max - min > widest) {
+                widest = max - min;
+                dimension = d;
+            }
+        }
+
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, dimension);
+        splitDimensions[mid] = (byte)dimension;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    /**
+     * Partially sort order[lo, hi] so that the point at index k has the kth smallest value of a dimension.
+     */
+    private void select(int lo, int hi, int k, int dimension) {
+        while (hi > lo) {
+            float pivot = coordinates[order[(lo + hi) >>> 1] * DIMENSIONS + dimension];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinates[order[i] * DIMENSIONS + dimension] < pivot)
+                    i++;
+
+                while (coordinates[order[j] * DIMENSIONS + dimension] > pivot)
+                    j--;
+
+                if (i <= j) {
+                    int t = order[i];
+                    order[i++] = order[j];
+                    order[j--] = t;
+                }
+            }
+
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * The k nearest points, kept as a max heap on the distance.
+     */
+    private final class Neighbors {
+        private final float[] query = new float[DIMENSIONS];
+        private final double[] distances;
+        private final int[] points;
+        private final long lastHour;
+        private final long excludedHour;
+        private int size = 0;
+
+        Neighbors(double[] features, int k, int horizonHours, long excludedHour) {
+            for (int d = 0; d < DIMENSIONS; d++)
+                query[d] = (float)(features[d] / scales[d]);
+
+            distances = new double[k];
+            points = new int[k];
+            lastHour = firstHour + numHours - 1 - horizonHours;
+            this.excludedHour = excludedHour;
+        }
+
+        double worst() {
+            return size < distances.length ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(int point) {
+            long hour = pointHours[point];
+            if (hour >= lastHour || (excludedHour != Long.MIN_VALUE && Math.abs(hour - excludedHour) <= EXCLUDED_HOURS))
+                return;
+
+            double distance = 0.0;
+            int base = point * DIMENSIONS;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                double delta = coordinates[base + d] - query[d];
+                distance += delta * delta;
+            }
+
+            if (distance >= worst())
+                return;
+
+            if (size < distances.length) {
+                int i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    distances[i] = distances[(i - 1) / 2];
+                    points[i] = points[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+
+                distances[i] = distance;
+                points[i] = point;
+            }
+            else {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size)
+                        break;
+
+                    if (child + 1 < size && distances[child + 1] > distances[child])
+                        child++;
+
+                    if (distances[child] <= distance)
+                        break;
+
+                    distances[i] = distances[child];
+                    points[i] = points[child];
+                    i = child;
+                }
+
+                distances[i] = distance;
+                points[i] = point;
+            }
+        }
+
+        void search(int lo, int hi) {
+            if (hi - lo <= LEAF_SIZE) {
+                for (int i = lo; i < hi; i++)
+                    offer(order[i]);
+
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            int dimension = splitDimensions[mid];
+            double delta = query[dimension] - coordinates[order[mid] * DIMENSIONS + dimension];
+            offer(order[mid]);
+            if (delta < 0.0) {
+                search(lo, mid);
+                if (delta * delta < worst())
+                    search(mid + 1, hi);
+            }
+            else {
+                search(mid + 1, hi);
+                if (delta * delta < worst())
+                    search(lo, mid);
+            }
+        }
+    }
+
+    private List<Analog> search(double[] features, int k, int horizonHours, long excludedHour) {
+        List<Analog> analogs = new ArrayList<>();
+        for (double feature : features)
+            if (Double.isNaN(feature))
+                return analogs;
+
+        Neighbors neighbors = new Neighbors(features, k, horizonHours, excludedHour);
+        neighbors.search(0, treeSize);
+        for (int i = treeSize; i < numPoints; i++)
+            neighbors.offer(i);
+
+        Integer[] sorted = new Integer[neighbors.size];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = i;
+
+        Arrays.sort(sorted, (a, b) -> Double.compare(neighbors.distances[a], neighbors.distances[b]));
+        for (int i : sorted) {
+            long hour = pointHours[neighbors.points[i]];
+            int h = (int)(hour - firstHour);
+            double rain = 0.0;
+            for (int j = h + 1; j <= h + horizonHours; j++)
+                rain += sums[RAIN][j];
+
+            analogs.add(new Analog(LocalDateTime.ofEpochSecond(hour * SECONDS_PER_HOUR, 0, ZoneOffset.UTC),
+                                   Math.sqrt(neighbors.distances[i]),
+                                   mean(TEMPERATURE, h + horizonHours) - mean(TEMPERATURE, h),
+                                   mean(PRESSURE, h + horizonHours) - mean(PRESSURE, h),
+                                   rain));
+        }
+
+        return analogs;
+    }
+
+    /**
+     * The index of an hour, growing the columns when the hour is outside of the hours so far.
+     */
+    private int hourIndex(long hour) {
+        if (numHours == 0)
+            firstHour = hour;
+        else if (hour < firstHour) {
+            int shift = (int)(firstHour - hour);
+            for (int c = 0; c < NUM_COLUMNS; c++) {
+                double[] s = new double[Math.max(numHours + shift, sums[c].length)];
+                System.arraycopy(sums[c], 0, s, shift, numHours);
+                sums[c] = s;
+                int[] n = new int[s.length];
+                System.arraycopy(counts[c], 0, n, shift, numHours);
+                counts[c] = n;
+            }
+
+            boolean[] flags = new boolean[sums[0].length];
+            System.arraycopy(indexed, 0, flags, shift, numHours);
+            indexed = flags;
+            if (dirtyFrom != Integer.MAX_VALUE)
+                dirtyFrom += shift;
+
+            numHours += shift;
+            firstHour = hour;
+        }
+
+        int h = (int)(hour - firstHour);
+        if (h >= indexed.length) {
+            int capacity = Math.max(h + 1, indexed.length * 2);
+            for (int c = 0; c < NUM_COLUMNS; c++) {
+                sums[c] = Arrays.copyOf(sums[c], capacity);
+                counts[c] = Arrays.copyOf(counts[c], capacity);
+            }
+
+            indexed = Arrays.copyOf(indexed, capacity);
+        }
+
+        if (h >= numHours)
+            numHours = h + 1;
+
+        return h;
+    }
+}
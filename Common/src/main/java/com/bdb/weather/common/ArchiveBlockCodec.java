@@ -0,0 +1,415 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compressed block format for archive records, based on the Gorilla time series encoding. The times are encoded as
+ * delta-of-deltas, which take one bit per record when the archive interval is regular. Each archive field and each extra
+ * sensor is a column whose values are XOR encoded with the previous value of the column, which takes one bit when the
+ * value does not change and only the bits that changed otherwise. The values are stored as floats, which is more than
+ * the resolution of the sensors.
+ * <br>
+ * Each column has a presence map that is stored as a single code when the column is always or never present, and as a
+ * bitmap or a list of record indexes otherwise, whichever is smaller. Extra sensor columns that are only present in some
+ * blocks therefore cost nothing in the other blocks.
+ * <br>
+ * The block starts with a directory of the column sizes, so that {@link ArchiveBlockCursor} only decodes the columns that
+ * are read.
+ */
+public final class ArchiveBlockCodec {
+    static final int VERSION = 1;
+    static final List<ArchiveField> STORED_FIELDS;
+    static final int PRESENCE_NONE = 0;
+    static final int PRESENCE_ALL = 1;
+    static final int PRESENCE_BITMAP = 2;
+    static final int PRESENCE_LIST = 3;
+    static final SensorType[] EXTRA_SENSOR_TYPES = ExtraSensorValues.SENSOR_TYPES;
+
+    static {
+        List<ArchiveField> stored = new ArrayList<>();
+        for (ArchiveField field : ArchiveField.values())
+            if (!field.isDerived())
+                stored.add(field);
+
+        STORED_FIELDS = Collections.unmodifiableList(stored);
+    }
+
+    private ArchiveBlockCodec() {
+    }
+
+    /**
+     * Encode a block of archive records.
+     *
+     * @param records The records, which must be in time order
+     * @return The encoded block
+     */
+    public static byte[] encode(List<HistoricalRecord> records) {
+        int count = records.size();
+        long[] times = new long[count];
+        int[] durations = new int[count];
+        for (int i = 0; i < count; i++) {
+            HistoricalRecord rec = records.get(i);
+            times[i] = rec.getTime().toEpochSecond(ZoneOffset.UTC);
+            durations[i] = rec.getDuration() == null ? 0 : (int)rec.getDuration().getSeconds();
+            if (i > 0 && times[i] < times[i - 1])
+                throw new IllegalArgumentException("Archive records are not in time order at " + rec.getTime());
+        }
+
+        //
+        // Gather the extra sensor values into sparse columns
+        //
+        Map<Long,float[]> extras = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            ExtraSensorValues values = records.get(i).getExtraSensorValues();
+            for (int type = 0; type < EXTRA_SENSOR_TYPES.length; type++) {
+                SensorType sensorType = EXTRA_SENSOR_TYPES[type];
+                for (int id = values.nextSensorId(sensorType, 0); id >= 0; id = values.nextSensorId(sensorType, id + 1)) {
+                    long key = extraSensorKey(type, id);
+                    float[] column = extras.get(key);
+                    if (column == null) {
+                        column = new float[count];
+                        Arrays.fill(column, Float.NaN);
+                        extras.put(key, column);
+                    }
+
+                    column[i] = (float)values.getValue(sensorType, id);
+                }
+            }
+        }
+
+        List<BitWriter> columns = new ArrayList<>();
+        float[] values = new float[count];
+        for (ArchiveField field : STORED_FIELDS) {
+            for (int i = 0; i < count; i++)
+                values[i] = (float)field.getValue(records.get(i));
+
+            columns.add(encodeColumn(values, count));
+        }
+
+        for (float[] column : extras.values())
+            columns.add(encodeColumn(column, count));
+
+        BitWriter out = new BitWriter();
+        out.write(VERSION, 8);
+        out.write(count, 32);
+        encodeTimes(out, times, durations, count);
+
+        out.write(extras.size(), 16);
+        for (long key : extras.keySet()) {
+            out.write(key >>> 32, 8);
+            out.write(key & 0xFFFFFFFFL, 32);
+        }
+
+        for (BitWriter column : columns)
+            out.write(column.bitLength(), 32);
+
+        for (BitWriter column : columns)
+            out.append(column);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a block.
+     *
+     * @param block The encoded block
+     * @return The cursor over the records of the block
+     */
+    public static ArchiveBlockCursor decode(byte[] block) {
+        return new ArchiveBlockCursor(block);
+    }
+
+    /**
+     * Get the size of a block of records if each value were stored with a fixed width, as a database row would:
+     * an 8 byte time, a 4 byte duration and an 8 byte double for each archive field and extra sensor.
+     *
+     * @param records The records
+     * @return The size in bytes
+     */
+    public static long fixedWidthSize(List<HistoricalRecord> records) {
+        long size = 0;
+        for (HistoricalRecord rec : records)
+            size += 12L + 8L * STORED_FIELDS.size() + 8L * rec.getExtraSensorValues().size();
+
+        return size;
+    }
+
+    static int extraSensorTypeIndex(SensorType type) {
+        for (int i = 0; i < EXTRA_SENSOR_TYPES.length; i++)
+            if (EXTRA_SENSOR_TYPES[i] == type)
+                return i;
+
+        return -1;
+    }
+
+    static long extraSensorKey(int typeIndex, int sensorId) {
+        return ((long)typeIndex << 32) | (sensorId & 0xFFFFFFFFL);
+    }
+
+    private static void encodeTimes(BitWriter out, long[] times, int[] durations, int count) {
+        if (count == 0)
+            return;
+
+        out.write(times[0], 64);
+        out.write(durations[0], 32);
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = times[i] - times[i - 1];
+            out.writeSigned(delta - previousDelta);
+            out.writeSigned(durations[i] - durations[i - 1]);
+            previousDelta = delta;
+        }
+    }
+
+    /**
+     * Encode the presence map and the XOR encoded values of a column, NaN being a missing value.
+     */
+    private static BitWriter encodeColumn(float[] values, int count) {
+        BitWriter out = new BitWriter();
+        int present = 0;
+        for (int i = 0; i < count; i++)
+            if (!Float.isNaN(values[i]))
+                present++;
+
+        if (present == 0) {
+            out.write(PRESENCE_NONE, 2);
+            return out;
+        }
+
+        if (present == count)
+            out.write(PRESENCE_ALL, 2);
+        else {
+            BitWriter list = new BitWriter();
+            list.write(present, 32);
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                if (!Float.isNaN(values[i])) {
+                    list.writeSigned(i - previous - 1);
+                    previous = i;
+                }
+            }
+
+            if (list.bitLength() < count) {
+                out.write(PRESENCE_LIST, 2);
+                out.append(list);
+            }
+            else {
+                out.write(PRESENCE_BITMAP, 2);
+                for (int i = 0; i < count; i++)
+                    out.write(Float.isNaN(values[i]) ? 0 : 1, 1);
+            }
+        }
+
+        int previousBits = 0;
+        int leading = -1;
+        int trailing = 0;
+        boolean first = true;
+        for (int i = 0; i < count; i++) {
+            if (Float.isNaN(values[i]))
+                continue;
+
+            int bits = Float.floatToRawIntBits(values[i]);
+            if (first) {
+                out.write(bits & 0xFFFFFFFFL, 32);
+                first = false;
+            }
+            else {
+                int xor = bits ^ previousBits;
+                if (xor == 0)
+                    out.write(0, 1);
+                else {
+                    int newLeading = Math.min(Integer.numberOfLeadingZeros(xor), 31);
+                    int newTrailing = Integer.numberOfTrailingZeros(xor);
+                    out.write(1, 1);
+                    if (leading >= 0 && newLeading >= leading && newTrailing >= trailing) {
+                        //
+                        // The meaningful bits fit in the previous window
+                        //
+                        out.write(0, 1);
+                        out.write((xor >>> trailing) & mask(32 - leading - trailing), 32 - leading - trailing);
+                    }
+                    else {
+                        leading = newLeading;
+                        trailing = newTrailing;
+                        int length = 32 - leading - trailing;
+                        out.write(1, 1);
+                        out.write(leading, 5);
+                        out.write(length - 1, 5);
+                        out.write((xor >>> trailing) & mask(length), length);
+                    }
+                }
+            }
+
+            previousBits = bits;
+        }
+
+        return out;
+    }
+
+    static long mask(int bits) {
+        return bits >= 64 ? -1L : (1L << bits) - 1;
+    }
+
+    /**
+     * Growable bit buffer, written most significant bit first.
+     */
+    static final class BitWriter {
+        private long[] words = new long[16];
+        private long bits = 0;
+
+        /**
+         * Write the low order bits of a value.
+         */
+        void write(long value, int numBits) {
+            if (numBits == 0)
+                return;
+
+            ensureCapacity(bits + numBits);
+            value &= mask(numBits);
+            int word = (int)(bits >>> 6);
+            int offset = (int)(bits & 63);
+            int free = 64 - offset;
+            if (numBits <= free)
+                words[word] |= value << (free - numBits);
+            else {
+                words[word] |= value >>> (numBits - free);
+                words[word + 1] |= value << (64 - (numBits - free));
+            }
+
+            bits += numBits;
+        }
+
+        /**
+         * Write a signed value with a variable length prefix code, one bit for zero.
+         */
+        void writeSigned(long value) {
+            if (value == 0)
+                write(0, 1);
+            else if (value >= -64 && value < 64) {
+                write(0b10, 2);
+                write(value, 7);
+            }
+            else if (value >= -256 && value < 256) {
+                write(0b110, 3);
+                write(value, 9);
+            }
+            else if (value >= -2048 && value < 2048) {
+                write(0b1110, 4);
+                write(value, 12);
+            }
+            else {
+                write(0b1111, 4);
+                write(value, 64);
+            }
+        }
+
+        void append(BitWriter other) {
+            long remaining = other.bits;
+            int word = 0;
+            while (remaining > 0) {
+                int n = (int)Math.min(64, remaining);
+                write(other.words[word] >>> (64 - n), n);
+                remaining -= n;
+                word++;
+            }
+        }
+
+        long bitLength() {
+            return bits;
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[(int)((bits + 7) >>> 3)];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = (byte)(words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+
+            return bytes;
+        }
+
+        private void ensureCapacity(long numBits) {
+            int needed = (int)((numBits + 63) >>> 6) + 1;
+            if (needed > words.length)
+                words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+        }
+    }
+
+    /**
+     * Reader of the bits written by a BitWriter that counts the bytes that were read.
+     */
+    static final class BitReader {
+        private final byte[] bytes;
+        private long position;
+        private long bitsRead = 0;
+
+        BitReader(byte[] bytes, long position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        long read(int numBits) {
+            long value = 0;
+            int remaining = numBits;
+            while (remaining > 0) {
+                int index = (int)(position >>> 3);
+                int offset = (int)(position & 7);
+                int available = 8 - offset;
+                int n = Math.min(available, remaining);
+                int b = (bytes[index] & 0xFF) >>> (available - n);
+                value = (value << n) | (b & ((1 << n) - 1));
+                remaining -= n;
+                position += n;
+            }
+
+            bitsRead += numBits;
+            return value;
+        }
+
+        long readSigned(int numBits) {
+            long value = read(numBits);
+            return (value << (64 - numBits)) >> (64 - numBits);
+        }
+
+        long readPrefixed() {
+            if (read(1) == 0)
+                return 0;
+            else if (read(1) == 0)
+                return readSigned(7);
+            else if (read(1) == 0)
+                return readSigned(9);
+            else if (read(1) == 0)
+                return readSigned(12);
+            else
+                return read(64);
+        }
+
+        long position() {
+            return position;
+        }
+
+        long bitsRead() {
+            return bitsRead;
+        }
+    }
+}
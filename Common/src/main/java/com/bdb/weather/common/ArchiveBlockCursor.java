@@ -0,0 +1,429 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bdb.weather.common.ArchiveBlockCodec.BitReader;
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.LeafWetness;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.SoilMoisture;
+import com.bdb.weather.common.measurement.SolarRadiation;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+import com.bdb.weather.common.measurement.UvIndex;
+
+/**
+ * Columnar cursor over a block encoded by {@link ArchiveBlockCodec}. The times are decoded when the cursor is created,
+ * the value columns are decoded in a single sequential pass the first time they are read, so a scan of a few fields
+ * does not pay for the rest of the block. Missing values are NaN.
+ * <br>
+ * This class is not thread safe.
+ */
+public final class ArchiveBlockCursor {
+    private static final List<ArchiveField> STORED_FIELDS = ArchiveBlockCodec.STORED_FIELDS;
+
+    private final byte[] block;
+    private final int size;
+    private final long[] times;
+    private final int[] durations;
+    private final long[] extraKeys;
+    private final long[] columnOffsets;
+    private final long[] columnLengths;
+    private final float[][] columns;
+    private final int[] storedColumn = new int[ArchiveField.values().length];
+    private long bitsRead;
+    private int position = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param block The encoded block
+     */
+    ArchiveBlockCursor(byte[] block) {
+        this.block = block;
+        BitReader reader = new BitReader(block, 0);
+        int version = (int)reader.read(8);
+        if (version != ArchiveBlockCodec.VERSION)
+            throw new IllegalArgumentException("Unsupported archive block version " + version);
+
+        size = (int)reader.read(32);
+        times = new long[size];
+        durations = new int[size];
+        if (size > 0) {
+            times[0] = reader.read(64);
+            durations[0] = (int)reader.readSigned(32);
+            long delta = 0;
+            for (int i = 1; i < size; i++) {
+                delta += reader.readPrefixed();
+                times[i] = times[i - 1] + delta;
+                durations[i] = durations[i - 1] + (int)reader.readPrefixed();
+            }
+        }
+
+        int numExtras = (int)reader.read(16);
+        extraKeys = new long[numExtras];
+        for (int i = 0; i < numExtras; i++) {
+            long type = reader.read(8);
+            extraKeys[i] = ArchiveBlockCodec.extraSensorKey((int)type, (int)reader.read(32));
+        }
+
+        int numColumns = STORED_FIELDS.size() + numExtras;
+        columnLengths = new long[numColumns];
+        columnOffsets = new long[numColumns];
+        for (int c = 0; c < numColumns; c++)
+            columnLengths[c] = reader.read(32);
+
+        long offset = reader.position();
+        for (int c = 0; c < numColumns; c++) {
+            columnOffsets[c] = offset;
+            offset += columnLengths[c];
+        }
+
+        columns = new float[numColumns][];
+        Arrays.fill(storedColumn, -1);
+        for (int c = 0; c < STORED_FIELDS.size(); c++)
+            storedColumn[STORED_FIELDS.get(c).ordinal()] = c;
+
+        bitsRead = reader.bitsRead();
+    }
+
+    /**
+     * Get the number of records in the block.
+     *
+     * @return The number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return True if the cursor is on a record, false if the end of the block was reached
+     */
+    public boolean next() {
+        if (position < size)
+            position++;
+
+        return position < size;
+    }
+
+    /**
+     * Move the cursor before the first record.
+     */
+    public void reset() {
+        position = -1;
+    }
+
+    /**
+     * Get the index of the current record.
+     *
+     * @return The index, -1 before the first call to next()
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Get the time of the current record.
+     *
+     * @return The time
+     */
+    public LocalDateTime getTime() {
+        return getTime(current());
+    }
+
+    /**
+     * Get the time of a record.
+     *
+     * @param index The index of the record
+     * @return The time
+     */
+    public LocalDateTime getTime(int index) {
+        return LocalDateTime.ofEpochSecond(times[index], 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Get the time of a record in seconds, using the local time as if it were UTC.
+     *
+     * @param index The index of the record
+     * @return The time in seconds
+     */
+    public long getEpochSecond(int index) {
+        return times[index];
+    }
+
+    /**
+     * Get the duration of a record.
+     *
+     * @param index The index of the record
+     * @return The duration in seconds
+     */
+    public int getDurationSeconds(int index) {
+        return durations[index];
+    }
+
+    /**
+     * Get the value of a field of the current record.
+     *
+     * @param field The field
+     * @return The value in the storage unit or NaN
+     */
+    public double getValue(ArchiveField field) {
+        return getValue(field, current());
+    }
+
+    /**
+     * Get the value of a field of a record. Derived fields are calculated from the record.
+     *
+     * @param field The field
+     * @param index The index of the record
+     * @return The value in the storage unit or NaN
+     */
+    public double getValue(ArchiveField field, int index) {
+        int c = storedColumn[field.ordinal()];
+        if (c < 0)
+            return field.getValue(toHistoricalRecord(index));
+
+        return column(c)[index];
+    }
+
+    /**
+     * Get the values of a field of all of the records. A stored field is copied from its decoded column.
+     *
+     * @param field The field
+     * @param values The array that receives the values in the storage unit or NaN, which must hold at least size() values
+     */
+    public void getValues(ArchiveField field, double[] values) {
+        int c = storedColumn[field.ordinal()];
+        if (c < 0) {
+            for (int i = 0; i < size; i++)
+                values[i] = field.getValue(toHistoricalRecord(i));
+        }
+        else {
+            float[] column = column(c);
+            for (int i = 0; i < size; i++)
+                values[i] = column[i];
+        }
+    }
+
+    /**
+     * Get the value of an extra sensor of a record.
+     *
+     * @param sensorType The type of the sensor
+     * @param sensorId The ID of the sensor
+     * @param index The index of the record
+     * @return The value in the storage unit or NaN if the sensor has no value
+     */
+    public double getExtraValue(SensorType sensorType, int sensorId, int index) {
+        int type = ArchiveBlockCodec.extraSensorTypeIndex(sensorType);
+        if (type < 0)
+            return Double.NaN;
+
+        long key = ArchiveBlockCodec.extraSensorKey(type, sensorId);
+        for (int i = 0; i < extraKeys.length; i++)
+            if (extraKeys[i] == key)
+                return column(STORED_FIELDS.size() + i)[index];
+
+        return Double.NaN;
+    }
+
+    /**
+     * Get the number of bytes of the block that have been decoded so far.
+     *
+     * @return The number of bytes
+     */
+    public long getBytesRead() {
+        return (bitsRead + 7) / 8;
+    }
+
+    /**
+     * Rebuild the archive record at an index. All of the columns are decoded.
+     *
+     * @param index The index of the record
+     * @return The archive record
+     */
+    public HistoricalRecord toHistoricalRecord(int index) {
+        HistoricalRecord rec = new HistoricalRecord(getTime(index));
+        rec.setDuration(Duration.ofSeconds(durations[index]));
+        double v;
+        if (!Double.isNaN(v = stored(ArchiveField.AVG_OUTDOOR_TEMPERATURE, index)))
+            rec.setAvgOutdoorTemperature(new Temperature(v, Temperature.Unit.CELSIUS));
+
+        if (!Double.isNaN(v = stored(ArchiveField.LOW_OUTDOOR_TEMPERATURE, index)))
+            rec.setLowOutdoorTemperature(new Temperature(v, Temperature.Unit.CELSIUS));
+
+        if (!Double.isNaN(v = stored(ArchiveField.HIGH_OUTDOOR_TEMPERATURE, index)))
+            rec.setHighOutdoorTemperature(new Temperature(v, Temperature.Unit.CELSIUS));
+
+        if (!Double.isNaN(v = stored(ArchiveField.OUTDOOR_HUMIDITY, index)))
+            rec.setOutdoorHumidity(new Humidity(v));
+
+        if (!Double.isNaN(v = stored(ArchiveField.INDOOR_TEMPERATURE, index)))
+            rec.setIndoorTemperature(new Temperature(v, Temperature.Unit.CELSIUS));
+
+        if (!Double.isNaN(v = stored(ArchiveField.INDOOR_HUMIDITY, index)))
+            rec.setIndoorHumidity(new Humidity(v));
+
+        rec.setAvgWind(wind(ArchiveField.AVG_WIND_SPEED, ArchiveField.AVG_WIND_DIRECTION, index));
+        rec.setHighWind(wind(ArchiveField.HIGH_WIND_SPEED, ArchiveField.HIGH_WIND_DIRECTION, index));
+        rec.setWindGust(wind(ArchiveField.WIND_GUST_SPEED, ArchiveField.WIND_GUST_DIRECTION, index));
+
+        if (!Double.isNaN(v = stored(ArchiveField.BARO_PRESSURE, index)))
+            rec.setBaroPressure(new Pressure(v, Pressure.Unit.MILLIBAR));
+
+        if (!Double.isNaN(v = stored(ArchiveField.RAINFALL, index)))
+            rec.setRainfall(new Depth(v, Depth.Unit.MILLIMETERS));
+
+        if (!Double.isNaN(v = stored(ArchiveField.HIGH_RAINFALL_RATE, index)))
+            rec.setHighRainfallRate(new Depth(v, Depth.Unit.MILLIMETERS));
+
+        if (!Double.isNaN(v = stored(ArchiveField.AVG_SOLAR_RADIATION, index)))
+            rec.setAvgSolarRadiation(new SolarRadiation(v));
+
+        if (!Double.isNaN(v = stored(ArchiveField.HIGH_SOLAR_RADIATION, index)))
+            rec.setHighSolarRadiation(new SolarRadiation(v));
+
+        if (!Double.isNaN(v = stored(ArchiveField.AVG_UV_INDEX, index)))
+            rec.setAvgUvIndex((float)v);
+
+        if (!Double.isNaN(v = stored(ArchiveField.HIGH_UV_INDEX, index)))
+            rec.setHighUvIndex(new UvIndex(v));
+
+        if (!Double.isNaN(v = stored(ArchiveField.EVAPOTRANSPIRATION, index)))
+            rec.setEvapotranspiration(new Depth(v, Depth.Unit.MILLIMETERS));
+
+        for (int i = 0; i < extraKeys.length; i++) {
+            v = column(STORED_FIELDS.size() + i)[index];
+            if (Double.isNaN(v))
+                continue;
+
+            int sensorId = (int)extraKeys[i];
+            switch (ArchiveBlockCodec.EXTRA_SENSOR_TYPES[(int)(extraKeys[i] >>> 32)]) {
+                case THERMOMETER:
+                    rec.setTemperatureForSensor(sensorId, new Temperature(v, Temperature.Unit.CELSIUS));
+                    break;
+                case HYGROMETER:
+                    rec.setHumidityForSensor(sensorId, new Humidity(v));
+                    break;
+                case LEAF_WETNESS:
+                    rec.setLeafWetnessForSensor(sensorId, new LeafWetness(v));
+                    break;
+                default:
+                    rec.setSoilMoistureForSensor(sensorId, new SoilMoisture(v, SoilMoisture.Unit.CENTIBAR));
+                    break;
+            }
+        }
+
+        return rec;
+    }
+
+    private int current() {
+        if (position < 0 || position >= size)
+            throw new IllegalStateException("Archive block cursor is not on a record");
+
+        return position;
+    }
+
+    private double stored(ArchiveField field, int index) {
+        return column(storedColumn[field.ordinal()])[index];
+    }
+
+    private Wind wind(ArchiveField speedField, ArchiveField directionField, int index) {
+        double speed = stored(speedField, index);
+        if (Double.isNaN(speed))
+            return null;
+
+        double direction = stored(directionField, index);
+        return new Wind(new Speed(speed, Speed.Unit.METERS_PER_SEC), Double.isNaN(direction) ? null : new Heading(direction));
+    }
+
+    private float[] column(int c) {
+        if (columns[c] == null) {
+            BitReader reader = new BitReader(block, columnOffsets[c]);
+            columns[c] = decodeColumn(reader);
+            bitsRead += reader.bitsRead();
+        }
+
+        return columns[c];
+    }
+
+    /**
+     * Decode the presence map and the XOR encoded values of a column.
+     */
+    private float[] decodeColumn(BitReader reader) {
+        float[] values = new float[size];
+        Arrays.fill(values, Float.NaN);
+        int mode = (int)reader.read(2);
+        if (mode == ArchiveBlockCodec.PRESENCE_NONE)
+            return values;
+
+        int[] indexes;
+        int present;
+        switch (mode) {
+            case ArchiveBlockCodec.PRESENCE_ALL:
+                indexes = null;
+                present = size;
+                break;
+            case ArchiveBlockCodec.PRESENCE_LIST:
+                present = (int)reader.read(32);
+                indexes = new int[present];
+                int previous = -1;
+                for (int i = 0; i < present; i++) {
+                    previous += (int)reader.readPrefixed() + 1;
+                    indexes[i] = previous;
+                }
+                break;
+            default:
+                indexes = new int[size];
+                present = 0;
+                for (int i = 0; i < size; i++)
+                    if (reader.read(1) != 0)
+                        indexes[present++] = i;
+                break;
+        }
+
+        int bits = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int n = 0; n < present; n++) {
+            if (n == 0)
+                bits = (int)reader.read(32);
+            else if (reader.read(1) != 0) {
+                if (reader.read(1) != 0) {
+                    leading = (int)reader.read(5);
+                    trailing = 32 - leading - ((int)reader.read(5) + 1);
+                }
+
+                int length = 32 - leading - trailing;
+                bits ^= (int)reader.read(length) << trailing;
+            }
+
+            values[indexes == null ? n : indexes[n]] = Float.intBitsToFloat(bits);
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,94 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.util.function.ToDoubleFunction;
+
+import com.bdb.util.measurement.Measurement;
+import com.bdb.util.measurement.Unit;
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.SolarRadiation;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * The numeric fields of an archive record. The value of a field is extracted as a primitive in the storage unit of its
+ * measurement (Celsius, %, meters per second, degrees, millibars, millimeters, W/m2), or NaN if the field is not set.
+ */
+public enum ArchiveField {
+    AVG_OUTDOOR_TEMPERATURE((rec) -> value(rec.getAvgOutdoorTemperature(), Temperature.Unit.CELSIUS)),
+    LOW_OUTDOOR_TEMPERATURE((rec) -> value(rec.getLowOutdoorTemperature(), Temperature.Unit.CELSIUS)),
+    HIGH_OUTDOOR_TEMPERATURE((rec) -> value(rec.getHighOutdoorTemperature(), Temperature.Unit.CELSIUS)),
+    OUTDOOR_HUMIDITY((rec) -> value(rec.getOutdoorHumidity(), Humidity.Unit.RELATIVE_HUMIDITY)),
+    INDOOR_TEMPERATURE((rec) -> value(rec.getIndoorTemperature(), Temperature.Unit.CELSIUS)),
+    INDOOR_HUMIDITY((rec) -> value(rec.getIndoorHumidity(), Humidity.Unit.RELATIVE_HUMIDITY)),
+    DEW_POINT((rec) -> value(rec.getDewPoint(), Temperature.Unit.CELSIUS), true),
+    HEAT_INDEX((rec) -> value(rec.getHeatIndex(), Temperature.Unit.CELSIUS), true),
+    WIND_CHILL((rec) -> value(rec.getWindChill(), Temperature.Unit.CELSIUS), true),
+    AVG_WIND_SPEED((rec) -> value(rec.getAvgWindSpeed(), Speed.Unit.METERS_PER_SEC)),
+    HIGH_WIND_SPEED((rec) -> value(rec.getHighWindSpeed(), Speed.Unit.METERS_PER_SEC)),
+    WIND_GUST_SPEED((rec) -> value(rec.getWindGustSpeed(), Speed.Unit.METERS_PER_SEC)),
+    AVG_WIND_DIRECTION((rec) -> value(rec.getAvgWindDirection(), Heading.Unit.DEGREES)),
+    HIGH_WIND_DIRECTION((rec) -> value(rec.getHighWindDirection(), Heading.Unit.DEGREES)),
+    WIND_GUST_DIRECTION((rec) -> value(rec.getWindGustDirection(), Heading.Unit.DEGREES)),
+    BARO_PRESSURE((rec) -> value(rec.getBaroPressure(), Pressure.Unit.MILLIBAR)),
+    RAINFALL((rec) -> value(rec.getRainfall(), Depth.Unit.MILLIMETERS)),
+    HIGH_RAINFALL_RATE((rec) -> value(rec.getHighRainfallRate(), Depth.Unit.MILLIMETERS)),
+    AVG_SOLAR_RADIATION((rec) -> value(rec.getAvgSolarRadiation(), SolarRadiation.Unit.WATTS_PER_METER_SQUARED)),
+    HIGH_SOLAR_RADIATION((rec) -> value(rec.getHighSolarRadiation(), SolarRadiation.Unit.WATTS_PER_METER_SQUARED)),
+    AVG_UV_INDEX((rec) -> rec.getAvgUvIndex() == null ? Double.NaN : rec.getAvgUvIndex()),
+    HIGH_UV_INDEX((rec) -> rec.getHighUvIndex() == null ? Double.NaN : rec.getHighUvIndex().getIndex()),
+    EVAPOTRANSPIRATION((rec) -> value(rec.getEvapotranspiration(), Depth.Unit.MILLIMETERS));
+
+    private final ToDoubleFunction<HistoricalRecord> extractor;
+    private final boolean derived;
+
+    ArchiveField(ToDoubleFunction<HistoricalRecord> extractor) {
+        this(extractor, false);
+    }
+
+    ArchiveField(ToDoubleFunction<HistoricalRecord> extractor, boolean derived) {
+        this.extractor = extractor;
+        this.derived = derived;
+    }
+
+    /**
+     * Get the value of this field.
+     *
+     * @param rec The archive record
+     * @return The value in the storage unit of the measurement or NaN if the field is not set
+     */
+    public double getValue(HistoricalRecord rec) {
+        return extractor.applyAsDouble(rec);
+    }
+
+    /**
+     * Whether the field is calculated from other fields rather than being stored in the archive record.
+     *
+     * @return True if the field is derived
+     */
+    public boolean isDerived() {
+        return derived;
+    }
+
+    private static double value(Measurement m, Unit unit) {
+        return m == null ? Double.NaN : m.get(unit);
+    }
+}
@@ -0,0 +1,335 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Index of which archive intervals have a record. Each day has one bit per archive interval (288 bits for a 5 minute
+ * interval) in a single bit set that covers the days from the earliest record, so a run of missing intervals that spans
+ * midnight is found as one gap. The number of records of each day is kept alongside the bits so that the completeness
+ * of a day is a lookup.
+ * <br>
+ * A record occupies the interval that contains its time. The index is built with one pass over the records.
+ */
+public class ArchivePresenceIndex {
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final int INITIAL_CAPACITY = 366;
+
+    private final int intervalSeconds;
+    private final int intervalsPerDay;
+    private final BitSet presence = new BitSet();
+    private long firstDay = Long.MIN_VALUE;
+    private int[] dayCounts = new int[INITIAL_CAPACITY];
+    private int numDays = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param interval The archive interval, which must divide a day evenly
+     */
+    public ArchivePresenceIndex(Duration interval) {
+        long seconds = interval.getSeconds();
+        if (seconds <= 0 || SECONDS_PER_DAY % seconds != 0)
+            throw new IllegalArgumentException("Archive interval must divide a day evenly: " + interval);
+
+        intervalSeconds = (int)seconds;
+        intervalsPerDay = SECONDS_PER_DAY / intervalSeconds;
+    }
+
+    /**
+     * Constructor that uses the archive interval of a console.
+     *
+     * @param info The archive information of the console
+     */
+    public ArchivePresenceIndex(HistoricalInfo info) {
+        this(Duration.ofMinutes(info.getRecordIntervalSetting()));
+    }
+
+    /**
+     * Get the archive interval.
+     *
+     * @return The interval
+     */
+    public Duration getInterval() {
+        return Duration.ofSeconds(intervalSeconds);
+    }
+
+    /**
+     * Get the number of archive intervals in a day.
+     *
+     * @return The number of intervals
+     */
+    public int getIntervalsPerDay() {
+        return intervalsPerDay;
+    }
+
+    /**
+     * Mark the interval of a time as having a record.
+     *
+     * @param time The time of the archive record
+     */
+    public synchronized void addTime(LocalDateTime time) {
+        long second = time.toEpochSecond(ZoneOffset.UTC);
+        long day = Math.floorDiv(second, SECONDS_PER_DAY);
+        if (numDays == 0)
+            firstDay = day;
+        else if (day < firstDay)
+            rebase(day);
+
+        int d = (int)(day - firstDay);
+        if (d >= numDays)
+            extend(d + 1);
+
+        int bit = d * intervalsPerDay + (int)(Math.floorMod(second, SECONDS_PER_DAY) / intervalSeconds);
+        if (!presence.get(bit)) {
+            presence.set(bit);
+            dayCounts[d]++;
+        }
+    }
+
+    /**
+     * Mark the interval of an archive record as having a record.
+     *
+     * @param rec The archive record
+     */
+    public void addHistoricalRecord(HistoricalRecord rec) {
+        addTime(rec.getTime());
+    }
+
+    /**
+     * Mark the intervals of a collection of archive records.
+     *
+     * @param records The archive records
+     */
+    public synchronized void addHistoricalRecords(Collection<HistoricalRecord> records) {
+        for (HistoricalRecord rec : records)
+            addTime(rec.getTime());
+    }
+
+    /**
+     * Check whether the interval that contains a time has a record.
+     *
+     * @param time The time
+     * @return True if there is a record
+     */
+    public synchronized boolean isPresent(LocalDateTime time) {
+        if (numDays == 0)
+            return false;
+
+        long bit = toBit(time, firstDay);
+        return bit >= 0 && bit < (long)numDays * intervalsPerDay && presence.get((int)bit);
+    }
+
+    /**
+     * Get the number of records of a day.
+     *
+     * @param date The day
+     * @return The number of records
+     */
+    public synchronized int getRecordCount(LocalDate date) {
+        long d = date.toEpochDay() - firstDay;
+        return numDays == 0 || d < 0 || d >= numDays ? 0 : dayCounts[(int)d];
+    }
+
+    /**
+     * Get the completeness of a day.
+     *
+     * @param date The day
+     * @return The percentage of the intervals of the day that have a record
+     */
+    public double getCompleteness(LocalDate date) {
+        return getRecordCount(date) * 100.0 / intervalsPerDay;
+    }
+
+    /**
+     * Get the completeness of each day of a range.
+     *
+     * @param start The first day
+     * @param end The last day, inclusive
+     * @return The percentage of the intervals of each day that have a record
+     */
+    public synchronized double[] getCompleteness(LocalDate start, LocalDate end) {
+        int length = (int)Math.max(0, end.toEpochDay() - start.toEpochDay() + 1);
+        double[] completeness = new double[length];
+        for (int i = 0; i < length; i++)
+            completeness[i] = getRecordCount(start.plusDays(i)) * 100.0 / intervalsPerDay;
+
+        return completeness;
+    }
+
+    /**
+     * Find the days of a range whose completeness is below a threshold, such as the days whose summaries should not be
+     * trusted.
+     *
+     * @param start The first day
+     * @param end The last day, inclusive
+     * @param thresholdPercent The threshold percentage
+     * @return The incomplete days
+     */
+    public synchronized List<LocalDate> getIncompleteDays(LocalDate start, LocalDate end, double thresholdPercent) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1))
+            if (getCompleteness(date) < thresholdPercent)
+                days.add(date);
+
+        return days;
+    }
+
+    /**
+     * Find the intervals of a time range that do not have a record.
+     *
+     * @param start The start of the range, inclusive
+     * @param end The end of the range, exclusive
+     * @return The missing ranges in time order, each from the start of its first missing interval to the start of the next present interval
+     */
+    public List<DateRange> findMissingIntervals(LocalDateTime start, LocalDateTime end) {
+        return findMissingIntervals(start, end, Duration.ZERO);
+    }
+
+    /**
+     * Plan the downloads from a console that fill the missing intervals of a time range. The console only holds the
+     * records from its first record time, so earlier gaps are left out of the plan. Gaps that are separated by fewer
+     * present records than the merge gap are downloaded as one range, since downloading a few duplicate records is
+     * cheaper than another command to the console. A console without records may not report its first and last record
+     * times, in which case the range is not limited at that end.
+     *
+     * @param info The archive information of the console
+     * @param start The start of the range, inclusive
+     * @param end The end of the range, exclusive
+     * @param mergeGap The longest run of present records that is downloaded again to join two gaps
+     * @return The download ranges in time order
+     */
+    public List<DateRange> planBackfill(HistoricalInfo info, LocalDateTime start, LocalDateTime end, Duration mergeGap) {
+        if (info.getFirstRecordTime() != null && start.isBefore(info.getFirstRecordTime()))
+            start = info.getFirstRecordTime();
+
+        if (info.getLastRecordTime() != null && end.isAfter(info.getLastRecordTime().plusSeconds(intervalSeconds)))
+            end = info.getLastRecordTime().plusSeconds(intervalSeconds);
+
+        if (!end.isAfter(start))
+            return new ArrayList<>();
+
+        return findMissingIntervals(start, end, mergeGap);
+    }
+
+    private synchronized List<DateRange> findMissingIntervals(LocalDateTime start, LocalDateTime end, Duration mergeGap) {
+        List<DateRange> ranges = new ArrayList<>();
+        long base = numDays == 0 ? Math.floorDiv(start.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_DAY) : firstDay;
+        long from = toBit(start, base);
+        long to = toBit(end.minusSeconds(1), base) + 1;
+        long mergeIntervals = mergeGap.getSeconds() / intervalSeconds;
+        long indexed = (long)numDays * intervalsPerDay;
+
+        boolean open = false;
+        long rangeStart = 0;
+        long rangeEnd = 0;
+        long bit = from;
+        while (bit < to) {
+            long missingStart = nextClearBit(bit, indexed);
+            if (missingStart >= to)
+                break;
+
+            long missingEnd = Math.min(nextSetBit(missingStart, indexed), to);
+            if (open && missingStart - rangeEnd <= mergeIntervals)
+                rangeEnd = missingEnd;
+            else {
+                if (open)
+                    ranges.add(toRange(base, rangeStart, rangeEnd));
+
+                open = true;
+                rangeStart = missingStart;
+                rangeEnd = missingEnd;
+            }
+
+            bit = missingEnd;
+        }
+
+        if (open)
+            ranges.add(toRange(base, rangeStart, rangeEnd));
+
+        return ranges;
+    }
+
+    /**
+     * The bits outside of the indexed days are all clear.
+     */
+    private long nextClearBit(long bit, long indexed) {
+        if (bit < 0 || bit >= indexed)
+            return bit;
+
+        return presence.nextClearBit((int)bit);
+    }
+
+    private long nextSetBit(long bit, long indexed) {
+        if (bit < 0)
+            return indexed > 0 ? presence.nextSetBit(0) : Long.MAX_VALUE;
+
+        if (bit >= indexed)
+            return Long.MAX_VALUE;
+
+        int next = presence.nextSetBit((int)bit);
+        return next < 0 ? Long.MAX_VALUE : next;
+    }
+
+    private DateRange toRange(long base, long startBit, long endBit) {
+        long startSecond = base * SECONDS_PER_DAY + startBit * intervalSeconds;
+        long endSecond = base * SECONDS_PER_DAY + endBit * intervalSeconds;
+        return new DateRange(LocalDateTime.ofEpochSecond(startSecond, 0, ZoneOffset.UTC), LocalDateTime.ofEpochSecond(endSecond, 0, ZoneOffset.UTC));
+    }
+
+    /**
+     * The bit of the interval that contains a time, relative to a day. The bit is negative for times before the day.
+     */
+    private long toBit(LocalDateTime time, long base) {
+        long second = time.toEpochSecond(ZoneOffset.UTC);
+        long day = Math.floorDiv(second, SECONDS_PER_DAY);
+        return (day - base) * intervalsPerDay + Math.floorMod(second, SECONDS_PER_DAY) / intervalSeconds;
+    }
+
+    private void extend(int days) {
+        if (days > dayCounts.length)
+            dayCounts = Arrays.copyOf(dayCounts, Math.max(days, dayCounts.length * 2));
+
+        numDays = days;
+    }
+
+    /**
+     * Move the first day earlier, shifting the existing bits and counts.
+     */
+    private void rebase(long day) {
+        int shift = (int)(firstDay - day);
+        BitSet old = (BitSet)presence.clone();
+        presence.clear();
+        for (int bit = old.nextSetBit(0); bit >= 0; bit = old.nextSetBit(bit + 1))
+            presence.set(bit + shift * intervalsPerDay);
+
+        int[] counts = new int[Math.max(numDays + shift, dayCounts.length)];
+        System.arraycopy(dayCounts, 0, counts, shift, numDays);
+        dayCounts = counts;
+        numDays += shift;
+        firstDay = day;
+    }
+}
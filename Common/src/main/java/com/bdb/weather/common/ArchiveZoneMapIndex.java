@@ -0,0 +1,304 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Archive records stored in compressed blocks, each with a zone map of the minimum and maximum of every archive field.
+ * A block holds the records of one day, or fewer if the day has more than the maximum number of records per block.
+ * <br>
+ * A value query only decodes the blocks whose range of the field overlaps the range of the query, so a search for
+ * extreme events over many years reads a few blocks. The zone maps are kept in primitive columns that are scanned
+ * sequentially. The records of the current day are kept uncompressed until the day ends or the block is full. The
+ * values of the compressed blocks are stored as floats, so the range of a query is compared to the values with the
+ * precision at which they are stored.
+ * <br>
+ * Records must be added in time order.
+ */
+public class ArchiveZoneMapIndex {
+    /**
+     * The default maximum number of records in a block, a day of one minute records.
+     */
+    public static final int DEFAULT_MAX_BLOCK_RECORDS = 1440;
+    private static final ArchiveField[] FIELDS = ArchiveField.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxBlockRecords;
+    private byte[][] blocks = new byte[INITIAL_CAPACITY][];
+    private long[] blockStarts = new long[INITIAL_CAPACITY];
+    private long[] blockEnds = new long[INITIAL_CAPACITY];
+    private final float[][] minimums = new float[FIELDS.length][INITIAL_CAPACITY];
+    private final float[][] maximums = new float[FIELDS.length][INITIAL_CAPACITY];
+    private int numBlocks = 0;
+    private final List<HistoricalRecord> openBlock = new ArrayList<>();
+    private LocalDate openBlockDate = null;
+    private LocalDateTime lastTime = null;
+
+    /**
+     * Constructor that uses the default maximum number of records per block.
+     */
+    public ArchiveZoneMapIndex() {
+        this(DEFAULT_MAX_BLOCK_RECORDS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxBlockRecords The maximum number of records in a block
+     */
+    public ArchiveZoneMapIndex(int maxBlockRecords) {
+        if (maxBlockRecords < 1)
+            throw new IllegalArgumentException("Maximum block records must be positive: " + maxBlockRecords);
+
+        this.maxBlockRecords = maxBlockRecords;
+    }
+
+    /**
+     * Add an archive record.
+     *
+     * @param rec The archive record, which must be later than the previous record
+     */
+    public synchronized void addHistoricalRecord(HistoricalRecord rec) {
+        if (lastTime != null && !rec.getTime().isAfter(lastTime))
+            throw new IllegalArgumentException("Archive record at " + rec.getTime() + " is not after " + lastTime);
+
+        LocalDate date = rec.getTime().toLocalDate();
+        if (!openBlock.isEmpty() && (!date.equals(openBlockDate) || openBlock.size() >= maxBlockRecords))
+            sealBlock();
+
+        openBlock.add(rec);
+        openBlockDate = date;
+        lastTime = rec.getTime();
+    }
+
+    /**
+     * Add a collection of archive records.
+     *
+     * @param records The archive records in time order
+     */
+    public synchronized void addHistoricalRecords(Collection<HistoricalRecord> records) {
+        for (HistoricalRecord rec : records)
+            addHistoricalRecord(rec);
+    }
+
+    /**
+     * Compress the records that have not yet been stored in a block.
+     */
+    public synchronized void flush() {
+        if (!openBlock.isEmpty())
+            sealBlock();
+    }
+
+    /**
+     * Get the number of compressed blocks.
+     *
+     * @return The number of blocks
+     */
+    public synchronized int getBlockCount() {
+        return numBlocks;
+    }
+
+    /**
+     * Get the number of compressed bytes.
+     *
+     * @return The number of bytes
+     */
+    public synchronized long getCompressedSize() {
+        long size = 0;
+        for (int b = 0; b < numBlocks; b++)
+            size += blocks[b].length;
+
+        return size;
+    }
+
+    /**
+     * Get the number of compressed blocks that a query would decode.
+     *
+     * @param field The field
+     * @param low The lowest value, inclusive
+     * @param high The highest value, inclusive
+     * @param start The start of the time range, inclusive
+     * @param end The end of the time range, exclusive
+     * @return The number of blocks
+     */
+    public synchronized int countCandidateBlocks(ArchiveField field, double low, double high, LocalDateTime start, LocalDateTime end) {
+        int count = 0;
+        for (int b = firstBlock(start); b < numBlocks && blockStarts[b] < toSecond(end); b++)
+            if (isCandidate(field, b, low, high))
+                count++;
+
+        return count;
+    }
+
+    /**
+     * Find the archive records whose value of a field is within a range.
+     *
+     * @param field The field
+     * @param low The lowest value in the storage unit, inclusive. Use negative infinity for no lower limit.
+     * @param high The highest value in the storage unit, inclusive. Use positive infinity for no upper limit.
+     * @return The matching records in time order
+     */
+    public List<HistoricalRecord> query(ArchiveField field, double low, double high) {
+        return query(field, low, high, LocalDateTime.MIN, LocalDateTime.MAX);
+    }
+
+    /**
+     * Find the archive records in a time range whose value of a field is within a range.
+     *
+     * @param field The field
+     * @param low The lowest value in the storage unit, inclusive. Use negative infinity for no lower limit.
+     * @param high The highest value in the storage unit, inclusive. Use positive infinity for no upper limit.
+     * @param start The start of the time range, inclusive
+     * @param end The end of the time range, exclusive
+     * @return The matching records in time order
+     */
+    public synchronized List<HistoricalRecord> query(ArchiveField field, double low, double high, LocalDateTime start, LocalDateTime end) {
+        List<HistoricalRecord> matches = new ArrayList<>();
+        long startSecond = toSecond(start);
+        long endSecond = toSecond(end);
+        for (int b = firstBlock(start); b < numBlocks && blockStarts[b] < endSecond; b++) {
+            if (!isCandidate(field, b, low, high))
+                continue;
+
+            ArchiveBlockCursor cursor = ArchiveBlockCodec.decode(blocks[b]);
+            for (int i = 0; i < cursor.size(); i++) {
+                long time = cursor.getEpochSecond(i);
+                if (time < startSecond || time >= endSecond)
+                    continue;
+
+                double value = cursor.getValue(field, i);
+                if (value >= low && value <= high)
+                    matches.add(cursor.toHistoricalRecord(i));
+            }
+        }
+
+        //
+        // The records of the open block are not compressed, so they have the full precision of the values
+        //
+        for (HistoricalRecord rec : openBlock) {
+            if (rec.getTime().isBefore(start) || !rec.getTime().isBefore(end))
+                continue;
+
+            double value = field.getValue(rec);
+            if (value >= low && value <= high)
+                matches.add(rec);
+        }
+
+        return matches;
+    }
+
+    private boolean isCandidate(ArchiveField field, int block, double low, double high) {
+        float min = minimums[field.ordinal()][block];
+        float max = maximums[field.ordinal()][block];
+        return !Float.isNaN(min) && max >= low && min <= high;
+    }
+
+    /**
+     * Find the first block that ends at or after a time.
+     */
+    private int firstBlock(LocalDateTime start) {
+        long second = toSecond(start);
+        int index = Arrays.binarySearch(blockEnds, 0, numBlocks, second);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        if (time.equals(LocalDateTime.MIN))
+            return Long.MIN_VALUE;
+        else if (time.equals(LocalDateTime.MAX))
+            return Long.MAX_VALUE;
+        else
+            return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Compress the open block and build its zone map. The zone map is calculated from the decoded block so that it
+     * bounds the values exactly as a query will see them.
+     */
+    private void sealBlock() {
+        byte[] block = ArchiveBlockCodec.encode(openBlock);
+        ArchiveBlockCursor cursor = ArchiveBlockCodec.decode(block);
+        if (numBlocks == blocks.length)
+            grow();
+
+        int b = numBlocks;
+        blocks[b] = block;
+        blockStarts[b] = cursor.getEpochSecond(0);
+        blockEnds[b] = cursor.getEpochSecond(cursor.size() - 1);
+        for (ArchiveField field : FIELDS) {
+            minimums[field.ordinal()][b] = Float.NaN;
+            maximums[field.ordinal()][b] = Float.NaN;
+        }
+
+        for (int i = 0; i < cursor.size(); i++) {
+            HistoricalRecord rec = null;
+            for (ArchiveField field : FIELDS) {
+                double value;
+                if (field.isDerived()) {
+                    if (rec == null)
+                        rec = cursor.toHistoricalRecord(i);
+
+                    value = field.getValue(rec);
+                }
+                else
+                    value = cursor.getValue(field, i);
+
+                if (Double.isNaN(value))
+                    continue;
+
+                //
+                // Round outward so that the float bounds contain the value
+                //
+                float min = (float)value;
+                if (min > value)
+                    min = Math.nextDown(min);
+
+                float max = (float)value;
+                if (max < value)
+                    max = Math.nextUp(max);
+
+                int f = field.ordinal();
+                if (Float.isNaN(minimums[f][b]) || min < minimums[f][b])
+                    minimums[f][b] = min;
+
+                if (Float.isNaN(maximums[f][b]) || max > maximums[f][b])
+                    maximums[f][b] = max;
+            }
+        }
+
+        numBlocks++;
+        openBlock.clear();
+    }
+
+    private void grow() {
+        int capacity = blocks.length * 2;
+        blocks = Arrays.copyOf(blocks, capacity);
+        blockStarts = Arrays.copyOf(blockStarts, capacity);
+        blockEnds = Arrays.copyOf(blockEnds, capacity);
+        for (int f = 0; f < FIELDS.length; f++) {
+            minimums[f] = Arrays.copyOf(minimums[f], capacity);
+            maximums[f] = Arrays.copyOf(maximums[f], capacity);
+        }
+    }
+}
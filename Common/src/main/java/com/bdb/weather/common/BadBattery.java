@@ -36,6 +36,18 @@ public class BadBattery {
         measurementCount = 1;
     }
 
+    /**
+     * Copy constructor.
+     *
+     * @param other The bad battery episode to copy
+     */
+    public BadBattery(BadBattery other) {
+        this.sensorStationId = other.sensorStationId;
+        this.timeDetected = other.timeDetected;
+        this.duration = other.duration;
+        this.measurementCount = other.measurementCount;
+    }
+
     public void incrementMeasurementCount(LocalDateTime time) {
         duration = Duration.between(timeDetected, time);
         measurementCount++;
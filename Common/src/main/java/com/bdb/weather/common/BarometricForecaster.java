@@ -0,0 +1,173 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Pressure;
+
+/**
+ * Local forecast engine that applies the barometer forecasting rules to the current weather. The 10 minute average
+ * wind direction and the 3 hour pressure tendency are maintained by a rolling aggregator, and the direction is sampled
+ * every 30 minutes into a small ring so that a shift of the wind to the west can be detected. The rules are compiled
+ * into a decision table indexed by the wind sector, the pressure band, the tendency and the shift to the west, so
+ * evaluating them for each current weather is a single lookup.
+ * <br>
+ * The forecast only depends on the current weather that was received, so replaying the same current weather
+ * produces the same forecasts.
+ */
+public class BarometricForecaster implements CurrentWeatherSubscriber.CurrentWeatherHandler {
+    private static final WeatherTrend[] TRENDS = WeatherTrend.values();
+    private static final ForecastRule[] RULES = ForecastRule.values();
+    private static final byte[] DECISION_TABLE = new byte[ForecastRule.NUM_WIND_SECTORS * ForecastRule.NUM_PRESSURE_BANDS * TRENDS.length * 2];
+    private static final long SECTOR_SAMPLE_MILLIS = Duration.ofMinutes(30).toMillis();
+    private static final int SECTOR_HISTORY = 7;
+    private static final int WEST = ForecastRule.windSector(270.0);
+    private static final int UNKNOWN = -1;
+
+    private final RollingWeatherAggregator aggregator = new RollingWeatherAggregator();
+    private final int[] sectorHistory = new int[SECTOR_HISTORY];
+    private int sectorHistoryCount = 0;
+    private long nextSectorSampleTime = Long.MIN_VALUE;
+    private int sector = UNKNOWN;
+    private double pressureInHg = Double.NaN;
+    private ForecastRule rule = null;
+    private LocalDateTime ruleTime = null;
+
+    static {
+        //
+        // The later rules take precedence over the earlier ones where they overlap
+        //
+        for (int sector = 0; sector < ForecastRule.NUM_WIND_SECTORS; sector++)
+            for (int band = 0; band < ForecastRule.NUM_PRESSURE_BANDS; band++)
+                for (WeatherTrend trend : TRENDS)
+                    for (int west = 0; west < 2; west++)
+                        for (ForecastRule r : RULES)
+                            if (r.matches(sector, band, trend, west == 1))
+                                DECISION_TABLE[tableIndex(sector, band, trend, west == 1)] = (byte)(r.ordinal() + 1);
+    }
+
+    /**
+     * Constructor.
+     */
+    public BarometricForecaster() {
+    }
+
+    /**
+     * Look up the rule for a combination of the conditions in the decision table.
+     *
+     * @param sector The wind sector, see {@link ForecastRule#windSector(double)}
+     * @param band The pressure band, see {@link ForecastRule#pressureBand(double)}
+     * @param trend The 3 hour pressure tendency
+     * @param goingToWest Whether the wind has shifted to the west
+     * @return The rule or null if no rule applies
+     */
+    public static ForecastRule lookupRule(int sector, int band, WeatherTrend trend, boolean goingToWest) {
+        int entry = DECISION_TABLE[tableIndex(sector, band, trend, goingToWest)];
+        return entry == 0 ? null : RULES[entry - 1];
+    }
+
+    /**
+     * Apply a current weather sample and evaluate the rules.
+     *
+     * @param cw The current weather
+     */
+    @Override
+    public synchronized void handleCurrentWeather(CurrentWeather cw) {
+        aggregator.handleCurrentWeather(cw);
+
+        Pressure pressure = cw.getBarometricPressure();
+        if (pressure != null)
+            pressureInHg = pressure.get(Pressure.Unit.IN_HG);
+
+        //
+        // The last known direction is kept while the wind is calm
+        //
+        Heading direction = aggregator.getWindDirection10MinAvg();
+        if (direction != null)
+            sector = ForecastRule.windSector(direction.get(Heading.Unit.DEGREES));
+
+        long time = aggregator.getLatestTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+        if (sector != UNKNOWN && time >= nextSectorSampleTime) {
+            if (sectorHistoryCount == SECTOR_HISTORY) {
+                System.arraycopy(sectorHistory, 1, sectorHistory, 0, SECTOR_HISTORY - 1);
+                sectorHistoryCount--;
+            }
+
+            sectorHistory[sectorHistoryCount++] = sector;
+            nextSectorSampleTime = time + SECTOR_SAMPLE_MILLIS;
+        }
+
+        WeatherTrend trend = aggregator.getPressureTrend();
+        if (sector == UNKNOWN || trend == null || Double.isNaN(pressureInHg))
+            rule = null;
+        else
+            rule = lookupRule(sector, ForecastRule.pressureBand(pressureInHg), trend, isGoingToWest());
+
+        ruleTime = cw.getTime();
+    }
+
+    /**
+     * Get the rule that applied to the latest current weather.
+     *
+     * @return The rule or null if no rule applied or there is not yet 3 hours of pressure history
+     */
+    public synchronized ForecastRule getForecastRule() {
+        return rule;
+    }
+
+    /**
+     * Get the forecast of the rule that applied to the latest current weather.
+     *
+     * @return The forecast or null if no rule applied
+     */
+    public synchronized Forecast getForecast() {
+        return rule == null ? null : rule.getForecast();
+    }
+
+    /**
+     * Get the time of the current weather that was last evaluated.
+     *
+     * @return The time or null if no current weather has been received
+     */
+    public synchronized LocalDateTime getForecastTime() {
+        return ruleTime;
+    }
+
+    /**
+     * Get the 3 hour pressure tendency used by the rules.
+     *
+     * @return The tendency or null if there is not yet 3 hours of pressure history
+     */
+    public synchronized WeatherTrend getPressureTrend() {
+        return aggregator.getPressureTrend();
+    }
+
+    /**
+     * The wind is going to the west if it is now from the west but was from another direction at the start of the history.
+     */
+    private boolean isGoingToWest() {
+        return sector == WEST && sectorHistoryCount > 1 && sectorHistory[0] != WEST;
+    }
+
+    private static int tableIndex(int sector, int band, WeatherTrend trend, boolean goingToWest) {
+        return ((sector * ForecastRule.NUM_PRESSURE_BANDS + band) * TRENDS.length + trend.ordinal()) * 2 + (goingToWest ? 1 : 0);
+    }
+}
@@ -0,0 +1,424 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * Builds smoothed daily climate normals from the daily summaries of a weather station, for stations that have years of
+ * their own data but no official normals nearby. The summaries are reduced to per day of year sums and counts of the
+ * high, low and mean temperature and the rainfall in one parallel pass, and the raw daily means are then smoothed,
+ * either with the first few harmonics of the annual cycle or with a centered moving window.
+ * <br>
+ * Monthly normals can also be interpolated to smooth daily normals with the same harmonics. The harmonics are corrected
+ * so that the mean of the daily normals of each month is the monthly normal, so a comparison against the daily normals
+ * does not step at the month boundaries but still agrees with the monthly normals.
+ * <br>
+ * The normals have 365 days. February 29 is combined with March 1, as in {@link DayOfYearCollection}.
+ */
+public class ClimateNormalsBuilder {
+    /**
+     * The number of days of the normals
+     */
+    public static final int DAYS = 365;
+    private static final int MONTHS = 12;
+    private static final int HIGH = 0;
+    private static final int LOW = 1;
+    private static final int MEAN = 2;
+    private static final int RAIN = 3;
+    private static final int NUM_FIELDS = 4;
+    //
+    // 2001 is used for the month and day of each day of the normals because it is not a leap year
+    //
+    private static final int NORMALS_YEAR = 2001;
+    private static final int MONTHLY_ITERATIONS = 10;
+
+    /**
+     * The method that smooths the raw daily means.
+     */
+    public enum Smoothing {
+        /**
+         * A least squares fit of the mean and the first harmonics of the annual cycle
+         */
+        HARMONIC,
+        /**
+         * A centered moving window that wraps around the end of the year
+         */
+        MOVING_WINDOW
+    }
+
+    /**
+     * The sums and counts of each field for each day of the year.
+     */
+    private static final class Accumulator {
+        private final double[][] sums = new double[NUM_FIELDS][DAYS];
+        private final int[][] counts = new int[NUM_FIELDS][DAYS];
+
+        void add(SummaryRecord rec) {
+            int day = dayIndex(rec.getDate());
+            add(HIGH, day, rec.getMaxOutdoorTemp());
+            add(LOW, day, rec.getMinOutdoorTemp());
+            add(MEAN, day, rec.getAvgOutdoorTemp());
+            if (rec.getTotalRainfall() != null) {
+                sums[RAIN][day] += rec.getTotalRainfall().get(Depth.Unit.MILLIMETERS);
+                counts[RAIN][day]++;
+            }
+        }
+
+        private void add(int field, int day, Temperature t) {
+            if (t != null) {
+                sums[field][day] += t.get(Temperature.Unit.CELSIUS);
+                counts[field][day]++;
+            }
+        }
+
+        void combine(Accumulator other) {
+            for (int f = 0; f < NUM_FIELDS; f++) {
+                for (int d = 0; d < DAYS; d++) {
+                    sums[f][d] += other.sums[f][d];
+                    counts[f][d] += other.counts[f][d];
+                }
+            }
+        }
+    }
+
+    private final Smoothing smoothing;
+    private final int harmonics;
+    private final int window;
+
+    /**
+     * Constructor that smooths with 3 harmonics.
+     */
+    public ClimateNormalsBuilder() {
+        this(Smoothing.HARMONIC, 3);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param smoothing The smoothing method
+     * @param parameter The number of harmonics for harmonic smoothing, the odd number of days of the window for moving window smoothing
+     */
+    public ClimateNormalsBuilder(Smoothing smoothing, int parameter) {
+        if (smoothing == Smoothing.HARMONIC && (parameter < 1 || parameter > DAYS / 2))
+            throw new IllegalArgumentException("Number of harmonics must be between 1 and " + DAYS / 2 + ": " + parameter);
+
+        if (smoothing == Smoothing.MOVING_WINDOW && (parameter < 1 || parameter % 2 == 0 || parameter > DAYS))
+            throw new IllegalArgumentException("Window must be an odd number of days: " + parameter);
+
+        this.smoothing = smoothing;
+        this.harmonics = smoothing == Smoothing.HARMONIC ? parameter : 0;
+        this.window = smoothing == Smoothing.MOVING_WINDOW ? parameter : 0;
+    }
+
+    /**
+     * Get the index of a date in the normals.
+     *
+     * @param date The date
+     * @return The index from 0 for January 1 to 364 for December 31, February 29 has the index of March 1
+     */
+    public static int dayIndex(LocalDate date) {
+        int day = date.getDayOfYear() - 1;
+        return date.isLeapYear() && day > 59 ? day - 1 : day;
+    }
+
+    /**
+     * Build the daily normals from the daily summaries. Fields that have no values for any day are left out of the
+     * normals, a null temperature or rainfall.
+     *
+     * @param records The daily summaries, in any order
+     * @return The normals for each day of the year
+     */
+    public DayOfYearCollection<WeatherAverage> buildNormals(Collection<SummaryRecord> records) {
+        Accumulator accumulator = records.parallelStream().collect(Accumulator::new, Accumulator::add, Accumulator::combine);
+        double[][] normals = new double[NUM_FIELDS][];
+        for (int f = 0; f < NUM_FIELDS; f++)
+            normals[f] = smooth(accumulator.sums[f], accumulator.counts[f]);
+
+        return toCollection(normals);
+    }
+
+    /**
+     * Build the daily normals from the daily summaries as daily weather averages, which can be used in place of the
+     * averages that were entered.
+     *
+     * @param records The daily summaries, in any order
+     * @return The daily weather averages
+     */
+    public DayWeatherAverages buildDayWeatherAverages(Collection<SummaryRecord> records) {
+        return new DayWeatherAverages(buildNormals(records));
+    }
+
+    /**
+     * Interpolate monthly normals to smooth daily normals that keep the mean of each month. The rainfall of each day
+     * is such that the rainfall of each month is the monthly normal, except that the rainfall of a day is never less
+     * than zero, which can add a little rain to the driest months.
+     *
+     * @param monthly The monthly normals
+     * @return The normals for each day of the year
+     */
+    public DayOfYearCollection<WeatherAverage> interpolateMonthlyNormals(MonthWeatherAverages monthly) {
+        double[][] means = new double[NUM_FIELDS][MONTHS];
+        boolean[] present = {true, true, true, true};
+        for (Month month : Month.values()) {
+            WeatherAverage avg = monthly.getAverage(LocalDate.of(NORMALS_YEAR, month, 1));
+            int m = month.ordinal();
+            present[HIGH] &= setMean(means[HIGH], m, avg.getHighTemperature());
+            present[LOW] &= setMean(means[LOW], m, avg.getLowTemperature());
+            present[MEAN] &= setMean(means[MEAN], m, avg.getMeanTemperature());
+            if (avg.getRainfall() != null)
+                means[RAIN][m] = avg.getRainfall().get(Depth.Unit.MILLIMETERS) / month.length(false);
+            else
+                present[RAIN] = false;
+        }
+
+        double[][] normals = new double[NUM_FIELDS][];
+        for (int f = 0; f < NUM_FIELDS; f++)
+            normals[f] = present[f] ? interpolateMonthlyMeans(means[f]) : null;
+
+        return toCollection(normals);
+    }
+
+    private static boolean setMean(double[] means, int month, Temperature t) {
+        if (t == null)
+            return false;
+
+        means[month] = t.get(Temperature.Unit.CELSIUS);
+        return true;
+    }
+
+    /**
+     * Smooth the raw daily means of a field.
+     *
+     * @return The smoothed values or null if there are no values
+     */
+    private double[] smooth(double[] sums, int[] counts) {
+        if (smoothing == Smoothing.MOVING_WINDOW)
+            return movingWindow(sums, counts, window);
+
+        double[] means = fillMissing(sums, counts);
+        return means == null ? null : harmonicFit(means, harmonics);
+    }
+
+    /**
+     * Smooth with a centered window that wraps around the end of the year. Each day of the window is weighted by its
+     * number of values, so days with fewer years of data have less weight and days without data have none.
+     *
+     * @param sums The sum of the values of each day
+     * @param counts The number of values of each day
+     * @param window The odd number of days of the window
+     * @return The smoothed values or null if there are no values
+     */
+    public static double[] movingWindow(double[] sums, int[] counts, int window) {
+        int half = window / 2;
+        double sum = 0.0;
+        long count = 0;
+        for (int i = -half; i <= half; i++) {
+            int d = Math.floorMod(i, DAYS);
+            sum += sums[d];
+            count += counts[d];
+        }
+
+        double[] smoothed = new double[DAYS];
+        boolean any = false;
+        for (int d = 0; d < DAYS; d++) {
+            smoothed[d] = count == 0 ? Double.NaN : sum / count;
+            any |= count > 0;
+            int out = Math.floorMod(d - half, DAYS);
+            int in = Math.floorMod(d + half + 1, DAYS);
+            sum += sums[in] - sums[out];
+            count += counts[in] - counts[out];
+        }
+
+        return any ? smoothed : null;
+    }
+
+    /**
+     * The raw daily means with the days without data filled by linear interpolation between the nearest days with
+     * data, wrapping around the end of the year.
+     */
+    private static double[] fillMissing(double[] sums, int[] counts) {
+        double[] means = new double[DAYS];
+        int first = -1;
+        for (int d = 0; d < DAYS; d++) {
+            if (counts[d] > 0) {
+                means[d] = sums[d] / counts[d];
+                if (first < 0)
+                    first = d;
+            }
+        }
+
+        if (first < 0)
+            return null;
+
+        int previous = first;
+        for (int i = 1; i <= DAYS; i++) {
+            int d = (first + i) % DAYS;
+            if (counts[d] == 0)
+                continue;
+
+            int gap = Math.floorMod(d - previous, DAYS);
+            if (gap == 0)
+                gap = DAYS;
+
+            for (int j = 1; j < gap; j++)
+                means[(previous + j) % DAYS] = means[previous] + (means[d] - means[previous]) * j / gap;
+
+            previous = d;
+        }
+
+        return means;
+    }
+
+    /**
+     * Fit the mean and the first harmonics of the annual cycle to a value for each day.
+     *
+     * @param values The value of each day of the year
+     * @param harmonics The number of harmonics
+     * @return The fitted values
+     */
+    public static double[] harmonicFit(double[] values, int harmonics) {
+        double mean = 0.0;
+        for (double value : values)
+            mean += value;
+
+        mean /= DAYS;
+        double[] fitted = new double[DAYS];
+        Arrays.fill(fitted, mean);
+        double[] cos = new double[DAYS];
+        double[] sin = new double[DAYS];
+        for (int k = 1; k <= harmonics; k++) {
+            double a = 0.0;
+            double b = 0.0;
+            for (int d = 0; d < DAYS; d++) {
+                double angle = 2.0 * Math.PI * k * d / DAYS;
+                cos[d] = Math.cos(angle);
+                sin[d] = Math.sin(angle);
+                a += values[d] * cos[d];
+                b += values[d] * sin[d];
+            }
+
+            a *= 2.0 / DAYS;
+            b *= 2.0 / DAYS;
+            for (int d = 0; d < DAYS; d++)
+                fitted[d] += a * cos[d] + b * sin[d];
+        }
+
+        return fitted;
+    }
+
+    /**
+     * Interpolate monthly means to a smooth value for each day whose mean over each month is the monthly mean. The
+     * harmonics of the monthly means are scaled to undo the averaging over a month, which keeps the means exactly
+     * for months of equal length. The small error of the actual month lengths is removed by interpolating the
+     * remaining error of each month again.
+     *
+     * @param monthMeans The mean of each month, January first
+     * @return The value of each day of the year
+     */
+    public static double[] interpolateMonthlyMeans(double[] monthMeans) {
+        int[] monthStarts = new int[MONTHS + 1];
+        for (int m = 0; m < MONTHS; m++)
+            monthStarts[m + 1] = monthStarts[m] + Month.of(m + 1).length(false);
+
+        double[] daily = new double[DAYS];
+        double[] residuals = monthMeans.clone();
+        for (int iteration = 0; iteration < MONTHLY_ITERATIONS; iteration++) {
+            double[] correction = monthlyHarmonics(residuals);
+            double error = 0.0;
+            for (int m = 0; m < MONTHS; m++) {
+                double sum = 0.0;
+                for (int d = monthStarts[m]; d < monthStarts[m + 1]; d++) {
+                    daily[d] += correction[d];
+                    sum += daily[d];
+                }
+
+                residuals[m] = monthMeans[m] - sum / (monthStarts[m + 1] - monthStarts[m]);
+                error = Math.max(error, Math.abs(residuals[m]));
+            }
+
+            if (error < 1e-9)
+                break;
+        }
+
+        return daily;
+    }
+
+    /**
+     * The mean preserving harmonic interpolation of 12 values, treating the months as equal in length.
+     */
+    private static double[] monthlyHarmonics(double[] monthMeans) {
+        double[] a = new double[MONTHS / 2 + 1];
+        double[] b = new double[MONTHS / 2 + 1];
+        for (int m = 0; m < MONTHS; m++) {
+            double center = 2.0 * Math.PI * (m + .5) / MONTHS;
+            a[0] += monthMeans[m] / MONTHS;
+            for (int k = 1; k <= MONTHS / 2; k++) {
+                double scale = k == MONTHS / 2 ? 1.0 / MONTHS : 2.0 / MONTHS;
+                a[k] += scale * monthMeans[m] * Math.cos(k * center);
+                b[k] += scale * monthMeans[m] * Math.sin(k * center);
+            }
+        }
+
+        //
+        // The mean of cos(k * angle) over a month is smaller than its value at the center of the month by the factor
+        // sin(k * pi / 12) / (k * pi / 12)
+        //
+        for (int k = 1; k <= MONTHS / 2; k++) {
+            double x = k * Math.PI / MONTHS;
+            a[k] *= x / Math.sin(x);
+            b[k] *= x / Math.sin(x);
+        }
+
+        double[] daily = new double[DAYS];
+        for (int d = 0; d < DAYS; d++) {
+            double angle = 2.0 * Math.PI * (d + .5) / DAYS;
+            double value = a[0];
+            for (int k = 1; k <= MONTHS / 2; k++)
+                value += a[k] * Math.cos(k * angle) + b[k] * Math.sin(k * angle);
+
+            daily[d] = value;
+        }
+
+        return daily;
+    }
+
+    private static DayOfYearCollection<WeatherAverage> toCollection(double[][] normals) {
+        DayOfYearCollection<WeatherAverage> collection = new DayOfYearCollection<>();
+        LocalDate date = LocalDate.of(NORMALS_YEAR, Month.JANUARY, 1);
+        for (int d = 0; d < DAYS; d++, date = date.plusDays(1)) {
+            WeatherAverage avg = new WeatherAverage(date.getMonth(), date.getDayOfMonth(),
+                                                    toTemperature(normals[HIGH], d),
+                                                    toTemperature(normals[LOW], d),
+                                                    toTemperature(normals[MEAN], d),
+                                                    normals[RAIN] == null ? null : new Depth(Math.max(0.0, normals[RAIN][d]), Depth.Unit.MILLIMETERS));
+            collection.addItem(date, avg);
+        }
+
+        return collection;
+    }
+
+    private static Temperature toTemperature(double[] values, int day) {
+        return values == null || Double.isNaN(values[day]) ? null : new Temperature(values[day], Temperature.Unit.CELSIUS);
+    }
+}
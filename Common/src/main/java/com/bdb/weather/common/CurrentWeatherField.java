@@ -0,0 +1,77 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.util.function.ToDoubleFunction;
+
+import com.bdb.util.measurement.Measurement;
+import com.bdb.util.measurement.Unit;
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.SolarRadiation;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * The numeric fields of the current weather. The value of a field is extracted as a primitive in the storage unit of
+ * its measurement (Celsius, %, meters per second, degrees, millibars, millimeters, W/m2), or NaN if the field is not set.
+ */
+public enum CurrentWeatherField {
+    INSIDE_TEMPERATURE((cw) -> value(cw.getInsideTemperature(), Temperature.Unit.CELSIUS)),
+    INSIDE_HUMIDITY((cw) -> value(cw.getInsideHumidity(), Humidity.Unit.RELATIVE_HUMIDITY)),
+    OUTSIDE_TEMPERATURE((cw) -> value(cw.getOutsideTemperature(), Temperature.Unit.CELSIUS)),
+    OUTSIDE_HUMIDITY((cw) -> value(cw.getOutsideHumidity(), Humidity.Unit.RELATIVE_HUMIDITY)),
+    DEW_POINT((cw) -> value(cw.getDewPoint(), Temperature.Unit.CELSIUS)),
+    HEAT_INDEX((cw) -> value(cw.getHeatIndex(), Temperature.Unit.CELSIUS)),
+    WIND_CHILL((cw) -> value(cw.getWindChill(), Temperature.Unit.CELSIUS)),
+    THSW((cw) -> value(cw.getThsw(), Temperature.Unit.CELSIUS)),
+    WIND_SPEED((cw) -> value(cw.getWindSpeed(), Speed.Unit.METERS_PER_SEC)),
+    WIND_DIRECTION((cw) -> value(cw.getWindDirection(), Heading.Unit.DEGREES)),
+    GUST_SPEED((cw) -> value(cw.getGustSpeed(), Speed.Unit.METERS_PER_SEC)),
+    GUST_DIRECTION((cw) -> value(cw.getGustDirection(), Heading.Unit.DEGREES)),
+    WIND_SPEED_2_MIN_AVG((cw) -> value(cw.getWindSpeed2MinAvg(), Speed.Unit.METERS_PER_SEC)),
+    WIND_SPEED_10_MIN_AVG((cw) -> value(cw.getWindSpeed10MinAvg(), Speed.Unit.METERS_PER_SEC)),
+    BAROMETRIC_PRESSURE((cw) -> value(cw.getBarometricPressure(), Pressure.Unit.MILLIBAR)),
+    ATMOSPHERIC_PRESSURE((cw) -> value(cw.getAtmosphericPressure(), Pressure.Unit.MILLIBAR)),
+    UV_INDEX((cw) -> cw.getUvIndex() == null ? Double.NaN : cw.getUvIndex().getIndex()),
+    SOLAR_RADIATION((cw) -> value(cw.getSolarRadiation(), SolarRadiation.Unit.WATTS_PER_METER_SQUARED)),
+    RAIN_RATE((cw) -> value(cw.getRainRate(), Depth.Unit.MILLIMETERS)),
+    RAIN_TODAY((cw) -> value(cw.getRainToday(), Depth.Unit.MILLIMETERS)),
+    DAY_ET((cw) -> value(cw.getDayET(), Depth.Unit.MILLIMETERS));
+
+    private final ToDoubleFunction<CurrentWeather> extractor;
+
+    CurrentWeatherField(ToDoubleFunction<CurrentWeather> extractor) {
+        this.extractor = extractor;
+    }
+
+    /**
+     * Get the value of this field.
+     *
+     * @param cw The current weather
+     * @return The value in the storage unit of the measurement or NaN if the field is not set
+     */
+    public double getValue(CurrentWeather cw) {
+        return extractor.applyAsDouble(cw);
+    }
+
+    private static double value(Measurement m, Unit unit) {
+        return m == null ? Double.NaN : m.get(unit);
+    }
+}
@@ -0,0 +1,375 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fixed capacity history of the recent current weather samples. Each field of the current weather is stored in a
+ * primitive float column along with a column for the sample times, so the full CurrentWeather objects do not need to
+ * be kept.
+ * <br>
+ * There can be one writer, usually the current weather subscriber thread, and any number of readers that do not lock.
+ * Readers copy or iterate a window of samples and can tell if the writer overwrote any of them while they were reading.
+ * The minimum, maximum and mean of each field over a set of trailing windows are maintained by the writer as each sample
+ * is added, so reading them is O(1).
+ */
+public class CurrentWeatherHistory implements CurrentWeatherSubscriber.CurrentWeatherHandler {
+    /**
+     * Callback for the samples of a window.
+     */
+    public interface SampleConsumer {
+        /**
+         * Accept a sample.
+         *
+         * @param time The time of the sample in milliseconds, using the local time as if it were UTC
+         * @param value The value of the sample, NaN if the field was not set
+         */
+        void accept(long time, double value);
+    }
+
+    private static final CurrentWeatherField[] FIELDS = CurrentWeatherField.values();
+    private final int capacity;
+    private final long[] times;
+    private final float[][] columns;
+    private volatile long writeCount;
+
+    private final long[] windowMillis;
+    private final List<Duration> windows;
+    private final SlidingWindowExtreme[][] minimums;
+    private final SlidingWindowExtreme[][] maximums;
+    private final double[][] sums;
+    private final int[][] counts;
+    private final long[] windowStart;
+    //
+    // The published statistics, guarded by the sequence, which is odd while the writer is updating them
+    //
+    private final double[][] statMinimums;
+    private final double[][] statMaximums;
+    private final double[][] statMeans;
+    private volatile long statSequence;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The number of samples to keep
+     * @param statisticsWindows The trailing windows for which the minimum, maximum and mean are maintained. The windows
+     *                          should not be longer than the time span of the samples that are kept.
+     */
+    public CurrentWeatherHistory(int capacity, Duration... statisticsWindows) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive (" + capacity + ")");
+
+        this.capacity = capacity;
+        times = new long[capacity];
+        columns = new float[FIELDS.length][capacity];
+        writeCount = 0;
+
+        windows = Collections.unmodifiableList(Arrays.asList(statisticsWindows.clone()));
+        windowMillis = new long[statisticsWindows.length];
+        minimums = new SlidingWindowExtreme[statisticsWindows.length][FIELDS.length];
+        maximums = new SlidingWindowExtreme[statisticsWindows.length][FIELDS.length];
+        sums = new double[statisticsWindows.length][FIELDS.length];
+        counts = new int[statisticsWindows.length][FIELDS.length];
+        windowStart = new long[statisticsWindows.length];
+        statMinimums = new double[statisticsWindows.length][FIELDS.length];
+        statMaximums = new double[statisticsWindows.length][FIELDS.length];
+        statMeans = new double[statisticsWindows.length][FIELDS.length];
+
+        for (int w = 0; w < statisticsWindows.length; w++) {
+            windowMillis[w] = statisticsWindows[w].toMillis();
+            Arrays.fill(statMinimums[w], Double.NaN);
+            Arrays.fill(statMaximums[w], Double.NaN);
+            Arrays.fill(statMeans[w], Double.NaN);
+            for (int f = 0; f < FIELDS.length; f++) {
+                minimums[w][f] = new SlidingWindowExtreme(SlidingWindowExtreme.Type.MINIMUM);
+                maximums[w][f] = new SlidingWindowExtreme(SlidingWindowExtreme.Type.MAXIMUM);
+            }
+        }
+    }
+
+    /**
+     * Add a current weather sample. This must only be called by a single thread. Samples older than the latest sample
+     * are ignored.
+     *
+     * @param cw The current weather
+     */
+    @Override
+    public void handleCurrentWeather(CurrentWeather cw) {
+        long count = writeCount;
+        long time = toMillis(cw.getTime());
+        if (count > 0 && time < times[(int)((count - 1) % capacity)])
+            return;
+
+        statSequence++;
+        VarHandle.releaseFence();
+
+        removeExpiredSamples(count, time);
+
+        int slot = (int)(count % capacity);
+        times[slot] = time;
+        for (int f = 0; f < FIELDS.length; f++)
+            columns[f][slot] = (float)FIELDS[f].getValue(cw);
+
+        addSampleToStatistics(slot, time);
+
+        VarHandle.releaseFence();
+        statSequence++;
+
+        //
+        // Publish the sample
+        //
+        writeCount = count + 1;
+    }
+
+    /**
+     * Get the maximum number of samples that are kept.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of samples in the history.
+     *
+     * @return The number of samples
+     */
+    public int size() {
+        return (int)Math.min(writeCount, capacity);
+    }
+
+    /**
+     * Get the trailing windows for which the statistics are maintained.
+     *
+     * @return The windows
+     */
+    public List<Duration> getStatisticsWindows() {
+        return windows;
+    }
+
+    /**
+     * Get the time of the latest sample.
+     *
+     * @return The time or null if there are no samples
+     */
+    public LocalDateTime getLatestTime() {
+        long count = writeCount;
+        if (count == 0)
+            return null;
+
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(times[(int)((count - 1) % capacity)]), ZoneOffset.UTC);
+    }
+
+    /**
+     * Get the value of a field in the latest sample.
+     *
+     * @param field The field
+     * @return The value or NaN if there are no samples or the field was not set
+     */
+    public double getLatest(CurrentWeatherField field) {
+        long count = writeCount;
+        if (count == 0)
+            return Double.NaN;
+
+        return columns[field.ordinal()][(int)((count - 1) % capacity)];
+    }
+
+    /**
+     * Copy the samples of a trailing window into arrays supplied by the caller. If the writer overwrites a sample during
+     * the copy, the copy is repeated.
+     *
+     * @param field The field
+     * @param window The length of the trailing window ending at the latest sample
+     * @param timesOut The array that receives the sample times, in milliseconds
+     * @param valuesOut The array that receives the values
+     * @return The number of samples copied, which is limited by the size of the arrays and keeps the newest samples
+     */
+    public int copyWindow(CurrentWeatherField field, Duration window, long[] timesOut, double[] valuesOut) {
+        int max = Math.min(timesOut.length, valuesOut.length);
+        float[] column = columns[field.ordinal()];
+        while (true) {
+            long count = writeCount;
+            long first = firstInWindow(count, window.toMillis());
+            first = Math.max(first, count - max);
+            int n = 0;
+            for (long seq = first; seq < count; seq++) {
+                int slot = (int)(seq % capacity);
+                timesOut[n] = times[slot];
+                valuesOut[n] = column[slot];
+                n++;
+            }
+
+            if (isIntact(first))
+                return n;
+        }
+    }
+
+    /**
+     * Iterate over the samples of a trailing window without allocating. Because the readers do not lock, the writer may
+     * overwrite the oldest samples during a long iteration, which is reported by the return value.
+     *
+     * @param field The field
+     * @param window The length of the trailing window ending at the latest sample
+     * @param consumer The consumer of the samples, which are delivered oldest first
+     * @return True if all of the samples were intact, false if the iteration must be discarded
+     */
+    public boolean forEach(CurrentWeatherField field, Duration window, SampleConsumer consumer) {
+        float[] column = columns[field.ordinal()];
+        long count = writeCount;
+        long first = firstInWindow(count, window.toMillis());
+        for (long seq = first; seq < count; seq++) {
+            int slot = (int)(seq % capacity);
+            consumer.accept(times[slot], column[slot]);
+        }
+
+        return isIntact(first);
+    }
+
+    /**
+     * Get the minimum of a field over one of the statistics windows.
+     *
+     * @param field The field
+     * @param window The window, which must be one of the statistics windows
+     * @return The minimum or NaN if there are no values in the window
+     */
+    public double getMinimum(CurrentWeatherField field, Duration window) {
+        return readStatistic(statMinimums, field, window);
+    }
+
+    /**
+     * Get the maximum of a field over one of the statistics windows.
+     *
+     * @param field The field
+     * @param window The window, which must be one of the statistics windows
+     * @return The maximum or NaN if there are no values in the window
+     */
+    public double getMaximum(CurrentWeatherField field, Duration window) {
+        return readStatistic(statMaximums, field, window);
+    }
+
+    /**
+     * Get the mean of a field over one of the statistics windows.
+     *
+     * @param field The field
+     * @param window The window, which must be one of the statistics windows
+     * @return The mean or NaN if there are no values in the window
+     */
+    public double getMean(CurrentWeatherField field, Duration window) {
+        return readStatistic(statMeans, field, window);
+    }
+
+    private double readStatistic(double[][] statistic, CurrentWeatherField field, Duration window) {
+        int w = windows.indexOf(window);
+        if (w < 0)
+            throw new IllegalArgumentException("Not a statistics window: " + window);
+
+        while (true) {
+            long sequence = statSequence;
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            double value = statistic[w][field.ordinal()];
+            VarHandle.acquireFence();
+            if (statSequence == sequence)
+                return value;
+        }
+    }
+
+    /**
+     * Find the sequence number of the oldest sample in a trailing window.
+     */
+    private long firstInWindow(long count, long windowMillis) {
+        if (count == 0)
+            return 0;
+
+        long oldest = Math.max(count - capacity + 1, 0);
+        long start = times[(int)((count - 1) % capacity)] - windowMillis;
+        long seq = count - 1;
+        while (seq > oldest && times[(int)((seq - 1) % capacity)] >= start)
+            seq--;
+
+        return seq;
+    }
+
+    /**
+     * Check that the writer has not started overwriting the sample with the specified sequence number.
+     */
+    private boolean isIntact(long first) {
+        VarHandle.acquireFence();
+        return first > writeCount - capacity;
+    }
+
+    /**
+     * Remove the samples that have left the statistics windows, including the sample that is about to be overwritten.
+     */
+    private void removeExpiredSamples(long seq, long time) {
+        for (int w = 0; w < windowMillis.length; w++) {
+            long start = time - windowMillis[w];
+            while (windowStart[w] < seq && (windowStart[w] <= seq - capacity || times[(int)(windowStart[w] % capacity)] < start)) {
+                int old = (int)(windowStart[w] % capacity);
+                for (int f = 0; f < FIELDS.length; f++) {
+                    float value = columns[f][old];
+                    if (!Float.isNaN(value)) {
+                        sums[w][f] -= value;
+                        counts[w][f]--;
+                    }
+                }
+                windowStart[w]++;
+            }
+        }
+    }
+
+    private void addSampleToStatistics(int slot, long time) {
+        for (int w = 0; w < windowMillis.length; w++) {
+            //
+            // The extremes must also forget the samples that are no longer in the history
+            //
+            long start = Math.max(time - windowMillis[w], times[(int)(windowStart[w] % capacity)]);
+            for (int f = 0; f < FIELDS.length; f++) {
+                float value = columns[f][slot];
+                if (!Float.isNaN(value)) {
+                    sums[w][f] += value;
+                    counts[w][f]++;
+                }
+
+                minimums[w][f].add(time, value);
+                minimums[w][f].expire(start);
+                maximums[w][f].add(time, value);
+                maximums[w][f].expire(start);
+
+                statMinimums[w][f] = minimums[w][f].getValue();
+                statMaximums[w][f] = maximums[w][f].getValue();
+                statMeans[w][f] = counts[w][f] == 0 ? Double.NaN : sums[w][f] / counts[w][f];
+            }
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
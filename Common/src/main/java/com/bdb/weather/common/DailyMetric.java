@@ -0,0 +1,77 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.util.function.ToDoubleFunction;
+
+import com.bdb.util.measurement.Measurement;
+import com.bdb.util.measurement.Unit;
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * The numeric values of a daily summary. The value is extracted as a primitive in the storage unit of its measurement
+ * (Celsius, meters per second, millibars, millimeters), or NaN if the value is not set. The values of accumulated
+ * metrics are totaled over a range of days, the others are averaged.
+ */
+public enum DailyMetric {
+    HIGH_TEMPERATURE((rec) -> value(rec.getMaxOutdoorTemp(), Temperature.Unit.CELSIUS)),
+    LOW_TEMPERATURE((rec) -> value(rec.getMinOutdoorTemp(), Temperature.Unit.CELSIUS)),
+    MEAN_TEMPERATURE((rec) -> value(rec.getAvgOutdoorTemp(), Temperature.Unit.CELSIUS)),
+    MAX_WIND_SPEED((rec) -> value(rec.getMaxWindSpeed(), Speed.Unit.METERS_PER_SEC)),
+    MAX_WIND_GUST((rec) -> value(rec.getMaxWindGust(), Speed.Unit.METERS_PER_SEC)),
+    MEAN_BARO_PRESSURE((rec) -> value(rec.getAvgBaroPressure(), Pressure.Unit.MILLIBAR)),
+    RAINFALL((rec) -> value(rec.getTotalRainfall(), Depth.Unit.MILLIMETERS), true),
+    EVAPOTRANSPIRATION((rec) -> value(rec.getTotalET(), Depth.Unit.MILLIMETERS), true);
+
+    private final ToDoubleFunction<SummaryRecord> extractor;
+    private final boolean accumulated;
+
+    DailyMetric(ToDoubleFunction<SummaryRecord> extractor) {
+        this(extractor, false);
+    }
+
+    DailyMetric(ToDoubleFunction<SummaryRecord> extractor, boolean accumulated) {
+        this.extractor = extractor;
+        this.accumulated = accumulated;
+    }
+
+    /**
+     * Get the value of this metric.
+     *
+     * @param rec The daily summary
+     * @return The value in the storage unit of the measurement or NaN if the value is not set
+     */
+    public double getValue(SummaryRecord rec) {
+        return extractor.applyAsDouble(rec);
+    }
+
+    /**
+     * Whether the values of this metric are totaled over a range of days rather than averaged.
+     *
+     * @return True if the metric is accumulated
+     */
+    public boolean isAccumulated() {
+        return accumulated;
+    }
+
+    private static double value(Measurement m, Unit unit) {
+        return m == null ? Double.NaN : m.get(unit);
+    }
+}
@@ -0,0 +1,211 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.bdb.weather.common.measurement.Depth;
+
+/**
+ * Immutable summary of a day as of a point in time, published by {@link LiveDailySummary}. The values are in the storage
+ * units of the current weather fields, see {@link CurrentWeatherField}.
+ */
+public final class DailySummarySnapshot {
+    private final LocalDate date;
+    private final LocalDateTime time;
+    private final int numSamples;
+    private final double[] minimums;
+    private final long[] minimumTimes;
+    private final double[] maximums;
+    private final long[] maximumTimes;
+    private final double[] means;
+    private final double[] windSliceSeconds;
+    private final double calmSeconds;
+    private final boolean reconciled;
+
+    /**
+     * Constructor. The arrays are owned by the snapshot and must not be modified after it is created.
+     */
+    DailySummarySnapshot(LocalDate date, LocalDateTime time, int numSamples, double[] minimums, long[] minimumTimes,
+                         double[] maximums, long[] maximumTimes, double[] means, double[] windSliceSeconds, double calmSeconds,
+                         boolean reconciled) {
+        this.date = date;
+        this.time = time;
+        this.numSamples = numSamples;
+        this.minimums = minimums;
+        this.minimumTimes = minimumTimes;
+        this.maximums = maximums;
+        this.maximumTimes = maximumTimes;
+        this.means = means;
+        this.windSliceSeconds = windSliceSeconds;
+        this.calmSeconds = calmSeconds;
+        this.reconciled = reconciled;
+    }
+
+    /**
+     * Get the day that is summarized.
+     *
+     * @return The date
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Get the time of the latest current weather in the summary.
+     *
+     * @return The time or null if there were no current weather samples
+     */
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    /**
+     * Get the number of current weather samples in the summary.
+     *
+     * @return The number of samples
+     */
+    public int getNumSamples() {
+        return numSamples;
+    }
+
+    /**
+     * Whether the summary has been reconciled with the summary of the day's archive records.
+     *
+     * @return True if the day is complete and was reconciled
+     */
+    public boolean isReconciled() {
+        return reconciled;
+    }
+
+    /**
+     * Get the minimum of a field.
+     *
+     * @param field The field
+     * @return The minimum or NaN if the field was never reported
+     */
+    public double getMinimum(CurrentWeatherField field) {
+        return minimums[field.ordinal()];
+    }
+
+    /**
+     * Get the time of the minimum of a field.
+     *
+     * @param field The field
+     * @return The time or null if the field was never reported
+     */
+    public LocalDateTime getMinimumTime(CurrentWeatherField field) {
+        return toTime(minimums[field.ordinal()], minimumTimes[field.ordinal()]);
+    }
+
+    /**
+     * Get the maximum of a field.
+     *
+     * @param field The field
+     * @return The maximum or NaN if the field was never reported
+     */
+    public double getMaximum(CurrentWeatherField field) {
+        return maximums[field.ordinal()];
+    }
+
+    /**
+     * Get the time of the maximum of a field.
+     *
+     * @param field The field
+     * @return The time or null if the field was never reported
+     */
+    public LocalDateTime getMaximumTime(CurrentWeatherField field) {
+        return toTime(maximums[field.ordinal()], maximumTimes[field.ordinal()]);
+    }
+
+    /**
+     * Get the time weighted average of a field.
+     *
+     * @param field The field
+     * @return The average or NaN if the field was never reported
+     */
+    public double getAverage(CurrentWeatherField field) {
+        return means[field.ordinal()];
+    }
+
+    /**
+     * Get the rain that fell during the day.
+     *
+     * @return The rain
+     */
+    public Depth getTotalRainfall() {
+        double rain = maximums[CurrentWeatherField.RAIN_TODAY.ordinal()];
+        return new Depth(Double.isNaN(rain) ? 0.0 : rain, Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the number of wind direction slices of the wind rose.
+     *
+     * @return The number of slices
+     */
+    public int getNumWindSlices() {
+        return windSliceSeconds.length;
+    }
+
+    /**
+     * Get the time the wind blew from the directions of a wind rose slice.
+     *
+     * @param slice The index of the slice, slice 0 is centered on north
+     * @return The duration
+     */
+    public Duration getWindSliceDuration(int slice) {
+        return Duration.ofMillis(Math.round(windSliceSeconds[slice] * 1000.0));
+    }
+
+    /**
+     * Get the time the wind was calm.
+     *
+     * @return The duration
+     */
+    public Duration getCalmDuration() {
+        return Duration.ofMillis(Math.round(calmSeconds * 1000.0));
+    }
+
+    /**
+     * Get the time the wind was being measured.
+     *
+     * @return The duration
+     */
+    public Duration getWindDuration() {
+        double seconds = calmSeconds;
+        for (double s : windSliceSeconds)
+            seconds += s;
+
+        return Duration.ofMillis(Math.round(seconds * 1000.0));
+    }
+
+    private static LocalDateTime toTime(double value, long millis) {
+        if (Double.isNaN(value))
+            return null;
+
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    @Override
+    public String toString() {
+        return date + " as of " + time + " (" + numSamples + " samples" + (reconciled ? ", reconciled)" : ")");
+    }
+}
@@ -17,20 +17,27 @@
 package com.bdb.weather.common;
 
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 
 import com.bdb.weather.common.measurement.Depth;
 
 /**
+ * The rainfall for each hour of a day. The rain is kept in a primitive array of 24 slots, in millimeters, with a bit
+ * mask that records which hours have a value.
  *
  * @author Bruce
  */
 public class DayHourRain {
+    /**
+     * The number of hour slots in a day
+     */
+    public static final int HOURS = 24;
     private final LocalDate date;
-    private final Map<Integer,Depth> hours;
+    private final double[] hours;
+    private int validHours;
     
     /**
      * Constructor.
@@ -39,7 +46,8 @@ public class DayHourRain {
      */
     public DayHourRain(LocalDate date) {
         this.date = date;
-        hours = new HashMap<>();
+        hours = new double[HOURS];
+        validHours = 0;
     }
 
     /**
@@ -57,17 +65,58 @@ public class DayHourRain {
      * @param rain The amount of rain that fell during the hour
      */
     public void putRain(int hour, Depth rain) {
-        hours.put(hour, rain);
+        if (rain == null) {
+            hours[hour] = 0.0;
+            validHours &= ~(1 << hour);
+        }
+        else {
+            hours[hour] = rain.get(Depth.Unit.MILLIMETERS);
+            validHours |= 1 << hour;
+        }
+    }
+
+    /**
+     * Add rain to a given hour without creating any measurement objects.
+     * 
+     * @param hour The hour in which the rain fell
+     * @param millimeters The amount of rain in millimeters
+     */
+    public void addRain(int hour, double millimeters) {
+        hours[hour] += millimeters;
+        validHours |= 1 << hour;
     }
 
     /**
      * Get the rain for the specified hour.
      * 
      * @param hour The hour
-     * @return The rainfall for the hour
+     * @return The rainfall for the hour or null if there is no rainfall data for the hour
      */
     public Depth getRain(int hour) {
-        return hours.get(hour);
+        if (!hasRain(hour))
+            return null;
+
+        return new Depth(hours[hour], Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the rain for the specified hour in millimeters.
+     * 
+     * @param hour The hour
+     * @return The rainfall in millimeters, 0.0 if there is no rainfall data for the hour
+     */
+    public double getRainMillimeters(int hour) {
+        return hours[hour];
+    }
+
+    /**
+     * Check if there is rainfall data for an hour.
+     * 
+     * @param hour The hour
+     * @return True if there is rainfall data for the hour
+     */
+    public boolean hasRain(int hour) {
+        return hour >= 0 && hour < HOURS && (validHours & (1 << hour)) != 0;
     }
 
     /**
@@ -76,14 +125,20 @@ public class DayHourRain {
      * @return The list of valid hours
      */
     public Set<Integer> getHourValues() {
-        return hours.keySet();
+        Set<Integer> set = new TreeSet<>();
+        for (int hour = 0; hour < HOURS; hour++)
+            if (hasRain(hour))
+                set.add(hour);
+
+        return set;
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
         hash = 73 * hash + Objects.hashCode(this.date);
-        hash = 73 * hash + Objects.hashCode(this.hours);
+        hash = 73 * hash + Arrays.hashCode(this.hours);
+        hash = 73 * hash + this.validHours;
         return hash;
     }
 
@@ -100,6 +155,9 @@ public class DayHourRain {
         if (!Objects.equals(this.date, other.date))
             return false;
 
-        return Objects.equals(this.hours, other.hours);
+        if (this.validHours != other.validHours)
+            return false;
+
+        return Arrays.equals(this.hours, other.hours);
     }
 }
\ No newline at end of file
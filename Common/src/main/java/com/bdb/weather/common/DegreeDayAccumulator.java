@@ -0,0 +1,400 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * Accumulates degree days or chill hours for a set of base temperatures. For each year and base temperature the daily
+ * values and their running total are kept in arrays indexed by the day of the year, so the total of any range of days
+ * is the difference of two running totals per year. The running totals are brought up to date lazily from the earliest
+ * day that changed, so applying the days in order and querying after each one is constant time.
+ * <br>
+ * The daily values can be calculated with the daily method, from the high and low temperature of the summary of each
+ * day, or with the integration method, from the average temperature and duration of each archive record. Applying
+ * the summary of a day replaces the value of the day, so a day can be summarized again. The archive records of a day
+ * are added to the value of the day, so each archive record must only be applied once. Chill hours can only be
+ * integrated from archive records.
+ * <br>
+ * Degree days are in Celsius degree days, which are multiplied by 1.8 to get Fahrenheit degree days.
+ */
+public class DegreeDayAccumulator {
+    private static final int DAYS = 367;
+    private static final double SECONDS_PER_DAY = 86400.0;
+    private static final double SECONDS_PER_HOUR = 3600.0;
+
+    /**
+     * The quantity that is accumulated.
+     */
+    public enum Type {
+        /**
+         * Degrees below the base temperature
+         */
+        HEATING,
+        /**
+         * Degrees above the base temperature
+         */
+        COOLING,
+        /**
+         * Degrees above the base temperature with the temperatures limited to the base and the upper threshold
+         */
+        GROWING,
+        /**
+         * Hours below the base temperature
+         */
+        CHILL_HOURS
+    }
+
+    /**
+     * The daily values and running totals of a year.
+     */
+    private static final class Year {
+        private final double[][] daily;
+        private final double[][] cumulative;
+        private int dirty = DAYS;
+        private int last = 0;
+
+        Year(int numBases) {
+            daily = new double[numBases][DAYS];
+            cumulative = new double[numBases][DAYS];
+        }
+
+        void set(int base, int dayOfYear, double value) {
+            daily[base][dayOfYear] = value;
+            changed(dayOfYear);
+        }
+
+        void add(int base, int dayOfYear, double value) {
+            daily[base][dayOfYear] += value;
+            changed(dayOfYear);
+        }
+
+        private void changed(int dayOfYear) {
+            //
+            // The running totals are only valid through the last day, so the days skipped after it are summed as well
+            //
+            dirty = Math.min(dirty, Math.min(dayOfYear, last + 1));
+            last = Math.max(last, dayOfYear);
+        }
+
+        /**
+         * The total from the first day of the year through a day.
+         */
+        double total(int base, int dayOfYear) {
+            if (dirty <= last) {
+                for (int b = 0; b < daily.length; b++) {
+                    double[] sums = cumulative[b];
+                    double[] values = daily[b];
+                    for (int j = dirty; j <= last; j++)
+                        sums[j] = sums[j - 1] + values[j];
+                }
+
+                dirty = DAYS;
+            }
+
+            return dayOfYear <= 0 ? 0.0 : cumulative[base][Math.min(dayOfYear, last)];
+        }
+    }
+
+    private final Type type;
+    private final double[] bases;
+    private final double upperThreshold;
+    private final TreeMap<Integer,Year> years = new TreeMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param type The quantity to accumulate
+     * @param bases The base temperatures
+     */
+    public DegreeDayAccumulator(Type type, Temperature... bases) {
+        this(type, Arrays.asList(bases), null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param type The quantity to accumulate
+     * @param bases The base temperatures
+     * @param upperThreshold The temperature above which there is no more growth, or null for no limit. Only used for growing degree days.
+     */
+    public DegreeDayAccumulator(Type type, Collection<Temperature> bases, Temperature upperThreshold) {
+        if (bases.isEmpty())
+            throw new IllegalArgumentException("At least one base temperature is required");
+
+        this.type = type;
+        this.bases = new double[bases.size()];
+        int i = 0;
+        for (Temperature base : bases)
+            this.bases[i++] = base.get(Temperature.Unit.CELSIUS);
+
+        this.upperThreshold = upperThreshold == null ? Double.POSITIVE_INFINITY : upperThreshold.get(Temperature.Unit.CELSIUS);
+    }
+
+    /**
+     * Get the quantity that is accumulated.
+     *
+     * @return The type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the base temperatures.
+     *
+     * @return The base temperatures
+     */
+    public List<Temperature> getBaseTemperatures() {
+        List<Temperature> list = new ArrayList<>();
+        for (double base : bases)
+            list.add(new Temperature(base, Temperature.Unit.CELSIUS));
+
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Calculate the degree days of a day with the daily method, which uses the average of the high and low temperature.
+     * For growing degree days the high and low are first limited to the base and upper threshold.
+     *
+     * @param type The quantity, which cannot be chill hours
+     * @param high The high temperature in Celsius
+     * @param low The low temperature in Celsius
+     * @param base The base temperature in Celsius
+     * @param upperThreshold The upper threshold in Celsius for growing degree days
+     * @return The degree days
+     */
+    public static double dailyDegreeDays(Type type, double high, double low, double base, double upperThreshold) {
+        switch (type) {
+            case HEATING:
+                return Math.max(0.0, base - (high + low) / 2.0);
+            case COOLING:
+                return Math.max(0.0, (high + low) / 2.0 - base);
+            case GROWING:
+                high = Math.max(base, Math.min(high, upperThreshold));
+                low = Math.max(base, Math.min(low, upperThreshold));
+                return (high + low) / 2.0 - base;
+            default:
+                throw new IllegalArgumentException("Chill hours cannot be calculated from the high and low temperature");
+        }
+    }
+
+    /**
+     * Calculate the contribution of a period of a constant temperature with the integration method.
+     *
+     * @param temperature The temperature in Celsius
+     * @param seconds The length of the period
+     * @param base The base temperature in Celsius
+     * @return The degree days or chill hours of the period
+     */
+    private double integrate(double temperature, int seconds, double base) {
+        switch (type) {
+            case HEATING:
+                return Math.max(0.0, base - temperature) * seconds / SECONDS_PER_DAY;
+            case COOLING:
+                return Math.max(0.0, temperature - base) * seconds / SECONDS_PER_DAY;
+            case GROWING:
+                return Math.max(0.0, Math.min(temperature, upperThreshold) - base) * seconds / SECONDS_PER_DAY;
+            default:
+                return temperature < base ? seconds / SECONDS_PER_HOUR : 0.0;
+        }
+    }
+
+    /**
+     * Apply the summary of a day, replacing the value of the day if the day was applied before. Summaries without
+     * a high and low temperature are ignored, as are all summaries when accumulating chill hours.
+     *
+     * @param rec The summary record
+     */
+    public synchronized void applySummaryRecord(SummaryRecord rec) {
+        if (type == Type.CHILL_HOURS || rec.getMaxOutdoorTemp() == null || rec.getMinOutdoorTemp() == null)
+            return;
+
+        double high = rec.getMaxOutdoorTemp().get(Temperature.Unit.CELSIUS);
+        double low = rec.getMinOutdoorTemp().get(Temperature.Unit.CELSIUS);
+        LocalDate date = rec.getDate();
+        Year year = year(date.getYear());
+        for (int b = 0; b < bases.length; b++)
+            year.set(b, date.getDayOfYear(), dailyDegreeDays(type, high, low, bases[b], upperThreshold));
+    }
+
+    /**
+     * Apply a collection of daily summaries.
+     *
+     * @param records The summary records
+     */
+    public synchronized void applySummaryRecords(Collection<SummaryRecord> records) {
+        for (SummaryRecord rec : records)
+            applySummaryRecord(rec);
+    }
+
+    /**
+     * Apply an archive record. Records without an average outdoor temperature are ignored.
+     *
+     * @param rec The archive record
+     */
+    public void applyHistoricalRecord(HistoricalRecord rec) {
+        if (rec.getAvgOutdoorTemperature() == null)
+            return;
+
+        long[] times = {rec.getTime().toEpochSecond(ZoneOffset.UTC)};
+        int[] durations = {(int)rec.getDuration().getSeconds()};
+        double[] temperatures = {rec.getAvgOutdoorTemperature().get(Temperature.Unit.CELSIUS)};
+        applyValues(times, durations, temperatures, 1);
+    }
+
+    /**
+     * Apply a collection of archive records.
+     *
+     * @param records The archive records
+     */
+    public synchronized void applyHistoricalRecords(Collection<HistoricalRecord> records) {
+        for (HistoricalRecord rec : records)
+            applyHistoricalRecord(rec);
+    }
+
+    /**
+     * Apply columns of archive values with the integration method. A record belongs to the day of its middle, so
+     * a record that ends at midnight belongs to the day that it measured. Values that are NaN are skipped.
+     *
+     * @param times The end time of each record, in seconds of local time as if it were UTC
+     * @param durations The duration of each record in seconds
+     * @param temperatures The average temperature of each record in Celsius
+     * @param length The number of records
+     */
+    public synchronized void applyValues(long[] times, int[] durations, double[] temperatures, int length) {
+        long currentDay = Long.MIN_VALUE;
+        Year year = null;
+        int dayOfYear = 0;
+        for (int i = 0; i < length; i++) {
+            if (Double.isNaN(temperatures[i]))
+                continue;
+
+            long day = Math.floorDiv(times[i] - durations[i] / 2, (long)SECONDS_PER_DAY);
+            if (day != currentDay) {
+                LocalDate date = LocalDate.ofEpochDay(day);
+                year = year(date.getYear());
+                dayOfYear = date.getDayOfYear();
+                currentDay = day;
+            }
+
+            for (int b = 0; b < bases.length; b++)
+                year.add(b, dayOfYear, integrate(temperatures[i], durations[i], bases[b]));
+        }
+    }
+
+    /**
+     * Get the value of a day.
+     *
+     * @param base The base temperature, which must be one of the base temperatures of this accumulator
+     * @param date The day
+     * @return The degree days or chill hours of the day, 0.0 if the day has not been applied
+     */
+    public synchronized double getDailyValue(Temperature base, LocalDate date) {
+        Year year = years.get(date.getYear());
+        return year == null ? 0.0 : year.daily[baseIndex(base)][date.getDayOfYear()];
+    }
+
+    /**
+     * Get the total of a range of days.
+     *
+     * @param base The base temperature, which must be one of the base temperatures of this accumulator
+     * @param start The first day
+     * @param end The last day, inclusive
+     * @return The total degree days or chill hours
+     */
+    public synchronized double getTotal(Temperature base, LocalDate start, LocalDate end) {
+        int b = baseIndex(base);
+        double total = 0.0;
+        for (int y = start.getYear(); y <= end.getYear(); y++) {
+            Year year = years.get(y);
+            if (year == null)
+                continue;
+
+            int first = y == start.getYear() ? start.getDayOfYear() : 1;
+            int last = y == end.getYear() ? end.getDayOfYear() : DAYS - 1;
+            if (first <= last)
+                total += year.total(b, last) - year.total(b, first - 1);
+        }
+
+        return total;
+    }
+
+    /**
+     * Get the total from the start of the year through a day.
+     *
+     * @param base The base temperature, which must be one of the base temperatures of this accumulator
+     * @param date The day
+     * @return The total degree days or chill hours
+     */
+    public double getYearToDate(Temperature base, LocalDate date) {
+        return getTotal(base, date.withDayOfYear(1), date);
+    }
+
+    /**
+     * Get the running totals of a year, such as for plotting the accumulation against other years.
+     *
+     * @param base The base temperature, which must be one of the base temperatures of this accumulator
+     * @param year The year
+     * @return The total through each day of the year, index 0 is January 1
+     */
+    public synchronized double[] getRunningTotals(Temperature base, int year) {
+        int b = baseIndex(base);
+        double[] totals = new double[LocalDate.of(year, 1, 1).lengthOfYear()];
+        Year y = years.get(year);
+        if (y != null)
+            for (int j = 1; j <= totals.length; j++)
+                totals[j - 1] = y.total(b, j);
+
+        return totals;
+    }
+
+    /**
+     * Get the last day that has a value.
+     *
+     * @return The day or null if nothing has been applied
+     */
+    public synchronized LocalDate getLastDate() {
+        if (years.isEmpty())
+            return null;
+
+        int y = years.lastKey();
+        return LocalDate.ofYearDay(y, years.get(y).last);
+    }
+
+    private Year year(int y) {
+        return years.computeIfAbsent(y, (key) -> new Year(bases.length));
+    }
+
+    private int baseIndex(Temperature base) {
+        double celsius = base.get(Temperature.Unit.CELSIUS);
+        for (int b = 0; b < bases.length; b++)
+            if (Math.abs(bases[b] - celsius) < 1e-6)
+                return b;
+
+        throw new IllegalArgumentException("Base temperature is not accumulated: " + base);
+    }
+}
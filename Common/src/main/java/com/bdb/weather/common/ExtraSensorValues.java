@@ -0,0 +1,300 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage of the values of the extra sensors of a record. For each sensor type there is a bitmap of the sensor
+ * IDs that have a value and an array of the values in sensor ID order, the index of a value being the number of
+ * present IDs below it. The sensor IDs are allocated from ranges of 100 (100 for thermometers, 200 for hygrometers,
+ * 700 for soil temperatures, etc.), so the bitmap only has two words for each range that has a value, the bits being
+ * relative to the base of the range. A record without extra sensors has no arrays at all.
+ * <br>
+ * Values are stored as primitives in the storage unit of the measurement: Celsius for temperatures, relative humidity
+ * for hygrometers, the wetness index for leaf wetness and centibars for soil moisture. The sensors of a type can be
+ * iterated with nextSensorId() without allocating.
+ */
+public final class ExtraSensorValues {
+    /**
+     * The sensor types that have extra sensor values. Leaf and soil temperatures are stored as thermometers.
+     */
+    static final SensorType[] SENSOR_TYPES = {SensorType.THERMOMETER, SensorType.HYGROMETER, SensorType.LEAF_WETNESS, SensorType.SOIL_MOISTURE};
+    private static final int RANGE_SIZE = 100;
+    private static final int RANGE_BITS = 128;
+    private static final int[] NO_RANGES = new int[0];
+    private static final long[] NO_BITS = new long[0];
+    private static final double[] NO_VALUES = new double[0];
+
+    //
+    // The ranges of sensor IDs that have bitmap words, in ascending order
+    //
+    private final int[][] ranges = new int[SENSOR_TYPES.length][];
+    private final long[][] presence = new long[SENSOR_TYPES.length][];
+    private final double[][] values = new double[SENSOR_TYPES.length][];
+    private final int[] counts = new int[SENSOR_TYPES.length];
+
+    /**
+     * Constructor.
+     */
+    ExtraSensorValues() {
+        Arrays.fill(ranges, NO_RANGES);
+        Arrays.fill(presence, NO_BITS);
+        Arrays.fill(values, NO_VALUES);
+    }
+
+    /**
+     * Get the index of a sensor type in the storage.
+     *
+     * @param type The sensor type
+     * @return The index or -1 if the type does not have extra sensor values
+     */
+    static int typeIndex(SensorType type) {
+        switch (type) {
+            case THERMOMETER:
+                return 0;
+            case HYGROMETER:
+                return 1;
+            case LEAF_WETNESS:
+                return 2;
+            case SOIL_MOISTURE:
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Get the total number of extra sensor values.
+     *
+     * @return The number of values
+     */
+    public int size() {
+        int size = 0;
+        for (int count : counts)
+            size += count;
+
+        return size;
+    }
+
+    /**
+     * Get the number of sensors of a type that have values.
+     *
+     * @param type The sensor type
+     * @return The number of sensors
+     */
+    public int getSensorCount(SensorType type) {
+        int t = typeIndex(type);
+        return t < 0 ? 0 : counts[t];
+    }
+
+    /**
+     * Check if a sensor has a value.
+     *
+     * @param type The sensor type
+     * @param sensorId The sensor ID
+     * @return True if the sensor has a value
+     */
+    public boolean hasValue(SensorType type, int sensorId) {
+        int t = typeIndex(type);
+        return t >= 0 && isPresent(t, sensorId);
+    }
+
+    /**
+     * Get the value of a sensor.
+     *
+     * @param type The sensor type
+     * @param sensorId The sensor ID
+     * @return The value in the storage unit or NaN if the sensor does not have a value
+     */
+    public double getValue(SensorType type, int sensorId) {
+        int t = typeIndex(type);
+        if (t < 0 || !isPresent(t, sensorId))
+            return Double.NaN;
+
+        return values[t][rank(t, sensorId)];
+    }
+
+    /**
+     * Find the next sensor of a type that has a value, in the manner of BitSet.nextSetBit().
+     *
+     * @param type The sensor type
+     * @param fromSensorId The sensor ID to start searching from, inclusive
+     * @return The sensor ID or -1 if there are no more sensors
+     */
+    public int nextSensorId(SensorType type, int fromSensorId) {
+        int t = typeIndex(type);
+        if (t < 0 || fromSensorId < 0)
+            return -1;
+
+        long[] bits = presence[t];
+        int bit = bitIndex(ranges[t], fromSensorId);
+        int word = bit >>> 6;
+        if (word >= bits.length)
+            return -1;
+
+        long w = bits[word] & (-1L << (bit & 63));
+        while (true) {
+            if (w != 0) {
+                bit = (word << 6) + Long.numberOfTrailingZeros(w);
+                return ranges[t][bit / RANGE_BITS] * RANGE_SIZE + bit % RANGE_BITS;
+            }
+
+            if (++word == bits.length)
+                return -1;
+
+            w = bits[word];
+        }
+    }
+
+    /**
+     * Set the value of a sensor.
+     *
+     * @param type The sensor type
+     * @param sensorId The sensor ID
+     * @param value The value in the storage unit
+     */
+    void setValue(SensorType type, int sensorId, double value) {
+        int t = typeIndex(type);
+        if (t < 0)
+            throw new IllegalArgumentException("Sensor type does not have extra sensor values: " + type);
+
+        if (sensorId < 0)
+            throw new IllegalArgumentException("Invalid sensor ID: " + sensorId);
+
+        int range = sensorId / RANGE_SIZE;
+        int slot = Arrays.binarySearch(ranges[t], range);
+        if (slot < 0) {
+            slot = -slot - 1;
+            int[] newRanges = new int[ranges[t].length + 1];
+            System.arraycopy(ranges[t], 0, newRanges, 0, slot);
+            System.arraycopy(ranges[t], slot, newRanges, slot + 1, ranges[t].length - slot);
+            newRanges[slot] = range;
+            ranges[t] = newRanges;
+
+            long[] newBits = new long[presence[t].length + RANGE_BITS / 64];
+            int words = slot * RANGE_BITS / 64;
+            System.arraycopy(presence[t], 0, newBits, 0, words);
+            System.arraycopy(presence[t], words, newBits, words + RANGE_BITS / 64, presence[t].length - words);
+            presence[t] = newBits;
+        }
+
+        int index = rank(t, sensorId);
+        if (isPresent(t, sensorId)) {
+            values[t][index] = value;
+            return;
+        }
+
+        if (counts[t] == values[t].length)
+            values[t] = Arrays.copyOf(values[t], Math.max(2, counts[t] * 2));
+
+        System.arraycopy(values[t], index, values[t], index + 1, counts[t] - index);
+        values[t][index] = value;
+        int bit = bitIndex(ranges[t], sensorId);
+        presence[t][bit >>> 6] |= 1L << (bit & 63);
+        counts[t]++;
+    }
+
+    /**
+     * Remove the value of a sensor.
+     *
+     * @param type The sensor type
+     * @param sensorId The sensor ID
+     */
+    void removeValue(SensorType type, int sensorId) {
+        int t = typeIndex(type);
+        if (t < 0 || !isPresent(t, sensorId))
+            return;
+
+        int index = rank(t, sensorId);
+        System.arraycopy(values[t], index + 1, values[t], index, counts[t] - index - 1);
+        int bit = bitIndex(ranges[t], sensorId);
+        presence[t][bit >>> 6] &= ~(1L << (bit & 63));
+        counts[t]--;
+    }
+
+    /**
+     * The index in the bitmap of a sensor ID, or where the bits of its range would be inserted if the range does not
+     * have bitmap words yet. The bitmap is in sensor ID order either way.
+     */
+    private static int bitIndex(int[] ranges, int sensorId) {
+        int slot = Arrays.binarySearch(ranges, sensorId / RANGE_SIZE);
+        if (slot < 0)
+            return (-slot - 1) * RANGE_BITS;
+        else
+            return slot * RANGE_BITS + sensorId % RANGE_SIZE;
+    }
+
+    private boolean isPresent(int t, int sensorId) {
+        if (sensorId < 0 || Arrays.binarySearch(ranges[t], sensorId / RANGE_SIZE) < 0)
+            return false;
+
+        int bit = bitIndex(ranges[t], sensorId);
+        return (presence[t][bit >>> 6] & (1L << (bit & 63))) != 0;
+    }
+
+    /**
+     * The number of present sensor IDs below a sensor ID.
+     */
+    private int rank(int t, int sensorId) {
+        long[] bits = presence[t];
+        int bit = bitIndex(ranges[t], sensorId);
+        int word = bit >>> 6;
+        int rank = 0;
+        for (int i = 0; i < word && i < bits.length; i++)
+            rank += Long.bitCount(bits[i]);
+
+        if (word < bits.length)
+            rank += Long.bitCount(bits[word] & ((1L << (bit & 63)) - 1));
+
+        return rank;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        for (int t = 0; t < SENSOR_TYPES.length; t++) {
+            for (int id = nextSensorId(SENSOR_TYPES[t], 0); id >= 0; id = nextSensorId(SENSOR_TYPES[t], id + 1)) {
+                hash = 31 * hash + id;
+                hash = 31 * hash + Double.hashCode(getValue(SENSOR_TYPES[t], id));
+            }
+        }
+
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null)
+            return false;
+
+        if (getClass() != obj.getClass())
+            return false;
+
+        final ExtraSensorValues other = (ExtraSensorValues)obj;
+        for (int t = 0; t < SENSOR_TYPES.length; t++) {
+            if (counts[t] != other.counts[t])
+                return false;
+
+            for (int id = nextSensorId(SENSOR_TYPES[t], 0); id >= 0; id = nextSensorId(SENSOR_TYPES[t], id + 1))
+                if (Double.compare(getValue(SENSOR_TYPES[t], id), other.getValue(SENSOR_TYPES[t], id)) != 0)
+                    return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,215 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+/**
+ * The classic barometer forecasting rules, which combine the wind direction, the sea level pressure and the pressure
+ * tendency. Where the rules overlap the later, more specific, rule applies.
+ */
+public enum ForecastRule {
+    /**
+     * SW to NW, 30.10 to 30.20 and steady
+     */
+    FAIR_SLIGHT_TEMPERATURE_CHANGE("Fair with slight temperature change for 1 to 2 days.",
+                                   Forecast.SUNNY, ForecastRule.SW | ForecastRule.W | ForecastRule.NW, ForecastRule.B30_10_TO_30_20, WeatherTrend.STEADY),
+    /**
+     * SW to NW, 30.10 to 30.20 and rising rapidly
+     */
+    FAIR_THEN_RAIN("Fair, followed within 2 days by rain.",
+                   Forecast.PARTLY_CLOUDY, ForecastRule.SW | ForecastRule.W | ForecastRule.NW, ForecastRule.B30_10_TO_30_20, WeatherTrend.RISING_RAPIDLY),
+    /**
+     * SW to NW, 30.20 and above and stationary
+     */
+    CONTINUED_FAIR("Continued fair, with no decided temperature change.",
+                   Forecast.SUNNY, ForecastRule.SW | ForecastRule.W | ForecastRule.NW, ForecastRule.B30_20_AND_ABOVE, WeatherTrend.STEADY),
+    /**
+     * SW to NW, 30.20 and above and falling slowly
+     */
+    FAIR_RISING_TEMPERATURE("Slowly rising temperature and fair for 2 days.",
+                            Forecast.SUNNY, ForecastRule.SW | ForecastRule.W | ForecastRule.NW, ForecastRule.B30_20_AND_ABOVE, WeatherTrend.FALLING_SLOWLY),
+    /**
+     * S to SE, 30.10 to 30.20 and falling slowly
+     */
+    RAIN_WITHIN_24_HOURS("Rain within 24 hours.",
+                         Forecast.PARTLY_CLOUDY_WITH_RAIN_LATER, ForecastRule.S | ForecastRule.SE, ForecastRule.B30_10_TO_30_20, WeatherTrend.FALLING_SLOWLY),
+    /**
+     * S to SE, 30.10 to 30.20 and falling rapidly
+     */
+    WIND_INCREASING_RAIN_WITHIN_24_HOURS("Wind increasing in force, with rain within 12 to 24 hours.",
+                                         Forecast.PARTLY_CLOUDY_WITH_RAIN_LATER, ForecastRule.S | ForecastRule.SE, ForecastRule.B30_10_TO_30_20, WeatherTrend.FALLING_RAPIDLY),
+    /**
+     * SE to NE, 30.10 to 30.20 and falling slowly
+     */
+    RAIN_WITHIN_18_HOURS("Rain in 12 to 18 hours.",
+                         Forecast.PARTLY_CLOUDY_WITH_RAIN_LATER, ForecastRule.SE | ForecastRule.E | ForecastRule.NE, ForecastRule.B30_10_TO_30_20, WeatherTrend.FALLING_SLOWLY),
+    /**
+     * SE to NE, 30.10 to 30.20 and falling rapidly
+     */
+    WIND_INCREASING_RAIN_WITHIN_12_HOURS("Increasing wind, and rain within 12 hours.",
+                                         Forecast.MOSTLY_CLOUDY_WITH_RAIN, ForecastRule.SE | ForecastRule.E | ForecastRule.NE, ForecastRule.B30_10_TO_30_20, WeatherTrend.FALLING_RAPIDLY),
+    /**
+     * E to NE, 30.10 and above and falling slowly
+     */
+    SEASONAL_RAIN_WITHIN_24_HOURS("In summer, with light winds, rain may not fall for several days. In winter, rain within 24 hours.",
+                                  Forecast.PARTLY_CLOUDY_WITH_RAIN_LATER, ForecastRule.E | ForecastRule.NE, ForecastRule.B30_10_TO_30_20 | ForecastRule.B30_20_AND_ABOVE, WeatherTrend.FALLING_SLOWLY),
+    /**
+     * E to NE, 30.10 and above and falling rapidly
+     */
+    SEASONAL_RAIN_OR_SNOW_WITHIN_24_HOURS("In summer, rain probably within 12 to 24 hours. In winter, rain or snow, with increasing winds, will often set in when the barometer begins to fall and the wind sets in from the NE.",
+                                          Forecast.PARTLY_CLOUDY_WITH_RAIN_OR_SNOW_LATER, ForecastRule.E | ForecastRule.NE, ForecastRule.B30_10_TO_30_20 | ForecastRule.B30_20_AND_ABOVE, WeatherTrend.FALLING_RAPIDLY),
+    /**
+     * SE to NE, 30.00 or below and falling slowly
+     */
+    RAIN_CONTINUING("Rain will continue 1 to 2 days.",
+                    Forecast.MOSTLY_CLOUDY_WITH_RAIN, ForecastRule.SE | ForecastRule.E | ForecastRule.NE, ForecastRule.B29_80_AND_BELOW | ForecastRule.B29_80_TO_30_00, WeatherTrend.FALLING_SLOWLY),
+    /**
+     * SE to NE, 30.00 or below and falling rapidly
+     */
+    RAIN_HIGH_WIND_THEN_CLEARING("Rain, with high wind, followed, within 36 hours by clearing, and in winter by colder.",
+                                 Forecast.MOSTLY_CLOUDY_WITH_RAIN, ForecastRule.SE | ForecastRule.E | ForecastRule.NE, ForecastRule.B29_80_AND_BELOW | ForecastRule.B29_80_TO_30_00, WeatherTrend.FALLING_RAPIDLY),
+    /**
+     * S to SW, 30.00 or below and rising slowly
+     */
+    CLEARING_THEN_FAIR("Clearing within a few hours, and fair for several days.",
+                       Forecast.PARTLY_CLOUDY, ForecastRule.S | ForecastRule.SW, ForecastRule.B29_80_AND_BELOW | ForecastRule.B29_80_TO_30_00, WeatherTrend.RISING_SLOWLY),
+    /**
+     * S to E, 29.80 or below and falling rapidly
+     */
+    SEVERE_STORM("Severe storm imminent, followed within 24 hours, by clearing, and in winter by colder.",
+                 Forecast.MOSTLY_CLOUDY_WITH_RAIN, ForecastRule.S | ForecastRule.SE | ForecastRule.E, ForecastRule.B29_80_AND_BELOW, WeatherTrend.FALLING_RAPIDLY),
+    /**
+     * E to N, 29.80 or below and falling rapidly
+     */
+    NORTHEAST_GALE("Severe northeast gale and heavy precipitation; in winter, heavy snow, followed by a cold wave.",
+                   Forecast.MOSTLY_CLOUDY_WITH_RAIN_OR_SNOW, ForecastRule.E | ForecastRule.NE | ForecastRule.N, ForecastRule.B29_80_AND_BELOW, WeatherTrend.FALLING_RAPIDLY),
+    /**
+     * Going to W, 29.80 or below and rising rapidly
+     */
+    CLEARING_AND_COLDER("Clearing and colder.",
+                        Forecast.PARTLY_CLOUDY, ForecastRule.GOING_TO_W, ForecastRule.B29_80_AND_BELOW, WeatherTrend.RISING_RAPIDLY);
+
+    /**
+     * The number of wind sectors, N, NE, E, SE, S, SW, W and NW
+     */
+    public static final int NUM_WIND_SECTORS = 8;
+    /**
+     * The number of pressure bands, 29.80 and below, 29.80 to 30.00, 30.00 to 30.10, 30.10 to 30.20 and 30.20 and above
+     */
+    public static final int NUM_PRESSURE_BANDS = 5;
+
+    private static final int N = 1;
+    private static final int NE = 1 << 1;
+    private static final int E = 1 << 2;
+    private static final int SE = 1 << 3;
+    private static final int S = 1 << 4;
+    private static final int SW = 1 << 5;
+    private static final int W = 1 << 6;
+    private static final int NW = 1 << 7;
+    private static final int GOING_TO_W = 1 << 8;
+
+    private static final int B29_80_AND_BELOW = 1;
+    private static final int B29_80_TO_30_00 = 1 << 1;
+    private static final int B30_10_TO_30_20 = 1 << 3;
+    private static final int B30_20_AND_ABOVE = 1 << 4;
+
+    private static final double[] PRESSURE_BAND_LIMITS_IN_HG = {29.80, 30.00, 30.10, 30.20};
+
+    private final String text;
+    private final Forecast forecast;
+    private final int sectors;
+    private final int bands;
+    private final WeatherTrend trend;
+
+    ForecastRule(String text, Forecast forecast, int sectors, int bands, WeatherTrend trend) {
+        this.text = text;
+        this.forecast = forecast;
+        this.sectors = sectors;
+        this.bands = bands;
+        this.trend = trend;
+    }
+
+    /**
+     * Get the text of the rule's forecast.
+     *
+     * @return The text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get the forecast that best represents the rule.
+     *
+     * @return The forecast
+     */
+    public Forecast getForecast() {
+        return forecast;
+    }
+
+    /**
+     * Check whether the rule applies.
+     *
+     * @param sector The wind sector, 0 is north and the sectors increase clockwise
+     * @param band The pressure band
+     * @param trend The pressure tendency
+     * @param goingToWest Whether the wind has shifted to the west
+     * @return True if the rule applies
+     */
+    public boolean matches(int sector, int band, WeatherTrend trend, boolean goingToWest) {
+        if (this.trend != trend || (bands & (1 << band)) == 0)
+            return false;
+
+        if ((sectors & GOING_TO_W) != 0)
+            return goingToWest && sector == 6;
+        else
+            return (sectors & (1 << sector)) != 0;
+    }
+
+    /**
+     * Get the wind sector of a direction.
+     *
+     * @param degrees The direction the wind is coming from in degrees
+     * @return The sector, 0 is north and the sectors increase clockwise
+     */
+    public static int windSector(double degrees) {
+        return (int)Math.floor(((degrees % 360.0 + 360.0) % 360.0 + 22.5) / 45.0) % NUM_WIND_SECTORS;
+    }
+
+    /**
+     * Get the pressure band of a sea level pressure. Where the rules say "or below" the limit is included in the lower band.
+     *
+     * @param inHg The pressure in inches of mercury
+     * @return The band
+     */
+    public static int pressureBand(double inHg) {
+        if (inHg <= PRESSURE_BAND_LIMITS_IN_HG[0])
+            return 0;
+        else if (inHg <= PRESSURE_BAND_LIMITS_IN_HG[1])
+            return 1;
+        else if (inHg < PRESSURE_BAND_LIMITS_IN_HG[2])
+            return 2;
+        else if (inHg < PRESSURE_BAND_LIMITS_IN_HG[3])
+            return 3;
+        else
+            return 4;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
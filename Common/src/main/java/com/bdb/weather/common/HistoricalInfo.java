@@ -62,6 +62,66 @@ public class HistoricalInfo
 	this.lastRecordWritten = lastRecordWritten;
     }
 
+    /**
+     * Get the time of the oldest record in the console archive.
+     *
+     * @return The time
+     */
+    public LocalDateTime getFirstRecordTime()
+    {
+	return firstRecordTime;
+    }
+
+    /**
+     * Get the time of the newest record in the console archive.
+     *
+     * @return The time or null if the archive is empty
+     */
+    public LocalDateTime getLastRecordTime()
+    {
+	return lastRecordTime;
+    }
+
+    /**
+     * Get the number of minutes until the console writes the next archive record.
+     *
+     * @return The number of minutes
+     */
+    public int getMinutesToNextReading()
+    {
+	return minutesToNextReading;
+    }
+
+    /**
+     * Get the number of records in the console archive.
+     *
+     * @return The number of records
+     */
+    public int getNumRecords()
+    {
+	return numRecords;
+    }
+
+    /**
+     * Get the archive interval of the console.
+     *
+     * @return The interval in minutes
+     */
+    public int getRecordIntervalSetting()
+    {
+	return recordIntervalSetting;
+    }
+
+    /**
+     * Get the index of the last record that the console wrote.
+     *
+     * @return The index
+     */
+    public int getLastRecordWritten()
+    {
+	return lastRecordWritten;
+    }
+
     @Override
     public String toString()
     {
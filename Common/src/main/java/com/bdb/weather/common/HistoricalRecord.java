@@ -23,9 +23,7 @@ import java.time.format.FormatStyle;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
 
 import com.bdb.util.measurement.Measurement;
 import com.bdb.weather.common.measurement.Depth;
@@ -66,13 +64,13 @@ public class HistoricalRecord {
     private Depth rainfall;
     private Depth highRainfallRate;
     
-    private final Map<Integer,MeasurementEntry<Temperature>> temperatureSensorEntries = new TreeMap<>();
-    
-    private final Map<Integer,MeasurementEntry<Humidity>> humiditySensorEntries = new TreeMap<>();
-
-    private final Map<Integer,MeasurementEntry<LeafWetness>> leafWetnessSensorEntries = new TreeMap<>();
-    
-    private final Map<Integer,MeasurementEntry<SoilMoisture>> soilMoistureSensorEntries = new TreeMap<>();
+    private final ExtraSensorValues extraSensorValues = new ExtraSensorValues();
+    //
+    // The derived values are calculated when first requested and cleared when a value they depend on is set
+    //
+    private Temperature windChill;
+    private Temperature dewPoint;
+    private Temperature heatIndex;
 
     /**
      * Constructor.
@@ -131,13 +129,37 @@ public class HistoricalRecord {
      * @return The collection of measurements
      */
     public Collection<MeasurementEntry<? extends Measurement>> getMeasurementEntries() {
-        List<MeasurementEntry<? extends Measurement>> entries = new ArrayList<>();
-        entries.addAll(temperatureSensorEntries.values());
-        entries.addAll(humiditySensorEntries.values());
-        entries.addAll(soilMoistureSensorEntries.values());
-        entries.addAll(leafWetnessSensorEntries.values());
+        List<MeasurementEntry<? extends Measurement>> entries = new ArrayList<>(extraSensorValues.size());
+        for (SensorType type : ExtraSensorValues.SENSOR_TYPES) {
+            for (int id = extraSensorValues.nextSensorId(type, 0); id >= 0; id = extraSensorValues.nextSensorId(type, id + 1)) {
+                switch (type) {
+                    case THERMOMETER:
+                        entries.add(new MeasurementEntry<>(id, type, getTemperatureForSensor(id)));
+                        break;
+                    case HYGROMETER:
+                        entries.add(new MeasurementEntry<>(id, type, getHumidityForSensor(id)));
+                        break;
+                    case LEAF_WETNESS:
+                        entries.add(new MeasurementEntry<>(id, type, getLeafWetnessForSensor(id)));
+                        break;
+                    default:
+                        entries.add(new MeasurementEntry<>(id, type, getSoilMoistureForSensor(id)));
+                        break;
+                }
+            }
+        }
+
         return entries;
     }
+
+    /**
+     * Get the values of the non-standard sensors as primitives, which can be iterated without allocating.
+     *
+     * @return The extra sensor values
+     */
+    public ExtraSensorValues getExtraSensorValues() {
+        return extraSensorValues;
+    }
     
     /**
      * Get the temperature for a given sensor.
@@ -146,10 +168,10 @@ public class HistoricalRecord {
      * @return The temperature or null if the sensor ID does not exist
      */
     public Temperature getTemperatureForSensor(int sensorId) {
-        MeasurementEntry<Temperature> entry = temperatureSensorEntries.get(sensorId);
+        double value = extraSensorValues.getValue(SensorType.THERMOMETER, sensorId);
 		
-        if (entry != null)
-            return entry.getMeasurement();
+        if (!Double.isNaN(value))
+            return new Temperature(value, Temperature.Unit.CELSIUS);
         else
             return null;
     }
@@ -161,8 +183,10 @@ public class HistoricalRecord {
      * @param temperature
      */
     public void setTemperatureForSensor(int sensorId, Temperature temperature) {
-        MeasurementEntry<Temperature> entry = new MeasurementEntry<>(sensorId, SensorType.THERMOMETER, temperature);
-        temperatureSensorEntries.put(sensorId, entry);
+        if (temperature != null)
+            extraSensorValues.setValue(SensorType.THERMOMETER, sensorId, temperature.get(Temperature.Unit.CELSIUS));
+        else
+            extraSensorValues.removeValue(SensorType.THERMOMETER, sensorId);
     }
     
     /**
@@ -172,10 +196,10 @@ public class HistoricalRecord {
      * @return The humidity or null if the sensor does not exist
      */
     public Humidity getHumidityForSensor(int sensorId) {
-        MeasurementEntry<Humidity> entry = humiditySensorEntries.get(sensorId);
+        double value = extraSensorValues.getValue(SensorType.HYGROMETER, sensorId);
         
-        if (entry != null)
-            return entry.getMeasurement();
+        if (!Double.isNaN(value))
+            return new Humidity(value);
         else
             return null;
     }
@@ -187,8 +211,10 @@ public class HistoricalRecord {
      * @param leafWetness The leaf wetness
      */
     public void setLeafWetnessForSensor(int sensorId, LeafWetness leafWetness) {
-        MeasurementEntry<LeafWetness> entry = new MeasurementEntry<>(sensorId, SensorType.LEAF_WETNESS, leafWetness);
-        leafWetnessSensorEntries.put(sensorId, entry);
+        if (leafWetness != null)
+            extraSensorValues.setValue(SensorType.LEAF_WETNESS, sensorId, leafWetness.get(LeafWetness.Unit.WETNESS));
+        else
+            extraSensorValues.removeValue(SensorType.LEAF_WETNESS, sensorId);
     }
     
     /**
@@ -198,10 +224,10 @@ public class HistoricalRecord {
      * @return The leaf wetness or null if the sensor does not exist
      */
     public LeafWetness getLeafWetnessForSensor(int sensorId) {
-        MeasurementEntry<LeafWetness> entry = leafWetnessSensorEntries.get(sensorId);
+        double value = extraSensorValues.getValue(SensorType.LEAF_WETNESS, sensorId);
         
-        if (entry != null)
-            return entry.getMeasurement();
+        if (!Double.isNaN(value))
+            return new LeafWetness(value);
         else
             return null;
     }
@@ -213,8 +239,10 @@ public class HistoricalRecord {
      * @param soilMoisture The soil moisture
      */
     public void setSoilMoistureForSensor(int sensorId, SoilMoisture soilMoisture) {
-        MeasurementEntry<SoilMoisture> entry = new MeasurementEntry<>(sensorId, SensorType.SOIL_MOISTURE, soilMoisture);
-        soilMoistureSensorEntries.put(sensorId, entry);
+        if (soilMoisture != null)
+            extraSensorValues.setValue(SensorType.SOIL_MOISTURE, sensorId, soilMoisture.get(SoilMoisture.Unit.CENTIBAR));
+        else
+            extraSensorValues.removeValue(SensorType.SOIL_MOISTURE, sensorId);
     }
     
     /**
@@ -224,10 +252,10 @@ public class HistoricalRecord {
      * @return The soil moisture or null if the sensor does not exist
      */
     public SoilMoisture getSoilMoistureForSensor(int sensorId) {
-        MeasurementEntry<SoilMoisture> entry = soilMoistureSensorEntries.get(sensorId);
+        double value = extraSensorValues.getValue(SensorType.SOIL_MOISTURE, sensorId);
         
-        if (entry != null)
-            return entry.getMeasurement();
+        if (!Double.isNaN(value))
+            return new SoilMoisture(value, SoilMoisture.Unit.CENTIBAR);
         else
             return null;
     }
@@ -239,8 +267,10 @@ public class HistoricalRecord {
      * @param humidity The humidity
      */
     public void setHumidityForSensor(int sensorId, Humidity humidity) {
-        MeasurementEntry<Humidity> entry = new MeasurementEntry<>(sensorId, SensorType.HYGROMETER, humidity);
-        humiditySensorEntries.put(sensorId, entry);
+        if (humidity != null)
+            extraSensorValues.setValue(SensorType.HYGROMETER, sensorId, humidity.get(Humidity.Unit.RELATIVE_HUMIDITY));
+        else
+            extraSensorValues.removeValue(SensorType.HYGROMETER, sensorId);
     }
     
     /**
@@ -279,6 +309,9 @@ public class HistoricalRecord {
      */
     public void setAvgOutdoorTemperature(Temperature temperature) {
          this.avgOutdoorTemperature = temperature;
+         windChill = null;
+         dewPoint = null;
+         heatIndex = null;
     }
     
     /**
@@ -315,6 +348,8 @@ public class HistoricalRecord {
      */
     public void setOutdoorHumidity(Humidity humidity) {
         this.outdoorHumidity = humidity;
+        dewPoint = null;
+        heatIndex = null;
     }
 
     /**
@@ -360,6 +395,7 @@ public class HistoricalRecord {
      */
     public void setAvgWind(Wind wind) {
         this.avgWind = wind;
+        windChill = null;
     }
 
     /**
@@ -557,10 +593,10 @@ public class HistoricalRecord {
      * @return The wind chill or null if the wind chill is missing
      */
     public Temperature getWindChill() {
-        if (avgOutdoorTemperature != null && avgWind != null)
-            return WeatherUtils.windChill(avgOutdoorTemperature, avgWind.getSpeed(), true);
-        else
-            return null;
+        if (windChill == null && avgOutdoorTemperature != null && avgWind != null)
+            windChill = WeatherUtils.windChill(avgOutdoorTemperature, avgWind.getSpeed(), true);
+
+        return windChill;
     }
 
     /**
@@ -569,10 +605,10 @@ public class HistoricalRecord {
      * @return The dew point or null if the dew point is missing
      */
     public Temperature getDewPoint() {
-        if (avgOutdoorTemperature != null && outdoorHumidity != null)
-            return WeatherUtils.dewPoint(avgOutdoorTemperature, outdoorHumidity);
-        else
-            return null;
+        if (dewPoint == null && avgOutdoorTemperature != null && outdoorHumidity != null)
+            dewPoint = WeatherUtils.dewPoint(avgOutdoorTemperature, outdoorHumidity);
+
+        return dewPoint;
     }
 
     /**
@@ -581,10 +617,10 @@ public class HistoricalRecord {
      * @return The heat index or null if the heat index is missing
      */
     public Temperature getHeatIndex() {
-        if (avgOutdoorTemperature != null && outdoorHumidity != null)
-            return WeatherUtils.heatIndex(avgOutdoorTemperature, outdoorHumidity);
-        else
-            return null;
+        if (heatIndex == null && avgOutdoorTemperature != null && outdoorHumidity != null)
+            heatIndex = WeatherUtils.heatIndex(avgOutdoorTemperature, outdoorHumidity);
+
+        return heatIndex;
     }
 
     /**
@@ -689,8 +725,8 @@ public class HistoricalRecord {
         String s2 = " " + rainfall + " " + avgUvIndex + " " + evapotranspiration;
         
         String ts = "\n";
-        for (MeasurementEntry<Temperature> entry : temperatureSensorEntries.values()) {
-            ts += "temperture sensor[" + entry.getSensorId() + "] " + entry.getMeasurement() + "\n";
+        for (int id = extraSensorValues.nextSensorId(SensorType.THERMOMETER, 0); id >= 0; id = extraSensorValues.nextSensorId(SensorType.THERMOMETER, id + 1)) {
+            ts += "temperture sensor[" + id + "] " + getTemperatureForSensor(id) + "\n";
         }
 
         return s + s2 + ts;
@@ -718,10 +754,7 @@ public class HistoricalRecord {
         hash = 67 * hash + Objects.hashCode(this.evapotranspiration);
         hash = 67 * hash + Objects.hashCode(this.rainfall);
         hash = 67 * hash + Objects.hashCode(this.highRainfallRate);
-        hash = 67 * hash + Objects.hashCode(this.temperatureSensorEntries);
-        hash = 67 * hash + Objects.hashCode(this.humiditySensorEntries);
-        hash = 67 * hash + Objects.hashCode(this.soilMoistureSensorEntries);
-        hash = 67 * hash + Objects.hashCode(this.leafWetnessSensorEntries);
+        hash = 67 * hash + Objects.hashCode(this.extraSensorValues);
         return hash;
     }
 
@@ -791,15 +824,6 @@ public class HistoricalRecord {
         if (!Objects.equals(this.highRainfallRate, other.highRainfallRate))
             return false;
 
-        if (!Objects.equals(this.temperatureSensorEntries, other.temperatureSensorEntries))
-            return false;
-
-        if (!Objects.equals(this.humiditySensorEntries, other.humiditySensorEntries))
-            return false;
-
-        if (!Objects.equals(this.leafWetnessSensorEntries, other.leafWetnessSensorEntries))
-            return false;
-
-        return Objects.equals(this.soilMoistureSensorEntries, other.soilMoistureSensorEntries);
+        return Objects.equals(this.extraSensorValues, other.extraSensorValues);
     }
 }
@@ -0,0 +1,258 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Immutable index of time intervals, such as storms or bad battery periods, that answers which intervals contain a
+ * time or overlap a time range. The intervals are closed, so an interval that starts and ends at the same time (a bad
+ * battery that was only reported once) contains that time.
+ * <br>
+ * The intervals are sorted by start time and form an implicit balanced tree in which each node holds the latest end
+ * time of its subtree, so a query takes O(log m + k) for m intervals and k results. Marking the archive records that
+ * fall within any interval is a single merge of the records with the sorted intervals.
+ *
+ * @param <T> The type of the interval
+ */
+public final class IntervalIndex<T> {
+    private final List<T> items;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    /**
+     * Constructor.
+     *
+     * @param intervals The intervals
+     * @param startTime The function that gets the start time of an interval
+     * @param endTime The function that gets the end time of an interval, which may return null for an interval that has not ended
+     */
+    public IntervalIndex(Collection<T> intervals, Function<T,LocalDateTime> startTime, Function<T,LocalDateTime> endTime) {
+        int size = intervals.size();
+        long[] unsortedStarts = new long[size];
+        long[] unsortedEnds = new long[size];
+        List<T> unsorted = new ArrayList<>(intervals);
+        for (int i = 0; i < size; i++) {
+            T item = unsorted.get(i);
+            unsortedStarts[i] = toSecond(startTime.apply(item));
+            LocalDateTime end = endTime.apply(item);
+            unsortedEnds[i] = end == null ? Long.MAX_VALUE : toSecond(end);
+            if (unsortedEnds[i] < unsortedStarts[i])
+                throw new IllegalArgumentException("Interval ends before it starts: " + item);
+        }
+
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+
+        Arrays.sort(order, (i1, i2) -> Long.compare(unsortedStarts[i1], unsortedStarts[i2]));
+
+        items = new ArrayList<>(size);
+        starts = new long[size];
+        ends = new long[size];
+        for (int i = 0; i < size; i++) {
+            items.add(unsorted.get(order[i]));
+            starts[i] = unsortedStarts[order[i]];
+            ends[i] = unsortedEnds[order[i]];
+        }
+
+        maxEnds = new long[size];
+        buildMaxEnds(0, size);
+    }
+
+    /**
+     * Create an index of storms. A storm that is still active extends indefinitely.
+     *
+     * @param storms The storms
+     * @return The index
+     */
+    public static IntervalIndex<Storm> ofStorms(Collection<Storm> storms) {
+        return new IntervalIndex<>(storms, Storm::getStartTime, Storm::getEndTime);
+    }
+
+    /**
+     * Create an index of bad battery periods, from the time the bad battery was detected to the last time it was reported.
+     *
+     * @param badBatteries The bad battery periods
+     * @return The index
+     */
+    public static IntervalIndex<BadBattery> ofBadBatteries(Collection<BadBattery> badBatteries) {
+        return new IntervalIndex<>(badBatteries, BadBattery::getTimeDetected, (b) -> b.getTimeDetected().plus(b.getDuration()));
+    }
+
+    /**
+     * Get the number of intervals.
+     *
+     * @return The number of intervals
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Find the intervals that contain a time.
+     *
+     * @param time The time
+     * @return The intervals in order of their start time
+     */
+    public List<T> stab(LocalDateTime time) {
+        long t = toSecond(time);
+        return overlapping(t, t);
+    }
+
+    /**
+     * Check whether any interval contains a time.
+     *
+     * @param time The time
+     * @return True if the time is within an interval
+     */
+    public boolean contains(LocalDateTime time) {
+        long t = toSecond(time);
+        return findAny(0, starts.length, t, t);
+    }
+
+    /**
+     * Find the intervals that overlap a time range.
+     *
+     * @param start The start of the range, inclusive
+     * @param end The end of the range, exclusive
+     * @return The intervals in order of their start time
+     */
+    public List<T> overlapping(LocalDateTime start, LocalDateTime end) {
+        if (!end.isAfter(start))
+            return new ArrayList<>();
+
+        return overlapping(toSecond(start), toSecond(end) - 1);
+    }
+
+    /**
+     * Mark the archive records that are within any interval.
+     *
+     * @param records The archive records in time order
+     * @return The set of the indexes of the records that are within an interval
+     */
+    public BitSet markRecords(List<HistoricalRecord> records) {
+        BitSet marks = new BitSet(records.size());
+        int next = 0;
+        long latestEnd = Long.MIN_VALUE;
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < records.size(); i++) {
+            long t = toSecond(records.get(i).getTime());
+            if (t < previous)
+                throw new IllegalArgumentException("Archive records are not in time order at " + records.get(i).getTime());
+
+            //
+            // Every interval that starts at or before this record is passed once, the record is covered if the
+            // latest end of those intervals is not before it
+            //
+            while (next < starts.length && starts[next] <= t)
+                latestEnd = Math.max(latestEnd, ends[next++]);
+
+            if (latestEnd >= t)
+                marks.set(i);
+
+            previous = t;
+        }
+
+        return marks;
+    }
+
+    /**
+     * Remove the archive records that are within any interval, such as the records of a sensor station with a bad battery.
+     *
+     * @param records The archive records in time order
+     * @return The records that are not within an interval
+     */
+    public List<HistoricalRecord> excludeRecords(List<HistoricalRecord> records) {
+        BitSet marks = markRecords(records);
+        List<HistoricalRecord> list = new ArrayList<>(records.size() - marks.cardinality());
+        for (int i = marks.nextClearBit(0); i < records.size(); i = marks.nextClearBit(i + 1))
+            list.add(records.get(i));
+
+        return list;
+    }
+
+    private List<T> overlapping(long start, long end) {
+        List<T> list = new ArrayList<>();
+        collect(0, starts.length, start, end, list);
+        return list;
+    }
+
+    /**
+     * The node of the subtree [lo, hi) is the middle interval, the subtrees are the halves on each side of it.
+     */
+    private long buildMaxEnds(int lo, int hi) {
+        if (lo >= hi)
+            return Long.MIN_VALUE;
+
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(buildMaxEnds(lo, mid), buildMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    /**
+     * Collect the intervals of a subtree that overlap the closed range [start, end]. A subtree is skipped when all of its
+     * intervals end before the range, the right subtree is skipped when the node starts after the range.
+     */
+    private void collect(int lo, int hi, long start, long end, List<T> list) {
+        if (lo >= hi)
+            return;
+
+        int mid = (lo + hi) >>> 1;
+        if (maxEnds[mid] < start)
+            return;
+
+        collect(lo, mid, start, end, list);
+        if (starts[mid] > end)
+            return;
+
+        if (ends[mid] >= start)
+            list.add(items.get(mid));
+
+        collect(mid + 1, hi, start, end, list);
+    }
+
+    private boolean findAny(int lo, int hi, long start, long end) {
+        if (lo >= hi)
+            return false;
+
+        int mid = (lo + hi) >>> 1;
+        if (maxEnds[mid] < start)
+            return false;
+
+        if (findAny(lo, mid, start, end))
+            return true;
+
+        if (starts[mid] > end)
+            return false;
+
+        return ends[mid] >= start || findAny(mid + 1, hi, start, end);
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,383 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import com.bdb.util.measurement.Measurement;
+import com.bdb.util.measurement.Unit;
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.SolarRadiation;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * Summary of the current day that is maintained from the current weather, so that the day's extremes, averages, rain
+ * and wind rose are available before the day's archive records have been summarized. Each current weather updates
+ * primitive accumulators for every field and publishes an immutable {@link DailySummarySnapshot} that readers get
+ * without locking. The summary rolls over when a current weather for a new day arrives, which is local midnight as the
+ * current weather times are local.
+ * <br>
+ * The averages are weighted by the time until the next current weather. Gaps in the current weather that are longer than
+ * the maximum sample duration are not counted, so a collector outage does not stretch the last sample.
+ * <br>
+ * When the summary of the day's archive records is available it can be reconciled with the live summary. For the
+ * current day the extremes of the archive are merged, as they may include values that were missed while the current
+ * weather was not being received. For the previous, completed, day the archive values replace the live values.
+ */
+public class LiveDailySummary implements CurrentWeatherSubscriber.CurrentWeatherHandler {
+    private static final CurrentWeatherField[] FIELDS = CurrentWeatherField.values();
+    private static final long DEFAULT_MAX_SAMPLE_MILLIS = Duration.ofMinutes(5).toMillis();
+    private static final ArchiveMapping[] ARCHIVE_MAPPINGS = {
+        new ArchiveMapping(CurrentWeatherField.OUTSIDE_TEMPERATURE, Temperature.Unit.CELSIUS,
+                           SummaryRecord::getMinOutdoorTemp, SummaryRecord::getMinOutdoorTempTime,
+                           SummaryRecord::getMaxOutdoorTemp, SummaryRecord::getMaxOutdoorTempTime, SummaryRecord::getAvgOutdoorTemp),
+        new ArchiveMapping(CurrentWeatherField.INSIDE_TEMPERATURE, Temperature.Unit.CELSIUS,
+                           SummaryRecord::getMinIndoorTemp, SummaryRecord::getMinIndoorTempTime,
+                           SummaryRecord::getMaxIndoorTemp, SummaryRecord::getMaxIndoorTempTime, SummaryRecord::getAvgIndoorTemp),
+        new ArchiveMapping(CurrentWeatherField.DEW_POINT, Temperature.Unit.CELSIUS,
+                           SummaryRecord::getMinDewPoint, SummaryRecord::getMinDewPointTime,
+                           SummaryRecord::getMaxDewPoint, SummaryRecord::getMaxDewPointTime, SummaryRecord::getAvgDewPoint),
+        new ArchiveMapping(CurrentWeatherField.HEAT_INDEX, Temperature.Unit.CELSIUS,
+                           null, null, SummaryRecord::getMaxHeatIndex, SummaryRecord::getMaxHeatIndexTime, SummaryRecord::getAvgHeatIndex),
+        new ArchiveMapping(CurrentWeatherField.WIND_CHILL, Temperature.Unit.CELSIUS,
+                           SummaryRecord::getMinWindChill, SummaryRecord::getMinWindChillTime, null, null, SummaryRecord::getAvgWindChill),
+        new ArchiveMapping(CurrentWeatherField.OUTSIDE_HUMIDITY, Humidity.Unit.RELATIVE_HUMIDITY,
+                           SummaryRecord::getMinOutdoorHumidity, SummaryRecord::getMinOutdoorHumidityTime,
+                           SummaryRecord::getMaxOutdoorHumidity, SummaryRecord::getMaxOutdoorHumidityTime, SummaryRecord::getAvgOutdoorHumidity),
+        new ArchiveMapping(CurrentWeatherField.INSIDE_HUMIDITY, Humidity.Unit.RELATIVE_HUMIDITY,
+                           SummaryRecord::getMinIndoorHumidity, SummaryRecord::getMinIndoorHumidityTime,
+                           SummaryRecord::getMaxIndoorHumidity, SummaryRecord::getMaxIndoorHumidityTime, SummaryRecord::getAvgIndoorHumidity),
+        new ArchiveMapping(CurrentWeatherField.BAROMETRIC_PRESSURE, Pressure.Unit.MILLIBAR,
+                           SummaryRecord::getMinBaroPressure, SummaryRecord::getMinBaroPressureTime,
+                           SummaryRecord::getMaxBaroPressure, SummaryRecord::getMaxBaroPressureTime, SummaryRecord::getAvgBaroPressure),
+        new ArchiveMapping(CurrentWeatherField.WIND_SPEED, Speed.Unit.METERS_PER_SEC,
+                           null, null, SummaryRecord::getMaxWindSpeed, SummaryRecord::getMaxWindSpeedTime, SummaryRecord::getAvgWindSpeed),
+        new ArchiveMapping(CurrentWeatherField.GUST_SPEED, Speed.Unit.METERS_PER_SEC,
+                           null, null, SummaryRecord::getMaxWindGust, SummaryRecord::getMaxWindGustTime, null),
+        new ArchiveMapping(CurrentWeatherField.SOLAR_RADIATION, SolarRadiation.Unit.WATTS_PER_METER_SQUARED,
+                           null, null, SummaryRecord::getMaxSolarRadiation, SummaryRecord::getMaxSolarRadiationTime, SummaryRecord::getAvgSolarRadiation),
+        new ArchiveMapping(CurrentWeatherField.RAIN_RATE, Depth.Unit.MILLIMETERS,
+                           null, null, SummaryRecord::getMaxRainfallRate, SummaryRecord::getMaxRainfallRateTime, null),
+        new ArchiveMapping(CurrentWeatherField.RAIN_TODAY, Depth.Unit.MILLIMETERS,
+                           null, null, SummaryRecord::getTotalRainfall, null, null),
+        new ArchiveMapping(CurrentWeatherField.DAY_ET, Depth.Unit.MILLIMETERS,
+                           null, null, SummaryRecord::getTotalET, null, null)
+    };
+
+    private final long maxSampleMillis;
+    private final double sliceDegrees;
+    //
+    // The accumulators of the current day, which are only accessed by the writer
+    //
+    private LocalDate date = null;
+    private long lastTime = Long.MIN_VALUE;
+    private int numSamples = 0;
+    private final double[] lastValues = new double[FIELDS.length];
+    private final double[] minimums = new double[FIELDS.length];
+    private final long[] minimumTimes = new long[FIELDS.length];
+    private final double[] maximums = new double[FIELDS.length];
+    private final long[] maximumTimes = new long[FIELDS.length];
+    private final double[] weightedSums = new double[FIELDS.length];
+    private final double[] weights = new double[FIELDS.length];
+    private final double[] windSliceSeconds;
+    private double calmSeconds = 0.0;
+    private int lastWindSlice = -1;
+    private boolean lastWindCalm = false;
+
+    private volatile DailySummarySnapshot today = null;
+    private volatile DailySummarySnapshot previousDay = null;
+
+    /**
+     * The values of a summary record that correspond to a current weather field.
+     */
+    private static final class ArchiveMapping {
+        final CurrentWeatherField field;
+        final Unit unit;
+        final Function<SummaryRecord,? extends Measurement> minimum;
+        final Function<SummaryRecord,LocalDateTime> minimumTime;
+        final Function<SummaryRecord,? extends Measurement> maximum;
+        final Function<SummaryRecord,LocalDateTime> maximumTime;
+        final Function<SummaryRecord,? extends Measurement> average;
+
+        ArchiveMapping(CurrentWeatherField field, Unit unit,
+                       Function<SummaryRecord,? extends Measurement> minimum, Function<SummaryRecord,LocalDateTime> minimumTime,
+                       Function<SummaryRecord,? extends Measurement> maximum, Function<SummaryRecord,LocalDateTime> maximumTime,
+                       Function<SummaryRecord,? extends Measurement> average) {
+            this.field = field;
+            this.unit = unit;
+            this.minimum = minimum;
+            this.minimumTime = minimumTime;
+            this.maximum = maximum;
+            this.maximumTime = maximumTime;
+            this.average = average;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param windParameters The wind parameters that specify the number of wind rose slices
+     */
+    public LiveDailySummary(WindParameters windParameters) {
+        this(windParameters, Duration.ofMillis(DEFAULT_MAX_SAMPLE_MILLIS));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param windParameters The wind parameters that specify the number of wind rose slices
+     * @param maxSampleDuration The longest time a current weather is weighted in the averages
+     */
+    public LiveDailySummary(WindParameters windParameters, Duration maxSampleDuration) {
+        maxSampleMillis = maxSampleDuration.toMillis();
+        windSliceSeconds = new double[windParameters.getNumWindDirectionSlices()];
+        sliceDegrees = 360.0 / windSliceSeconds.length;
+        reset(null);
+    }
+
+    /**
+     * Get the summary of the current day.
+     *
+     * @return The latest snapshot or null if no current weather has been received
+     */
+    public DailySummarySnapshot getToday() {
+        return today;
+    }
+
+    /**
+     * Get the summary of the previous day, which is reconciled once the summary of its archive records is applied.
+     *
+     * @return The snapshot or null if there has not been a rollover
+     */
+    public DailySummarySnapshot getPreviousDay() {
+        return previousDay;
+    }
+
+    /**
+     * Apply a current weather. Current weather that is older than the latest current weather is ignored.
+     *
+     * @param cw The current weather
+     */
+    @Override
+    public synchronized void handleCurrentWeather(CurrentWeather cw) {
+        LocalDateTime dateTime = cw.getTime();
+        long time = dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+        if (time < lastTime)
+            return;
+
+        LocalDate sampleDate = dateTime.toLocalDate();
+        if (date != null && !sampleDate.equals(date)) {
+            //
+            // Weight the last sample of the day up to midnight, then start the new day
+            //
+            weightLastSample(sampleDate.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli());
+            previousDay = makeSnapshot();
+            reset(sampleDate);
+        }
+        else {
+            weightLastSample(time);
+            date = sampleDate;
+        }
+
+        for (int f = 0; f < FIELDS.length; f++) {
+            double value = FIELDS[f].getValue(cw);
+            lastValues[f] = value;
+            if (Double.isNaN(value))
+                continue;
+
+            if (Double.isNaN(minimums[f]) || value < minimums[f]) {
+                minimums[f] = value;
+                minimumTimes[f] = time;
+            }
+
+            if (Double.isNaN(maximums[f]) || value > maximums[f]) {
+                maximums[f] = value;
+                maximumTimes[f] = time;
+            }
+        }
+
+        double speed = lastValues[CurrentWeatherField.WIND_SPEED.ordinal()];
+        double direction = lastValues[CurrentWeatherField.WIND_DIRECTION.ordinal()];
+        lastWindCalm = speed == 0.0;
+        if (!lastWindCalm && !Double.isNaN(speed) && !Double.isNaN(direction))
+            lastWindSlice = (int)Math.floor(((direction % 360.0 + 360.0) % 360.0 + sliceDegrees / 2.0) / sliceDegrees) % windSliceSeconds.length;
+        else
+            lastWindSlice = -1;
+
+        lastTime = time;
+        numSamples++;
+        today = makeSnapshot();
+    }
+
+    /**
+     * Reconcile with the summary of a day's archive records. The summary of the current day merges the archive extremes
+     * and the summary of the previous day is replaced by the archive values. Summaries of other days are ignored.
+     *
+     * @param rec The summary of the archive records
+     * @return True if the summary was reconciled
+     */
+    public synchronized boolean reconcile(SummaryRecord rec) {
+        if (date != null && rec.getDate().equals(date)) {
+            for (ArchiveMapping mapping : ARCHIVE_MAPPINGS) {
+                int f = mapping.field.ordinal();
+                double min = archiveValue(mapping.minimum, rec, mapping.unit);
+                if (!Double.isNaN(min) && (Double.isNaN(minimums[f]) || min < minimums[f])) {
+                    minimums[f] = min;
+                    minimumTimes[f] = archiveTime(mapping.minimumTime, rec, minimumTimes[f]);
+                }
+
+                double max = archiveValue(mapping.maximum, rec, mapping.unit);
+                if (!Double.isNaN(max) && (Double.isNaN(maximums[f]) || max > maximums[f])) {
+                    maximums[f] = max;
+                    maximumTimes[f] = archiveTime(mapping.maximumTime, rec, maximumTimes[f]);
+                }
+            }
+
+            today = makeSnapshot();
+            return true;
+        }
+
+        DailySummarySnapshot previous = previousDay;
+        if (previous != null && rec.getDate().equals(previous.getDate())) {
+            double[] min = new double[FIELDS.length];
+            long[] minTimes = new long[FIELDS.length];
+            double[] max = new double[FIELDS.length];
+            long[] maxTimes = new long[FIELDS.length];
+            double[] means = new double[FIELDS.length];
+            double[] slices = new double[windSliceSeconds.length];
+            for (int f = 0; f < FIELDS.length; f++) {
+                min[f] = previous.getMinimum(FIELDS[f]);
+                minTimes[f] = toMillis(previous.getMinimumTime(FIELDS[f]));
+                max[f] = previous.getMaximum(FIELDS[f]);
+                maxTimes[f] = toMillis(previous.getMaximumTime(FIELDS[f]));
+                means[f] = previous.getAverage(FIELDS[f]);
+            }
+
+            for (int i = 0; i < slices.length; i++)
+                slices[i] = previous.getWindSliceDuration(i).toMillis() / 1000.0;
+
+            for (ArchiveMapping mapping : ARCHIVE_MAPPINGS) {
+                int f = mapping.field.ordinal();
+                double value = archiveValue(mapping.minimum, rec, mapping.unit);
+                if (!Double.isNaN(value)) {
+                    min[f] = value;
+                    minTimes[f] = archiveTime(mapping.minimumTime, rec, minTimes[f]);
+                }
+
+                value = archiveValue(mapping.maximum, rec, mapping.unit);
+                if (!Double.isNaN(value)) {
+                    max[f] = value;
+                    maxTimes[f] = archiveTime(mapping.maximumTime, rec, maxTimes[f]);
+                }
+
+                value = archiveValue(mapping.average, rec, mapping.unit);
+                if (!Double.isNaN(value))
+                    means[f] = value;
+            }
+
+            previousDay = new DailySummarySnapshot(previous.getDate(), previous.getTime(), previous.getNumSamples(), min, minTimes,
+                                                   max, maxTimes, means, slices, previous.getCalmDuration().toMillis() / 1000.0, true);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void weightLastSample(long until) {
+        if (lastTime == Long.MIN_VALUE)
+            return;
+
+        long millis = until - lastTime;
+        if (millis <= 0 || millis > maxSampleMillis)
+            return;
+
+        double seconds = millis / 1000.0;
+        for (int f = 0; f < FIELDS.length; f++) {
+            if (!Double.isNaN(lastValues[f])) {
+                weightedSums[f] += lastValues[f] * seconds;
+                weights[f] += seconds;
+            }
+        }
+
+        if (lastWindSlice >= 0)
+            windSliceSeconds[lastWindSlice] += seconds;
+        else if (lastWindCalm)
+            calmSeconds += seconds;
+    }
+
+    private void reset(LocalDate newDate) {
+        date = newDate;
+        numSamples = 0;
+        Arrays.fill(lastValues, Double.NaN);
+        Arrays.fill(minimums, Double.NaN);
+        Arrays.fill(minimumTimes, 0L);
+        Arrays.fill(maximums, Double.NaN);
+        Arrays.fill(maximumTimes, 0L);
+        Arrays.fill(weightedSums, 0.0);
+        Arrays.fill(weights, 0.0);
+        Arrays.fill(windSliceSeconds, 0.0);
+        calmSeconds = 0.0;
+        lastWindSlice = -1;
+        lastWindCalm = false;
+    }
+
+    private DailySummarySnapshot makeSnapshot() {
+        //
+        // The average of a field that has not yet been weighted is its only value
+        //
+        double[] means = new double[FIELDS.length];
+        for (int f = 0; f < FIELDS.length; f++) {
+            if (weights[f] > 0.0)
+                means[f] = weightedSums[f] / weights[f];
+            else
+                means[f] = lastValues[f];
+        }
+
+        LocalDateTime time = numSamples == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(lastTime), ZoneOffset.UTC);
+        return new DailySummarySnapshot(date, time, numSamples, minimums.clone(), minimumTimes.clone(), maximums.clone(),
+                                        maximumTimes.clone(), means, windSliceSeconds.clone(), calmSeconds, false);
+    }
+
+    private static double archiveValue(Function<SummaryRecord,? extends Measurement> getter, SummaryRecord rec, Unit unit) {
+        if (getter == null)
+            return Double.NaN;
+
+        Measurement m = getter.apply(rec);
+        return m == null ? Double.NaN : m.get(unit);
+    }
+
+    private static long archiveTime(Function<SummaryRecord,LocalDateTime> getter, SummaryRecord rec, long defaultTime) {
+        if (getter == null)
+            return defaultTime;
+
+        LocalDateTime time = getter.apply(rec);
+        return time == null ? defaultTime : toMillis(time);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? 0L : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
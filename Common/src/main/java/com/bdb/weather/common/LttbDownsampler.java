@@ -0,0 +1,95 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of a series for plotting. The first and last points are always kept and
+ * one point is selected from each of the buckets in between, the one that forms the largest triangle with the point
+ * selected from the previous bucket and the average of the next bucket. This keeps the visual shape of the series,
+ * including its peaks, far better than averaging or decimation.
+ */
+public final class LttbDownsampler {
+    private LttbDownsampler() {
+    }
+
+    /**
+     * Select the points to plot.
+     *
+     * @param x The x values, which must be in increasing order
+     * @param y The y values, none of which may be NaN
+     * @param count The number of points in the series
+     * @param threshold The maximum number of points to select, at least 3
+     * @return The indexes of the selected points in increasing order
+     */
+    public static int[] select(long[] x, double[] y, int count, int threshold) {
+        if (count <= threshold) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++)
+                all[i] = i;
+
+            return all;
+        }
+
+        if (threshold < 3)
+            throw new IllegalArgumentException("The threshold must be at least 3 (" + threshold + ")");
+
+        int[] selected = new int[threshold];
+        int n = 0;
+        selected[n++] = 0;
+
+        //
+        // The points between the first and the last are split into threshold - 2 buckets
+        //
+        double bucketSize = (double)(count - 2) / (threshold - 2);
+        int a = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int)Math.floor(bucket * bucketSize) + 1;
+            int end = (int)Math.floor((bucket + 1) * bucketSize) + 1;
+
+            int nextStart = end;
+            int nextEnd = Math.min((int)Math.floor((bucket + 2) * bucketSize) + 1, count);
+            double avgX = 0.0;
+            double avgY = 0.0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            double ax = x[a];
+            double ay = y[a];
+            double maxArea = -1.0;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            selected[n++] = maxIndex;
+            a = maxIndex;
+        }
+
+        selected[n] = count - 1;
+        return selected;
+    }
+}
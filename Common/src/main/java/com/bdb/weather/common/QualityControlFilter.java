@@ -0,0 +1,439 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * Quality control of the sensor values, using the limits of the weather station. Three checks are applied to each
+ * value:
+ * <ul>
+ * <li>Range: the value is outside of the limits of the sensor, such as the thermometer and barometer limits of the weather
+ * station. The rainfall is also checked against the daily, monthly and yearly rain limits.</li>
+ * <li>Step: the value changed from the previous value by more than the sensor can change in the elapsed time. The value
+ * that returns from a spike is not flagged.</li>
+ * <li>Stuck: the value has not changed for longer than the sensor can be expected to stay constant. Values that
+ * legitimately persist, such as calm wind or no solar radiation at night, are not checked.</li>
+ * </ul>
+ * The values are not changed or removed, instead each value gets a set of flags, one bit per check. The current weather
+ * is checked one packet at a time against the previous packets. Archive values are checked in bulk, a column at a time,
+ * using loops over primitive arrays.
+ */
+public class QualityControlFilter {
+    /**
+     * The quality checks.
+     */
+    public enum Check {
+        /**
+         * The value is outside of the limits of the sensor
+         */
+        RANGE,
+        /**
+         * The value changed too quickly
+         */
+        STEP,
+        /**
+         * The value has not changed for too long
+         */
+        STUCK;
+
+        /**
+         * Get the bit of this check in a set of flags.
+         *
+         * @return The bit
+         */
+        public byte getFlag() {
+            return (byte)(1 << ordinal());
+        }
+    }
+
+    private static final byte RANGE = Check.RANGE.getFlag();
+    private static final byte STEP = Check.STEP.getFlag();
+    private static final byte STUCK = Check.STUCK.getFlag();
+    private static final long SECONDS_PER_DAY = 86400;
+    //
+    // A step check over a longer gap than this says nothing about the sensor
+    //
+    private static final long MAX_STEP_GAP_SECONDS = 3 * 3600;
+    private static final double UNLIMITED = Double.POSITIVE_INFINITY;
+
+    /**
+     * The limits of a field. The allowed step is a base step plus a rate per minute of elapsed time.
+     */
+    private static final class Limits {
+        private final double minimum;
+        private final double maximum;
+        private final double baseStep;
+        private final double stepPerMinute;
+        private final long stuckSeconds;
+        private final double stuckExempt;
+
+        Limits(double minimum, double maximum, double baseStep, double stepPerMinute, long stuckHours, double stuckExempt) {
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.baseStep = baseStep;
+            this.stepPerMinute = stepPerMinute;
+            this.stuckSeconds = stuckHours > 0 ? stuckHours * 3600 : Long.MAX_VALUE;
+            this.stuckExempt = stuckExempt;
+        }
+
+        Limits(double minimum, double maximum) {
+            this(minimum, maximum, UNLIMITED, 0.0, 0, Double.NaN);
+        }
+    }
+
+    private final Map<ArchiveField,Limits> archiveLimits = new EnumMap<>(ArchiveField.class);
+    private final Map<CurrentWeatherField,Limits> currentLimits = new EnumMap<>(CurrentWeatherField.class);
+    private final double dailyRainMax;
+    private final double monthlyRainMax;
+    private final double yearlyRainMax;
+    private final Month weatherYearStartMonth;
+    //
+    // The state of the current weather checks, indexed by the ordinal of the field
+    //
+    private final double[] lastValues = new double[CurrentWeatherField.values().length];
+    private final long[] lastTimes = new long[CurrentWeatherField.values().length];
+    private final boolean[] lastStepped = new boolean[CurrentWeatherField.values().length];
+    private final long[] runStarts = new long[CurrentWeatherField.values().length];
+
+    /**
+     * Constructor.
+     *
+     * @param ws The weather station whose limits are used
+     */
+    public QualityControlFilter(WeatherStation ws) {
+        double thermometerMin = ws.getThermometerMin().get(Temperature.Unit.CELSIUS);
+        double thermometerMax = ws.getThermometerMax().get(Temperature.Unit.CELSIUS);
+        double barometerMin = ws.getBarometerMin().get(Pressure.Unit.MILLIBAR);
+        double barometerMax = ws.getBarometerMax().get(Pressure.Unit.MILLIBAR);
+        dailyRainMax = ws.getDailyRainMax().get(Depth.Unit.MILLIMETERS);
+        monthlyRainMax = ws.getMonthlyRainMax().get(Depth.Unit.MILLIMETERS);
+        yearlyRainMax = ws.getYearlyRainMax().get(Depth.Unit.MILLIMETERS);
+        weatherYearStartMonth = ws.getWeatherYearStartMonth();
+
+        Limits temperature = new Limits(thermometerMin, thermometerMax, 2.0, .3, 6, Double.NaN);
+        Limits derivedTemperature = new Limits(-90.0, 80.0);
+        Limits humidity = new Limits(0.0, 100.0, 10.0, 1.0, 24, 100.0);
+        Limits speed = new Limits(0.0, 100.0, UNLIMITED, 0.0, 12, 0.0);
+        Limits direction = new Limits(0.0, 360.0);
+        Limits pressure = new Limits(barometerMin, barometerMax, 1.0, .1, 12, Double.NaN);
+        Limits rain = new Limits(0.0, dailyRainMax);
+        Limits rainRate = new Limits(0.0, 1000.0);
+        Limits solarRadiation = new Limits(0.0, 1800.0, UNLIMITED, 0.0, 12, 0.0);
+        Limits uvIndex = new Limits(0.0, 20.0, UNLIMITED, 0.0, 12, 0.0);
+        Limits et = new Limits(0.0, 25.0);
+
+        archiveLimits.put(ArchiveField.AVG_OUTDOOR_TEMPERATURE, temperature);
+        archiveLimits.put(ArchiveField.LOW_OUTDOOR_TEMPERATURE, temperature);
+        archiveLimits.put(ArchiveField.HIGH_OUTDOOR_TEMPERATURE, temperature);
+        archiveLimits.put(ArchiveField.OUTDOOR_HUMIDITY, humidity);
+        archiveLimits.put(ArchiveField.INDOOR_TEMPERATURE, temperature);
+        archiveLimits.put(ArchiveField.INDOOR_HUMIDITY, humidity);
+        archiveLimits.put(ArchiveField.DEW_POINT, derivedTemperature);
+        archiveLimits.put(ArchiveField.HEAT_INDEX, derivedTemperature);
+        archiveLimits.put(ArchiveField.WIND_CHILL, derivedTemperature);
+        archiveLimits.put(ArchiveField.AVG_WIND_SPEED, speed);
+        archiveLimits.put(ArchiveField.HIGH_WIND_SPEED, speed);
+        archiveLimits.put(ArchiveField.WIND_GUST_SPEED, speed);
+        archiveLimits.put(ArchiveField.AVG_WIND_DIRECTION, direction);
+        archiveLimits.put(ArchiveField.HIGH_WIND_DIRECTION, direction);
+        archiveLimits.put(ArchiveField.WIND_GUST_DIRECTION, direction);
+        archiveLimits.put(ArchiveField.BARO_PRESSURE, pressure);
+        archiveLimits.put(ArchiveField.RAINFALL, rain);
+        archiveLimits.put(ArchiveField.HIGH_RAINFALL_RATE, rainRate);
+        archiveLimits.put(ArchiveField.AVG_SOLAR_RADIATION, solarRadiation);
+        archiveLimits.put(ArchiveField.HIGH_SOLAR_RADIATION, solarRadiation);
+        archiveLimits.put(ArchiveField.AVG_UV_INDEX, uvIndex);
+        archiveLimits.put(ArchiveField.HIGH_UV_INDEX, uvIndex);
+        archiveLimits.put(ArchiveField.EVAPOTRANSPIRATION, et);
+
+        currentLimits.put(CurrentWeatherField.INSIDE_TEMPERATURE, temperature);
+        currentLimits.put(CurrentWeatherField.INSIDE_HUMIDITY, humidity);
+        currentLimits.put(CurrentWeatherField.OUTSIDE_TEMPERATURE, temperature);
+        currentLimits.put(CurrentWeatherField.OUTSIDE_HUMIDITY, humidity);
+        currentLimits.put(CurrentWeatherField.DEW_POINT, derivedTemperature);
+        currentLimits.put(CurrentWeatherField.HEAT_INDEX, derivedTemperature);
+        currentLimits.put(CurrentWeatherField.WIND_CHILL, derivedTemperature);
+        currentLimits.put(CurrentWeatherField.THSW, derivedTemperature);
+        currentLimits.put(CurrentWeatherField.WIND_SPEED, speed);
+        currentLimits.put(CurrentWeatherField.WIND_DIRECTION, direction);
+        currentLimits.put(CurrentWeatherField.GUST_SPEED, speed);
+        currentLimits.put(CurrentWeatherField.GUST_DIRECTION, direction);
+        currentLimits.put(CurrentWeatherField.WIND_SPEED_2_MIN_AVG, speed);
+        currentLimits.put(CurrentWeatherField.WIND_SPEED_10_MIN_AVG, speed);
+        currentLimits.put(CurrentWeatherField.BAROMETRIC_PRESSURE, pressure);
+        currentLimits.put(CurrentWeatherField.ATMOSPHERIC_PRESSURE, pressure);
+        currentLimits.put(CurrentWeatherField.UV_INDEX, uvIndex);
+        currentLimits.put(CurrentWeatherField.SOLAR_RADIATION, solarRadiation);
+        currentLimits.put(CurrentWeatherField.RAIN_RATE, rainRate);
+        currentLimits.put(CurrentWeatherField.RAIN_TODAY, rain);
+        currentLimits.put(CurrentWeatherField.DAY_ET, et);
+
+        reset();
+    }
+
+    /**
+     * Forget the previous current weather packets, such as after the collector reconnects to the console.
+     */
+    public synchronized void reset() {
+        Arrays.fill(lastValues, Double.NaN);
+        Arrays.fill(lastTimes, Long.MIN_VALUE);
+        Arrays.fill(lastStepped, false);
+        Arrays.fill(runStarts, Long.MIN_VALUE);
+    }
+
+    /**
+     * Check whether a set of flags contains a check.
+     *
+     * @param flags The flags
+     * @param check The check
+     * @return True if the check failed
+     */
+    public static boolean isFlagged(byte flags, Check check) {
+        return (flags & check.getFlag()) != 0;
+    }
+
+    /**
+     * Convert a set of flags to the checks that failed.
+     *
+     * @param flags The flags
+     * @return The checks
+     */
+    public static Set<Check> toChecks(byte flags) {
+        Set<Check> checks = EnumSet.noneOf(Check.class);
+        for (Check check : Check.values())
+            if (isFlagged(flags, check))
+                checks.add(check);
+
+        return checks;
+    }
+
+    /**
+     * Check a current weather packet against the limits and the previous packets.
+     *
+     * @param cw The current weather
+     * @return The fields that failed a check and the checks that they failed
+     */
+    public synchronized Map<CurrentWeatherField,Set<Check>> checkCurrentWeather(CurrentWeather cw) {
+        Map<CurrentWeatherField,Set<Check>> failures = new EnumMap<>(CurrentWeatherField.class);
+        long t = cw.getTime().toEpochSecond(ZoneOffset.UTC);
+        for (Map.Entry<CurrentWeatherField,Limits> entry : currentLimits.entrySet()) {
+            CurrentWeatherField field = entry.getKey();
+            Limits limits = entry.getValue();
+            int f = field.ordinal();
+            double value = field.getValue(cw);
+            if (Double.isNaN(value))
+                continue;
+
+            byte flags = 0;
+            if (value < limits.minimum || value > limits.maximum)
+                flags |= RANGE;
+
+            boolean stepped = false;
+            long dt = t - lastTimes[f];
+            if (!Double.isNaN(lastValues[f]) && dt > 0 && dt <= MAX_STEP_GAP_SECONDS) {
+                stepped = Math.abs(value - lastValues[f]) > limits.baseStep + limits.stepPerMinute * dt / 60.0;
+                if (stepped && !lastStepped[f])
+                    flags |= STEP;
+            }
+
+            if (value != lastValues[f] || value == limits.stuckExempt)
+                runStarts[f] = t;
+            else if (t - runStarts[f] >= limits.stuckSeconds)
+                flags |= STUCK;
+
+            lastValues[f] = value;
+            lastTimes[f] = t;
+            lastStepped[f] = stepped && !lastStepped[f];
+
+            if (flags != 0)
+                failures.put(field, toChecks(flags));
+        }
+
+        return failures;
+    }
+
+    /**
+     * Check the values of a field of an archive block.
+     *
+     * @param cursor The decoded archive block
+     * @param field The field
+     * @return The flags of each record of the block
+     */
+    public byte[] checkBlock(ArchiveBlockCursor cursor, ArchiveField field) {
+        long[] times = new long[cursor.size()];
+        double[] values = new double[cursor.size()];
+        for (int i = 0; i < times.length; i++)
+            times[i] = cursor.getEpochSecond(i);
+
+        cursor.getValues(field, values);
+        return checkValues(field, times, values, times.length);
+    }
+
+    /**
+     * Check all of the fields of an archive block.
+     *
+     * @param cursor The decoded archive block
+     * @return The flags of each record of the block for each field
+     */
+    public Map<ArchiveField,byte[]> checkBlock(ArchiveBlockCursor cursor) {
+        Map<ArchiveField,byte[]> flags = new EnumMap<>(ArchiveField.class);
+        long[] times = new long[cursor.size()];
+        double[] values = new double[cursor.size()];
+        for (int i = 0; i < times.length; i++)
+            times[i] = cursor.getEpochSecond(i);
+
+        for (ArchiveField field : archiveLimits.keySet()) {
+            cursor.getValues(field, values);
+            flags.put(field, checkValues(field, times, values, times.length));
+        }
+
+        return flags;
+    }
+
+    /**
+     * Check a column of values of an archive field. The values are checked against each other, so a column should
+     * cover a contiguous range of time, such as a block or the archive of a year.
+     *
+     * @param field The field
+     * @param times The times of the values in seconds, using the local time as if it were UTC, in ascending order
+     * @param values The values in the storage unit, NaN for a missing value
+     * @param length The number of values
+     * @return The flags of each value
+     */
+    public byte[] checkValues(ArchiveField field, long[] times, double[] values, int length) {
+        byte[] flags = new byte[length];
+        Limits limits = archiveLimits.get(field);
+        if (limits == null)
+            return flags;
+
+        checkRange(values, length, limits.minimum, limits.maximum, flags);
+        if (limits.baseStep != UNLIMITED)
+            checkStep(times, values, length, limits.baseStep, limits.stepPerMinute, flags);
+
+        if (limits.stuckSeconds != Long.MAX_VALUE)
+            checkStuck(times, values, length, limits.stuckSeconds, limits.stuckExempt, flags);
+
+        if (field == ArchiveField.RAINFALL)
+            checkRainTotals(times, values, length, flags);
+
+        return flags;
+    }
+
+    /**
+     * Flag the values outside of a range. NaN compares false, so missing values are not flagged.
+     */
+    private static void checkRange(double[] values, int length, double minimum, double maximum, byte[] flags) {
+        for (int i = 0; i < length; i++) {
+            double v = values[i];
+            flags[i] |= (v < minimum) | (v > maximum) ? RANGE : 0;
+        }
+    }
+
+    /**
+     * Flag the values that differ from the previous value by more than the allowed step. The steps are calculated in
+     * an independent pass, then a step that follows a flagged step, which is the return from a spike, is cleared.
+     */
+    private static void checkStep(long[] times, double[] values, int length, double baseStep, double stepPerMinute, byte[] flags) {
+        byte[] steps = new byte[length];
+        double perSecond = stepPerMinute / 60.0;
+        for (int i = 1; i < length; i++) {
+            long dt = times[i] - times[i - 1];
+            double allowed = baseStep + perSecond * dt;
+            steps[i] = Math.abs(values[i] - values[i - 1]) > allowed & dt <= MAX_STEP_GAP_SECONDS ? STEP : 0;
+        }
+
+        boolean previous = false;
+        for (int i = 1; i < length; i++) {
+            boolean flagged = steps[i] != 0 && !previous;
+            if (flagged)
+                flags[i] |= STEP;
+
+            previous = flagged;
+        }
+    }
+
+    /**
+     * Flag the values that have been unchanged for longer than the stuck time.
+     */
+    private static void checkStuck(long[] times, double[] values, int length, long stuckSeconds, double exempt, byte[] flags) {
+        long runStart = length > 0 ? times[0] : 0;
+        for (int i = 1; i < length; i++) {
+            double v = values[i];
+            if (v != values[i - 1] || v == exempt)
+                runStart = times[i];
+            else if (times[i] - runStart >= stuckSeconds)
+                flags[i] |= STUCK;
+        }
+    }
+
+    /**
+     * Flag the rainfall values that take the daily, monthly or weather year total over the limits of the weather station.
+     * The flagged values, including those already flagged by the range check, are left out of the totals, so a bad
+     * value does not cause the later values of the period to be flagged.
+     */
+    private void checkRainTotals(long[] times, double[] values, int length, byte[] flags) {
+        double day = 0.0;
+        double month = 0.0;
+        double year = 0.0;
+        long currentDay = Long.MIN_VALUE;
+        int currentMonth = -1;
+        int currentYear = Integer.MIN_VALUE;
+        for (int i = 0; i < length; i++) {
+            long d = Math.floorDiv(times[i], SECONDS_PER_DAY);
+            if (d != currentDay) {
+                LocalDate date = LocalDate.ofEpochDay(d);
+                int m = date.getYear() * 12 + date.getMonthValue();
+                int y = date.getMonthValue() >= weatherYearStartMonth.getValue() ? date.getYear() : date.getYear() - 1;
+                if (m != currentMonth)
+                    month = 0.0;
+
+                if (y != currentYear)
+                    year = 0.0;
+
+                day = 0.0;
+                currentDay = d;
+                currentMonth = m;
+                currentYear = y;
+            }
+
+            double v = values[i];
+            if (!(v > 0.0) || (flags[i] & RANGE) != 0)
+                continue;
+
+            if (day + v > dailyRainMax || month + v > monthlyRainMax || year + v > yearlyRainMax) {
+                flags[i] |= RANGE;
+                continue;
+            }
+
+            day += v;
+            month += v;
+            year += v;
+        }
+    }
+}
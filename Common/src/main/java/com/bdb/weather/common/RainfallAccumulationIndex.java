@@ -0,0 +1,405 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+import com.bdb.weather.common.measurement.Depth;
+
+/**
+ * Cumulative index of the actual and normal rainfall. For each weather year there is a primitive array with the running
+ * total of the daily rainfall from the start of the weather year, along with the total of all of the weather years
+ * before it. The total actual rainfall of any interval is then the difference of two entries.
+ * <br>
+ * The normal rainfall depends only on the day of the weather year, so it is kept as one running total for weather years
+ * of 365 days and one for weather years of 366 days. The normal rainfall of an interval is the part of the first and
+ * last weather years from these running totals plus the totals of the whole weather years between them, which is
+ * constant time for any interval. The running totals are a snapshot of the averages that is taken when the normal
+ * rainfall is first needed, {@link #refreshNormals()} must be called if the averages are changed after that.
+ * <br>
+ * Daily totals are usually put in date order, which is O(1). Replacing the total of an earlier day updates the rest of
+ * its weather year and the starting totals of the later weather years.
+ */
+public class RainfallAccumulationIndex {
+    private static final int INITIAL_YEARS = 8;
+    private static final int DAYS_PER_YEAR = 365;
+    private final Month weatherYearStartMonth;
+    private final WeatherAverages normals;
+    private int firstYear;
+    private int numYears;
+    //
+    // actual[y][n] is the rainfall of the first n days of weather year firstYear + y, in millimeters
+    //
+    private double[][] actual;
+    private double[] actualYearStart;
+    private int[] lastDay;
+    //
+    // normal[0][n] is the normal rainfall of the first n days of a weather year of 365 days, normal[1][n] of 366 days,
+    // null until the normal rainfall is needed
+    //
+    private double[][] normal;
+
+    /**
+     * Constructor.
+     *
+     * @param ws The weather station that defines the start of the weather year
+     * @param normals The averages from which the normal rainfall is derived
+     */
+    public RainfallAccumulationIndex(WeatherStation ws, WeatherAverages normals) {
+        this(ws.getWeatherYearStartMonth(), normals);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param weatherYearStartMonth The month in which the weather year starts
+     * @param normals The averages from which the normal rainfall is derived. Daily averages are used directly, monthly
+     *                averages are spread evenly over the days of the month and yearly averages over the days of the
+     *                weather year. Other averages are not used.
+     */
+    public RainfallAccumulationIndex(Month weatherYearStartMonth, WeatherAverages normals) {
+        this.weatherYearStartMonth = weatherYearStartMonth;
+        this.normals = normals;
+        numYears = 0;
+        actual = new double[INITIAL_YEARS][];
+        actualYearStart = new double[INITIAL_YEARS];
+        lastDay = new int[INITIAL_YEARS];
+        normal = null;
+    }
+
+    /**
+     * Get the first day of the weather year that contains a date.
+     *
+     * @param date The date
+     * @return The start of the weather year
+     */
+    public LocalDate getWeatherYearStart(LocalDate date) {
+        return LocalDate.of(weatherYear(date), weatherYearStartMonth, 1);
+    }
+
+    /**
+     * Recalculate the normal rainfall from the averages, which must be called after the averages are changed.
+     */
+    public synchronized void refreshNormals() {
+        normal = null;
+    }
+
+    /**
+     * Apply the total rainfall of a summary record.
+     *
+     * @param rec The summary record
+     */
+    public void applySummaryRecord(SummaryRecord rec) {
+        putDailyRainfall(rec.getDate(), rec.getTotalRainfall());
+    }
+
+    /**
+     * Put the total rainfall for a day, replacing any previous total for the day.
+     *
+     * @param date The date
+     * @param rainfall The total rainfall for the day, null is treated as no rain
+     */
+    public synchronized void putDailyRainfall(LocalDate date, Depth rainfall) {
+        double mm = rainfall == null ? 0.0 : rainfall.get(Depth.Unit.MILLIMETERS);
+        int year = ensureYear(weatherYear(date));
+        int day = dayOfWeatherYear(date);
+        double[] prefix = actual[year];
+
+        //
+        // Carry the running total over the days that were not put
+        //
+        if (day > lastDay[year]) {
+            Arrays.fill(prefix, lastDay[year] + 1, day, prefix[lastDay[year]]);
+            prefix[day] = prefix[day - 1] + mm;
+            lastDay[year] = day;
+        }
+        else {
+            double delta = mm - (prefix[day] - prefix[day - 1]);
+            for (int i = day; i <= lastDay[year]; i++)
+                prefix[i] += delta;
+        }
+
+        for (int y = year + 1; y < numYears; y++)
+            actualYearStart[y] = actualYearStart[y - 1] + actual[y - 1][lastDay[y - 1]];
+    }
+
+    /**
+     * Get the actual rainfall for an interval.
+     *
+     * @param start The first day of the interval
+     * @param end The last day of the interval, inclusive
+     * @return The total rainfall
+     */
+    public synchronized Depth getActualRainfall(LocalDate start, LocalDate end) {
+        return new Depth(actualTotal(start, end), Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the normal rainfall for an interval.
+     *
+     * @param start The first day of the interval
+     * @param end The last day of the interval, inclusive
+     * @return The normal rainfall
+     */
+    public synchronized Depth getNormalRainfall(LocalDate start, LocalDate end) {
+        return new Depth(normalTotal(start, end), Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the departure of the actual rainfall from the normal rainfall for an interval.
+     *
+     * @param start The first day of the interval
+     * @param end The last day of the interval, inclusive
+     * @return The actual rainfall minus the normal rainfall, negative if less rain than normal fell
+     */
+    public synchronized Depth getDepartureFromNormal(LocalDate start, LocalDate end) {
+        return new Depth(actualTotal(start, end) - normalTotal(start, end), Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the actual rainfall from the start of the weather year through a date.
+     *
+     * @param date The date
+     * @return The weather year to date rainfall
+     */
+    public Depth getWeatherYearToDateRainfall(LocalDate date) {
+        return getActualRainfall(getWeatherYearStart(date), date);
+    }
+
+    /**
+     * Get the normal rainfall from the start of the weather year through a date.
+     *
+     * @param date The date
+     * @return The weather year to date normal rainfall
+     */
+    public Depth getWeatherYearToDateNormalRainfall(LocalDate date) {
+        return getNormalRainfall(getWeatherYearStart(date), date);
+    }
+
+    /**
+     * Get the actual rainfall for a number of days ending with a date.
+     *
+     * @param date The last day
+     * @param days The number of days, including the last day
+     * @return The rainfall
+     */
+    public Depth getRainfallForLastDays(LocalDate date, int days) {
+        return getActualRainfall(date.minusDays(days - 1), date);
+    }
+
+    private double actualTotal(LocalDate start, LocalDate end) {
+        if (end.isBefore(start))
+            return 0.0;
+
+        return actualThrough(weatherYear(end), dayOfWeatherYear(end)) - actualThrough(weatherYear(start), dayOfWeatherYear(start) - 1);
+    }
+
+    private double normalTotal(LocalDate start, LocalDate end) {
+        if (end.isBefore(start))
+            return 0.0;
+
+        if (normal == null)
+            normal = new double[][]{createNormalPrefix(false), createNormalPrefix(true)};
+
+        int startYear = weatherYear(start);
+        int endYear = weatherYear(end);
+        double[] startPrefix = normal[isLongWeatherYear(startYear) ? 1 : 0];
+        double[] endPrefix = normal[isLongWeatherYear(endYear) ? 1 : 0];
+        int startDay = dayOfWeatherYear(start);
+        int endDay = dayOfWeatherYear(end);
+        if (startYear == endYear)
+            return endPrefix[endDay] - endPrefix[startDay - 1];
+
+        //
+        // The rest of the first weather year, the whole weather years between and the start of the last weather year
+        //
+        long years = (long)endYear - startYear - 1;
+        long longYears = longWeatherYears(endYear - 1) - longWeatherYears(startYear);
+        double shortTotal = normal[0][DAYS_PER_YEAR];
+        double longTotal = normal[1][DAYS_PER_YEAR + 1];
+        return startPrefix[startPrefix.length - 1] - startPrefix[startDay - 1] + longYears * longTotal + (years - longYears) * shortTotal + endPrefix[endDay];
+    }
+
+    /**
+     * The total actual rainfall from the first weather year in the index through a day of a weather year.
+     *
+     * @param weatherYear The weather year
+     * @param day The day of the weather year, 0 being before the first day
+     */
+    private double actualThrough(int weatherYear, int day) {
+        if (numYears == 0)
+            return 0.0;
+
+        long year = (long)weatherYear - firstYear;
+        if (year < 0)
+            return 0.0;
+
+        if (year >= numYears)
+            return actualYearStart[numYears - 1] + actual[numYears - 1][lastDay[numYears - 1]];
+
+        int y = (int)year;
+        return actualYearStart[y] + actual[y][Math.min(day, lastDay[y])];
+    }
+
+    private int weatherYear(LocalDate date) {
+        if (date.getMonthValue() >= weatherYearStartMonth.getValue())
+            return date.getYear();
+        else
+            return date.getYear() - 1;
+    }
+
+    /**
+     * The day of the weather year, where the first day is 1. This is calculated from the day of the calendar year so
+     * that dates at the ends of the range of LocalDate do not need a date outside of the range.
+     */
+    private int dayOfWeatherYear(LocalDate date) {
+        int year = weatherYear(date);
+        int startDay = weatherYearStartMonth.firstDayOfYear(Year.isLeap(year));
+        if (year == date.getYear())
+            return date.getDayOfYear() - startDay + 1;
+        else
+            return (Year.isLeap(year) ? DAYS_PER_YEAR + 1 : DAYS_PER_YEAR) - startDay + 1 + date.getDayOfYear();
+    }
+
+    /**
+     * The calendar year of the February that is in a weather year.
+     */
+    private long februaryYear(long weatherYear) {
+        return weatherYearStartMonth.getValue() <= Month.FEBRUARY.getValue() ? weatherYear : weatherYear + 1;
+    }
+
+    private boolean isLongWeatherYear(int weatherYear) {
+        return Year.isLeap(februaryYear(weatherYear));
+    }
+
+    /**
+     * The number of weather years of 366 days up to and including a weather year, counted from an arbitrary origin.
+     */
+    private long longWeatherYears(long weatherYear) {
+        long year = februaryYear(weatherYear);
+        return Math.floorDiv(year, 4) - Math.floorDiv(year, 100) + Math.floorDiv(year, 400);
+    }
+
+    /**
+     * Make sure the arrays for a weather year exist, adding it and any years between it and the existing years.
+     *
+     * @param weatherYear The weather year
+     * @return The index of the year in the arrays
+     */
+    private int ensureYear(int weatherYear) {
+        if (numYears == 0) {
+            firstYear = weatherYear;
+            addYear(0);
+            return 0;
+        }
+
+        if (weatherYear < firstYear)
+            insertFirstYears(firstYear - weatherYear);
+
+        while (weatherYear - firstYear >= numYears)
+            addYear(numYears);
+
+        return weatherYear - firstYear;
+    }
+
+    private void insertFirstYears(int count) {
+        grow(numYears + count);
+        System.arraycopy(actual, 0, actual, count, numYears);
+        System.arraycopy(lastDay, 0, lastDay, count, numYears);
+        numYears += count;
+        firstYear -= count;
+        for (int y = 0; y < count; y++)
+            createYearArrays(y);
+
+        actualYearStart[0] = 0.0;
+        for (int y = 1; y < numYears; y++)
+            actualYearStart[y] = actualYearStart[y - 1] + actual[y - 1][lastDay[y - 1]];
+    }
+
+    private void addYear(int index) {
+        grow(numYears + 1);
+        numYears++;
+        createYearArrays(index);
+
+        if (index == 0)
+            actualYearStart[0] = 0.0;
+        else
+            actualYearStart[index] = actualYearStart[index - 1] + actual[index - 1][lastDay[index - 1]];
+    }
+
+    private void createYearArrays(int index) {
+        int days = isLongWeatherYear(firstYear + index) ? DAYS_PER_YEAR + 1 : DAYS_PER_YEAR;
+        actual[index] = new double[days + 1];
+        lastDay[index] = 0;
+    }
+
+    /**
+     * Calculate the running total of the normal rainfall of a weather year, using a weather year of the same length as
+     * all of the weather years of that length.
+     */
+    private double[] createNormalPrefix(boolean longYear) {
+        int year = 2001;
+        if (longYear)
+            year = weatherYearStartMonth.getValue() <= Month.FEBRUARY.getValue() ? 2000 : 1999;
+
+        LocalDate start = LocalDate.of(year, weatherYearStartMonth, 1);
+        int days = (int)ChronoUnit.DAYS.between(start, start.plusYears(1));
+        double[] prefix = new double[days + 1];
+        LocalDate date = start;
+        for (int day = 1; day <= days; day++) {
+            prefix[day] = prefix[day - 1] + normalDailyRainfall(date, days);
+            date = date.plusDays(1);
+        }
+
+        return prefix;
+    }
+
+    private double normalDailyRainfall(LocalDate date, int daysInWeatherYear) {
+        if (normals == null)
+            return 0.0;
+
+        WeatherAverage avg = normals.getAverage(date);
+        if (avg == null || avg.getRainfall() == null)
+            return 0.0;
+
+        double rain = avg.getRainfall().get(Depth.Unit.MILLIMETERS);
+        switch (avg.getInterval()) {
+            case DAILY:
+                return rain;
+            case MONTHLY:
+                return rain / date.lengthOfMonth();
+            case YEARLY:
+                return rain / daysInWeatherYear;
+            default:
+                return 0.0;
+        }
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity <= actual.length)
+            return;
+
+        int capacity = Math.max(actual.length * 2, minCapacity);
+        actual = Arrays.copyOf(actual, capacity);
+        actualYearStart = Arrays.copyOf(actualYearStart, capacity);
+        lastDay = Arrays.copyOf(lastDay, capacity);
+    }
+}
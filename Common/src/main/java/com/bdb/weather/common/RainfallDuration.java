@@ -0,0 +1,58 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+
+/**
+ * The durations used for the maximum rainfall (intensity-duration) statistics.
+ */
+public enum RainfallDuration {
+    FIVE_MINUTES(5),
+    TEN_MINUTES(10),
+    FIFTEEN_MINUTES(15),
+    THIRTY_MINUTES(30),
+    ONE_HOUR(60),
+    TWO_HOURS(120),
+    SIX_HOURS(360),
+    TWELVE_HOURS(720),
+    TWENTY_FOUR_HOURS(1440);
+
+    private final int minutes;
+
+    RainfallDuration(int minutes) {
+        this.minutes = minutes;
+    }
+
+    /**
+     * Get the length of the duration in minutes.
+     *
+     * @return The number of minutes
+     */
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * Get the length of the duration.
+     *
+     * @return The duration
+     */
+    public Duration getDuration() {
+        return Duration.ofMinutes(minutes);
+    }
+}
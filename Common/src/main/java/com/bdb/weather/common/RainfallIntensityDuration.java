@@ -0,0 +1,432 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.bdb.weather.common.measurement.Depth;
+
+/**
+ * Rainfall intensity-duration statistics calculated from the archive. The rainfall of the historical records is placed
+ * into fixed size slots and a running sum is kept for each of the {@link RainfallDuration} windows as the records
+ * are applied. The maximum of each window is kept for every day along with the hourly rainfall, all in primitive arrays,
+ * so that the maximum rainfall over any range of days is answered from the per-day maxima without rescanning the archive.
+ * <br>
+ * The historical records must be applied in time order. Periods without records are treated as having no rain. The
+ * archive is in local time, so the records of the hour that is repeated when daylight saving time ends overlap the
+ * rainfall that has already been applied. The rainfall of a period, or part of a period, that is older than the latest
+ * slot is merged into the latest slot, which keeps the hourly and daily totals but can overstate the intensity of the
+ * shorter durations during the repeated hour.
+ */
+public class RainfallIntensityDuration {
+    /**
+     * The default size of a slot, which matches the most common archive interval
+     */
+    public static final int DEFAULT_RESOLUTION_MINUTES = 5;
+    private static final int MINUTES_PER_DAY = 1440;
+    private static final int HOURS_PER_DAY = 24;
+    private static final int INITIAL_DAYS = 366;
+    private static final double ROUNDING_TOLERANCE = 1.0e-9;
+    private static final RainfallDuration[] DURATIONS = RainfallDuration.values();
+    private final int resolutionMinutes;
+    private final int slotsPerDay;
+    private final int[] windowSlots;
+    private final double[] windowSums;
+    private final double[] slotRainfall;
+    private LocalDate firstDate;
+    private long currentSlot;
+    private int numDays;
+    private double[][] dayMaxima;
+    private int[][] dayMaximaSlots;
+    private double[] hourlyRainfall;
+    private boolean[] dayHasData;
+
+    /**
+     * Constructor that uses the default resolution.
+     */
+    public RainfallIntensityDuration() {
+        this(DEFAULT_RESOLUTION_MINUTES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param resolutionMinutes The size of a slot in minutes, which must evenly divide a day. Durations that are not a
+     *                          multiple of the resolution are not calculated.
+     */
+    public RainfallIntensityDuration(int resolutionMinutes) {
+        if (resolutionMinutes <= 0 || MINUTES_PER_DAY % resolutionMinutes != 0)
+            throw new IllegalArgumentException("Resolution must evenly divide a day (" + resolutionMinutes + ")");
+
+        this.resolutionMinutes = resolutionMinutes;
+        slotsPerDay = MINUTES_PER_DAY / resolutionMinutes;
+        windowSlots = new int[DURATIONS.length];
+        windowSums = new double[DURATIONS.length];
+        slotRainfall = new double[slotsPerDay];
+
+        for (RainfallDuration duration : DURATIONS) {
+            if (duration.getMinutes() % resolutionMinutes == 0)
+                windowSlots[duration.ordinal()] = duration.getMinutes() / resolutionMinutes;
+        }
+
+        firstDate = null;
+        currentSlot = -1;
+        numDays = 0;
+        dayMaxima = new double[DURATIONS.length][INITIAL_DAYS];
+        dayMaximaSlots = new int[DURATIONS.length][INITIAL_DAYS];
+        hourlyRainfall = new double[INITIAL_DAYS * HOURS_PER_DAY];
+        dayHasData = new boolean[INITIAL_DAYS];
+    }
+
+    /**
+     * Get the size of the slots into which the rainfall is placed.
+     *
+     * @return The resolution in minutes
+     */
+    public int getResolutionMinutes() {
+        return resolutionMinutes;
+    }
+
+    /**
+     * Check if a duration is calculated with the resolution of this object.
+     *
+     * @param duration The duration
+     * @return True if the duration is calculated
+     */
+    public boolean isDurationSupported(RainfallDuration duration) {
+        return windowSlots[duration.ordinal()] > 0;
+    }
+
+    /**
+     * Apply a historical record. The rainfall of the record is spread evenly over the slots that the record covers.
+     *
+     * @param rec The record to apply
+     */
+    public void applyHistoricalRecord(HistoricalRecord rec) {
+        Depth rainfall = rec.getRainfall();
+        Duration duration = rec.getDuration();
+        long durationMinutes = duration == null ? 0 : duration.toMinutes();
+        applyRainfall(rec.getTime(), durationMinutes, rainfall == null ? 0.0 : rainfall.get(Depth.Unit.MILLIMETERS));
+    }
+
+    /**
+     * Apply rainfall that fell during the period ending at the specified time.
+     *
+     * @param endTime The end of the period
+     * @param durationMinutes The length of the period in minutes
+     * @param millimeters The rainfall in millimeters
+     */
+    public void applyRainfall(LocalDateTime endTime, long durationMinutes, double millimeters) {
+        long endMinute = endTime.toEpochSecond(ZoneOffset.UTC) / 60;
+        long startMinute = endMinute - Math.max(durationMinutes, 1);
+
+        if (firstDate == null)
+            firstDate = LocalDate.ofEpochDay(Math.floorDiv(startMinute, (long)MINUTES_PER_DAY));
+
+        long baseMinute = firstDate.toEpochDay() * MINUTES_PER_DAY;
+        long firstSlot = Math.floorDiv(startMinute - baseMinute, (long)resolutionMinutes);
+        long numSlots = Math.max(durationMinutes / resolutionMinutes, 1);
+        double slotAmount = millimeters / numSlots;
+
+        //
+        // The slots that are older than the latest slot, such as those of the repeated hour at the end of daylight
+        // saving time, have their rainfall merged into the latest slot
+        //
+        long overlap = Math.min(Math.max(currentSlot - firstSlot, 0), numSlots);
+        if (overlap > 0)
+            addToSlot(currentSlot, slotAmount * overlap);
+
+        for (long slot = firstSlot + overlap; slot < firstSlot + numSlots; slot++)
+            addToSlot(slot, slotAmount);
+    }
+
+    /**
+     * Get the first date for which rainfall has been applied.
+     *
+     * @return The first date or null if no rainfall has been applied
+     */
+    public LocalDate getFirstDate() {
+        return firstDate;
+    }
+
+    /**
+     * Get the last date for which rainfall has been applied.
+     *
+     * @return The last date or null if no rainfall has been applied
+     */
+    public LocalDate getLastDate() {
+        if (firstDate == null)
+            return null;
+
+        return firstDate.plusDays(numDays - 1);
+    }
+
+    /**
+     * Get the maximum rainfall that fell within a duration on a day. A period is assigned to the day on which it ends.
+     *
+     * @param duration The duration
+     * @param date The day
+     * @return The maximum rainfall or null if there is no data for the day or the duration is not supported
+     */
+    public Depth getMaximumRainfall(RainfallDuration duration, LocalDate date) {
+        return getMaximumRainfall(duration, date, date);
+    }
+
+    /**
+     * Get the maximum rainfall that fell within a duration over a range of days.
+     *
+     * @param duration The duration
+     * @param start The first day of the range
+     * @param end The last day of the range, inclusive
+     * @return The maximum rainfall or null if there is no data in the range or the duration is not supported
+     */
+    public Depth getMaximumRainfall(RainfallDuration duration, LocalDate start, LocalDate end) {
+        int day = findMaximumDay(duration, start, end);
+        if (day < 0)
+            return null;
+
+        return new Depth(dayMaxima[duration.ordinal()][day], Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the end time of the period in which the maximum rainfall for a duration fell over a range of days.
+     *
+     * @param duration The duration
+     * @param start The first day of the range
+     * @param end The last day of the range, inclusive
+     * @return The end of the period or null if there was no rain in the range or the duration is not supported
+     */
+    public LocalDateTime getMaximumRainfallTime(RainfallDuration duration, LocalDate start, LocalDate end) {
+        int day = findMaximumDay(duration, start, end);
+        if (day < 0 || dayMaximaSlots[duration.ordinal()][day] < 0)
+            return null;
+
+        int slot = dayMaximaSlots[duration.ordinal()][day];
+        return firstDate.plusDays(day).atStartOfDay().plusMinutes((long)(slot + 1) * resolutionMinutes);
+    }
+
+    /**
+     * Get the maximum rainfall intensity for a duration over a range of days.
+     *
+     * @param duration The duration
+     * @param start The first day of the range
+     * @param end The last day of the range, inclusive
+     * @return The maximum intensity, in depth per hour, or null if there is no data in the range
+     */
+    public Depth getMaximumIntensity(RainfallDuration duration, LocalDate start, LocalDate end) {
+        int day = findMaximumDay(duration, start, end);
+        if (day < 0)
+            return null;
+
+        double perHour = dayMaxima[duration.ordinal()][day] * 60.0 / duration.getMinutes();
+        return new Depth(perHour, Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the maximum rainfall for each of the supported durations over a range of days.
+     *
+     * @param start The first day of the range
+     * @param end The last day of the range, inclusive
+     * @return The maximum rainfall of each duration, durations without data are not included
+     */
+    public Map<RainfallDuration,Depth> getIntensityDurationCurve(LocalDate start, LocalDate end) {
+        Map<RainfallDuration,Depth> curve = new EnumMap<>(RainfallDuration.class);
+        for (RainfallDuration duration : DURATIONS) {
+            Depth max = getMaximumRainfall(duration, start, end);
+            if (max != null)
+                curve.put(duration, max);
+        }
+
+        return curve;
+    }
+
+    /**
+     * Get the maximum rainfall of a duration over a trailing number of days, for each day in a range.
+     *
+     * @param duration The duration
+     * @param start The first day of the range
+     * @param end The last day of the range, inclusive
+     * @param trailingDays The number of days in the trailing window, including the day itself
+     * @return The trailing maximum for each day in millimeters, NaN for days without data in the trailing window
+     */
+    public double[] getTrailingMaxima(RainfallDuration duration, LocalDate start, LocalDate end, int trailingDays) {
+        int length = (int)ChronoUnit.DAYS.between(start, end) + 1;
+        double[] maxima = new double[Math.max(length, 0)];
+        Arrays.fill(maxima, Double.NaN);
+
+        if (firstDate == null || length <= 0 || !isDurationSupported(duration))
+            return maxima;
+
+        double[] values = dayMaxima[duration.ordinal()];
+        SlidingWindowExtreme window = new SlidingWindowExtreme(SlidingWindowExtreme.Type.MAXIMUM, trailingDays + 1);
+        long startDay = dayIndex(start);
+        for (long day = startDay - trailingDays + 1; day <= startDay + length - 1; day++) {
+            if (day >= 0 && day < numDays && dayHasData[(int)day])
+                window.add(day, values[(int)day]);
+
+            window.expire(day - trailingDays + 1);
+            if (day >= startDay)
+                maxima[(int)(day - startDay)] = window.getValue();
+        }
+
+        return maxima;
+    }
+
+    /**
+     * Get the rainfall for each hour of a day.
+     *
+     * @param date The day
+     * @return The hourly rainfall, empty if there is no data for the day
+     */
+    public DayHourRain getHourlyRainfall(LocalDate date) {
+        DayHourRain rain = new DayHourRain(date);
+        if (firstDate == null)
+            return rain;
+
+        long day = dayIndex(date);
+        if (day < 0 || day >= numDays || !dayHasData[(int)day])
+            return rain;
+
+        int base = (int)day * HOURS_PER_DAY;
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++)
+            rain.addRain(hour, hourlyRainfall[base + hour]);
+
+        return rain;
+    }
+
+    private int findMaximumDay(RainfallDuration duration, LocalDate start, LocalDate end) {
+        if (firstDate == null || !isDurationSupported(duration))
+            return -1;
+
+        long first = Math.max(dayIndex(start), 0);
+        long last = Math.min(dayIndex(end), numDays - 1);
+        double[] values = dayMaxima[duration.ordinal()];
+        int maxDay = -1;
+        for (int day = (int)first; day <= last; day++) {
+            if (dayHasData[day] && (maxDay < 0 || values[day] > values[maxDay]))
+                maxDay = day;
+        }
+
+        return maxDay;
+    }
+
+    private long dayIndex(LocalDate date) {
+        return date.toEpochDay() - firstDate.toEpochDay();
+    }
+
+    private void addToSlot(long slot, double millimeters) {
+        advanceTo(slot);
+        int index = (int)(slot % slotsPerDay);
+        int day = (int)(slot / slotsPerDay);
+        int slotOfDay = index;
+
+        slotRainfall[index] += millimeters;
+        hourlyRainfall[day * HOURS_PER_DAY + (slotOfDay * resolutionMinutes) / 60] += millimeters;
+        dayHasData[day] = true;
+
+        for (int i = 0; i < windowSums.length; i++) {
+            if (windowSlots[i] > 0) {
+                windowSums[i] += millimeters;
+                updateDayMaximum(i, day, slotOfDay);
+            }
+        }
+    }
+
+    /**
+     * Move the end of the windows forward to the specified slot, removing the rainfall of the slots that leave the windows.
+     *
+     * @param slot The new current slot
+     */
+    private void advanceTo(long slot) {
+        if (slot <= currentSlot)
+            return;
+
+        //
+        // Once a full day of slots have passed all of the windows are empty, so skip over the rest of a long gap
+        //
+        long next = currentSlot + 1;
+        if (slot - currentSlot > slotsPerDay) {
+            Arrays.fill(slotRainfall, 0.0);
+            Arrays.fill(windowSums, 0.0);
+            next = slot;
+        }
+
+        for (long s = next; s <= slot; s++) {
+            int index = (int)(s % slotsPerDay);
+            for (int i = 0; i < windowSums.length; i++) {
+                int w = windowSlots[i];
+                if (w == 0)
+                    continue;
+
+                int leaving = (int)((s - w) % slotsPerDay);
+                if (s - w >= 0) {
+                    windowSums[i] -= slotRainfall[leaving];
+                    if (windowSums[i] < ROUNDING_TOLERANCE)
+                        windowSums[i] = 0.0;
+                }
+            }
+
+            slotRainfall[index] = 0.0;
+        }
+
+        currentSlot = slot;
+        ensureDays((int)(slot / slotsPerDay) + 1);
+
+        //
+        // A window that ends on the new slot may be the largest of its day even though no rain fell in the slot
+        //
+        int day = (int)(slot / slotsPerDay);
+        int slotOfDay = (int)(slot % slotsPerDay);
+        for (int i = 0; i < windowSums.length; i++)
+            if (windowSlots[i] > 0)
+                updateDayMaximum(i, day, slotOfDay);
+    }
+
+    private void updateDayMaximum(int window, int day, int slotOfDay) {
+        if (windowSums[window] > dayMaxima[window][day]) {
+            dayMaxima[window][day] = windowSums[window];
+            dayMaximaSlots[window][day] = slotOfDay;
+        }
+    }
+
+    private void ensureDays(int days) {
+        if (days > dayHasData.length) {
+            int capacity = Math.max(days, dayHasData.length * 2);
+            for (int i = 0; i < DURATIONS.length; i++) {
+                dayMaxima[i] = Arrays.copyOf(dayMaxima[i], capacity);
+                dayMaximaSlots[i] = Arrays.copyOf(dayMaximaSlots[i], capacity);
+            }
+
+            hourlyRainfall = Arrays.copyOf(hourlyRainfall, capacity * HOURS_PER_DAY);
+            dayHasData = Arrays.copyOf(dayHasData, capacity);
+        }
+
+        if (days > numDays) {
+            for (int i = 0; i < DURATIONS.length; i++)
+                Arrays.fill(dayMaximaSlots[i], numDays, days, -1);
+
+            numDays = days;
+        }
+    }
+}
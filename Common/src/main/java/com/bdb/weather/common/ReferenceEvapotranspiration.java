@@ -0,0 +1,469 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import com.bdb.weather.common.measurement.AngularMeasurement;
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.SolarRadiation;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * Calculates the FAO-56 Penman-Monteith reference evapotranspiration of a short grass crop from the temperature,
+ * humidity, wind speed and solar radiation, for weather stations whose console does not report ET or whose ET method
+ * is unknown.
+ * <br>
+ * The daily method uses the minimum and maximum temperature and humidity of a day. The period method applies the hourly
+ * equation to each archive record, scaled to the duration of the record. If a day has no solar radiation the daily
+ * method estimates it from the temperature range (Hargreaves). The period method cannot and returns NaN, but the
+ * backfill of archive records makes the same estimate from the temperature range of the day's records and spreads it
+ * over the periods in proportion to their extraterrestrial radiation.
+ * <br>
+ * The solar declination, the inverse earth-sun distance, the sunset hour angle, the equation of time and the daily
+ * extraterrestrial radiation depend only on the day of the year, so they are calculated once for each day of the year
+ * when the calculator is created. The calculator is immutable and may be used by many threads.
+ * <br>
+ * Inputs are in the storage units: Celsius, % relative humidity, meters per second and W/m2. The results are in
+ * millimeters.
+ */
+public class ReferenceEvapotranspiration {
+    private static final double SOLAR_CONSTANT = 0.0820;                // MJ/m2/min
+    private static final double STEFAN_BOLTZMANN = 4.903e-9;            // MJ/K4/m2/day
+    private static final double ALBEDO = 0.23;
+    private static final double HARGREAVES_RADIATION_COEFFICIENT = 0.16;
+    private static final double SECONDS_PER_DAY = 86400.0;
+    private static final double W_TO_MJ_PER_DAY = SECONDS_PER_DAY / 1.0e6;
+    private static final double DEFAULT_ANEMOMETER_HEIGHT = 2.0;
+    //
+    // The cloudiness used for the net longwave radiation at night or when the sun is low, where Rs/Rso is meaningless,
+    // until a period with the sun higher than about 15 degrees sets it
+    //
+    private static final double DEFAULT_RADIATION_RATIO = 0.8;
+    private static final double MINIMUM_SUN_ELEVATION_SINE = 0.26;
+    private static final int DAYS = 367;
+
+    private final double sinLatitude;
+    private final double cosLatitude;
+    private final double longitudeCorrection;
+    private final double psychrometricConstant;
+    private final double clearSkyFactor;
+    private final double windHeightFactor;
+    private final double[] inverseDistance = new double[DAYS];
+    private final double[] sinDeclination = new double[DAYS];
+    private final double[] cosDeclination = new double[DAYS];
+    private final double[] sunsetHourAngle = new double[DAYS];
+    private final double[] seasonalCorrection = new double[DAYS];
+    private final double[] dailyRadiation = new double[DAYS];
+
+    /**
+     * Constructor for a station with the anemometer at 2 meters that uses the standard time of the default time zone.
+     *
+     * @param location The location of the weather station
+     */
+    public ReferenceEvapotranspiration(GeographicLocation location) {
+        this(location, ZoneId.systemDefault().getRules().getStandardOffset(Instant.now()), DEFAULT_ANEMOMETER_HEIGHT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param location The location of the weather station
+     * @param standardTime The offset of the local standard time of the archive records from UTC
+     * @param anemometerHeight The height of the anemometer above the ground in meters
+     */
+    public ReferenceEvapotranspiration(GeographicLocation location, ZoneOffset standardTime, double anemometerHeight) {
+        if (anemometerHeight <= 0.1)
+            throw new IllegalArgumentException("Invalid anemometer height: " + anemometerHeight);
+
+        double latitude = location.getLatitude().get(AngularMeasurement.Unit.RADIANS);
+        double longitude = location.getLongitude().get(AngularMeasurement.Unit.DEGREES);
+        double altitude = location.getAltitude() == null ? 0.0 : location.getAltitude().get(Depth.Unit.METERS);
+        sinLatitude = Math.sin(latitude);
+        cosLatitude = Math.cos(latitude);
+
+        //
+        // FAO-56 measures longitude in degrees west of Greenwich, Lz - Lm is the offset of the station east of the
+        // center of its time zone
+        //
+        longitudeCorrection = 0.06667 * (longitude - standardTime.getTotalSeconds() / 240.0);
+
+        double pressure = 101.3 * Math.pow((293.0 - 0.0065 * altitude) / 293.0, 5.26);
+        psychrometricConstant = 0.665e-3 * pressure;
+        clearSkyFactor = 0.75 + 2.0e-5 * altitude;
+        windHeightFactor = anemometerHeight == DEFAULT_ANEMOMETER_HEIGHT ? 1.0 : 4.87 / Math.log(67.8 * anemometerHeight - 5.42);
+
+        for (int j = 1; j < DAYS; j++) {
+            double x = 2.0 * Math.PI * j / 365.0;
+            inverseDistance[j] = 1.0 + 0.033 * Math.cos(x);
+            double declination = 0.409 * Math.sin(x - 1.39);
+            sinDeclination[j] = Math.sin(declination);
+            cosDeclination[j] = Math.cos(declination);
+            double cosSunset = -Math.tan(latitude) * Math.tan(declination);
+            sunsetHourAngle[j] = Math.acos(Math.max(-1.0, Math.min(1.0, cosSunset)));
+            double b = 2.0 * Math.PI * (j - 81) / 364.0;
+            seasonalCorrection[j] = 0.1645 * Math.sin(2.0 * b) - 0.1255 * Math.cos(b) - 0.025 * Math.sin(b);
+            double ws = sunsetHourAngle[j];
+            dailyRadiation[j] = 24.0 * 60.0 / Math.PI * SOLAR_CONSTANT * inverseDistance[j] *
+                                (ws * sinLatitude * sinDeclination[j] + cosLatitude * cosDeclination[j] * Math.sin(ws));
+        }
+    }
+
+    /**
+     * Get the extraterrestrial radiation of a day.
+     *
+     * @param date The day
+     * @return The radiation in MJ/m2/day
+     */
+    public double getExtraterrestrialRadiation(LocalDate date) {
+        return dailyRadiation[date.getDayOfYear()];
+    }
+
+    /**
+     * Saturation vapor pressure in kPa.
+     */
+    private static double saturationVaporPressure(double t) {
+        return 0.6108 * Math.exp(17.27 * t / (t + 237.3));
+    }
+
+    /**
+     * Slope of the saturation vapor pressure curve in kPa/C.
+     */
+    private static double vaporPressureSlope(double t) {
+        double denominator = t + 237.3;
+        return 4098.0 * saturationVaporPressure(t) / (denominator * denominator);
+    }
+
+    /**
+     * Calculate the reference ET of a day.
+     *
+     * @param date The day
+     * @param maxTemperature The maximum temperature in Celsius
+     * @param minTemperature The minimum temperature in Celsius
+     * @param maxHumidity The maximum relative humidity, NaN if unknown
+     * @param minHumidity The minimum relative humidity, NaN if unknown
+     * @param windSpeed The average wind speed at the anemometer in meters per second
+     * @param solarRadiation The average solar radiation in W/m2, NaN to estimate it from the temperature range
+     * @return The reference ET in millimeters or NaN if the temperatures or wind speed are missing
+     */
+    public double computeDaily(LocalDate date, double maxTemperature, double minTemperature, double maxHumidity, double minHumidity, double windSpeed, double solarRadiation) {
+        return daily(date.getDayOfYear(), maxTemperature, minTemperature, maxHumidity, minHumidity, windSpeed, solarRadiation);
+    }
+
+    /**
+     * Calculate the reference ET of a column of days.
+     *
+     * @param epochDays The days as epoch days
+     * @param maxTemperatures The maximum temperatures in Celsius
+     * @param minTemperatures The minimum temperatures in Celsius
+     * @param maxHumidities The maximum relative humidities
+     * @param minHumidities The minimum relative humidities
+     * @param windSpeeds The average wind speeds in meters per second
+     * @param solarRadiation The average solar radiation in W/m2
+     * @param et The array that receives the reference ET in millimeters
+     * @param length The number of days
+     */
+    public void computeDaily(long[] epochDays, double[] maxTemperatures, double[] minTemperatures, double[] maxHumidities,
+                             double[] minHumidities, double[] windSpeeds, double[] solarRadiation, double[] et, int length) {
+        for (int i = 0; i < length; i++) {
+            int j = LocalDate.ofEpochDay(epochDays[i]).getDayOfYear();
+            et[i] = daily(j, maxTemperatures[i], minTemperatures[i], maxHumidities[i], minHumidities[i], windSpeeds[i], solarRadiation[i]);
+        }
+    }
+
+    /**
+     * Calculate the reference ET of a daily summary.
+     *
+     * @param rec The summary
+     * @return The reference ET or null if the summary does not have the temperatures or wind speed
+     */
+    public Depth computeDaily(SummaryRecord rec) {
+        double et = daily(rec.getDate().getDayOfYear(),
+                          value(rec.getMaxOutdoorTemp()),
+                          value(rec.getMinOutdoorTemp()),
+                          value(rec.getMaxOutdoorHumidity()),
+                          value(rec.getMinOutdoorHumidity()),
+                          rec.getAvgWindSpeed() == null ? Double.NaN : rec.getAvgWindSpeed().get(Speed.Unit.METERS_PER_SEC),
+                          rec.getAvgSolarRadiation() == null ? Double.NaN : rec.getAvgSolarRadiation().get(SolarRadiation.Unit.WATTS_PER_METER_SQUARED));
+
+        return Double.isNaN(et) ? null : new Depth(et, Depth.Unit.MILLIMETERS);
+    }
+
+    private static double value(Temperature t) {
+        return t == null ? Double.NaN : t.get(Temperature.Unit.CELSIUS);
+    }
+
+    private static double value(Humidity h) {
+        return h == null ? Double.NaN : h.get(Humidity.Unit.RELATIVE_HUMIDITY);
+    }
+
+    private double daily(int j, double tMax, double tMin, double rhMax, double rhMin, double windSpeed, double solarRadiation) {
+        double tMean = (tMax + tMin) / 2.0;
+        double eMax = saturationVaporPressure(tMax);
+        double eMin = saturationVaporPressure(tMin);
+        double es = (eMax + eMin) / 2.0;
+
+        //
+        // Without humidity the minimum temperature is taken as the dew point
+        //
+        double ea;
+        if (Double.isNaN(rhMax) || Double.isNaN(rhMin))
+            ea = eMin;
+        else
+            ea = (eMin * rhMax / 100.0 + eMax * rhMin / 100.0) / 2.0;
+
+        double ra = dailyRadiation[j];
+        double rs;
+        if (Double.isNaN(solarRadiation))
+            rs = HARGREAVES_RADIATION_COEFFICIENT * Math.sqrt(Math.max(0.0, tMax - tMin)) * ra;
+        else
+            rs = solarRadiation * W_TO_MJ_PER_DAY;
+
+        double rso = clearSkyFactor * ra;
+        double ratio = rso > 0.0 ? Math.min(1.0, rs / rso) : DEFAULT_RADIATION_RATIO;
+        double kMax = tMax + 273.16;
+        double kMin = tMin + 273.16;
+        double rnl = STEFAN_BOLTZMANN * (kMax * kMax * kMax * kMax + kMin * kMin * kMin * kMin) / 2.0 *
+                     (0.34 - 0.14 * Math.sqrt(ea)) * (1.35 * ratio - 0.35);
+        double rn = (1.0 - ALBEDO) * rs - rnl;
+
+        double u2 = windSpeed * windHeightFactor;
+        double delta = vaporPressureSlope(tMean);
+        double gamma = psychrometricConstant;
+        double et = (0.408 * delta * rn + gamma * 900.0 / (tMean + 273.0) * u2 * (es - ea)) / (delta + gamma * (1.0 + 0.34 * u2));
+        return Math.max(0.0, et);
+    }
+
+    /**
+     * Calculate the reference ET of a column of archive periods with the hourly equation, scaled to the duration of
+     * each period.
+     *
+     * @param times The end times of the periods in seconds, using the local time as if it were UTC, in ascending order
+     * @param durations The durations of the periods in seconds
+     * @param temperatures The average temperatures in Celsius
+     * @param humidities The average relative humidities
+     * @param windSpeeds The average wind speeds in meters per second
+     * @param solarRadiation The average solar radiation in W/m2
+     * @param et The array that receives the reference ET of each period in millimeters, NaN if an input is missing
+     * @param length The number of periods
+     */
+    public void computePeriods(long[] times, int[] durations, double[] temperatures, double[] humidities, double[] windSpeeds,
+                               double[] solarRadiation, double[] et, int length) {
+        double ratio = DEFAULT_RADIATION_RATIO;
+        for (int i = 0; i < length; i++) {
+            double hours = durations[i] / 3600.0;
+            long midpoint = times[i] - durations[i] / 2;
+            long day = Math.floorDiv(midpoint, (long)SECONDS_PER_DAY);
+            int j = LocalDate.ofEpochDay(day).getDayOfYear();
+            double t = Math.floorMod(midpoint, (long)SECONDS_PER_DAY) / 3600.0;
+
+            double omega = solarTimeAngle(j, t);
+            double ra = periodRadiation(j, omega, hours);
+            double rs = solarRadiation[i] * durations[i] / 1.0e6;
+            double rso = clearSkyFactor * ra;
+            double sunElevation = sinLatitude * sinDeclination[j] + cosLatitude * cosDeclination[j] * Math.cos(omega);
+            if (sunElevation > MINIMUM_SUN_ELEVATION_SINE && rso > 0.0 && !Double.isNaN(rs))
+                ratio = Math.max(0.25, Math.min(1.0, rs / rso));
+
+            double temperature = temperatures[i];
+            double e0 = saturationVaporPressure(temperature);
+            double ea = e0 * humidities[i] / 100.0;
+            double kelvin = temperature + 273.16;
+            double rnl = STEFAN_BOLTZMANN * durations[i] / SECONDS_PER_DAY * kelvin * kelvin * kelvin * kelvin *
+                         (0.34 - 0.14 * Math.sqrt(ea)) * (1.35 * ratio - 0.35);
+            double rn = (1.0 - ALBEDO) * rs - rnl;
+            double g = ra > 0.0 ? 0.1 * rn : 0.5 * rn;
+
+            double u2 = windSpeeds[i] * windHeightFactor;
+            double delta = vaporPressureSlope(temperature);
+            double gamma = psychrometricConstant;
+            double value = (0.408 * delta * (rn - g) + gamma * 37.0 * hours / (temperature + 273.0) * u2 * (e0 - ea)) /
+                           (delta + gamma * (1.0 + 0.34 * u2));
+            et[i] = Double.isNaN(value) ? Double.NaN : Math.max(0.0, value);
+        }
+    }
+
+    /**
+     * The solar time angle at an hour of a day.
+     */
+    private double solarTimeAngle(int j, double hour) {
+        return Math.PI / 12.0 * (hour + longitudeCorrection + seasonalCorrection[j] - 12.0);
+    }
+
+    /**
+     * The extraterrestrial radiation of a period in MJ/m2, from the solar time angle at the midpoint of the period and
+     * at its ends, limited to the time the sun is up.
+     */
+    private double periodRadiation(int j, double omega, double hours) {
+        double ws = sunsetHourAngle[j];
+        double omega1 = Math.max(-ws, omega - Math.PI * hours / 24.0);
+        double omega2 = Math.min(ws, omega + Math.PI * hours / 24.0);
+        if (omega2 <= omega1)
+            return 0.0;
+
+        return 12.0 * 60.0 / Math.PI * SOLAR_CONSTANT * inverseDistance[j] *
+               ((omega2 - omega1) * sinLatitude * sinDeclination[j] + cosLatitude * cosDeclination[j] * (Math.sin(omega2) - Math.sin(omega1)));
+    }
+
+    /**
+     * Estimate the missing solar radiation of the periods of a day from the temperature range of the day (Hargreaves),
+     * spread over the periods in proportion to their extraterrestrial radiation.
+     */
+    private void estimateSolarRadiation(long[] times, int[] durations, double[] temperatures, double[] solarRadiation, int length) {
+        double tMax = Double.NaN;
+        double tMin = Double.NaN;
+        for (int i = 0; i < length; i++) {
+            double t = temperatures[i];
+            if (Double.isNaN(t))
+                continue;
+
+            if (Double.isNaN(tMax) || t > tMax)
+                tMax = t;
+
+            if (Double.isNaN(tMin) || t < tMin)
+                tMin = t;
+        }
+
+        if (Double.isNaN(tMax))
+            return;
+
+        double factor = HARGREAVES_RADIATION_COEFFICIENT * Math.sqrt(tMax - tMin);
+        for (int i = 0; i < length; i++) {
+            if (!Double.isNaN(solarRadiation[i]) || durations[i] <= 0)
+                continue;
+
+            long midpoint = times[i] - durations[i] / 2;
+            int j = LocalDate.ofEpochDay(Math.floorDiv(midpoint, (long)SECONDS_PER_DAY)).getDayOfYear();
+            double omega = solarTimeAngle(j, Math.floorMod(midpoint, (long)SECONDS_PER_DAY) / 3600.0);
+            double ra = periodRadiation(j, omega, durations[i] / 3600.0);
+            solarRadiation[i] = factor * ra * 1.0e6 / durations[i];
+        }
+    }
+
+    /**
+     * Calculate the reference ET of each record of an archive block.
+     *
+     * @param cursor The decoded archive block
+     * @return The reference ET of each record in millimeters, NaN if an input is missing
+     */
+    public double[] computePeriods(ArchiveBlockCursor cursor) {
+        int size = cursor.size();
+        long[] times = new long[size];
+        int[] durations = new int[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = cursor.getEpochSecond(i);
+            durations[i] = cursor.getDurationSeconds(i);
+        }
+
+        double[] temperatures = new double[size];
+        double[] humidities = new double[size];
+        double[] windSpeeds = new double[size];
+        double[] solarRadiation = new double[size];
+        cursor.getValues(ArchiveField.AVG_OUTDOOR_TEMPERATURE, temperatures);
+        cursor.getValues(ArchiveField.OUTDOOR_HUMIDITY, humidities);
+        cursor.getValues(ArchiveField.AVG_WIND_SPEED, windSpeeds);
+        cursor.getValues(ArchiveField.AVG_SOLAR_RADIATION, solarRadiation);
+        double[] et = new double[size];
+        computePeriods(times, durations, temperatures, humidities, windSpeeds, solarRadiation, et, size);
+        return et;
+    }
+
+    /**
+     * Fill in the ET of the archive records that do not have one, such as the records of a console without a solar
+     * radiation sensor. The missing solar radiation of a record is estimated from the temperature range of the records
+     * of its day, which is less accurate for a day that has only a few records. The days are calculated in parallel.
+     *
+     * @param records The archive records in time order
+     * @return The number of records whose ET was set
+     */
+    public int backfillHistoricalRecords(List<HistoricalRecord> records) {
+        List<Integer> dayStarts = new ArrayList<>();
+        LocalDate previous = null;
+        for (int i = 0; i < records.size(); i++) {
+            LocalDate date = records.get(i).getTime().toLocalDate();
+            if (!date.equals(previous))
+                dayStarts.add(i);
+
+            previous = date;
+        }
+
+        dayStarts.add(records.size());
+        AtomicInteger count = new AtomicInteger();
+        IntStream.range(0, dayStarts.size() - 1).parallel().forEach((d) -> {
+            int from = dayStarts.get(d);
+            int length = dayStarts.get(d + 1) - from;
+            long[] times = new long[length];
+            int[] durations = new int[length];
+            double[] temperatures = new double[length];
+            double[] humidities = new double[length];
+            double[] windSpeeds = new double[length];
+            double[] solarRadiation = new double[length];
+            for (int i = 0; i < length; i++) {
+                HistoricalRecord rec = records.get(from + i);
+                times[i] = rec.getTime().toEpochSecond(ZoneOffset.UTC);
+                durations[i] = (int)rec.getDuration().getSeconds();
+                temperatures[i] = ArchiveField.AVG_OUTDOOR_TEMPERATURE.getValue(rec);
+                humidities[i] = ArchiveField.OUTDOOR_HUMIDITY.getValue(rec);
+                windSpeeds[i] = ArchiveField.AVG_WIND_SPEED.getValue(rec);
+                solarRadiation[i] = ArchiveField.AVG_SOLAR_RADIATION.getValue(rec);
+            }
+
+            estimateSolarRadiation(times, durations, temperatures, solarRadiation, length);
+            double[] et = new double[length];
+            computePeriods(times, durations, temperatures, humidities, windSpeeds, solarRadiation, et, length);
+            for (int i = 0; i < length; i++) {
+                HistoricalRecord rec = records.get(from + i);
+                if (rec.getEvapotranspiration() == null && !Double.isNaN(et[i])) {
+                    rec.setEvapotranspiration(new Depth(et[i], Depth.Unit.MILLIMETERS));
+                    count.incrementAndGet();
+                }
+            }
+        });
+
+        return count.get();
+    }
+
+    /**
+     * Fill in the total ET of the daily summaries that do not have one. A total ET of zero is a real total, such as
+     * that of a cold and cloudy day, so only the summaries whose total is null are filled. The summaries are calculated
+     * in parallel.
+     *
+     * @param summaries The daily summaries
+     * @return The number of summaries whose ET was set
+     */
+    public int backfillSummaryRecords(List<SummaryRecord> summaries) {
+        AtomicInteger count = new AtomicInteger();
+        summaries.parallelStream().filter((rec) -> rec.getTotalET() == null).forEach((rec) -> {
+            Depth et = computeDaily(rec);
+            if (et != null) {
+                rec.setTotalET(et);
+                count.incrementAndGet();
+            }
+        });
+
+        return count.get();
+    }
+}
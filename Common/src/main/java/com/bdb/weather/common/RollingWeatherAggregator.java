@@ -0,0 +1,490 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.Speed;
+
+/**
+ * Streaming aggregator of the windowed values that the consoles do not always report: the 2 and 10 minute average wind,
+ * the 10 minute peak gust and its direction, the rain over the last 15 minutes and hour, and the 3 hour pressure tendency.
+ * <br>
+ * The average wind direction is the direction of the vector mean of the wind, while the average wind speed is the scalar
+ * mean, which is how the consoles report it. The rain is calculated from the changes in the rain today, so it only
+ * covers the time that this aggregator has been receiving current weather. The rain, the peak gust and the pressure
+ * tendency are not reported until the samples cover their whole window, as a partial window would understate them.
+ * <br>
+ * The samples are kept in primitive ring arrays with running sums and monotonic deques, so each current weather
+ * costs O(1) and no objects are kept for the samples.
+ */
+public class RollingWeatherAggregator implements CurrentWeatherSubscriber.CurrentWeatherHandler {
+    private static final long TWO_MINUTES = Duration.ofMinutes(2).toMillis();
+    private static final long TEN_MINUTES = Duration.ofMinutes(10).toMillis();
+    private static final long FIFTEEN_MINUTES = Duration.ofMinutes(15).toMillis();
+    private static final long ONE_HOUR = Duration.ofHours(1).toMillis();
+    private static final long THREE_HOURS = Duration.ofHours(3).toMillis();
+    //
+    // The Davis thresholds for the barometer trend, 0.02 and 0.06 inches of mercury in 3 hours
+    //
+    private static final double SLOW_PRESSURE_CHANGE_MB = .7;
+    private static final double RAPID_PRESSURE_CHANGE_MB = 2.0;
+    private static final double CALM_VECTOR = 1.0e-6;
+
+    private static final int U = 0;
+    private static final int V = 1;
+    private static final int SPEED = 2;
+    private static final int RAIN = 0;
+    private static final int PRESSURE = 0;
+
+    private final SampleRing windSamples = new SampleRing(3);
+    private final RunningSum wind2Min = new RunningSum(TWO_MINUTES, 3);
+    private final RunningSum wind10Min = new RunningSum(TEN_MINUTES, 3);
+    private final SlidingWindowExtreme gust10Min = new SlidingWindowExtreme(SlidingWindowExtreme.Type.MAXIMUM);
+    private final SampleRing rainSamples = new SampleRing(1);
+    private final RunningSum rain15Min = new RunningSum(FIFTEEN_MINUTES, 1);
+    private final RunningSum rainHour = new RunningSum(ONE_HOUR, 1);
+    private final SampleRing pressureSamples = new SampleRing(1);
+    private long latestTime = Long.MIN_VALUE;
+    private long firstGustTime = Long.MIN_VALUE;
+    private long firstRainTime = Long.MIN_VALUE;
+    private double lastRainToday = Double.NaN;
+    private LocalDate lastRainDate = null;
+
+    /**
+     * Time ordered ring of samples with a fixed number of primitive columns. The ring only grows when it holds more
+     * samples than ever before. Samples are addressed by a sequence number that increases with each sample.
+     */
+    private static final class SampleRing {
+        private long[] times = new long[64];
+        private final double[][] columns;
+        private long oldest = 0;
+        private long next = 0;
+
+        SampleRing(int numColumns) {
+            columns = new double[numColumns][times.length];
+        }
+
+        int add(long time) {
+            if (next - oldest == times.length)
+                grow();
+
+            int slot = slot(next++);
+            times[slot] = time;
+            return slot;
+        }
+
+        void set(int slot, int column, double value) {
+            columns[column][slot] = value;
+        }
+
+        long time(long seq) {
+            return times[slot(seq)];
+        }
+
+        double value(long seq, int column) {
+            return columns[column][slot(seq)];
+        }
+
+        boolean isEmpty() {
+            return next == oldest;
+        }
+
+        void clear() {
+            oldest = next;
+        }
+
+        private int slot(long seq) {
+            return (int)(seq % times.length);
+        }
+
+        private void grow() {
+            long[] newTimes = new long[times.length * 2];
+            double[][] newColumns = new double[columns.length][newTimes.length];
+            for (long seq = oldest; seq < next; seq++) {
+                int from = slot(seq);
+                int to = (int)(seq % newTimes.length);
+                newTimes[to] = times[from];
+                for (int c = 0; c < columns.length; c++)
+                    newColumns[c][to] = columns[c][from];
+            }
+
+            times = newTimes;
+            for (int c = 0; c < columns.length; c++)
+                columns[c] = newColumns[c];
+        }
+    }
+
+    /**
+     * Running sums of the columns of the samples of a ring that are within a trailing window.
+     */
+    private static final class RunningSum {
+        private final long millis;
+        private final double[] sums;
+        private long start = 0;
+        private int count = 0;
+
+        RunningSum(long millis, int numColumns) {
+            this.millis = millis;
+            sums = new double[numColumns];
+        }
+
+        void add(SampleRing ring, long seq) {
+            for (int c = 0; c < sums.length; c++)
+                sums[c] += ring.value(seq, c);
+
+            count++;
+        }
+
+        /**
+         * Remove the samples that are no longer after the start of the window that ends at the specified time.
+         */
+        void expire(SampleRing ring, long time) {
+            while (start < ring.next && ring.time(start) <= time - millis) {
+                for (int c = 0; c < sums.length; c++)
+                    sums[c] -= ring.value(start, c);
+
+                count--;
+                start++;
+            }
+        }
+
+        void clear(SampleRing ring) {
+            start = ring.next;
+            count = 0;
+            for (int c = 0; c < sums.length; c++)
+                sums[c] = 0.0;
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    public RollingWeatherAggregator() {
+    }
+
+    /**
+     * Add a current weather sample. Samples that are older than the latest sample are ignored.
+     *
+     * @param cw The current weather
+     */
+    @Override
+    public synchronized void handleCurrentWeather(CurrentWeather cw) {
+        long time = cw.getTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+        if (time < latestTime)
+            return;
+
+        latestTime = time;
+        addWind(cw, time);
+        addRain(cw, time);
+        addPressure(cw, time);
+    }
+
+    /**
+     * Get the time of the latest sample.
+     *
+     * @return The time or null if no samples have been added
+     */
+    public synchronized LocalDateTime getLatestTime() {
+        if (latestTime == Long.MIN_VALUE)
+            return null;
+
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(latestTime), ZoneOffset.UTC);
+    }
+
+    /**
+     * Get the average wind speed over the last 2 minutes.
+     *
+     * @return The scalar mean of the wind speed or null if there were no wind samples
+     */
+    public synchronized Speed getWindSpeed2MinAvg() {
+        return averageSpeed(wind2Min);
+    }
+
+    /**
+     * Get the average wind direction over the last 2 minutes.
+     *
+     * @return The direction of the vector mean of the wind or null if there were no wind samples or the wind was calm
+     */
+    public synchronized Heading getWindDirection2MinAvg() {
+        return averageDirection(wind2Min);
+    }
+
+    /**
+     * Get the average wind speed over the last 10 minutes.
+     *
+     * @return The scalar mean of the wind speed or null if there were no wind samples
+     */
+    public synchronized Speed getWindSpeed10MinAvg() {
+        return averageSpeed(wind10Min);
+    }
+
+    /**
+     * Get the average wind direction over the last 10 minutes.
+     *
+     * @return The direction of the vector mean of the wind or null if there were no wind samples or the wind was calm
+     */
+    public synchronized Heading getWindDirection10MinAvg() {
+        return averageDirection(wind10Min);
+    }
+
+    /**
+     * Get the speed of the vector mean of the wind over the last 10 minutes.
+     *
+     * @return The speed or null if there were no wind samples
+     */
+    public synchronized Speed getVectorWindSpeed10MinAvg() {
+        if (wind10Min.count == 0)
+            return null;
+
+        return new Speed(Math.hypot(wind10Min.sums[U], wind10Min.sums[V]) / wind10Min.count, Speed.Unit.METERS_PER_SEC);
+    }
+
+    /**
+     * Get the peak gust over the last 10 minutes. The wind speed is used for the packets that do not contain a gust.
+     *
+     * @return The peak gust or null if the samples do not yet cover 10 minutes
+     */
+    public synchronized Speed getGust10Min() {
+        if (!covers(firstGustTime, TEN_MINUTES) || gust10Min.isEmpty())
+            return null;
+
+        return new Speed(gust10Min.getValue(), Speed.Unit.METERS_PER_SEC);
+    }
+
+    /**
+     * Get the direction of the peak gust over the last 10 minutes.
+     *
+     * @return The direction or null if there was no peak gust or its direction is not known
+     */
+    public synchronized Heading getGustDirection10Min() {
+        if (!covers(firstGustTime, TEN_MINUTES))
+            return null;
+
+        double direction = gust10Min.getAuxiliary();
+        if (Double.isNaN(direction))
+            return null;
+
+        return new Heading(direction);
+    }
+
+    /**
+     * Get the rain that fell over the last 15 minutes.
+     *
+     * @return The rain or null if the rain today samples do not yet cover 15 minutes
+     */
+    public synchronized Depth getRain15Minute() {
+        if (!covers(firstRainTime, FIFTEEN_MINUTES))
+            return null;
+
+        return new Depth(rain15Min.sums[RAIN], Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the rain that fell over the last hour.
+     *
+     * @return The rain or null if the rain today samples do not yet cover an hour
+     */
+    public synchronized Depth getRainHour() {
+        if (!covers(firstRainTime, ONE_HOUR))
+            return null;
+
+        return new Depth(rainHour.sums[RAIN], Depth.Unit.MILLIMETERS);
+    }
+
+    /**
+     * Get the change in the barometric pressure over the last 3 hours.
+     *
+     * @return The change or null if the samples do not yet cover 3 hours
+     */
+    public synchronized Pressure getPressureChange3Hour() {
+        double change = pressureChange();
+        if (Double.isNaN(change))
+            return null;
+
+        return new Pressure(change, Pressure.Unit.MILLIBAR);
+    }
+
+    /**
+     * Get the barometer trend using the 3 hour pressure change.
+     *
+     * @return The trend or null if the samples do not yet cover 3 hours
+     */
+    public synchronized WeatherTrend getPressureTrend() {
+        double change = pressureChange();
+        if (Double.isNaN(change))
+            return null;
+
+        if (change >= RAPID_PRESSURE_CHANGE_MB)
+            return WeatherTrend.RISING_RAPIDLY;
+        else if (change >= SLOW_PRESSURE_CHANGE_MB)
+            return WeatherTrend.RISING_SLOWLY;
+        else if (change <= -RAPID_PRESSURE_CHANGE_MB)
+            return WeatherTrend.FALLING_RAPIDLY;
+        else if (change <= -SLOW_PRESSURE_CHANGE_MB)
+            return WeatherTrend.FALLING_SLOWLY;
+        else
+            return WeatherTrend.STEADY;
+    }
+
+    /**
+     * Remove all of the samples.
+     */
+    public synchronized void clear() {
+        windSamples.clear();
+        wind2Min.clear(windSamples);
+        wind10Min.clear(windSamples);
+        gust10Min.clear();
+        rainSamples.clear();
+        rain15Min.clear(rainSamples);
+        rainHour.clear(rainSamples);
+        pressureSamples.clear();
+        latestTime = Long.MIN_VALUE;
+        firstGustTime = Long.MIN_VALUE;
+        firstRainTime = Long.MIN_VALUE;
+        lastRainToday = Double.NaN;
+        lastRainDate = null;
+    }
+
+    private void addWind(CurrentWeather cw, long time) {
+        double speed = CurrentWeatherField.WIND_SPEED.getValue(cw);
+        double direction = CurrentWeatherField.WIND_DIRECTION.getValue(cw);
+
+        //
+        // A calm wind does not need a direction as it does not contribute to the vector
+        //
+        if (!Double.isNaN(speed) && (!Double.isNaN(direction) || speed == 0.0)) {
+            double radians = Double.isNaN(direction) ? 0.0 : Math.toRadians(direction);
+            int slot = windSamples.add(time);
+            windSamples.set(slot, U, -speed * Math.sin(radians));
+            windSamples.set(slot, V, -speed * Math.cos(radians));
+            windSamples.set(slot, SPEED, speed);
+            wind2Min.add(windSamples, windSamples.next - 1);
+            wind10Min.add(windSamples, windSamples.next - 1);
+        }
+
+        wind2Min.expire(windSamples, time);
+        wind10Min.expire(windSamples, time);
+        windSamples.oldest = wind10Min.start;
+
+        double gust = CurrentWeatherField.GUST_SPEED.getValue(cw);
+        double gustDirection = CurrentWeatherField.GUST_DIRECTION.getValue(cw);
+        if (Double.isNaN(gust)) {
+            gust = speed;
+            gustDirection = direction;
+        }
+
+        if (!Double.isNaN(gust) && firstGustTime == Long.MIN_VALUE)
+            firstGustTime = time;
+
+        gust10Min.add(time, gust, gustDirection);
+        gust10Min.expire(time - TEN_MINUTES + 1);
+    }
+
+    private void addRain(CurrentWeather cw, long time) {
+        double rainToday = CurrentWeatherField.RAIN_TODAY.getValue(cw);
+        if (!Double.isNaN(rainToday)) {
+            LocalDate date = cw.getTime().toLocalDate();
+            double rain;
+            //
+            // The first sample is the base from which the rain is measured
+            //
+            if (Double.isNaN(lastRainToday)) {
+                rain = 0.0;
+                firstRainTime = time;
+            }
+            //
+            // The rain today is reset at midnight, in which case all of the rain today fell since the last sample
+            //
+            else if (!date.equals(lastRainDate) || rainToday < lastRainToday)
+                rain = rainToday;
+            else
+                rain = rainToday - lastRainToday;
+
+            lastRainToday = rainToday;
+            lastRainDate = date;
+
+            if (rain > 0.0) {
+                int slot = rainSamples.add(time);
+                rainSamples.set(slot, RAIN, rain);
+                rain15Min.add(rainSamples, rainSamples.next - 1);
+                rainHour.add(rainSamples, rainSamples.next - 1);
+            }
+        }
+
+        rain15Min.expire(rainSamples, time);
+        rainHour.expire(rainSamples, time);
+        rainSamples.oldest = rainHour.start;
+    }
+
+    private void addPressure(CurrentWeather cw, long time) {
+        double pressure = CurrentWeatherField.BAROMETRIC_PRESSURE.getValue(cw);
+        if (!Double.isNaN(pressure)) {
+            int slot = pressureSamples.add(time);
+            pressureSamples.set(slot, PRESSURE, pressure);
+        }
+
+        //
+        // Keep the newest sample that is at least 3 hours old as the base of the tendency
+        //
+        long start = time - THREE_HOURS;
+        while (pressureSamples.next - pressureSamples.oldest > 1 && pressureSamples.time(pressureSamples.oldest + 1) <= start)
+            pressureSamples.oldest++;
+    }
+
+    /**
+     * Whether the samples since the first sample of a value cover the window that ends with the latest sample.
+     */
+    private boolean covers(long firstTime, long window) {
+        return firstTime != Long.MIN_VALUE && firstTime <= latestTime - window;
+    }
+
+    private double pressureChange() {
+        if (pressureSamples.isEmpty() || pressureSamples.time(pressureSamples.oldest) > latestTime - THREE_HOURS)
+            return Double.NaN;
+
+        return pressureSamples.value(pressureSamples.next - 1, PRESSURE) - pressureSamples.value(pressureSamples.oldest, PRESSURE);
+    }
+
+    private static Speed averageSpeed(RunningSum sum) {
+        if (sum.count == 0)
+            return null;
+
+        return new Speed(sum.sums[SPEED] / sum.count, Speed.Unit.METERS_PER_SEC);
+    }
+
+    private static Heading averageDirection(RunningSum sum) {
+        if (sum.count == 0 || Math.hypot(sum.sums[U], sum.sums[V]) / sum.count < CALM_VECTOR)
+            return null;
+
+        //
+        // The vector points the way the wind is blowing, the direction is where it comes from
+        //
+        double degrees = Math.toDegrees(Math.atan2(-sum.sums[U], -sum.sums[V]));
+        if (degrees < 0.0)
+            degrees += 360.0;
+
+        return new Heading(degrees);
+    }
+}
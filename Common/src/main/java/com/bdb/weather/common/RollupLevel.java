@@ -0,0 +1,68 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * The levels of the rollup pyramid, from the finest to the coarsest. Weeks start on Monday.
+ */
+public enum RollupLevel {
+    FIVE_MINUTE(300L),
+    HOUR(3600L),
+    DAY(86400L),
+    WEEK(7L * 86400L),
+    MONTH(0L);
+
+    private final long bucketSeconds;
+
+    RollupLevel(long bucketSeconds) {
+        this.bucketSeconds = bucketSeconds;
+    }
+
+    /**
+     * Get the start of the bucket that contains a time.
+     *
+     * @param time The time in seconds, using the local time as if it were UTC
+     * @return The start of the bucket in seconds
+     */
+    public long bucketStart(long time) {
+        switch (this) {
+            case WEEK:
+                LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(time, 86400L));
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toEpochDay() * 86400L;
+            case MONTH:
+                return LocalDate.ofEpochDay(Math.floorDiv(time, 86400L)).withDayOfMonth(1).toEpochDay() * 86400L;
+            default:
+                return Math.floorDiv(time, bucketSeconds) * bucketSeconds;
+        }
+    }
+
+    /**
+     * Get the start of the bucket that contains a time.
+     *
+     * @param time The time
+     * @return The start of the bucket
+     */
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        return LocalDateTime.ofEpochSecond(bucketStart(time.toEpochSecond(ZoneOffset.UTC)), 0, ZoneOffset.UTC);
+    }
+}
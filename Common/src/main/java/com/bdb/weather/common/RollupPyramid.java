@@ -0,0 +1,321 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Multi-resolution rollup of archive records for charting long ranges. For each level of the pyramid (5 minute, hourly,
+ * daily, weekly and monthly) and each field the minimum, maximum, sum and count of the values are kept in primitive
+ * columns, one entry per bucket. The levels are updated incrementally as each archive record is applied.
+ * <br>
+ * A query picks the finest level whose number of buckets in the range fits the requested point budget, so the work of
+ * a query is bounded by the budget rather than the length of the range. The mean of the buckets can also be downsampled
+ * with LTTB from a finer level, which keeps more of the shape of the series.
+ * <br>
+ * An archive record is placed in the buckets that contain the middle of its interval, so the record that ends at
+ * midnight belongs to the day that is ending. Each archive record must only be applied once.
+ */
+public class RollupPyramid {
+    private static final RollupLevel[] LEVELS = RollupLevel.values();
+    private static final int INITIAL_CAPACITY = 64;
+    //
+    // The number of finer buckets per point that LTTB examines
+    //
+    private static final int LTTB_SOURCE_FACTOR = 8;
+
+    private final ArchiveField[] fields;
+    private final int[] columnIndex = new int[ArchiveField.values().length];
+    private final Level[] levels = new Level[LEVELS.length];
+
+    /**
+     * The buckets of one level in time order.
+     */
+    private static final class Level {
+        private final RollupLevel level;
+        private long[] starts = new long[INITIAL_CAPACITY];
+        private final float[][] minimums;
+        private final float[][] maximums;
+        private final double[][] sums;
+        private final int[][] counts;
+        private int size = 0;
+
+        Level(RollupLevel level, int numColumns) {
+            this.level = level;
+            minimums = new float[numColumns][INITIAL_CAPACITY];
+            maximums = new float[numColumns][INITIAL_CAPACITY];
+            sums = new double[numColumns][INITIAL_CAPACITY];
+            counts = new int[numColumns][INITIAL_CAPACITY];
+        }
+
+        /**
+         * Find the bucket with the specified start, adding it if it does not exist. Records normally arrive in time order
+         * so the bucket is usually the last one or is appended.
+         */
+        int bucket(long start) {
+            if (size > 0 && starts[size - 1] == start)
+                return size - 1;
+
+            int index;
+            if (size == 0 || start > starts[size - 1])
+                index = size;
+            else {
+                index = Arrays.binarySearch(starts, 0, size, start);
+                if (index >= 0)
+                    return index;
+
+                index = -index - 1;
+            }
+
+            if (size == starts.length)
+                grow();
+
+            if (index < size) {
+                System.arraycopy(starts, index, starts, index + 1, size - index);
+                for (int c = 0; c < counts.length; c++) {
+                    System.arraycopy(minimums[c], index, minimums[c], index + 1, size - index);
+                    System.arraycopy(maximums[c], index, maximums[c], index + 1, size - index);
+                    System.arraycopy(sums[c], index, sums[c], index + 1, size - index);
+                    System.arraycopy(counts[c], index, counts[c], index + 1, size - index);
+                }
+            }
+
+            starts[index] = start;
+            for (int c = 0; c < counts.length; c++) {
+                minimums[c][index] = Float.NaN;
+                maximums[c][index] = Float.NaN;
+                sums[c][index] = 0.0;
+                counts[c][index] = 0;
+            }
+
+            size++;
+            return index;
+        }
+
+        void apply(int bucket, int column, double value) {
+            float v = (float)value;
+            if (counts[column][bucket] == 0 || v < minimums[column][bucket])
+                minimums[column][bucket] = v;
+
+            if (counts[column][bucket] == 0 || v > maximums[column][bucket])
+                maximums[column][bucket] = v;
+
+            sums[column][bucket] += value;
+            counts[column][bucket]++;
+        }
+
+        /**
+         * Find the first bucket that starts at or after a time.
+         */
+        int lowerBound(long time) {
+            int index = Arrays.binarySearch(starts, 0, size, time);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private void grow() {
+            int capacity = starts.length * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            for (int c = 0; c < counts.length; c++) {
+                minimums[c] = Arrays.copyOf(minimums[c], capacity);
+                maximums[c] = Arrays.copyOf(maximums[c], capacity);
+                sums[c] = Arrays.copyOf(sums[c], capacity);
+                counts[c] = Arrays.copyOf(counts[c], capacity);
+            }
+        }
+    }
+
+    /**
+     * Constructor that maintains all of the archive fields.
+     */
+    public RollupPyramid() {
+        this(EnumSet.allOf(ArchiveField.class));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param fields The archive fields to maintain
+     */
+    public RollupPyramid(Set<ArchiveField> fields) {
+        this.fields = fields.toArray(new ArchiveField[0]);
+        Arrays.fill(columnIndex, -1);
+        for (int c = 0; c < this.fields.length; c++)
+            columnIndex[this.fields[c].ordinal()] = c;
+
+        for (RollupLevel level : LEVELS)
+            levels[level.ordinal()] = new Level(level, this.fields.length);
+    }
+
+    /**
+     * Apply an archive record to every level.
+     *
+     * @param rec The archive record
+     */
+    public synchronized void applyHistoricalRecord(HistoricalRecord rec) {
+        long time = rec.getTime().toEpochSecond(ZoneOffset.UTC) - rec.getDuration().getSeconds() / 2;
+        for (Level level : levels) {
+            int bucket = level.bucket(level.level.bucketStart(time));
+            for (int c = 0; c < fields.length; c++) {
+                double value = fields[c].getValue(rec);
+                if (!Double.isNaN(value))
+                    level.apply(bucket, c, value);
+            }
+        }
+    }
+
+    /**
+     * Apply a collection of archive records.
+     *
+     * @param records The archive records
+     */
+    public synchronized void applyHistoricalRecords(Collection<HistoricalRecord> records) {
+        for (HistoricalRecord rec : records)
+            applyHistoricalRecord(rec);
+    }
+
+    /**
+     * Get the number of buckets of a level in a time range.
+     *
+     * @param level The level
+     * @param start The start of the range
+     * @param end The end of the range, exclusive
+     * @return The number of buckets
+     */
+    public synchronized int getBucketCount(RollupLevel level, LocalDateTime start, LocalDateTime end) {
+        Level l = levels[level.ordinal()];
+        return rangeEnd(l, end) - rangeStart(l, start);
+    }
+
+    /**
+     * Query a field at the finest level that has no more buckets in the range than the point budget. If even the monthly
+     * level has more buckets, the monthly level is used.
+     *
+     * @param field The field
+     * @param start The start of the range
+     * @param end The end of the range, exclusive
+     * @param maxPoints The point budget
+     * @return The series
+     */
+    public synchronized RollupSeries query(ArchiveField field, LocalDateTime start, LocalDateTime end, int maxPoints) {
+        Level level = selectLevel(start, end, maxPoints);
+        return extract(field, level, rangeStart(level, start), rangeEnd(level, end), null);
+    }
+
+    /**
+     * Query a field at a specific level.
+     *
+     * @param field The field
+     * @param level The level
+     * @param start The start of the range
+     * @param end The end of the range, exclusive
+     * @return The series
+     */
+    public synchronized RollupSeries query(ArchiveField field, RollupLevel level, LocalDateTime start, LocalDateTime end) {
+        Level l = levels[level.ordinal()];
+        return extract(field, l, rangeStart(l, start), rangeEnd(l, end), null);
+    }
+
+    /**
+     * Query a field and downsample the means with LTTB. The source of the downsampling is the finest level that has no
+     * more than a small multiple of the point budget in the range, so the cost remains bounded by the budget.
+     *
+     * @param field The field
+     * @param start The start of the range
+     * @param end The end of the range, exclusive
+     * @param maxPoints The point budget, at least 3
+     * @return The series
+     */
+    public synchronized RollupSeries queryDownsampled(ArchiveField field, LocalDateTime start, LocalDateTime end, int maxPoints) {
+        Level level = selectLevel(start, end, maxPoints * LTTB_SOURCE_FACTOR);
+        RollupSeries series = extract(field, level, rangeStart(level, start), rangeEnd(level, end), null);
+        if (series.size() <= maxPoints)
+            return series;
+
+        long[] times = new long[series.size()];
+        double[] means = new double[series.size()];
+        for (int i = 0; i < series.size(); i++) {
+            times[i] = series.getEpochSecond(i);
+            means[i] = series.getMean(i);
+        }
+
+        int[] selected = LttbDownsampler.select(times, means, times.length, maxPoints);
+        return extract(field, level, rangeStart(level, start), rangeEnd(level, end), selected);
+    }
+
+    private Level selectLevel(LocalDateTime start, LocalDateTime end, int maxPoints) {
+        for (Level level : levels)
+            if (rangeEnd(level, end) - rangeStart(level, start) <= maxPoints)
+                return level;
+
+        return levels[levels.length - 1];
+    }
+
+    /**
+     * The first bucket of the range is the one that contains the start of the range.
+     */
+    private int rangeStart(Level level, LocalDateTime start) {
+        return level.lowerBound(level.level.bucketStart(start.toEpochSecond(ZoneOffset.UTC)));
+    }
+
+    private int rangeEnd(Level level, LocalDateTime end) {
+        return level.lowerBound(end.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Extract the buckets of a range that have values for the field. If the selection is not null, only the selected
+     * buckets are extracted, the selection being indexes into the buckets that have values.
+     */
+    private RollupSeries extract(ArchiveField field, Level level, int from, int to, int[] selection) {
+        int c = columnIndex[field.ordinal()];
+        if (c < 0)
+            throw new IllegalArgumentException("Archive field is not maintained by the rollup pyramid: " + field);
+
+        int capacity = selection != null ? selection.length : Math.max(to - from, 0);
+        long[] times = new long[capacity];
+        double[] minimums = new double[capacity];
+        double[] maximums = new double[capacity];
+        double[] means = new double[capacity];
+        double[] sums = new double[capacity];
+        int n = 0;
+        int valueIndex = 0;
+        int next = 0;
+        for (int bucket = from; bucket < to && n < capacity; bucket++) {
+            int count = level.counts[c][bucket];
+            if (count == 0)
+                continue;
+
+            if (selection == null || selection[next] == valueIndex) {
+                times[n] = level.starts[bucket];
+                minimums[n] = level.minimums[c][bucket];
+                maximums[n] = level.maximums[c][bucket];
+                sums[n] = level.sums[c][bucket];
+                means[n] = level.sums[c][bucket] / count;
+                n++;
+                next++;
+            }
+
+            valueIndex++;
+        }
+
+        return new RollupSeries(field, level.level, selection != null, n, times, minimums, maximums, means, sums);
+    }
+}
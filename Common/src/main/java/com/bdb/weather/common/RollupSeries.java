@@ -0,0 +1,147 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * A series of buckets of a field returned by a query of the {@link RollupPyramid}.
+ */
+public final class RollupSeries {
+    private final ArchiveField field;
+    private final RollupLevel level;
+    private final boolean downsampled;
+    private final int size;
+    private final long[] times;
+    private final double[] minimums;
+    private final double[] maximums;
+    private final double[] means;
+    private final double[] sums;
+
+    /**
+     * Constructor. The arrays are owned by the series.
+     */
+    RollupSeries(ArchiveField field, RollupLevel level, boolean downsampled, int size, long[] times, double[] minimums,
+                 double[] maximums, double[] means, double[] sums) {
+        this.field = field;
+        this.level = level;
+        this.downsampled = downsampled;
+        this.size = size;
+        this.times = times;
+        this.minimums = minimums;
+        this.maximums = maximums;
+        this.means = means;
+        this.sums = sums;
+    }
+
+    /**
+     * Get the field of the series.
+     *
+     * @return The field
+     */
+    public ArchiveField getField() {
+        return field;
+    }
+
+    /**
+     * Get the level of the buckets.
+     *
+     * @return The level
+     */
+    public RollupLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Whether the buckets were selected by LTTB downsampling, in which case they are not evenly spaced.
+     *
+     * @return True if the series was downsampled
+     */
+    public boolean isDownsampled() {
+        return downsampled;
+    }
+
+    /**
+     * Get the number of buckets in the series. Buckets without a value for the field are not included.
+     *
+     * @return The number of buckets
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the start time of a bucket.
+     *
+     * @param index The index of the bucket
+     * @return The start time
+     */
+    public LocalDateTime getTime(int index) {
+        return LocalDateTime.ofEpochSecond(times[index], 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Get the start time of a bucket in seconds, using the local time as if it were UTC.
+     *
+     * @param index The index of the bucket
+     * @return The start time in seconds
+     */
+    public long getEpochSecond(int index) {
+        return times[index];
+    }
+
+    /**
+     * Get the minimum of a bucket.
+     *
+     * @param index The index of the bucket
+     * @return The minimum
+     */
+    public double getMinimum(int index) {
+        return minimums[index];
+    }
+
+    /**
+     * Get the maximum of a bucket.
+     *
+     * @param index The index of the bucket
+     * @return The maximum
+     */
+    public double getMaximum(int index) {
+        return maximums[index];
+    }
+
+    /**
+     * Get the mean of a bucket.
+     *
+     * @param index The index of the bucket
+     * @return The mean
+     */
+    public double getMean(int index) {
+        return means[index];
+    }
+
+    /**
+     * Get the sum of a bucket.
+     *
+     * @param index The index of the bucket
+     * @return The sum
+     */
+    public double getSum(int index) {
+        return sums[index];
+    }
+}
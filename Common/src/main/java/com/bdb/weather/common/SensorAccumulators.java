@@ -0,0 +1,359 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bdb.util.measurement.Measurement;
+import com.bdb.util.measurement.MeasurementStatistics;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.LeafWetness;
+import com.bdb.weather.common.measurement.SoilMoisture;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * The statistics of the extra sensors of a summary, kept in primitive columns with one slot per sensor. A table from
+ * sensor ID to slot replaces the map lookup, so applying a value is a few array accesses. The columns are converted to
+ * {@link MeasurementStatisticsEntry} objects only when the statistics are read, and merging the statistics of another
+ * summary is a pass over its slots.
+ * <br>
+ * The values are in the storage unit of the measurement and the times are in seconds, using the local time as if it
+ * were UTC. The average is weighted by the duration of the values, or is the plain mean if none of the values have a
+ * duration. The averages are kept as running means rather than sums, so statistics that are read back from the
+ * database have exactly the average that was saved. A missing minimum or maximum is NaN and a missing average has a
+ * count of zero, so statistics without them are kept as they were read.
+ */
+final class SensorAccumulators {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private int[] slotById = new int[0];
+    private int[] sensorIds = new int[INITIAL_CAPACITY];
+    private SensorType[] sensorTypes = new SensorType[INITIAL_CAPACITY];
+    private double[] minimums = new double[INITIAL_CAPACITY];
+    private long[] minimumTimes = new long[INITIAL_CAPACITY];
+    private double[] maximums = new double[INITIAL_CAPACITY];
+    private long[] maximumTimes = new long[INITIAL_CAPACITY];
+    private double[] weightedMeans = new double[INITIAL_CAPACITY];
+    private long[] durations = new long[INITIAL_CAPACITY];
+    private double[] means = new double[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Get the number of sensors.
+     *
+     * @return The number of sensors
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Apply a value of a sensor.
+     *
+     * @param type The sensor type
+     * @param sensorId The sensor ID
+     * @param value The value in the storage unit
+     * @param time The time of the value
+     * @param duration The duration of the value
+     */
+    void applyValue(SensorType type, int sensorId, double value, LocalDateTime time, Duration duration) {
+        int slot = slot(type, sensorId);
+        long t = toSeconds(time);
+        if (isLower(value, minimums[slot])) {
+            minimums[slot] = value;
+            minimumTimes[slot] = t;
+        }
+
+        if (isHigher(value, maximums[slot])) {
+            maximums[slot] = value;
+            maximumTimes[slot] = t;
+        }
+
+        addToAverage(slot, value, 1, duration.getSeconds());
+    }
+
+    /**
+     * Replace the statistics of a sensor, such as statistics that were read from the database.
+     *
+     * @param entry The statistics of the sensor
+     */
+    void setStatistics(MeasurementStatisticsEntry<? extends Measurement> entry) {
+        int slot = slot(entry.getSensorType(), entry.getSensorId());
+        clear(slot);
+
+        MeasurementStatistics<? extends Measurement> stats = entry.getStats();
+        SensorType type = entry.getSensorType();
+        if (stats.getMinimumValue() != null) {
+            minimums[slot] = toValue(type, stats.getMinimumValue());
+            minimumTimes[slot] = toSeconds(stats.getMinimumTime());
+        }
+
+        if (stats.getMaximumValue() != null) {
+            maximums[slot] = toValue(type, stats.getMaximumValue());
+            maximumTimes[slot] = toSeconds(stats.getMaximumTime());
+        }
+
+        if (stats.getAverage() != null) {
+            Duration duration = stats.getAverageDuration();
+            addToAverage(slot, toValue(type, stats.getAverage()), 1, duration == null ? 0 : duration.getSeconds());
+        }
+    }
+
+    /**
+     * Merge the statistics of another set of accumulators into this one.
+     *
+     * @param other The other accumulators
+     */
+    void applyAccumulators(SensorAccumulators other) {
+        for (int o = 0; o < other.size; o++) {
+            int slot = slot(other.sensorTypes[o], other.sensorIds[o]);
+            if (isLower(other.minimums[o], minimums[slot])) {
+                minimums[slot] = other.minimums[o];
+                minimumTimes[slot] = other.minimumTimes[o];
+            }
+
+            if (isHigher(other.maximums[o], maximums[slot])) {
+                maximums[slot] = other.maximums[o];
+                maximumTimes[slot] = other.maximumTimes[o];
+            }
+
+            if (other.counts[o] > 0) {
+                int count = counts[slot] + other.counts[o];
+                means[slot] += (other.means[o] - means[slot]) * other.counts[o] / count;
+                counts[slot] = count;
+                if (other.durations[o] > 0) {
+                    long seconds = durations[slot] + other.durations[o];
+                    weightedMeans[slot] += (other.weightedMeans[o] - weightedMeans[slot]) * other.durations[o] / seconds;
+                    durations[slot] = seconds;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a value to the running means of a slot.
+     */
+    private void addToAverage(int slot, double value, int count, long seconds) {
+        counts[slot] += count;
+        means[slot] += (value - means[slot]) * count / counts[slot];
+        if (seconds > 0) {
+            durations[slot] += seconds;
+            weightedMeans[slot] += (value - weightedMeans[slot]) * seconds / durations[slot];
+        }
+    }
+
+    /**
+     * Get the average of a slot.
+     *
+     * @return The average or NaN if the slot does not have an average
+     */
+    private double average(int slot) {
+        if (counts[slot] == 0)
+            return Double.NaN;
+
+        return durations[slot] > 0 ? weightedMeans[slot] : means[slot];
+    }
+
+    private static boolean isLower(double value, double minimum) {
+        return value < minimum || (Double.isNaN(minimum) && !Double.isNaN(value));
+    }
+
+    private static boolean isHigher(double value, double maximum) {
+        return value > maximum || (Double.isNaN(maximum) && !Double.isNaN(value));
+    }
+
+    private static long toSeconds(LocalDateTime time) {
+        return time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toTime(long seconds) {
+        return seconds == NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Convert the accumulators to statistics entries.
+     *
+     * @param date The date of the entries
+     * @return The entries in order of sensor ID
+     */
+    List<MeasurementStatisticsEntry<? extends Measurement>> toEntries(LocalDate date) {
+        List<MeasurementStatisticsEntry<? extends Measurement>> entries = new ArrayList<>(size);
+        for (int id = 0; id < slotById.length; id++) {
+            int slot = slotById[id];
+            if (slot >= 0)
+                entries.add(toEntry(date, slot, sensorTypes[slot]));
+        }
+
+        return entries;
+    }
+
+    private <M extends Measurement> MeasurementStatisticsEntry<M> toEntry(LocalDate date, int slot, SensorType type) {
+        M zero = toMeasurement(type, 0.0);
+        MeasurementStatistics<M> stats = new MeasurementStatistics<>(zero);
+        if (!Double.isNaN(minimums[slot]))
+            stats.setMinimum(toMeasurement(type, minimums[slot]), toTime(minimumTimes[slot]));
+
+        if (!Double.isNaN(maximums[slot]))
+            stats.setMaximum(toMeasurement(type, maximums[slot]), toTime(maximumTimes[slot]));
+
+        if (counts[slot] > 0)
+            stats.setAverage(toMeasurement(type, average(slot)), Duration.ofSeconds(durations[slot]));
+
+        return new MeasurementStatisticsEntry<>(date, sensorIds[slot], type, stats);
+    }
+
+    /**
+     * Get the value of a measurement of a sensor type in the storage unit.
+     */
+    private static double toValue(SensorType type, Measurement m) {
+        switch (type) {
+            case HYGROMETER:
+                return m.get(Humidity.Unit.RELATIVE_HUMIDITY);
+            case LEAF_WETNESS:
+                return m.get(LeafWetness.Unit.WETNESS);
+            case SOIL_MOISTURE:
+                return m.get(SoilMoisture.Unit.CENTIBAR);
+            default:
+                return m.get(Temperature.Unit.CELSIUS);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <M extends Measurement> M toMeasurement(SensorType type, double value) {
+        switch (type) {
+            case HYGROMETER:
+                return (M)new Humidity(value);
+            case LEAF_WETNESS:
+                return (M)new LeafWetness(value);
+            case SOIL_MOISTURE:
+                return (M)new SoilMoisture(value, SoilMoisture.Unit.CENTIBAR);
+            default:
+                return (M)new Temperature(value, Temperature.Unit.CELSIUS);
+        }
+    }
+
+    /**
+     * Find the slot of a sensor, adding it if it does not exist.
+     */
+    private int slot(SensorType type, int sensorId) {
+        if (sensorId < 0)
+            throw new IllegalArgumentException("Invalid sensor ID: " + sensorId);
+
+        if (sensorId < slotById.length && slotById[sensorId] >= 0)
+            return slotById[sensorId];
+
+        if (sensorId >= slotById.length) {
+            int length = slotById.length;
+            slotById = Arrays.copyOf(slotById, sensorId + 1);
+            Arrays.fill(slotById, length, slotById.length, -1);
+        }
+
+        if (size == sensorIds.length)
+            grow();
+
+        int slot = size++;
+        slotById[sensorId] = slot;
+        sensorIds[slot] = sensorId;
+        sensorTypes[slot] = type;
+        clear(slot);
+        return slot;
+    }
+
+    private void clear(int slot) {
+        minimums[slot] = Double.NaN;
+        minimumTimes[slot] = NO_TIME;
+        maximums[slot] = Double.NaN;
+        maximumTimes[slot] = NO_TIME;
+        weightedMeans[slot] = 0.0;
+        durations[slot] = 0;
+        means[slot] = 0.0;
+        counts[slot] = 0;
+    }
+
+    private void grow() {
+        int capacity = sensorIds.length * 2;
+        sensorIds = Arrays.copyOf(sensorIds, capacity);
+        sensorTypes = Arrays.copyOf(sensorTypes, capacity);
+        minimums = Arrays.copyOf(minimums, capacity);
+        minimumTimes = Arrays.copyOf(minimumTimes, capacity);
+        maximums = Arrays.copyOf(maximums, capacity);
+        maximumTimes = Arrays.copyOf(maximumTimes, capacity);
+        weightedMeans = Arrays.copyOf(weightedMeans, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        means = Arrays.copyOf(means, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        for (int id = 0; id < slotById.length; id++) {
+            int slot = slotById[id];
+            if (slot < 0)
+                continue;
+
+            hash = 31 * hash + id;
+            hash = 31 * hash + Double.hashCode(minimums[slot]);
+            hash = 31 * hash + Double.hashCode(maximums[slot]);
+            hash = 31 * hash + Double.hashCode(average(slot));
+            hash = 31 * hash + Long.hashCode(durations[slot]);
+        }
+
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null)
+            return false;
+
+        if (getClass() != obj.getClass())
+            return false;
+
+        //
+        // Only the statistics that are derived from the accumulators are compared, as the statistics read from the
+        // database do not have the number of values that were accumulated
+        //
+        final SensorAccumulators other = (SensorAccumulators)obj;
+        int length = Math.max(slotById.length, other.slotById.length);
+        for (int id = 0; id < length; id++) {
+            int slot = id < slotById.length ? slotById[id] : -1;
+            int otherSlot = id < other.slotById.length ? other.slotById[id] : -1;
+            if ((slot >= 0) != (otherSlot >= 0))
+                return false;
+
+            if (slot < 0)
+                continue;
+
+            if (sensorTypes[slot] != other.sensorTypes[otherSlot] ||
+                Double.compare(minimums[slot], other.minimums[otherSlot]) != 0 || minimumTimes[slot] != other.minimumTimes[otherSlot] ||
+                Double.compare(maximums[slot], other.maximums[otherSlot]) != 0 || maximumTimes[slot] != other.maximumTimes[otherSlot] ||
+                Double.compare(average(slot), other.average(otherSlot)) != 0 || durations[slot] != other.durations[otherSlot])
+                return false;
+        }
+
+        return true;
+    }
+}
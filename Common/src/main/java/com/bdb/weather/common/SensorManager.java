@@ -17,27 +17,101 @@
 package com.bdb.weather.common;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
+ * Registry of the sensors attached to the weather station. The sensors are published as immutable snapshots that are
+ * replaced when a sensor is added or removed, so lookups are lock free, do not allocate and always see a consistent
+ * set of sensors while another thread updates the registry. Each snapshot has the sensors of each type indexed for the
+ * standard sensors, the extra sensors and both, and a table from sensor ID to the slot of the sensor.
  *
  * @author Bruce
  */
 public class SensorManager {
-    private final Map<Integer,Sensor> sensors;
+    /**
+     * Interface for classes to implement to be notified of changes to the sensors.
+     */
+    public interface SensorListener {
+        /**
+         * A sensor was added or replaced.
+         *
+         * @param sensor The sensor
+         */
+        void sensorAdded(Sensor sensor);
+
+        /**
+         * A sensor was removed.
+         *
+         * @param sensor The sensor
+         */
+        void sensorRemoved(Sensor sensor);
+    }
+
+    /**
+     * The immutable set of sensors.
+     */
+    private static final class Snapshot {
+        private final List<Sensor> sensors;
+        private final int[] slots;
+        private final Map<SensorType,List<Sensor>> standardSensors = new EnumMap<>(SensorType.class);
+        private final Map<SensorType,List<Sensor>> extraSensors = new EnumMap<>(SensorType.class);
+        private final Map<SensorType,List<Sensor>> allSensors = new EnumMap<>(SensorType.class);
+
+        Snapshot(Collection<Sensor> sortedSensors) {
+            sensors = Collections.unmodifiableList(new ArrayList<>(sortedSensors));
+            int maxId = sensors.isEmpty() ? -1 : sensors.get(sensors.size() - 1).getSensorId();
+            slots = new int[maxId + 1];
+            Arrays.fill(slots, -1);
+            for (int i = 0; i < sensors.size(); i++)
+                slots[sensors.get(i).getSensorId()] = i;
+
+            for (SensorType type : SensorType.values()) {
+                List<Sensor> standard = new ArrayList<>();
+                List<Sensor> extra = new ArrayList<>();
+                List<Sensor> all = new ArrayList<>();
+                for (Sensor sensor : sensors) {
+                    if (sensor.getType() != type)
+                        continue;
+
+                    if (sensor.getSensorId() <= Sensor.LAST_STANDARD_SENSOR_ID)
+                        standard.add(sensor);
+                    else
+                        extra.add(sensor);
+
+                    all.add(sensor);
+                }
+
+                standardSensors.put(type, Collections.unmodifiableList(standard));
+                extraSensors.put(type, Collections.unmodifiableList(extra));
+                allSensors.put(type, Collections.unmodifiableList(all));
+            }
+        }
+
+        int slot(int sensorId) {
+            return sensorId >= 0 && sensorId < slots.length ? slots[sensorId] : -1;
+        }
+    }
+
     private static final SensorManager instance;
+    private final Map<Integer,Sensor> sensors;
+    private volatile Snapshot snapshot;
+    private final List<SensorListener> listeners = new CopyOnWriteArrayList<>();
 
     static {
         instance = new SensorManager();
     }
 
     /**
+     * Get the singleton instance.
      *
-     * @return
+     * @return The sensor manager
      */
     public static SensorManager getInstance() {
         return instance;
@@ -45,82 +119,168 @@ public class SensorManager {
 
     private SensorManager() {
         sensors = new TreeMap<>();
+        snapshot = new Snapshot(sensors.values());
     }
 
     /**
+     * Add a listener that is notified after the sensors change.
      *
-     * @param sensor
+     * @param listener The listener
+     */
+    public void addSensorListener(SensorListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener The listener
+     */
+    public void removeSensorListener(SensorListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Add a sensor, replacing any sensor with the same ID.
+     *
+     * @param sensor The sensor
      */
     public void addSensor(Sensor sensor) {
-        sensors.put(sensor.getSensorId(), sensor);
+        addSensors(Collections.singletonList(sensor));
     }
 
     /**
+     * Add a group of sensors with a single update of the registry.
      *
-     * @return
+     * @param newSensors The sensors
      */
-    public Collection<Sensor> getAllSensors() {
-        return Collections.unmodifiableCollection(sensors.values());
+    public void addSensors(Collection<Sensor> newSensors) {
+        for (Sensor sensor : newSensors)
+            if (sensor.getSensorId() < 0)
+                throw new IllegalArgumentException("Invalid sensor ID: " + sensor.getSensorId());
+
+        synchronized (this) {
+            for (Sensor sensor : newSensors)
+                sensors.put(sensor.getSensorId(), sensor);
+
+            snapshot = new Snapshot(sensors.values());
+        }
+
+        for (Sensor sensor : newSensors)
+            for (SensorListener listener : listeners)
+                listener.sensorAdded(sensor);
     }
 
     /**
+     * Remove a sensor.
      *
-     * @param type
-     * @param includeStandard
-     * @param includeExtra
-     * @return
+     * @param sensorId The ID of the sensor
+     * @return The sensor that was removed or null if there is no sensor with the ID
      */
-    public List<Sensor> getSensors(SensorType type, boolean includeStandard, boolean includeExtra) {
-        List<Sensor> list = new ArrayList<>();
-        for (Sensor sensor : sensors.values()) {
-            if (sensor.getType() != type)
-                continue;
-
-            if (includeStandard && sensor.getSensorId() > Sensor.LAST_STANDARD_SENSOR_ID)
-                continue;
-
-            if (includeExtra && sensor.getSensorId() <= Sensor.LAST_STANDARD_SENSOR_ID)
-                continue;
-            
-            list.add(sensor);
+    public Sensor removeSensor(int sensorId) {
+        Sensor sensor;
+        synchronized (this) {
+            sensor = sensors.remove(sensorId);
+            if (sensor == null)
+                return null;
+
+            snapshot = new Snapshot(sensors.values());
         }
 
-        return list;
+        for (SensorListener listener : listeners)
+            listener.sensorRemoved(sensor);
+
+        return sensor;
     }
 
     /**
+     * Get all of the sensors.
      *
-     * @param type
-     * @return
+     * @return The sensors in order of their IDs
+     */
+    public Collection<Sensor> getAllSensors() {
+        return snapshot.sensors;
+    }
+
+    /**
+     * Get the sensors of a type.
+     *
+     * @param type The sensor type
+     * @param includeStandard Whether to include the standard sensors
+     * @param includeExtra Whether to include the extra sensors
+     * @return The sensors in order of their IDs
+     */
+    public List<Sensor> getSensors(SensorType type, boolean includeStandard, boolean includeExtra) {
+        Snapshot s = snapshot;
+        if (includeStandard && includeExtra)
+            return s.allSensors.get(type);
+        else if (includeStandard)
+            return s.standardSensors.get(type);
+        else if (includeExtra)
+            return s.extraSensors.get(type);
+        else
+            return Collections.emptyList();
+    }
+
+    /**
+     * Get the extra sensors of a type.
+     *
+     * @param type The sensor type
+     * @return The sensors in order of their IDs
      */
     public List<Sensor> getExtraSensors(SensorType type) {
         return getSensors(type, false, true);
     }
 
     /**
+     * Get the standard sensors of a type.
      *
-     * @param type
-     * @return
+     * @param type The sensor type
+     * @return The sensors in order of their IDs
      */
     public List<Sensor> getStandardSensors(SensorType type) {
         return getSensors(type, true, false);
     }
 
     /**
+     * Check if a sensor is installed.
      *
-     * @param sensorId
-     * @return
+     * @param sensorId The ID of the sensor
+     * @return True if the sensor is installed
      */
     public boolean sensorInstalled(int sensorId) {
-        return sensors.get(sensorId) != null;
+        return snapshot.slot(sensorId) >= 0;
     }
 
     /**
+     * Get a sensor.
      *
-     * @param sensorId
-     * @return
+     * @param sensorId The ID of the sensor
+     * @return The sensor or null if the sensor is not installed
      */
     public Sensor getSensor(int sensorId) {
-        return sensors.get(sensorId);
+        Snapshot s = snapshot;
+        int slot = s.slot(sensorId);
+        return slot >= 0 ? s.sensors.get(slot) : null;
+    }
+
+    /**
+     * Get the slot of a sensor, which is its index in the sensors returned by getAllSensors(). The slots change when
+     * a sensor is added or removed.
+     *
+     * @param sensorId The ID of the sensor
+     * @return The slot or -1 if the sensor is not installed
+     */
+    public int getSensorSlot(int sensorId) {
+        return snapshot.slot(sensorId);
+    }
+
+    /**
+     * Get the number of sensors.
+     *
+     * @return The number of sensors
+     */
+    public int getSensorCount() {
+        return snapshot.sensors.size();
     }
-}
\ No newline at end of file
+}
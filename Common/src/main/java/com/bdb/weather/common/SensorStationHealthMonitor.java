@@ -0,0 +1,406 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Streaming monitor of the health of the sensor stations. Each status report updates a fixed amount of state for the
+ * station in constant time:
+ * <ul>
+ * <li>An exponentially weighted average of the link quality</li>
+ * <li>An estimate of the fraction of status reports that were lost, from the gaps between the reports and the
+ * expected reporting interval, also exponentially weighted. Each expected report is a sample, so a gap is applied in
+ * closed form as one sample for each missed report followed by one for the report that was received.</li>
+ * <li>The slope of the battery voltage in volts per day, from a linear regression whose weights decay with a half-life
+ * of a few days</li>
+ * <li>The current bad battery episode</li>
+ * </ul>
+ * Listeners are notified when a bad battery episode starts and ends and when a station becomes degraded or recovers.
+ * The thresholds of the conditions have hysteresis so that a value near a threshold does not produce a stream of events.
+ * The bad battery episodes that are given to the listeners and returned by getBadBattery() are copies, as the episode
+ * of a station is updated with each report.
+ */
+public class SensorStationHealthMonitor {
+    /**
+     * The conditions that degrade the health of a sensor station.
+     */
+    public enum Condition {
+        /**
+         * The average link quality is low
+         */
+        LOW_LINK_QUALITY,
+        /**
+         * Many of the status reports are being lost
+         */
+        HIGH_PACKET_LOSS,
+        /**
+         * The battery voltage is falling quickly
+         */
+        FALLING_VOLTAGE,
+        /**
+         * The station has not reported for a long time
+         */
+        NOT_REPORTING
+    }
+
+    /**
+     * Interface for classes to implement to be notified of changes in the health of the sensor stations.
+     */
+    public interface HealthListener {
+        /**
+         * A sensor station reported a bad battery after reporting a good one.
+         *
+         * @param badBattery A copy of the bad battery episode as it was detected
+         */
+        void badBatteryDetected(BadBattery badBattery);
+
+        /**
+         * A sensor station reported a good battery after reporting a bad one.
+         *
+         * @param badBattery The bad battery episode, which is no longer updated
+         */
+        void badBatteryEnded(BadBattery badBattery);
+
+        /**
+         * A sensor station became degraded or recovered.
+         *
+         * @param sensorStationId The ID of the sensor station
+         * @param condition The condition
+         * @param degraded True if the station became degraded, false if it recovered
+         * @param time The time of the change
+         */
+        void healthChanged(int sensorStationId, Condition condition, boolean degraded, LocalDateTime time);
+    }
+
+    private static final double LINK_QUALITY_ALPHA = .1;
+    private static final double LOW_LINK_QUALITY = 70.0;
+    private static final double LINK_QUALITY_RECOVERED = 80.0;
+    private static final double LOSS_ALPHA = .1;
+    private static final double HIGH_LOSS = .2;
+    private static final double LOSS_RECOVERED = .1;
+    private static final double SECONDS_PER_DAY = 86400.0;
+    private static final double VOLTAGE_HALF_LIFE_DAYS = 3.0;
+    private static final double MINIMUM_VOLTAGE_SPAN_DAYS = 1.0;
+    private static final double FALLING_VOLTAGE = -.05;
+    private static final double VOLTAGE_RECOVERED = -.025;
+    private static final int NOT_REPORTING_INTERVALS = 10;
+
+    private final long expectedIntervalSeconds;
+    private final Map<Integer,Health> stations = new TreeMap<>();
+    private final List<HealthListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The state of one sensor station.
+     */
+    private static final class Health {
+        private final int sensorStationId;
+        private long lastTime;
+        private long firstVoltageTime;
+        private double linkQuality = Double.NaN;
+        private double loss = 0.0;
+        private double batteryVoltage = Double.NaN;
+        //
+        // Weighted sums of the voltage regression, with the time axis in days relative to the latest voltage sample
+        //
+        private long lastVoltageTime;
+        private double s0;
+        private double sx;
+        private double sxx;
+        private double sy;
+        private double sxy;
+        private BadBattery badBattery;
+        private final boolean[] degraded = new boolean[Condition.values().length];
+
+        Health(int sensorStationId) {
+            this.sensorStationId = sensorStationId;
+        }
+
+        void applyVoltage(long time, double voltage) {
+            if (s0 == 0.0)
+                firstVoltageTime = time;
+            else {
+                double shift = (time - lastVoltageTime) / SECONDS_PER_DAY;
+                double decay = Math.pow(.5, shift / VOLTAGE_HALF_LIFE_DAYS);
+                //
+                // Move the origin of the time axis to the new sample, then decay the weights
+                //
+                sxx = (sxx - 2.0 * shift * sx + shift * shift * s0) * decay;
+                sxy = (sxy - shift * sy) * decay;
+                sx = (sx - shift * s0) * decay;
+                s0 *= decay;
+                sy *= decay;
+            }
+
+            s0 += 1.0;
+            sy += voltage;
+            lastVoltageTime = time;
+            batteryVoltage = voltage;
+        }
+
+        double voltageSlope() {
+            double denominator = s0 * sxx - sx * sx;
+            if (s0 == 0.0 || denominator <= 1e-12 || (lastVoltageTime - firstVoltageTime) / SECONDS_PER_DAY < MINIMUM_VOLTAGE_SPAN_DAYS)
+                return Double.NaN;
+
+            return (s0 * sxy - sx * sy) / denominator;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expectedInterval The interval at which the sensor stations are expected to report their status
+     */
+    public SensorStationHealthMonitor(Duration expectedInterval) {
+        if (expectedInterval.isNegative() || expectedInterval.isZero())
+            throw new IllegalArgumentException("Expected status interval must be positive: " + expectedInterval);
+
+        expectedIntervalSeconds = expectedInterval.getSeconds();
+    }
+
+    /**
+     * Add a listener.
+     *
+     * @param listener The listener
+     */
+    public void addHealthListener(HealthListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener The listener
+     */
+    public void removeHealthListener(HealthListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Apply a status report of a sensor station. Reports of a station that are older than its latest report are ignored.
+     *
+     * @param status The status
+     */
+    public void applyStatus(SensorStationStatus status) {
+        List<Runnable> events = new ArrayList<>();
+        synchronized (this) {
+            applyStatus(status, events);
+        }
+
+        for (Runnable event : events)
+            event.run();
+    }
+
+    /**
+     * Apply a collection of status reports.
+     *
+     * @param statuses The status reports in time order
+     */
+    public void applyStatuses(Collection<SensorStationStatus> statuses) {
+        List<Runnable> events = new ArrayList<>();
+        synchronized (this) {
+            for (SensorStationStatus status : statuses)
+                applyStatus(status, events);
+        }
+
+        for (Runnable event : events)
+            event.run();
+    }
+
+    /**
+     * Check for stations that have not reported for a long time, which cannot be detected from the status reports alone.
+     *
+     * @param now The current time
+     */
+    public void checkReporting(LocalDateTime now) {
+        List<Runnable> events = new ArrayList<>();
+        long t = now.toEpochSecond(ZoneOffset.UTC);
+        synchronized (this) {
+            for (Health health : stations.values()) {
+                boolean silent = t - health.lastTime > NOT_REPORTING_INTERVALS * expectedIntervalSeconds;
+                updateCondition(health, Condition.NOT_REPORTING, silent, !silent, now, events);
+            }
+        }
+
+        for (Runnable event : events)
+            event.run();
+    }
+
+    /**
+     * Get the IDs of the sensor stations that have reported.
+     *
+     * @return The IDs in ascending order
+     */
+    public synchronized List<Integer> getSensorStationIds() {
+        return new ArrayList<>(stations.keySet());
+    }
+
+    /**
+     * Get the average link quality of a sensor station.
+     *
+     * @param sensorStationId The ID of the sensor station
+     * @return The link quality in percent or NaN if the station has not reported its link quality
+     */
+    public synchronized double getLinkQuality(int sensorStationId) {
+        Health health = stations.get(sensorStationId);
+        return health == null ? Double.NaN : health.linkQuality;
+    }
+
+    /**
+     * Get the estimated fraction of the status reports of a sensor station that are lost.
+     *
+     * @param sensorStationId The ID of the sensor station
+     * @return The fraction or NaN if the station has not reported
+     */
+    public synchronized double getPacketLoss(int sensorStationId) {
+        Health health = stations.get(sensorStationId);
+        return health == null ? Double.NaN : health.loss;
+    }
+
+    /**
+     * Get the latest battery voltage of a sensor station.
+     *
+     * @param sensorStationId The ID of the sensor station
+     * @return The voltage or NaN if the station has not reported its voltage
+     */
+    public synchronized double getBatteryVoltage(int sensorStationId) {
+        Health health = stations.get(sensorStationId);
+        return health == null ? Double.NaN : health.batteryVoltage;
+    }
+
+    /**
+     * Get the trend of the battery voltage of a sensor station.
+     *
+     * @param sensorStationId The ID of the sensor station
+     * @return The slope in volts per day or NaN if there is less than a day of voltage reports
+     */
+    public synchronized double getVoltageSlope(int sensorStationId) {
+        Health health = stations.get(sensorStationId);
+        return health == null ? Double.NaN : health.voltageSlope();
+    }
+
+    /**
+     * Get the current bad battery episode of a sensor station.
+     *
+     * @param sensorStationId The ID of the sensor station
+     * @return A copy of the episode or null if the battery is good
+     */
+    public synchronized BadBattery getBadBattery(int sensorStationId) {
+        Health health = stations.get(sensorStationId);
+        return health == null || health.badBattery == null ? null : new BadBattery(health.badBattery);
+    }
+
+    /**
+     * Check whether a sensor station is degraded by a condition.
+     *
+     * @param sensorStationId The ID of the sensor station
+     * @param condition The condition
+     * @return True if the station is degraded
+     */
+    public synchronized boolean isDegraded(int sensorStationId, Condition condition) {
+        Health health = stations.get(sensorStationId);
+        return health != null && health.degraded[condition.ordinal()];
+    }
+
+    private void applyStatus(SensorStationStatus status, List<Runnable> events) {
+        int id = status.getSensorStationId();
+        long t = status.getTime().toEpochSecond(ZoneOffset.UTC);
+        Health health = stations.get(id);
+        if (health == null) {
+            health = new Health(id);
+            health.lastTime = t;
+            stations.put(id, health);
+        }
+        else if (t <= health.lastTime)
+            return;
+        else {
+            //
+            // A sample of 1 for each missed report, then a sample of 0 for this one
+            //
+            long missed = Math.max(0L, Math.round((double)(t - health.lastTime) / expectedIntervalSeconds) - 1);
+            double lost = 1.0 - (1.0 - health.loss) * Math.pow(1.0 - LOSS_ALPHA, missed);
+            health.loss = lost * (1.0 - LOSS_ALPHA);
+            health.lastTime = t;
+        }
+
+        LocalDateTime time = status.getTime();
+        updateCondition(health, Condition.NOT_REPORTING, false, true, time, events);
+        updateCondition(health, Condition.HIGH_PACKET_LOSS, health.loss > HIGH_LOSS, health.loss < LOSS_RECOVERED, time, events);
+
+        if (status.getLinkQuality() != null) {
+            double quality = status.getLinkQuality();
+            if (Double.isNaN(health.linkQuality))
+                health.linkQuality = quality;
+            else
+                health.linkQuality += LINK_QUALITY_ALPHA * (quality - health.linkQuality);
+
+            updateCondition(health, Condition.LOW_LINK_QUALITY, health.linkQuality < LOW_LINK_QUALITY,
+                            health.linkQuality > LINK_QUALITY_RECOVERED, time, events);
+        }
+
+        if (status.getBatteryVoltage() != null) {
+            health.applyVoltage(t, status.getBatteryVoltage());
+            double slope = health.voltageSlope();
+            if (!Double.isNaN(slope))
+                updateCondition(health, Condition.FALLING_VOLTAGE, slope < FALLING_VOLTAGE, slope > VOLTAGE_RECOVERED, time, events);
+        }
+
+        if (status.isBatteryOk() != null) {
+            if (!status.isBatteryOk()) {
+                if (health.badBattery == null) {
+                    health.badBattery = new BadBattery(id, time);
+                    BadBattery badBattery = new BadBattery(health.badBattery);
+                    for (HealthListener listener : listeners)
+                        events.add(() -> listener.badBatteryDetected(badBattery));
+                }
+                else
+                    health.badBattery.incrementMeasurementCount(time);
+            }
+            else if (health.badBattery != null) {
+                BadBattery badBattery = health.badBattery;
+                health.badBattery = null;
+                for (HealthListener listener : listeners)
+                    events.add(() -> listener.badBatteryEnded(badBattery));
+            }
+        }
+    }
+
+    private void updateCondition(Health health, Condition condition, boolean degrade, boolean recover, LocalDateTime time, List<Runnable> events) {
+        int c = condition.ordinal();
+        boolean degraded;
+        if (!health.degraded[c] && degrade)
+            degraded = true;
+        else if (health.degraded[c] && recover)
+            degraded = false;
+        else
+            return;
+
+        health.degraded[c] = degraded;
+        int id = health.sensorStationId;
+        for (HealthListener listener : listeners)
+            events.add(() -> listener.healthChanged(id, condition, degraded, time));
+    }
+}
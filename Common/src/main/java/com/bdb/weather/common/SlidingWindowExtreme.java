@@ -0,0 +1,195 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+/**
+ * Monotonic deque that tracks the minimum or maximum of a sliding window of values. Each value is added with a key,
+ * usually a time, that must not decrease. Adding and expiring values is amortized O(1) and the extreme is available
+ * in O(1). The deque is kept in primitive ring arrays that only grow when the window holds more values than ever before,
+ * so the steady state does not allocate. An auxiliary value, such as a direction, can be carried with each value.
+ */
+public class SlidingWindowExtreme {
+    /**
+     * The extreme that is tracked.
+     */
+    public enum Type {
+        /**
+         * Track the minimum value in the window
+         */
+        MINIMUM,
+        /**
+         * Track the maximum value in the window
+         */
+        MAXIMUM
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private final Type type;
+    private long[] keys;
+    private double[] values;
+    private double[] auxiliaries;
+    private int head;
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param type Whether the minimum or maximum is tracked
+     */
+    public SlidingWindowExtreme(Type type) {
+        this(type, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param type Whether the minimum or maximum is tracked
+     * @param initialCapacity The initial size of the ring arrays
+     */
+    public SlidingWindowExtreme(Type type, int initialCapacity) {
+        this.type = type;
+        int capacity = Math.max(initialCapacity, 2);
+        keys = new long[capacity];
+        values = new double[capacity];
+        auxiliaries = new double[capacity];
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Add a value to the window. NaN values are ignored.
+     *
+     * @param key The key of the value, which must not be less than the key of the previous value
+     * @param value The value
+     */
+    public void add(long key, double value) {
+        add(key, value, Double.NaN);
+    }
+
+    /**
+     * Add a value and its auxiliary value to the window. NaN values are ignored.
+     *
+     * @param key The key of the value, which must not be less than the key of the previous value
+     * @param value The value
+     * @param auxiliary A value that is carried with the value, for example the direction of a wind gust
+     */
+    public void add(long key, double value, double auxiliary) {
+        if (Double.isNaN(value))
+            return;
+
+        //
+        // Values that are dominated by the new value can never be the extreme again
+        //
+        while (size > 0 && dominates(value, values[index(size - 1)]))
+            size--;
+
+        if (size == keys.length)
+            grow();
+
+        int tail = index(size);
+        keys[tail] = key;
+        values[tail] = value;
+        auxiliaries[tail] = auxiliary;
+        size++;
+    }
+
+    /**
+     * Remove the values whose key is less than the specified key.
+     *
+     * @param oldestKey The oldest key that remains in the window
+     */
+    public void expire(long oldestKey) {
+        while (size > 0 && keys[head] < oldestKey) {
+            head = index(1);
+            size--;
+        }
+    }
+
+    /**
+     * Remove all of the values.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Check if there are any values in the window.
+     *
+     * @return True if the window is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the extreme value in the window.
+     *
+     * @return The extreme or NaN if the window is empty
+     */
+    public double getValue() {
+        return size == 0 ? Double.NaN : values[head];
+    }
+
+    /**
+     * Get the key of the extreme value in the window. If the extreme occurred more than once, the latest key is returned.
+     *
+     * @return The key of the extreme or Long.MIN_VALUE if the window is empty
+     */
+    public long getKey() {
+        return size == 0 ? Long.MIN_VALUE : keys[head];
+    }
+
+    /**
+     * Get the auxiliary value that was added with the extreme value.
+     *
+     * @return The auxiliary value or NaN if the window is empty
+     */
+    public double getAuxiliary() {
+        return size == 0 ? Double.NaN : auxiliaries[head];
+    }
+
+    private boolean dominates(double value, double other) {
+        if (type == Type.MAXIMUM)
+            return value >= other;
+        else
+            return value <= other;
+    }
+
+    private int index(int offset) {
+        int i = head + offset;
+        return i >= keys.length ? i - keys.length : i;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        long[] newKeys = new long[capacity];
+        double[] newValues = new double[capacity];
+        double[] newAuxiliaries = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            int from = index(i);
+            newKeys[i] = keys[from];
+            newValues[i] = values[from];
+            newAuxiliaries[i] = auxiliaries[from];
+        }
+
+        keys = newKeys;
+        values = newValues;
+        auxiliaries = newAuxiliaries;
+        head = 0;
+    }
+}
@@ -0,0 +1,112 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * A run of consecutive days that met a streak condition.
+ */
+public class Streak {
+    private final StreakCondition condition;
+    private final LocalDate start;
+    private final LocalDate end;
+
+    /**
+     * Constructor.
+     *
+     * @param condition The condition that the days met
+     * @param start The first day of the streak
+     * @param end The last day of the streak
+     */
+    public Streak(StreakCondition condition, LocalDate start, LocalDate end) {
+        this.condition = condition;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Get the condition that the days met.
+     *
+     * @return The condition
+     */
+    public StreakCondition getCondition() {
+        return condition;
+    }
+
+    /**
+     * Get the first day of the streak.
+     *
+     * @return The first day
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * Get the last day of the streak.
+     *
+     * @return The last day
+     */
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    /**
+     * Get the number of days in the streak.
+     *
+     * @return The number of days
+     */
+    public int getLength() {
+        return (int)ChronoUnit.DAYS.between(start, end) + 1;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 59 * hash + Objects.hashCode(this.condition);
+        hash = 59 * hash + Objects.hashCode(this.start);
+        hash = 59 * hash + Objects.hashCode(this.end);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null)
+            return false;
+
+        if (getClass() != obj.getClass())
+            return false;
+
+        final Streak other = (Streak)obj;
+
+        if (!Objects.equals(this.condition, other.condition))
+            return false;
+
+        if (!Objects.equals(this.start, other.start))
+            return false;
+
+        return Objects.equals(this.end, other.end);
+    }
+
+    @Override
+    public String toString() {
+        return condition + ": " + start + " - " + end + " (" + getLength() + " days)";
+    }
+}
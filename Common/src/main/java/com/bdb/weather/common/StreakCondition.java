@@ -0,0 +1,163 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Temperature;
+
+/**
+ * A named condition that a day must meet to be part of a streak, such as a dry day or a day with frost.
+ */
+public class StreakCondition {
+    private final String name;
+    private final Predicate<SummaryRecord> predicate;
+
+    /**
+     * Constructor.
+     *
+     * @param name The name of the condition, which identifies the condition
+     * @param predicate The test that is applied to the summary of each day
+     */
+    public StreakCondition(String name, Predicate<SummaryRecord> predicate) {
+        this.name = name;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Create a condition for days with less rainfall than a threshold.
+     *
+     * @param threshold The rainfall threshold
+     * @return The condition
+     */
+    public static StreakCondition dryDay(Depth threshold) {
+        double mm = threshold.get(Depth.Unit.MILLIMETERS);
+        return new StreakCondition("Rainfall below " + threshold, (rec) -> {
+            Depth rain = rec.getTotalRainfall();
+            return rain == null || rain.get(Depth.Unit.MILLIMETERS) < mm;
+        });
+    }
+
+    /**
+     * Create a condition for days with a high temperature above a threshold.
+     *
+     * @param threshold The temperature threshold
+     * @return The condition
+     */
+    public static StreakCondition highAbove(Temperature threshold) {
+        double celsius = threshold.get(Temperature.Unit.CELSIUS);
+        return new StreakCondition("High above " + threshold, (rec) -> {
+            Temperature t = rec.getMaxOutdoorTemp();
+            return t != null && t.get(Temperature.Unit.CELSIUS) > celsius;
+        });
+    }
+
+    /**
+     * Create a condition for days with a low temperature below a threshold.
+     *
+     * @param threshold The temperature threshold
+     * @return The condition
+     */
+    public static StreakCondition lowBelow(Temperature threshold) {
+        double celsius = threshold.get(Temperature.Unit.CELSIUS);
+        return new StreakCondition("Low below " + threshold, (rec) -> {
+            Temperature t = rec.getMinOutdoorTemp();
+            return t != null && t.get(Temperature.Unit.CELSIUS) < celsius;
+        });
+    }
+
+    /**
+     * Create a condition for days with a low temperature above a threshold.
+     *
+     * @param threshold The temperature threshold
+     * @return The condition
+     */
+    public static StreakCondition lowAbove(Temperature threshold) {
+        double celsius = threshold.get(Temperature.Unit.CELSIUS);
+        return new StreakCondition("Low above " + threshold, (rec) -> {
+            Temperature t = rec.getMinOutdoorTemp();
+            return t != null && t.get(Temperature.Unit.CELSIUS) > celsius;
+        });
+    }
+
+    /**
+     * Create a condition for days with frost, which are days with a low temperature below freezing.
+     *
+     * @return The condition
+     */
+    public static StreakCondition frost() {
+        return lowBelow(new Temperature(0.0, Temperature.Unit.CELSIUS));
+    }
+
+    /**
+     * Create a condition for frost free days, the longest run of which is the frost free season.
+     *
+     * @return The condition
+     */
+    public static StreakCondition frostFree() {
+        return new StreakCondition("Frost free", (rec) -> {
+            Temperature t = rec.getMinOutdoorTemp();
+            return t != null && t.get(Temperature.Unit.CELSIUS) >= 0.0;
+        });
+    }
+
+    /**
+     * Get the name of the condition.
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Test whether a day meets this condition.
+     *
+     * @param rec The summary of the day
+     * @return True if the day meets the condition
+     */
+    public boolean test(SummaryRecord rec) {
+        return predicate.test(rec);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 41 * hash + Objects.hashCode(this.name);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null)
+            return false;
+
+        if (getClass() != obj.getClass())
+            return false;
+
+        final StreakCondition other = (StreakCondition)obj;
+
+        return Objects.equals(this.name, other.name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
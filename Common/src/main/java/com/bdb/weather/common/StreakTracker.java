@@ -0,0 +1,340 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks the streaks of consecutive days that meet a set of conditions. For each condition there is a bitmap with one
+ * bit per day and a run-length encoded list of the runs of days that met the condition. Applying the summary of a day
+ * that follows the previous summaries only extends or adds a run. Days without a summary end a streak.
+ */
+public class StreakTracker {
+    private final Map<StreakCondition,Runs> conditions = new LinkedHashMap<>();
+    private LocalDate firstDate;
+    private int numDays;
+
+    /**
+     * The days that met a condition.
+     */
+    private static final class Runs {
+        private long[] bits = new long[8];
+        private int[] starts = new int[16];
+        private int[] lengths = new int[16];
+        private int count = 0;
+        private int longest = -1;
+
+        boolean isSet(int day) {
+            int word = day >> 6;
+            return word < bits.length && (bits[word] & (1L << day)) != 0;
+        }
+
+        void set(int day, boolean value, int numDays) {
+            boolean changed = isSet(day) != value;
+            int word = day >> 6;
+            if (word >= bits.length)
+                bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+
+            if (value)
+                bits[word] |= 1L << day;
+            else
+                bits[word] &= ~(1L << day);
+
+            if (day >= numDays) {
+                if (!value)
+                    return;
+
+                if (count > 0 && starts[count - 1] + lengths[count - 1] == day)
+                    lengths[count - 1]++;
+                else
+                    addRun(day, 1);
+
+                if (longest < 0 || lengths[count - 1] > lengths[longest])
+                    longest = count - 1;
+            }
+            else if (changed)
+                rebuild(numDays);
+        }
+
+        void shift(int days, int numDays) {
+            long[] shifted = new long[((numDays + days) >> 6) + 1];
+            for (int day = 0; day < numDays; day++)
+                if (isSet(day))
+                    shifted[(day + days) >> 6] |= 1L << (day + days);
+
+            bits = shifted;
+            for (int i = 0; i < count; i++)
+                starts[i] += days;
+        }
+
+        private void rebuild(int numDays) {
+            count = 0;
+            longest = -1;
+            int day = 0;
+            while (day < numDays) {
+                int start = nextSetDay(day, numDays);
+                if (start < 0)
+                    break;
+
+                int end = start;
+                while (end + 1 < numDays && isSet(end + 1))
+                    end++;
+
+                addRun(start, end - start + 1);
+                if (longest < 0 || lengths[count - 1] > lengths[longest])
+                    longest = count - 1;
+
+                day = end + 1;
+            }
+        }
+
+        private int nextSetDay(int from, int numDays) {
+            int word = from >> 6;
+            if (word >= bits.length)
+                return -1;
+
+            long w = bits[word] & (-1L << from);
+            while (true) {
+                if (w != 0) {
+                    int day = (word << 6) + Long.numberOfTrailingZeros(w);
+                    return day < numDays ? day : -1;
+                }
+
+                if (++word >= bits.length)
+                    return -1;
+
+                w = bits[word];
+            }
+        }
+
+        private void addRun(int start, int length) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+
+            starts[count] = start;
+            lengths[count] = length;
+            count++;
+        }
+
+        /**
+         * Find the first run that ends on or after a day.
+         */
+        int firstRunEndingOnOrAfter(int day) {
+            int index = Arrays.binarySearch(starts, 0, count, day);
+            if (index < 0)
+                index = -index - 2;
+
+            if (index < 0)
+                return 0;
+
+            if (starts[index] + lengths[index] - 1 < day)
+                index++;
+
+            return index;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param conditions The conditions to track
+     */
+    public StreakTracker(StreakCondition... conditions) {
+        this(Arrays.asList(conditions));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param conditions The conditions to track
+     */
+    public StreakTracker(Collection<StreakCondition> conditions) {
+        for (StreakCondition condition : conditions)
+            this.conditions.put(condition, new Runs());
+
+        firstDate = null;
+        numDays = 0;
+    }
+
+    /**
+     * Get the conditions that are being tracked.
+     *
+     * @return The conditions
+     */
+    public List<StreakCondition> getConditions() {
+        return Collections.unmodifiableList(new ArrayList<>(conditions.keySet()));
+    }
+
+    /**
+     * Apply the summary of a day. Summaries are normally applied in date order, but a day can be summarized again or
+     * an earlier day can be applied.
+     *
+     * @param rec The summary record
+     */
+    public void applySummaryRecord(SummaryRecord rec) {
+        LocalDate date = rec.getDate();
+        if (firstDate == null)
+            firstDate = date;
+
+        int day = (int)ChronoUnit.DAYS.between(firstDate, date);
+        if (day < 0) {
+            for (Runs runs : conditions.values())
+                runs.shift(-day, numDays);
+
+            numDays -= day;
+            firstDate = date;
+            day = 0;
+        }
+
+        for (Map.Entry<StreakCondition,Runs> entry : conditions.entrySet())
+            entry.getValue().set(day, entry.getKey().test(rec), numDays);
+
+        numDays = Math.max(numDays, day + 1);
+    }
+
+    /**
+     * Check whether a day met a condition.
+     *
+     * @param condition The condition
+     * @param date The day
+     * @return True if the day was summarized and met the condition
+     */
+    public boolean metCondition(StreakCondition condition, LocalDate date) {
+        int day = dayIndex(date);
+        return day >= 0 && day < numDays && runs(condition).isSet(day);
+    }
+
+    /**
+     * Get the longest streak of all of the days that have been applied. If there is more than one, the earliest is returned.
+     *
+     * @param condition The condition
+     * @return The longest streak or null if no day met the condition
+     */
+    public Streak getLongestStreak(StreakCondition condition) {
+        Runs runs = runs(condition);
+        if (runs.longest < 0)
+            return null;
+
+        return makeStreak(condition, runs.starts[runs.longest], runs.starts[runs.longest] + runs.lengths[runs.longest] - 1);
+    }
+
+    /**
+     * Get the longest streak within a range of days. Streaks that extend outside of the range are cut at the range.
+     *
+     * @param condition The condition
+     * @param start The first day of the range
+     * @param end The last day of the range
+     * @return The longest streak or null if no day in the range met the condition
+     */
+    public Streak getLongestStreak(StreakCondition condition, LocalDate start, LocalDate end) {
+        Runs runs = runs(condition);
+        int first = Math.max(dayIndex(start), 0);
+        int last = Math.min(dayIndex(end), numDays - 1);
+        int bestStart = -1;
+        int bestEnd = -1;
+
+        if (firstDate != null) {
+            for (int i = runs.firstRunEndingOnOrAfter(first); i < runs.count && runs.starts[i] <= last; i++) {
+                int runStart = Math.max(runs.starts[i], first);
+                int runEnd = Math.min(runs.starts[i] + runs.lengths[i] - 1, last);
+                if (bestStart < 0 || runEnd - runStart > bestEnd - bestStart) {
+                    bestStart = runStart;
+                    bestEnd = runEnd;
+                }
+            }
+        }
+
+        if (bestStart < 0)
+            return null;
+
+        return makeStreak(condition, bestStart, bestEnd);
+    }
+
+    /**
+     * Get the streak that includes the last day that was applied.
+     *
+     * @param condition The condition
+     * @return The current streak or null if the last day did not meet the condition
+     */
+    public Streak getCurrentStreak(StreakCondition condition) {
+        Runs runs = runs(condition);
+        if (runs.count == 0)
+            return null;
+
+        int end = runs.starts[runs.count - 1] + runs.lengths[runs.count - 1] - 1;
+        if (end != numDays - 1)
+            return null;
+
+        return makeStreak(condition, runs.starts[runs.count - 1], end);
+    }
+
+    /**
+     * Get all of the streaks within a range of days. Streaks that extend outside of the range are cut at the range.
+     *
+     * @param condition The condition
+     * @param start The first day of the range
+     * @param end The last day of the range
+     * @return The streaks in date order
+     */
+    public List<Streak> getStreaks(StreakCondition condition, LocalDate start, LocalDate end) {
+        List<Streak> list = new ArrayList<>();
+        if (firstDate == null)
+            return list;
+
+        Runs runs = runs(condition);
+        int first = Math.max(dayIndex(start), 0);
+        int last = Math.min(dayIndex(end), numDays - 1);
+
+        for (int i = runs.firstRunEndingOnOrAfter(first); i < runs.count && runs.starts[i] <= last; i++) {
+            int runStart = Math.max(runs.starts[i], first);
+            int runEnd = Math.min(runs.starts[i] + runs.lengths[i] - 1, last);
+            list.add(makeStreak(condition, runStart, runEnd));
+        }
+
+        return list;
+    }
+
+    private Runs runs(StreakCondition condition) {
+        Runs runs = conditions.get(condition);
+        if (runs == null)
+            throw new IllegalArgumentException("Streak condition is not being tracked: " + condition);
+
+        return runs;
+    }
+
+    private int dayIndex(LocalDate date) {
+        if (firstDate == null)
+            return -1;
+
+        long day = ChronoUnit.DAYS.between(firstDate, date);
+        return (int)Math.max(Math.min(day, Integer.MAX_VALUE), Integer.MIN_VALUE);
+    }
+
+    private Streak makeStreak(StreakCondition condition, int start, int end) {
+        return new Streak(condition, firstDate.plusDays(start), firstDate.plusDays(end));
+    }
+}
@@ -26,11 +26,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeMap;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.bdb.util.measurement.Measurement;
@@ -38,9 +35,7 @@ import com.bdb.util.measurement.MeasurementStatistics;
 
 import com.bdb.weather.common.measurement.Depth;
 import com.bdb.weather.common.measurement.Humidity;
-import com.bdb.weather.common.measurement.LeafWetness;
 import com.bdb.weather.common.measurement.Pressure;
-import com.bdb.weather.common.measurement.SoilMoisture;
 import com.bdb.weather.common.measurement.SolarRadiation;
 import com.bdb.weather.common.measurement.Speed;
 import com.bdb.weather.common.measurement.Temperature;
@@ -82,7 +77,8 @@ public class SummaryRecord {
     private Depth totalET = new Depth(0.0);
 
     private final List<TemperatureBinDuration> temperatureBinDurations = new ArrayList<>();
-    private final Map<Integer,MeasurementStatisticsEntry<? extends Measurement>> sensors = new TreeMap<>();
+    private final SensorAccumulators sensors = new SensorAccumulators();
+    private List<MeasurementStatisticsEntry<? extends Measurement>> sensorValues = null;
 
     private static final DateTimeFormatter sdf = DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT);
     private static final Logger logger = Logger.getLogger(SummaryRecord.class.getName());
@@ -1059,7 +1055,7 @@ public class SummaryRecord {
      * @param hour
      */
     public void setRainfallForHour(Depth d, int hour) {
-        if (ChronoField.HOUR_OF_DAY.range().isValidValue(hour))
+        if (!ChronoField.HOUR_OF_DAY.range().isValidValue(hour))
             throw new IllegalArgumentException("Illegal hour specified (" + hour + "). Must be 0 through 23");
 
         hourlyRainfall.putRain(hour, d);
@@ -1106,94 +1102,13 @@ public class SummaryRecord {
         temperatureBinDurations.addAll(durations);
     }
 
-    private void applySensorValue(LocalDateTime time, Duration duration, MeasurementEntry<?> entry) {
-        int sensorId = entry.getSensorId();
-        SensorType sensorType = entry.getSensorType();
-        switch (sensorType) {
-            case THERMOMETER:
-            case LEAF_TEMPERATURE:
-            case SOIL_TEMPERATURE:
-                @SuppressWarnings("unchecked") MeasurementStatisticsEntry<Temperature> tstats = (MeasurementStatisticsEntry<Temperature>)sensors.get(sensorId);
-                if (tstats == null) {
-                    tstats = new MeasurementStatisticsEntry<>(time.toLocalDate(), sensorId, sensorType, new MeasurementStatistics<>(new Temperature(0.0)));
-                    sensors.put(sensorId, tstats);
-                }
-                tstats.getStats().applyValue((Temperature)entry.getMeasurement(), time, duration);
-                break;
-
-            case HYGROMETER:
-                @SuppressWarnings("unchecked") MeasurementStatisticsEntry<Humidity> hstats = (MeasurementStatisticsEntry<Humidity>)sensors.get(sensorId);
-                if (hstats == null) {
-                    hstats = new MeasurementStatisticsEntry<>(time.toLocalDate(), sensorId, sensorType, new MeasurementStatistics<>(new Humidity(0.0)));
-                    sensors.put(sensorId, hstats);
-                }
-                hstats.getStats().applyValue((Humidity)entry.getMeasurement(), time, duration);
-                break;
-                
-            case SOIL_MOISTURE:
-                @SuppressWarnings("unchecked") MeasurementStatisticsEntry<SoilMoisture> mstats = (MeasurementStatisticsEntry<SoilMoisture>)sensors.get(sensorId);
-                if (mstats == null) {
-                    mstats = new MeasurementStatisticsEntry<>(time.toLocalDate(), sensorId, sensorType, new MeasurementStatistics<>(new SoilMoisture(0.0)));
-                    sensors.put(sensorId, mstats);
-                }
-                mstats.getStats().applyValue((SoilMoisture)entry.getMeasurement(), time, duration);
-                break;
-
-            case LEAF_WETNESS:
-                @SuppressWarnings("unchecked") MeasurementStatisticsEntry<LeafWetness> wstats = (MeasurementStatisticsEntry<LeafWetness>)sensors.get(sensorId);
-                if (wstats == null) {
-                    wstats = new MeasurementStatisticsEntry<>(time.toLocalDate(), sensorId, sensorType, new MeasurementStatistics<>(new LeafWetness(0)));
-                    sensors.put(sensorId, wstats);
-                }
-                wstats.getStats().applyValue((LeafWetness)entry.getMeasurement(), time, duration);
-                break;
-                
-            default:
-                logger.log(Level.WARNING, "Trying to summarize unsupported measurement type: {0}", sensorType);
-                break;
-        }
-    }
-
     /**
      *
      * @param summary
      */
     public void addSensorStatistics(MeasurementStatisticsEntry<? extends Measurement> summary) {
-	sensors.put(summary.getSensorId(), summary);
-    }
-
-    @SuppressWarnings("unchecked")
-	private void applySensorStatistics(MeasurementStatisticsEntry<? extends Measurement> summary) {
-        SensorType sensorType = summary.getSensorType();
-        int sensorId = summary.getSensorId();
-
-        switch (sensorType) {
-            case THERMOMETER:
-            case SOIL_TEMPERATURE:
-            case LEAF_TEMPERATURE:
-                MeasurementStatisticsEntry<Temperature> tentry = (MeasurementStatisticsEntry<Temperature>)sensors.get(sensorId);
-                tentry.getStats().applyStatistics((MeasurementStatistics<Temperature>)summary.getStats());
-                break;
-
-            case HYGROMETER:
-                MeasurementStatisticsEntry<Humidity> hentry = (MeasurementStatisticsEntry<Humidity>)sensors.get(sensorId);
-                hentry.getStats().applyStatistics((MeasurementStatistics<Humidity>)summary.getStats());
-                break;
-
-            case LEAF_WETNESS:
-                MeasurementStatisticsEntry<LeafWetness> wentry = (MeasurementStatisticsEntry<LeafWetness>)sensors.get(sensorId);
-                wentry.getStats().applyStatistics((MeasurementStatistics<LeafWetness>)summary.getStats());
-                break;
-
-            case SOIL_MOISTURE:
-                MeasurementStatisticsEntry<SoilMoisture> mentry = (MeasurementStatisticsEntry<SoilMoisture>)sensors.get(sensorId);
-                mentry.getStats().applyStatistics((MeasurementStatistics<SoilMoisture>)summary.getStats());
-                break;
-
-            default:
-                logger.log(Level.WARNING, "Trying to summarize unsupported measurement type: {0}", sensorType);
-                break;
-        }
+        sensors.setStatistics(summary);
+        sensorValues = null;
     }
 
     /**
@@ -1201,7 +1116,13 @@ public class SummaryRecord {
      * @return
      */
     public Collection<MeasurementStatisticsEntry<? extends Measurement>> getSensorValues() {
-	return Collections.unmodifiableCollection(sensors.values());
+        //
+        // The accumulators are only converted to statistics when they are read
+        //
+        if (sensorValues == null)
+            sensorValues = Collections.unmodifiableList(sensors.toEntries(date));
+
+        return sensorValues;
     }
 
     private void applyWindToRoseData(Wind wind, Duration duration) {
@@ -1224,14 +1145,7 @@ public class SummaryRecord {
         if (d == null)
             return;
 
-        //resizeHourlyRainfallList(hour);
-
-        Depth hourly = hourlyRainfall.getRain(hour);
-
-        if (hourly == null)
-            hourlyRainfall.putRain(hour, d);
-        else
-            hourlyRainfall.putRain(hour, hourly.add(d));
+        hourlyRainfall.addRain(hour, d.get(Depth.Unit.MILLIMETERS));
     }
 
     private void applyRainfallRate(Depth rainfallRate, LocalDateTime rainfallRateTime) {
@@ -1285,9 +1199,14 @@ public class SummaryRecord {
                 bin.addDuration(rec.getAvgOutdoorTemperature(), rec.getDuration());
         }
 
-        rec.getMeasurementEntries().stream().forEach((e) -> {
-            applySensorValue(rec.getTime(), rec.getDuration(), e);
-        });
+        ExtraSensorValues extras = rec.getExtraSensorValues();
+        for (SensorType type : ExtraSensorValues.SENSOR_TYPES) {
+            for (int id = extras.nextSensorId(type, 0); id >= 0; id = extras.nextSensorId(type, id + 1))
+                sensors.applyValue(type, id, extras.getValue(type, id), rec.getTime(), rec.getDuration());
+        }
+
+        if (extras.size() > 0)
+            sensorValues = null;
     }
 
     /**
@@ -1327,9 +1246,8 @@ public class SummaryRecord {
         
         windRoseData.addWindRoseData(rec.getWindRoseData());
 
-        sensors.values().stream().forEach((m) -> {
-            applySensorStatistics(m);
-        });
+        sensors.applyAccumulators(rec.sensors);
+        sensorValues = null;
     }
 
     @Override
@@ -1525,7 +1443,7 @@ public class SummaryRecord {
 
 	sb.append("\n");
 
-	for (MeasurementStatisticsEntry<? extends Measurement> entry : sensors.values()) {
+	for (MeasurementStatisticsEntry<? extends Measurement> entry : getSensorValues()) {
 	    sb.append(entry).append("\n");
 	}
 
@@ -0,0 +1,279 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.bdb.weather.common.astronomical.SolarPositionCalculator;
+
+/**
+ * Accumulates the daily sunshine duration from the solar radiation of the archive records. The WMO defines sunshine as
+ * a direct beam irradiance of more than 120 W/m2, but a weather station pyranometer measures the global irradiance on a
+ * horizontal surface. The direct beam irradiance of each record is estimated from the global irradiance with the Erbs
+ * diffuse fraction correlation, using the elevation of the sun at the middle of the record.
+ * <br>
+ * The measured and clear-sky energy of each day are accumulated as well, so the clear-sky index of a day (the ratio of
+ * the two) is a lookup. The days are those of the middle of each record, so a record that ends at midnight belongs to
+ * the day that it measured. Each archive record must only be applied once.
+ * <br>
+ * The summary records have no sunshine duration and are summarized without the location of the station, so the
+ * accumulator is not part of {@link SummaryRecord#applyHistoricalRecord(HistoricalRecord)}. Instead the archive records
+ * that are summarized for a day are also applied here, and the values of the day are looked up by the date of the
+ * summary record.
+ */
+public class SunshineDurationAccumulator {
+    /**
+     * The WMO threshold of the direct beam irradiance for sunshine, in W/m2
+     */
+    public static final double SUNSHINE_THRESHOLD = 120.0;
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final int INITIAL_CAPACITY = 366;
+    //
+    // Below this sine of the elevation (about 3 degrees) the diffuse fraction correlation is not reliable and the
+    // beam irradiance on a horizontal surface is too small to exceed the threshold
+    //
+    private static final double MIN_SINE_ELEVATION = .05;
+
+    private final SolarPositionCalculator calculator;
+    private final double[] extraterrestrial = new double[367];
+    private long firstDay = Long.MIN_VALUE;
+    private int numDays = 0;
+    private int[] sunshineSeconds = new int[INITIAL_CAPACITY];
+    private double[] measuredEnergy = new double[INITIAL_CAPACITY];
+    private double[] clearSkyEnergy = new double[INITIAL_CAPACITY];
+
+    /**
+     * Constructor.
+     *
+     * @param calculator The solar position calculator of the location of the weather station
+     */
+    public SunshineDurationAccumulator(SolarPositionCalculator calculator) {
+        this.calculator = calculator;
+        for (int j = 1; j < extraterrestrial.length; j++)
+            extraterrestrial[j] = calculator.getExtraterrestrialIrradiance(j);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param location The location of the weather station
+     * @param standardTime The offset of the local standard time from UTC
+     */
+    public SunshineDurationAccumulator(GeographicLocation location, ZoneOffset standardTime) {
+        this(new SolarPositionCalculator(location, standardTime));
+    }
+
+    /**
+     * Estimate the direct beam irradiance from the global horizontal irradiance.
+     *
+     * @param globalIrradiance The global horizontal irradiance in W/m2
+     * @param sineElevation The sine of the elevation of the sun
+     * @param extraterrestrialIrradiance The extraterrestrial irradiance in W/m2
+     * @return The direct normal irradiance in W/m2
+     */
+    public static double directNormalIrradiance(double globalIrradiance, double sineElevation, double extraterrestrialIrradiance) {
+        if (sineElevation < MIN_SINE_ELEVATION || !(globalIrradiance > 0.0))
+            return 0.0;
+
+        double kt = Math.min(globalIrradiance / (extraterrestrialIrradiance * sineElevation), 1.0);
+        double kd;
+        if (kt <= .22)
+            kd = 1.0 - .09 * kt;
+        else if (kt <= .8)
+            kd = .9511 + kt * (-.1604 + kt * (4.388 + kt * (-16.638 + kt * 12.336)));
+        else
+            kd = .165;
+
+        return globalIrradiance * (1.0 - kd) / sineElevation;
+    }
+
+    /**
+     * Apply an archive record.
+     *
+     * @param rec The archive record
+     */
+    public void applyHistoricalRecord(HistoricalRecord rec) {
+        if (rec.getAvgSolarRadiation() == null)
+            return;
+
+        long[] times = {rec.getTime().toEpochSecond(ZoneOffset.UTC)};
+        int[] durations = {(int)rec.getDuration().getSeconds()};
+        double[] solarRadiation = {ArchiveField.AVG_SOLAR_RADIATION.getValue(rec)};
+        applyValues(times, durations, solarRadiation, 1);
+    }
+
+    /**
+     * Apply a collection of archive records.
+     *
+     * @param records The archive records
+     */
+    public synchronized void applyHistoricalRecords(Collection<HistoricalRecord> records) {
+        for (HistoricalRecord rec : records)
+            applyHistoricalRecord(rec);
+    }
+
+    /**
+     * Apply a block of archive records.
+     *
+     * @param cursor The cursor over the block
+     */
+    public void applyBlock(ArchiveBlockCursor cursor) {
+        int size = cursor.size();
+        long[] times = new long[size];
+        int[] durations = new int[size];
+        double[] solarRadiation = new double[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = cursor.getEpochSecond(i);
+            durations[i] = cursor.getDurationSeconds(i);
+        }
+
+        cursor.getValues(ArchiveField.AVG_SOLAR_RADIATION, solarRadiation);
+        applyValues(times, durations, solarRadiation, size);
+    }
+
+    /**
+     * Apply columns of archive values. Values that are NaN are skipped.
+     *
+     * @param times The end time of each record, in seconds of local standard time as if it were UTC
+     * @param durations The duration of each record in seconds
+     * @param solarRadiation The average global irradiance of each record in W/m2
+     * @param length The number of records
+     */
+    public synchronized void applyValues(long[] times, int[] durations, double[] solarRadiation, int length) {
+        for (int i = 0; i < length; i++) {
+            double ghi = solarRadiation[i];
+            if (Double.isNaN(ghi))
+                continue;
+
+            long middle = times[i] - durations[i] / 2;
+            int d = dayIndex(Math.floorDiv(middle, SECONDS_PER_DAY));
+            double sine = calculator.getSineElevation(middle);
+            double clearSky = calculator.getClearSkyIrradiance(middle);
+            measuredEnergy[d] += ghi * durations[i];
+            clearSkyEnergy[d] += clearSky * durations[i];
+            if (sine >= MIN_SINE_ELEVATION) {
+                double dni = directNormalIrradiance(ghi, sine, extraterrestrial[SolarPositionCalculator.dayOfYear(middle)]);
+                if (dni > SUNSHINE_THRESHOLD)
+                    sunshineSeconds[d] += durations[i];
+            }
+        }
+    }
+
+    /**
+     * Get the sunshine duration of a day.
+     *
+     * @param date The day
+     * @return The duration, which is zero for days without records
+     */
+    public synchronized Duration getSunshineDuration(LocalDate date) {
+        int d = toIndex(date);
+        return d < 0 ? Duration.ZERO : Duration.ofSeconds(sunshineSeconds[d]);
+    }
+
+    /**
+     * Get the sunshine duration of each day of a range.
+     *
+     * @param start The first day
+     * @param end The last day, inclusive
+     * @return The sunshine duration of each day in hours
+     */
+    public synchronized double[] getSunshineHours(LocalDate start, LocalDate end) {
+        int length = (int)Math.max(0, end.toEpochDay() - start.toEpochDay() + 1);
+        double[] hours = new double[length];
+        for (int i = 0; i < length; i++) {
+            int d = toIndex(start.plusDays(i));
+            hours[i] = d < 0 ? 0.0 : sunshineSeconds[d] / 3600.0;
+        }
+
+        return hours;
+    }
+
+    /**
+     * Get the measured solar energy of a day.
+     *
+     * @param date The day
+     * @return The energy in MJ/m2
+     */
+    public synchronized double getSolarEnergy(LocalDate date) {
+        int d = toIndex(date);
+        return d < 0 ? 0.0 : measuredEnergy[d] / 1.0e6;
+    }
+
+    /**
+     * Get the clear-sky index of a day, the ratio of the measured solar energy to the clear-sky solar energy.
+     *
+     * @param date The day
+     * @return The clear-sky index or NaN if there are no records of the day
+     */
+    public synchronized double getClearSkyIndex(LocalDate date) {
+        int d = toIndex(date);
+        if (d < 0 || clearSkyEnergy[d] <= 0.0)
+            return Double.NaN;
+
+        return measuredEnergy[d] / clearSkyEnergy[d];
+    }
+
+    private int toIndex(LocalDate date) {
+        long d = date.toEpochDay() - firstDay;
+        return numDays == 0 || d < 0 || d >= numDays ? -1 : (int)d;
+    }
+
+    /**
+     * The index of a day, growing the arrays when the day is outside of the days so far.
+     */
+    private int dayIndex(long day) {
+        if (numDays == 0)
+            firstDay = day;
+        else if (day < firstDay) {
+            int shift = (int)(firstDay - day);
+            sunshineSeconds = shift(sunshineSeconds, shift);
+            measuredEnergy = shift(measuredEnergy, shift);
+            clearSkyEnergy = shift(clearSkyEnergy, shift);
+            numDays += shift;
+            firstDay = day;
+        }
+
+        int d = (int)(day - firstDay);
+        if (d >= sunshineSeconds.length) {
+            int capacity = Math.max(d + 1, sunshineSeconds.length * 2);
+            sunshineSeconds = Arrays.copyOf(sunshineSeconds, capacity);
+            measuredEnergy = Arrays.copyOf(measuredEnergy, capacity);
+            clearSkyEnergy = Arrays.copyOf(clearSkyEnergy, capacity);
+        }
+
+        if (d >= numDays)
+            numDays = d + 1;
+
+        return d;
+    }
+
+    private int[] shift(int[] values, int shift) {
+        int[] shifted = new int[Math.max(numDays + shift, values.length)];
+        System.arraycopy(values, 0, shifted, shift, numDays);
+        return shifted;
+    }
+
+    private double[] shift(double[] values, int shift) {
+        double[] shifted = new double[Math.max(numDays + shift, values.length)];
+        System.arraycopy(values, 0, shifted, shift, numDays);
+        return shifted;
+    }
+}
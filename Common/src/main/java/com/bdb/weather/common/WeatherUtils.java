@@ -61,7 +61,10 @@ public final class WeatherUtils {
     public static Temperature windChill(Temperature t, Speed windSpeed, boolean useNewFormula) {
         double temp = t.get(Temperature.Unit.FAHRENHEIT);
         double speed = windSpeed.get(Speed.Unit.MILES_PER_HOUR);
+        return new Temperature(windChillFahrenheit(temp, speed, useNewFormula), Temperature.Unit.FAHRENHEIT);
+    }
 
+    private static double windChillFahrenheit(double temp, double speed, boolean useNewFormula) {
         //
         // Windchill (F) = 35.74 + 0.6215T - 35.75(V^0.16) + 0.4275T(V^0.16)
         // source http://www.weather.gov/os/windchill/windchillglossary.shtml
@@ -81,21 +84,30 @@ public final class WeatherUtils {
                 windChill = (.0817D * ((3.71D * Math.sqrt(speed)) + 5.81D - (.25D * speed))) * (temp - 91.4D) + 91.4D;
         }
 
-        return new Temperature(windChill, Temperature.Unit.FAHRENHEIT);
+        return windChill;
     }
 
     private static final double CONSTANT_A = 17.27;
     private static final double CONSTANT_B = 237.7;
 
-    private static double theta(Temperature t, Humidity h) {
-        double tv = t.get(Temperature.Unit.CELSIUS);
-        double hv = h.get();
+    private static final double SATURATION_VAPOR_PRESSURE_0C = 6.112;
+    private static final double WATER_VAPOR_GAS_CONSTANT = 461.5;
+    private static final double KELVIN_OFFSET = 273.15;
 
+    private static double theta(double tv, double hv) {
         double theta = ((CONSTANT_A * tv) / (CONSTANT_B + tv)) + Math.log(hv / 100.0);
 
         return theta;
     }
 
+    private static double dewPointCelsius(double tv, double hv) {
+        if (hv == 0)
+            return tv;
+
+        double theta = theta(tv, hv);
+        return (CONSTANT_B * theta) / (CONSTANT_A - theta);
+    }
+
     /**
      * Calculate dew point.
      * 
@@ -108,7 +120,7 @@ public final class WeatherUtils {
         if (h.get() == 0)
             return t;
 
-        double dp = (CONSTANT_B * theta(t, h)) / (CONSTANT_A - theta(t, h));
+        double dp = dewPointCelsius(t.get(Temperature.Unit.CELSIUS), h.get());
 
         return new Temperature(dp, Temperature.Unit.CELSIUS);
     }
@@ -129,8 +141,10 @@ public final class WeatherUtils {
         if (temp < 80.0)
             return t;
 
-        double humid = (double)h.get();
+        return new Temperature(heatIndexFahrenheit(temp, h.get()), Temperature.Unit.FAHRENHEIT);
+    }
 
+    private static double heatIndexFahrenheit(double temp, double humid) {
         double hi = 16.923 + (.185212 * temp)
                            + (5.37941 * humid)
                            - (.100254 * temp * humid)
@@ -147,6 +161,93 @@ public final class WeatherUtils {
                            + (.000000000843296 * temp * temp * Math.pow(humid, 3.0))
                            - (.0000000000481975 * Math.pow(temp, 3.0) * Math.pow(humid, 3.0));
 
-        return new Temperature(hi, Temperature.Unit.FAHRENHEIT);
+        return hi;
+    }
+
+    //
+    // The bulk calculations work on columns of primitive values in the storage units, Celsius, % relative humidity and
+    // meters per second, as extracted by ArchiveField. A NaN input produces a NaN output.
+    //
+
+    /**
+     * Calculate the dew points of a column of temperatures and humidities.
+     *
+     * @param temperatures The temperatures in Celsius
+     * @param humidities The relative humidities in percent
+     * @param dewPoints The array that receives the dew points in Celsius
+     * @param length The number of values
+     */
+    public static void dewPoint(double[] temperatures, double[] humidities, double[] dewPoints, int length) {
+        for (int i = 0; i < length; i++)
+            dewPoints[i] = dewPointCelsius(temperatures[i], humidities[i]);
+    }
+
+    /**
+     * Calculate the heat indexes of a column of temperatures and humidities.
+     *
+     * @param temperatures The temperatures in Celsius
+     * @param humidities The relative humidities in percent
+     * @param heatIndexes The array that receives the heat indexes in Celsius
+     * @param length The number of values
+     */
+    public static void heatIndex(double[] temperatures, double[] humidities, double[] heatIndexes, int length) {
+        for (int i = 0; i < length; i++) {
+            double temp = Temperature.Unit.FAHRENHEIT.toUnit(temperatures[i]);
+            if (temp < 80.0)
+                heatIndexes[i] = Double.isNaN(humidities[i]) ? Double.NaN : temperatures[i];
+            else
+                heatIndexes[i] = Temperature.Unit.FAHRENHEIT.fromUnit(heatIndexFahrenheit(temp, humidities[i]));
+        }
+    }
+
+    /**
+     * Calculate the wind chills of a column of temperatures and wind speeds using the new formula.
+     *
+     * @param temperatures The temperatures in Celsius
+     * @param windSpeeds The wind speeds in meters per second
+     * @param windChills The array that receives the wind chills in Celsius
+     * @param length The number of values
+     */
+    public static void windChill(double[] temperatures, double[] windSpeeds, double[] windChills, int length) {
+        for (int i = 0; i < length; i++) {
+            double temp = Temperature.Unit.FAHRENHEIT.toUnit(temperatures[i]);
+            double speed = Speed.Unit.MILES_PER_HOUR.toUnit(windSpeeds[i]);
+            if (temp > 50.0 || speed <= 3.0)
+                windChills[i] = Double.isNaN(speed) ? Double.NaN : temperatures[i];
+            else
+                windChills[i] = Temperature.Unit.FAHRENHEIT.fromUnit(windChillFahrenheit(temp, speed, true));
+        }
+    }
+
+    /**
+     * Calculate the vapor pressures of a column of temperatures and humidities using the Magnus formula.
+     *
+     * @param temperatures The temperatures in Celsius
+     * @param humidities The relative humidities in percent
+     * @param vaporPressures The array that receives the vapor pressures in millibars
+     * @param length The number of values
+     */
+    public static void vaporPressure(double[] temperatures, double[] humidities, double[] vaporPressures, int length) {
+        for (int i = 0; i < length; i++) {
+            double t = temperatures[i];
+            vaporPressures[i] = SATURATION_VAPOR_PRESSURE_0C * Math.exp((CONSTANT_A * t) / (CONSTANT_B + t)) * humidities[i] / 100.0;
+        }
+    }
+
+    /**
+     * Calculate the absolute humidities of a column of temperatures and humidities.
+     *
+     * @param temperatures The temperatures in Celsius
+     * @param humidities The relative humidities in percent
+     * @param absoluteHumidities The array that receives the absolute humidities in grams per cubic meter
+     * @param length The number of values
+     */
+    public static void absoluteHumidity(double[] temperatures, double[] humidities, double[] absoluteHumidities, int length) {
+        vaporPressure(temperatures, humidities, absoluteHumidities, length);
+        //
+        // rho = e / (Rv * T), with e converted from millibars to pascals and the density from kg to g
+        //
+        for (int i = 0; i < length; i++)
+            absoluteHumidities[i] = absoluteHumidities[i] * 100.0 * 1000.0 / (WATER_VAPOR_GAS_CONSTANT * (temperatures[i] + KELVIN_OFFSET));
     }
 }
@@ -0,0 +1,478 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the daily summaries of each year with the same day of all other years. The values of each metric are kept
+ * in a year by day matrix of primitives with a column for each month and day, so that February 29 has its own column
+ * and March 1 is in the same column in every year. Along with the daily values the value to date of each day is kept,
+ * which is the running total of an accumulated metric such as rainfall and the running mean of the others.
+ * <br>
+ * The sorted values and the mean of each column are cached, so the rank, percentile and departure from normal of any
+ * year and day are a binary search. The normal is the mean of the years in the matrix. When a summary changes, such
+ * as today's summary as the day goes on, only the values to date of its year from that day on and the columns that
+ * contain changed values are calculated again, the columns in parallel.
+ */
+public class YearOverYearMatrix {
+    /**
+     * The number of columns, one for each month and day including February 29
+     */
+    public static final int DAYS = 366;
+    private static final int INITIAL_CAPACITY = 16;
+    //
+    // The column of March 1 in a year that is not a leap year
+    //
+    private static final int MARCH_FIRST = 60;
+
+    /**
+     * The sorted values and the mean of one column.
+     */
+    private static final class Column {
+        private final double[] sorted;
+        private final double mean;
+
+        Column(double[] sorted) {
+            this.sorted = sorted;
+            double sum = 0.0;
+            for (double value : sorted)
+                sum += value;
+
+            mean = sorted.length == 0 ? Double.NaN : sum / sorted.length;
+        }
+
+        /**
+         * The number of values that are less than a value.
+         */
+        int countBelow(double value) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] < value)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+
+            return low;
+        }
+
+        /**
+         * The number of values that are less than or equal to a value.
+         */
+        int countNotAbove(double value) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] <= value)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+
+            return low;
+        }
+    }
+
+    /**
+     * The matrix and the cached columns of one metric.
+     */
+    private final class Layer {
+        private final boolean accumulated;
+        private double[][] values = new double[INITIAL_CAPACITY][];
+        private double[][] sums = new double[INITIAL_CAPACITY][];
+        private int[][] counts = new int[INITIAL_CAPACITY][];
+        private int[] stale = new int[INITIAL_CAPACITY];
+        private final Column[] daily = new Column[DAYS];
+        private final Column[] toDate = new Column[DAYS];
+
+        Layer(boolean accumulated) {
+            this.accumulated = accumulated;
+        }
+
+        void set(int year, int column, double value) {
+            double old = values[year][column];
+            if (Double.compare(old, value) == 0)
+                return;
+
+            values[year][column] = value;
+            stale[year] = Math.min(stale[year], column);
+            daily[column] = null;
+            Arrays.fill(toDate, column, DAYS, null);
+        }
+
+        double toDateValue(int year, int column) {
+            int count = counts[year][column];
+            if (count == 0)
+                return Double.NaN;
+
+            return accumulated ? sums[year][column] : sums[year][column] / count;
+        }
+
+        void refresh() {
+            IntStream.range(0, numYears).parallel().filter((y) -> stale[y] < DAYS).forEach((y) -> {
+                double sum = stale[y] == 0 ? 0.0 : sums[y][stale[y] - 1];
+                int count = stale[y] == 0 ? 0 : counts[y][stale[y] - 1];
+                for (int c = stale[y]; c < DAYS; c++) {
+                    double value = values[y][c];
+                    if (!Double.isNaN(value)) {
+                        sum += value;
+                        count++;
+                    }
+
+                    sums[y][c] = sum;
+                    counts[y][c] = count;
+                }
+
+                stale[y] = DAYS;
+            });
+
+            IntStream.range(0, DAYS).parallel().forEach((c) -> {
+                if (daily[c] == null)
+                    daily[c] = column(c, false);
+
+                if (toDate[c] == null)
+                    toDate[c] = column(c, true);
+            });
+        }
+
+        private Column column(int column, boolean running) {
+            double[] list = new double[numYears];
+            int n = 0;
+            for (int y = 0; y < numYears; y++) {
+                double value = running ? toDateValue(y, column) : values[y][column];
+                if (!Double.isNaN(value))
+                    list[n++] = value;
+            }
+
+            double[] sorted = Arrays.copyOf(list, n);
+            Arrays.sort(sorted);
+            return new Column(sorted);
+        }
+
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            stale = Arrays.copyOf(stale, capacity);
+        }
+
+        void shift(int shift) {
+            System.arraycopy(values, 0, values, shift, numYears);
+            System.arraycopy(sums, 0, sums, shift, numYears);
+            System.arraycopy(counts, 0, counts, shift, numYears);
+            System.arraycopy(stale, 0, stale, shift, numYears);
+            for (int y = 0; y < shift; y++)
+                add(y);
+        }
+
+        void add(int year) {
+            values[year] = new double[DAYS];
+            Arrays.fill(values[year], Double.NaN);
+            sums[year] = new double[DAYS];
+            counts[year] = new int[DAYS];
+            stale[year] = DAYS;
+        }
+    }
+
+    private final Layer[] layers = new Layer[DailyMetric.values().length];
+    private int firstYear = 0;
+    private int numYears = 0;
+    private int capacity = INITIAL_CAPACITY;
+
+    /**
+     * Constructor that compares all of the daily metrics.
+     */
+    public YearOverYearMatrix() {
+        this(DailyMetric.values());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param metrics The metrics to compare
+     */
+    public YearOverYearMatrix(DailyMetric... metrics) {
+        this(Arrays.asList(metrics));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param metrics The metrics to compare
+     */
+    public YearOverYearMatrix(Collection<DailyMetric> metrics) {
+        for (DailyMetric metric : metrics)
+            layers[metric.ordinal()] = new Layer(metric.isAccumulated());
+    }
+
+    /**
+     * Get the column of a date.
+     *
+     * @param date The date
+     * @return The column from 0 for January 1 to 365 for December 31
+     */
+    public static int column(LocalDate date) {
+        int day = date.getDayOfYear() - 1;
+        return !date.isLeapYear() && day >= MARCH_FIRST - 1 ? day + 1 : day;
+    }
+
+    /**
+     * Apply a daily summary, replacing the values of the day if the day was applied before.
+     *
+     * @param rec The daily summary
+     */
+    public synchronized void applySummaryRecord(SummaryRecord rec) {
+        LocalDate date = rec.getDate();
+        int year = yearIndex(date.getYear());
+        int column = column(date);
+        for (DailyMetric metric : DailyMetric.values()) {
+            Layer layer = layers[metric.ordinal()];
+            if (layer != null)
+                layer.set(year, column, metric.getValue(rec));
+        }
+    }
+
+    /**
+     * Apply a collection of daily summaries.
+     *
+     * @param records The daily summaries
+     */
+    public synchronized void applySummaryRecords(Collection<SummaryRecord> records) {
+        for (SummaryRecord rec : records)
+            applySummaryRecord(rec);
+    }
+
+    /**
+     * Get the years that have been applied.
+     *
+     * @return The years in order
+     */
+    public synchronized List<Integer> getYears() {
+        List<Integer> years = new ArrayList<>();
+        for (int y = 0; y < numYears; y++)
+            years.add(firstYear + y);
+
+        return years;
+    }
+
+    /**
+     * Get the value of a day.
+     *
+     * @param metric The metric
+     * @param date The day
+     * @return The value or NaN if there is no value
+     */
+    public synchronized double getValue(DailyMetric metric, LocalDate date) {
+        Layer layer = layer(metric);
+        int year = date.getYear() - firstYear;
+        return year < 0 || year >= numYears ? Double.NaN : layer.values[year][column(date)];
+    }
+
+    /**
+     * Get the value to date of a day, which is the total from the start of the year for an accumulated metric and
+     * the mean from the start of the year for the others.
+     *
+     * @param metric The metric
+     * @param date The day
+     * @return The value to date or NaN if there are no values to date
+     */
+    public synchronized double getToDateValue(DailyMetric metric, LocalDate date) {
+        Layer layer = layer(metric);
+        int year = date.getYear() - firstYear;
+        if (year < 0 || year >= numYears)
+            return Double.NaN;
+
+        layer.refresh();
+        return layer.toDateValue(year, column(date));
+    }
+
+    /**
+     * Get the rank of the value of a day among the same day of all years.
+     *
+     * @param metric The metric
+     * @param date The day
+     * @param toDate Whether to rank the values to date rather than the daily values
+     * @return The rank, 1 for the highest value, or 0 if there is no value
+     */
+    public synchronized int getRank(DailyMetric metric, LocalDate date, boolean toDate) {
+        double value = value(metric, date, toDate);
+        if (Double.isNaN(value))
+            return 0;
+
+        Column column = column(metric, date, toDate);
+        return column.sorted.length - column.countNotAbove(value) + 1;
+    }
+
+    /**
+     * Get the percentile of the value of a day among the same day of all years.
+     *
+     * @param metric The metric
+     * @param date The day
+     * @param toDate Whether to use the values to date rather than the daily values
+     * @return The percentage of the years with a lower value, with equal values counted as half, or NaN if there is no value
+     */
+    public synchronized double getPercentile(DailyMetric metric, LocalDate date, boolean toDate) {
+        double value = value(metric, date, toDate);
+        if (Double.isNaN(value))
+            return Double.NaN;
+
+        Column column = column(metric, date, toDate);
+        int below = column.countBelow(value);
+        int equal = column.countNotAbove(value) - below;
+        return (below + equal / 2.0) * 100.0 / column.sorted.length;
+    }
+
+    /**
+     * Get the normal of a day, the mean of the same day of all years.
+     *
+     * @param metric The metric
+     * @param date The day
+     * @param toDate Whether to use the values to date rather than the daily values
+     * @return The normal or NaN if no year has a value
+     */
+    public synchronized double getNormal(DailyMetric metric, LocalDate date, boolean toDate) {
+        return column(metric, date, toDate).mean;
+    }
+
+    /**
+     * Get the departure of the value of a day from the normal.
+     *
+     * @param metric The metric
+     * @param date The day
+     * @param toDate Whether to use the values to date rather than the daily values
+     * @return The value less the normal or NaN if there is no value
+     */
+    public synchronized double getDeparture(DailyMetric metric, LocalDate date, boolean toDate) {
+        return value(metric, date, toDate) - column(metric, date, toDate).mean;
+    }
+
+    /**
+     * Get the rank of each day of a year, such as for a chart of this year against all years.
+     *
+     * @param metric The metric
+     * @param year The year
+     * @param toDate Whether to rank the values to date rather than the daily values
+     * @return The rank of each column, 0 for columns without a value
+     */
+    public synchronized int[] getRanks(DailyMetric metric, int year, boolean toDate) {
+        Layer layer = layer(metric);
+        int[] ranks = new int[DAYS];
+        int y = year - firstYear;
+        if (y < 0 || y >= numYears)
+            return ranks;
+
+        layer.refresh();
+        for (int c = 0; c < DAYS; c++) {
+            double value = toDate ? layer.toDateValue(y, c) : layer.values[y][c];
+            if (!Double.isNaN(value)) {
+                Column column = toDate ? layer.toDate[c] : layer.daily[c];
+                ranks[c] = column.sorted.length - column.countNotAbove(value) + 1;
+            }
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Get the departure from normal of each day of a year.
+     *
+     * @param metric The metric
+     * @param year The year
+     * @param toDate Whether to use the values to date rather than the daily values
+     * @return The departure of each column, NaN for columns without a value
+     */
+    public synchronized double[] getDepartures(DailyMetric metric, int year, boolean toDate) {
+        Layer layer = layer(metric);
+        double[] departures = new double[DAYS];
+        Arrays.fill(departures, Double.NaN);
+        int y = year - firstYear;
+        if (y < 0 || y >= numYears)
+            return departures;
+
+        layer.refresh();
+        for (int c = 0; c < DAYS; c++) {
+            double value = toDate ? layer.toDateValue(y, c) : layer.values[y][c];
+            departures[c] = value - (toDate ? layer.toDate[c] : layer.daily[c]).mean;
+        }
+
+        return departures;
+    }
+
+    private Layer layer(DailyMetric metric) {
+        Layer layer = layers[metric.ordinal()];
+        if (layer == null)
+            throw new IllegalArgumentException("Metric is not being compared: " + metric);
+
+        return layer;
+    }
+
+    private double value(DailyMetric metric, LocalDate date, boolean toDate) {
+        return toDate ? getToDateValue(metric, date) : getValue(metric, date);
+    }
+
+    private Column column(DailyMetric metric, LocalDate date, boolean toDate) {
+        Layer layer = layer(metric);
+        layer.refresh();
+        int c = column(date);
+        return toDate ? layer.toDate[c] : layer.daily[c];
+    }
+
+    /**
+     * The index of a year, adding rows to the matrix when the year is outside of the years so far.
+     */
+    private int yearIndex(int year) {
+        if (numYears == 0)
+            firstYear = year;
+
+        int shift = Math.max(0, firstYear - year);
+        int y = year - firstYear + shift;
+        int rows = Math.max(numYears + shift, y + 1);
+        if (rows > capacity) {
+            capacity = Math.max(rows, capacity * 2);
+            for (Layer layer : layers)
+                if (layer != null)
+                    layer.grow(capacity);
+        }
+
+        for (Layer layer : layers) {
+            if (layer == null)
+                continue;
+
+            if (shift > 0)
+                layer.shift(shift);
+
+            //
+            // The new rows have no values, so the cached columns are still correct
+            //
+            for (int i = numYears + shift; i < rows; i++)
+                layer.add(i);
+        }
+
+        firstYear -= shift;
+        numYears = rows;
+        return y;
+    }
+}
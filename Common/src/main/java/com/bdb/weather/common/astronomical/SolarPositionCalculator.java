@@ -0,0 +1,215 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common.astronomical;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import com.bdb.weather.common.GeographicLocation;
+import com.bdb.weather.common.measurement.AngularMeasurement;
+
+/**
+ * Calculates the position of the sun and the clear-sky solar irradiance at a location. The declination and the equation
+ * of time use the Spencer series for each day of the year, and the clear-sky global irradiance uses the Haurwitz model,
+ * which only needs the elevation of the sun.
+ * <br>
+ * For each day of the year the sine of the solar elevation and the clear-sky irradiance are tabulated at 5 minute
+ * intervals of the local standard time when the calculator is created, so that the values for the times of archive
+ * records are an interpolation between two table entries. The calculator is immutable.
+ * <br>
+ * Times are local standard time, as archive records are stored.
+ */
+public class SolarPositionCalculator {
+    /**
+     * The average extraterrestrial irradiance, in W/m2
+     */
+    public static final double SOLAR_CONSTANT = 1367.0;
+    private static final int DAYS = 367;
+    private static final int STEP_SECONDS = 300;
+    private static final int STEPS = 86400 / STEP_SECONDS;
+    private static final double SECONDS_PER_DAY = 86400.0;
+
+    private final double sinLatitude;
+    private final double cosLatitude;
+    private final double timeOffsetMinutes;
+    private final double[] declination = new double[DAYS];
+    private final double[] equationOfTime = new double[DAYS];
+    private final float[][] sineElevations = new float[DAYS][];
+    private final float[][] clearSkyIrradiance = new float[DAYS][];
+
+    /**
+     * Constructor that uses the standard time of the default time zone.
+     *
+     * @param location The location
+     */
+    public SolarPositionCalculator(GeographicLocation location) {
+        this(location, ZoneId.systemDefault().getRules().getStandardOffset(Instant.now()));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param location The location
+     * @param standardTime The offset of the local standard time from UTC
+     */
+    public SolarPositionCalculator(GeographicLocation location, ZoneOffset standardTime) {
+        double latitude = location.getLatitude().get(AngularMeasurement.Unit.RADIANS);
+        double longitude = location.getLongitude().get(AngularMeasurement.Unit.DEGREES);
+        sinLatitude = Math.sin(latitude);
+        cosLatitude = Math.cos(latitude);
+        timeOffsetMinutes = 4.0 * longitude - standardTime.getTotalSeconds() / 60.0;
+
+        for (int j = 1; j < DAYS; j++) {
+            double g = 2.0 * Math.PI / 365.0 * (j - 1);
+            equationOfTime[j] = 229.18 * (0.000075 + 0.001868 * Math.cos(g) - 0.032077 * Math.sin(g)
+                                          - 0.014615 * Math.cos(2.0 * g) - 0.040849 * Math.sin(2.0 * g));
+            declination[j] = 0.006918 - 0.399912 * Math.cos(g) + 0.070257 * Math.sin(g)
+                             - 0.006758 * Math.cos(2.0 * g) + 0.000907 * Math.sin(2.0 * g)
+                             - 0.002697 * Math.cos(3.0 * g) + 0.00148 * Math.sin(3.0 * g);
+
+            float[] elevations = new float[STEPS + 1];
+            float[] irradiance = new float[STEPS + 1];
+            for (int s = 0; s <= STEPS; s++) {
+                double sine = sineElevation(j, s * STEP_SECONDS);
+                elevations[s] = (float)sine;
+                irradiance[s] = (float)haurwitz(sine);
+            }
+
+            sineElevations[j] = elevations;
+            clearSkyIrradiance[j] = irradiance;
+        }
+    }
+
+    /**
+     * The Haurwitz clear-sky global horizontal irradiance.
+     */
+    private static double haurwitz(double sineElevation) {
+        if (sineElevation <= 0.0)
+            return 0.0;
+
+        return 1098.0 * sineElevation * Math.exp(-0.057 / sineElevation);
+    }
+
+    private double hourAngle(int dayOfYear, double secondOfDay) {
+        double trueSolarMinutes = secondOfDay / 60.0 + equationOfTime[dayOfYear] + timeOffsetMinutes;
+        return Math.toRadians(trueSolarMinutes / 4.0 - 180.0);
+    }
+
+    private double sineElevation(int dayOfYear, double secondOfDay) {
+        double d = declination[dayOfYear];
+        return sinLatitude * Math.sin(d) + cosLatitude * Math.cos(d) * Math.cos(hourAngle(dayOfYear, secondOfDay));
+    }
+
+    /**
+     * Get the elevation of the sun.
+     *
+     * @param time The local standard time
+     * @return The elevation in degrees above the horizon, negative when the sun is down
+     */
+    public double getElevation(LocalDateTime time) {
+        double sine = sineElevation(time.getDayOfYear(), time.toLocalTime().toSecondOfDay());
+        return Math.toDegrees(Math.asin(Math.max(-1.0, Math.min(1.0, sine))));
+    }
+
+    /**
+     * Get the azimuth of the sun.
+     *
+     * @param time The local standard time
+     * @return The azimuth in degrees clockwise from north
+     */
+    public double getAzimuth(LocalDateTime time) {
+        int j = time.getDayOfYear();
+        double h = hourAngle(j, time.toLocalTime().toSecondOfDay());
+        double d = declination[j];
+        double azimuth = Math.toDegrees(Math.atan2(Math.sin(h), Math.cos(h) * sinLatitude - Math.tan(d) * cosLatitude)) + 180.0;
+        return azimuth >= 360.0 ? azimuth - 360.0 : azimuth;
+    }
+
+    /**
+     * Get the extraterrestrial irradiance normal to the sun's rays, which varies with the distance to the sun.
+     *
+     * @param dayOfYear The day of the year
+     * @return The irradiance in W/m2
+     */
+    public double getExtraterrestrialIrradiance(int dayOfYear) {
+        return SOLAR_CONSTANT * (1.0 + 0.033 * Math.cos(2.0 * Math.PI * dayOfYear / 365.0));
+    }
+
+    /**
+     * Get the sine of the elevation of the sun from the tables.
+     *
+     * @param epochSecond The local standard time in seconds, as if it were UTC
+     * @return The sine of the elevation
+     */
+    public double getSineElevation(long epochSecond) {
+        return interpolate(sineElevations, epochSecond);
+    }
+
+    /**
+     * Get the clear-sky global horizontal irradiance from the tables.
+     *
+     * @param epochSecond The local standard time in seconds, as if it were UTC
+     * @return The irradiance in W/m2
+     */
+    public double getClearSkyIrradiance(long epochSecond) {
+        return interpolate(clearSkyIrradiance, epochSecond);
+    }
+
+    /**
+     * Get the clear-sky global horizontal irradiance.
+     *
+     * @param time The local standard time
+     * @return The irradiance in W/m2
+     */
+    public double getClearSkyIrradiance(LocalDateTime time) {
+        return getClearSkyIrradiance(time.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Get the sines of the elevation of the sun for a column of times.
+     *
+     * @param epochSeconds The local standard times in seconds, as if they were UTC
+     * @param sines The array that receives the sines of the elevation
+     * @param length The number of times
+     */
+    public void getSineElevations(long[] epochSeconds, double[] sines, int length) {
+        for (int i = 0; i < length; i++)
+            sines[i] = interpolate(sineElevations, epochSeconds[i]);
+    }
+
+    /**
+     * Get the day of the year of a time.
+     *
+     * @param epochSecond The time in seconds
+     * @return The day of the year
+     */
+    public static int dayOfYear(long epochSecond) {
+        return LocalDate.ofEpochDay(Math.floorDiv(epochSecond, (long)SECONDS_PER_DAY)).getDayOfYear();
+    }
+
+    private static double interpolate(float[][] table, long epochSecond) {
+        int j = dayOfYear(epochSecond);
+        long second = Math.floorMod(epochSecond, (long)SECONDS_PER_DAY);
+        int s = (int)(second / STEP_SECONDS);
+        double fraction = (second - (long)s * STEP_SECONDS) / (double)STEP_SECONDS;
+        float[] values = table[j];
+        return values[s] + (values[s + 1] - values[s]) * fraction;
+    }
+}
@@ -0,0 +1,125 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class AnalogIndexTest {
+    private static final int HOURS = 24 * 365 * 2;
+    private static final LocalDateTime START = LocalDateTime.of(2014, 1, 1, 0, 0);
+
+    public AnalogIndexTest() {
+    }
+
+    private List<HistoricalRecord> createRecords(double[][] features) {
+        Random random = new Random(7);
+        List<HistoricalRecord> records = new ArrayList<>();
+        double pressure = 1013.0;
+        for (int i = 0; i < HOURS; i++) {
+            HistoricalRecord rec = new HistoricalRecord(START.plusHours(i + 1));
+            rec.setDuration(Duration.ofHours(1));
+            pressure += random.nextGaussian() * .5 - (pressure - 1013.0) * .01;
+            double temperature = 12.0 + random.nextGaussian() * 8.0;
+            double humidity = Math.max(5.0, Math.min(100.0, 60.0 + random.nextGaussian() * 20.0));
+            int direction = random.nextInt(360);
+            rec.setBaroPressure(new Pressure(pressure, Pressure.Unit.MILLIBAR));
+            rec.setAvgOutdoorTemperature(new Temperature(temperature, Temperature.Unit.CELSIUS));
+            rec.setOutdoorHumidity(new Humidity(humidity));
+            rec.setAvgWind(new Wind(new Speed(1.0 + random.nextDouble() * 4.0), new Heading((float)direction)));
+            rec.setRainfall(new Depth(i % 10 == 0 ? 1.0 : 0.0, Depth.Unit.MILLIMETERS));
+            records.add(rec);
+            features[i] = new double[]{pressure, temperature, humidity, Math.sin(Math.toRadians(direction)), Math.cos(Math.toRadians(direction))};
+        }
+
+        return records;
+    }
+
+    @Test
+    public void testNearestNeighbors() {
+        System.out.println("nearestNeighbors");
+        double[][] features = new double[HOURS][];
+        List<HistoricalRecord> records = createRecords(features);
+        AnalogIndex index = new AnalogIndex();
+        //
+        // Most of the records at once and the rest as they would arrive, which leaves vectors pending
+        //
+        index.applyHistoricalRecords(records.subList(0, HOURS - 500));
+        for (HistoricalRecord rec : records.subList(HOURS - 500, HOURS))
+            index.applyHistoricalRecord(rec);
+
+        assertEquals(HOURS - AnalogIndex.TENDENCY_HOURS - 1, index.size());
+
+        int horizon = 6;
+        List<AnalogIndex.Analog> analogs = index.findAnalogs(1008.0, -2.0, 90.0, 5.0, 90.0, 10, horizon);
+        assertEquals(10, analogs.size());
+
+        //
+        // The distances of the same hours calculated directly
+        //
+        double[] distances = new double[HOURS];
+        int n = 0;
+        for (int i = AnalogIndex.TENDENCY_HOURS; i < HOURS - horizon - 2; i++) {
+            double[] f = features[i];
+            double tendency = f[0] - features[i - AnalogIndex.TENDENCY_HOURS][0];
+            distances[n++] = Math.sqrt(Math.pow((f[0] - 1008.0) / 5.0, 2) + Math.pow(tendency + 2.0, 2) + Math.pow(f[3] - 1.0, 2) + Math.pow(f[4], 2)
+                                       + Math.pow((f[1] - 5.0) / 3.0, 2) + Math.pow((f[2] - 90.0) / 10.0, 2));
+        }
+
+        Arrays.sort(distances, 0, n);
+        for (int i = 0; i < analogs.size(); i++)
+            assertEquals(distances[i], analogs.get(i).getDistance(), 1e-4);
+
+        AnalogIndex.Analog analog = analogs.get(0);
+        int hour = (int)Duration.between(START, analog.getTime()).toHours();
+        assertEquals(features[hour + horizon][1] - features[hour][1], analog.getTemperatureChange(), 1e-9);
+        assertEquals(features[hour + horizon][0] - features[hour][0], analog.getPressureChange(), 1e-9);
+    }
+
+    @Test
+    public void testAnalogsOfHour() {
+        System.out.println("analogsOfHour");
+        List<HistoricalRecord> records = createRecords(new double[HOURS][]);
+        AnalogIndex index = new AnalogIndex();
+        index.applyHistoricalRecords(records);
+        LocalDateTime time = START.plusDays(100).plusMinutes(30);
+        List<AnalogIndex.Analog> analogs = index.findAnalogs(time, 5, 24);
+        assertEquals(5, analogs.size());
+        for (AnalogIndex.Analog analog : analogs) {
+            assertTrue(Math.abs(Duration.between(time, analog.getTime()).toHours()) > 48);
+            assertTrue(analog.getRainfall() >= 2.0 && analog.getRainfall() <= 3.0);
+        }
+
+        assertTrue(index.findAnalogs(START.minusDays(1), 5, 24).isEmpty());
+    }
+}
@@ -0,0 +1,217 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.SoilMoisture;
+import com.bdb.weather.common.measurement.SolarRadiation;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class ArchiveBlockCodecTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 7, 1, 0, 0);
+    private static final int SOIL_SENSOR = 600;
+
+    public ArchiveBlockCodecTest() {
+    }
+
+    /**
+     * Create a day of 5 minute archive records with the resolution of a Davis console, tenths of a degree Fahrenheit,
+     * whole percent humidity, thousandths of an inch of pressure, whole mph and 0.01 inch of rain. There is a missing
+     * record every 100 records and a soil moisture sensor that reports every 15 minutes.
+     */
+    private List<HistoricalRecord> createRecords(int days) {
+        Random random = new Random(1);
+        List<HistoricalRecord> records = new ArrayList<>();
+        double temperature = 65.0;
+        double pressure = 30.000;
+        int humidity = 50;
+        for (int i = 0; i < days * 288; i++) {
+            if (i % 100 == 99)
+                continue;
+
+            LocalDateTime time = START.plusMinutes(i * 5L);
+            HistoricalRecord rec = new HistoricalRecord(time);
+            rec.setDuration(Duration.ofMinutes(5));
+            temperature = Math.round((temperature + random.nextGaussian() * .2) * 10.0) / 10.0;
+            pressure = Math.round((pressure + random.nextGaussian() * .002) * 1000.0) / 1000.0;
+            humidity = Math.max(1, Math.min(100, humidity + (random.nextInt(3) - 1)));
+            Temperature t = new Temperature(temperature, Temperature.Unit.FAHRENHEIT);
+            rec.setAvgOutdoorTemperature(t);
+            rec.setLowOutdoorTemperature(t);
+            rec.setHighOutdoorTemperature(t);
+            rec.setOutdoorHumidity(new Humidity(humidity));
+            rec.setIndoorTemperature(new Temperature(72.0, Temperature.Unit.FAHRENHEIT));
+            rec.setIndoorHumidity(new Humidity(40));
+            rec.setBaroPressure(new Pressure(pressure, Pressure.Unit.IN_HG));
+            int speed = random.nextInt(4);
+            rec.setAvgWind(new Wind(new Speed(speed, Speed.Unit.MILES_PER_HOUR), new Heading(random.nextInt(16) * 22.5)));
+            rec.setHighWind(new Wind(new Speed(speed + 2, Speed.Unit.MILES_PER_HOUR), new Heading(random.nextInt(16) * 22.5)));
+            rec.setRainfall(new Depth(random.nextInt(20) == 0 ? .01 : 0.0, Depth.Unit.INCHES));
+            rec.setHighRainfallRate(new Depth(0.0, Depth.Unit.INCHES));
+            int hour = time.getHour();
+            rec.setAvgSolarRadiation(new SolarRadiation(hour < 6 || hour > 19 ? 0 : 50 * (hour - 5)));
+            rec.setHighSolarRadiation(new SolarRadiation(hour < 6 || hour > 19 ? 0 : 50 * (hour - 4)));
+            if (time.getMinute() % 15 == 0)
+                rec.setSoilMoistureForSensor(SOIL_SENSOR, new SoilMoisture(20 + hour));
+
+            records.add(rec);
+        }
+
+        return records;
+    }
+
+    /**
+     * The fixed width encoding the codec is compared with, as a database row would store the record.
+     */
+    private byte[] encodeFixedWidth(List<HistoricalRecord> records) {
+        ByteBuffer buffer = ByteBuffer.allocate((int)ArchiveBlockCodec.fixedWidthSize(records));
+        for (HistoricalRecord rec : records) {
+            buffer.putLong(rec.getTime().toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt((int)rec.getDuration().getSeconds());
+            for (ArchiveField field : ArchiveBlockCodec.STORED_FIELDS)
+                buffer.putDouble(field.getValue(rec));
+
+            for (int i = 0; i < rec.getMeasurementEntries().size(); i++)
+                buffer.putDouble(0.0);
+        }
+
+        return buffer.array();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        System.out.println("roundTrip");
+        List<HistoricalRecord> records = createRecords(1);
+        ArchiveBlockCursor cursor = ArchiveBlockCodec.decode(ArchiveBlockCodec.encode(records));
+        assertEquals(records.size(), cursor.size());
+
+        int n = 0;
+        while (cursor.next()) {
+            HistoricalRecord expected = records.get(n);
+            assertEquals(n, cursor.position());
+            assertEquals(expected.getTime(), cursor.getTime());
+            assertEquals(300, cursor.getDurationSeconds(n));
+            for (ArchiveField field : ArchiveField.values()) {
+                double value = field.getValue(expected);
+                if (Double.isNaN(value))
+                    assertTrue(field.name(), Double.isNaN(cursor.getValue(field)));
+                else
+                    assertEquals(field.name(), value, cursor.getValue(field), Math.abs(value) * 1e-6 + 1e-6);
+            }
+
+            HistoricalRecord rec = cursor.toHistoricalRecord(n);
+            if (expected.getSoilMoistureForSensor(SOIL_SENSOR) == null) {
+                assertNull(rec.getSoilMoistureForSensor(SOIL_SENSOR));
+                assertTrue(Double.isNaN(cursor.getExtraValue(SensorType.SOIL_MOISTURE, SOIL_SENSOR, n)));
+            }
+            else
+                assertEquals(expected.getSoilMoistureForSensor(SOIL_SENSOR), rec.getSoilMoistureForSensor(SOIL_SENSOR));
+
+            assertNull(rec.getWindGust());
+            n++;
+        }
+
+        assertEquals(records.size(), n);
+        assertFalse(cursor.next());
+
+        cursor = ArchiveBlockCodec.decode(ArchiveBlockCodec.encode(new ArrayList<>()));
+        assertEquals(0, cursor.size());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testColumnScan() {
+        System.out.println("columnScan");
+        List<HistoricalRecord> records = createRecords(1);
+        byte[] block = ArchiveBlockCodec.encode(records);
+        ArchiveBlockCursor cursor = ArchiveBlockCodec.decode(block);
+        double total = 0.0;
+        for (int i = 0; i < cursor.size(); i++)
+            total += cursor.getValue(ArchiveField.RAINFALL, i);
+
+        double expected = 0.0;
+        for (HistoricalRecord rec : records)
+            expected += rec.getRainfall().get(Depth.Unit.MILLIMETERS);
+
+        assertEquals(expected, total, .001);
+        assertTrue(cursor.getBytesRead() < block.length / 4);
+    }
+
+    @Test
+    public void testCompression() {
+        System.out.println("compression");
+        List<HistoricalRecord> records = createRecords(30);
+        int iterations = 20;
+
+        long start = System.nanoTime();
+        byte[] block = null;
+        for (int i = 0; i < iterations; i++)
+            block = ArchiveBlockCodec.encode(records);
+
+        long encodeTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        double sum = 0.0;
+        long scanBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            ArchiveBlockCursor cursor = ArchiveBlockCodec.decode(block);
+            for (int r = 0; r < cursor.size(); r++)
+                sum += cursor.getValue(ArchiveField.AVG_OUTDOOR_TEMPERATURE, r) + cursor.getValue(ArchiveField.BARO_PRESSURE, r);
+
+            scanBytes = cursor.getBytesRead();
+        }
+
+        long decodeTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        byte[] fixed = null;
+        for (int i = 0; i < iterations; i++)
+            fixed = encodeFixedWidth(records);
+
+        long fixedTime = System.nanoTime() - start;
+
+        System.out.println("Records: " + records.size() + " Fixed width: " + fixed.length + " bytes (" + fixedTime / iterations / 1000 + " us)" +
+                           " Compressed: " + block.length + " bytes (encode " + encodeTime / iterations / 1000 + " us, two column decode " +
+                           decodeTime / iterations / 1000 + " us, " + scanBytes + " bytes read) Checksum: " + (int)sum);
+
+        //
+        // The noise of the sensors limits the compression of the whole block, a scan of a few columns is
+        // where the order of magnitude is gained
+        //
+        assertTrue(fixed.length >= block.length * 5);
+        assertTrue(fixed.length >= scanBytes * 10);
+    }
+}
@@ -0,0 +1,204 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ArchivePresenceIndexTest {
+    private static final LocalDate DAY = LocalDate.of(2016, 2, 27);
+    private static final LocalDateTime START = DAY.atStartOfDay();
+    private static final int INTERVALS = 288;
+
+    public ArchivePresenceIndexTest() {
+    }
+
+    private static LocalDateTime interval(int i) {
+        return START.plusMinutes(i * 5L);
+    }
+
+    /**
+     * Find the missing ranges of intervals from a list of present intervals, joining the gaps that are separated by
+     * no more than mergeIntervals present intervals.
+     */
+    private static List<String> bruteForce(boolean[] present, int from, int to, int mergeIntervals) {
+        List<int[]> gaps = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            boolean missing = i < 0 || i >= present.length || !present[i];
+            if (!missing)
+                continue;
+
+            int[] last = gaps.isEmpty() ? null : gaps.get(gaps.size() - 1);
+            if (last != null && i - last[1] <= mergeIntervals)
+                last[1] = i + 1;
+            else
+                gaps.add(new int[]{i, i + 1});
+        }
+
+        List<String> ranges = new ArrayList<>();
+        for (int[] gap : gaps)
+            ranges.add(interval(gap[0]) + "-" + interval(gap[1]));
+
+        return ranges;
+    }
+
+    private static List<String> toStrings(List<DateRange> ranges) {
+        List<String> strings = new ArrayList<>();
+        for (DateRange range : ranges)
+            strings.add(range.getStart() + "-" + range.getEnd());
+
+        return strings;
+    }
+
+    @Test
+    public void testGapAcrossMidnight() {
+        System.out.println("gap across midnight");
+        ArchivePresenceIndex index = new ArchivePresenceIndex(Duration.ofMinutes(5));
+        //
+        // Two days of records without the two hours around midnight
+        //
+        for (int i = 0; i < INTERVALS * 2; i++)
+            if (i < INTERVALS - 12 || i >= INTERVALS + 12)
+                index.addTime(interval(i).plusSeconds(30));
+
+        List<DateRange> gaps = index.findMissingIntervals(START, START.plusDays(2));
+        assertEquals(1, gaps.size());
+        assertEquals(DAY.atTime(23, 0), gaps.get(0).getStart());
+        assertEquals(DAY.plusDays(1).atTime(1, 0), gaps.get(0).getEnd());
+        assertEquals(INTERVALS - 12, index.getRecordCount(DAY));
+        assertEquals(INTERVALS - 12, index.getRecordCount(DAY.plusDays(1)));
+        assertEquals((INTERVALS - 12) * 100.0 / INTERVALS, index.getCompleteness(DAY), .0001);
+        assertEquals(Arrays.asList(DAY.minusDays(1), DAY.plusDays(2)), index.getIncompleteDays(DAY.minusDays(1), DAY.plusDays(2), 90.0));
+
+        //
+        // A range that starts in the middle of an interval includes the whole interval
+        //
+        gaps = index.findMissingIntervals(DAY.atTime(23, 2), DAY.plusDays(1).atTime(0, 31));
+        assertEquals(1, gaps.size());
+        assertEquals(DAY.atTime(23, 0), gaps.get(0).getStart());
+        assertEquals(DAY.plusDays(1).atTime(0, 35), gaps.get(0).getEnd());
+    }
+
+    @Test
+    public void testEarlierRecords() {
+        System.out.println("earlier records");
+        ArchivePresenceIndex index = new ArchivePresenceIndex(Duration.ofMinutes(5));
+        Random random = new Random(42);
+        int days = 20;
+        boolean[] present = new boolean[INTERVALS * days];
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < present.length; i++) {
+            if (random.nextInt(20) != 0 && (i / INTERVALS) % 7 != 3) {
+                present[i] = true;
+                order.add(i);
+            }
+        }
+
+        //
+        // The latest days are added first, so the first day of the index moves earlier several times
+        //
+        order.sort((a, b) -> Integer.compare(b / INTERVALS, a / INTERVALS));
+        for (int i : order)
+            index.addTime(interval(i));
+
+        for (int i = -10; i < present.length + 10; i++)
+            assertEquals(i >= 0 && i < present.length && present[i], index.isPresent(interval(i)));
+
+        for (int d = 0; d < days; d++) {
+            int count = 0;
+            for (int i = d * INTERVALS; i < (d + 1) * INTERVALS; i++)
+                if (present[i])
+                    count++;
+
+            assertEquals(count, index.getRecordCount(DAY.plusDays(d)));
+        }
+
+        for (int n = 0; n < 200; n++) {
+            int from = random.nextInt(present.length + 600) - 300;
+            int to = from + random.nextInt(INTERVALS * 3);
+            assertEquals(bruteForce(present, from, to, 0), toStrings(index.findMissingIntervals(interval(from), interval(to))));
+        }
+    }
+
+    @Test
+    public void testMergeGap() {
+        System.out.println("mergeGap");
+        ArchivePresenceIndex index = new ArchivePresenceIndex(Duration.ofMinutes(5));
+        Random random = new Random(142);
+        boolean[] present = new boolean[INTERVALS * 3];
+        for (int i = 0; i < present.length; i++) {
+            present[i] = random.nextInt(4) != 0;
+            if (present[i])
+                index.addTime(interval(i));
+        }
+
+        //
+        // The console holds all of the records, so the plan is the missing intervals with the gaps that are separated
+        // by no more than the merge gap joined
+        //
+        HistoricalInfo info = new HistoricalInfo(interval(0), interval(present.length - 1), 0, present.length, 5, 0);
+        int[] merges = {0, 1, 2, 5};
+        for (int merge : merges) {
+            List<String> expected = bruteForce(present, 0, present.length, merge);
+            List<String> actual = toStrings(index.planBackfill(info, START.minusDays(1), START.plusDays(5), Duration.ofMinutes(5 * merge)));
+            assertEquals(expected, actual);
+        }
+
+        assertTrue(index.planBackfill(info, START, START.plusDays(3), Duration.ofMinutes(25)).size() <
+                   index.planBackfill(info, START, START.plusDays(3), Duration.ZERO).size());
+
+        //
+        // The plan is limited to the records of the console
+        //
+        HistoricalInfo partial = new HistoricalInfo(interval(100), interval(199), 0, 100, 5, 0);
+        assertEquals(bruteForce(present, 100, 200, 1), toStrings(index.planBackfill(partial, START, START.plusDays(3), Duration.ofMinutes(5))));
+        HistoricalInfo later = new HistoricalInfo(START.plusDays(4), START.plusDays(5), 0, 288, 5, 0);
+        assertTrue(index.planBackfill(later, START, START.plusDays(3), Duration.ZERO).isEmpty());
+    }
+
+    @Test
+    public void testEmptyConsole() {
+        System.out.println("empty console");
+        ArchivePresenceIndex index = new ArchivePresenceIndex(Duration.ofMinutes(5));
+        index.addTime(interval(1));
+        HistoricalInfo info = new HistoricalInfo(null, null, 0, 0, 5, 0) {
+            @Override
+            public LocalDateTime getFirstRecordTime() {
+                return null;
+            }
+        };
+
+        List<DateRange> plan = index.planBackfill(info, START, interval(3), Duration.ZERO);
+        assertEquals(2, plan.size());
+        assertEquals(START, plan.get(0).getStart());
+        assertEquals(interval(1), plan.get(0).getEnd());
+        assertEquals(interval(2), plan.get(1).getStart());
+        assertEquals(interval(3), plan.get(1).getEnd());
+        assertFalse(index.isPresent(interval(2)));
+    }
+}
@@ -0,0 +1,197 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class ArchiveZoneMapIndexTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 7, 1, 0, 0);
+    private static final int DAYS = 10;
+    private static final int HOT_DAY = 6;
+
+    public ArchiveZoneMapIndexTest() {
+    }
+
+    /**
+     * Create 15 minute archive records with temperatures in tenths of a degree Fahrenheit, which are not exact in
+     * Celsius. Only one day is hotter than 100F.
+     */
+    private static List<HistoricalRecord> createRecords() {
+        Random random = new Random(35);
+        List<HistoricalRecord> records = new ArrayList<>();
+        for (int i = 0; i < DAYS * 96; i++) {
+            LocalDateTime time = START.plusMinutes((i + 1) * 15L);
+            HistoricalRecord rec = new HistoricalRecord(time);
+            rec.setDuration(Duration.ofMinutes(15));
+            double fahrenheit = 70.0 + random.nextInt(250) / 10.0;
+            if (i / 96 == HOT_DAY && i % 96 >= 56 && i % 96 < 64)
+                fahrenheit = 101.0 + random.nextInt(40) / 10.0;
+
+            rec.setAvgOutdoorTemperature(new Temperature(fahrenheit, Temperature.Unit.FAHRENHEIT));
+            rec.setOutdoorHumidity(new Humidity(20 + random.nextInt(60)));
+            records.add(rec);
+        }
+
+        return records;
+    }
+
+    private static List<LocalDateTime> bruteForce(List<HistoricalRecord> records, ArchiveField field, double low, double high, LocalDateTime start, LocalDateTime end) {
+        return records.stream()
+                      .filter((rec) -> !rec.getTime().isBefore(start) && rec.getTime().isBefore(end))
+                      .filter((rec) -> field.getValue(rec) >= low && field.getValue(rec) <= high)
+                      .map(HistoricalRecord::getTime)
+                      .collect(Collectors.toList());
+    }
+
+    private static List<LocalDateTime> times(List<HistoricalRecord> records) {
+        return records.stream().map(HistoricalRecord::getTime).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testOutwardRounding() {
+        System.out.println("outward rounding");
+        List<HistoricalRecord> records = createRecords();
+        ArchiveZoneMapIndex index = new ArchiveZoneMapIndex(1);
+        index.addHistoricalRecords(records);
+        index.flush();
+        assertEquals(records.size(), index.getBlockCount());
+
+        //
+        // The stored values are floats, but the dew point is calculated in double from the decoded record. With one
+        // record per block the zone map is the dew point itself, which must still be found when its float rounding is
+        // outside of the range of the query.
+        //
+        List<HistoricalRecord> decoded = index.query(ArchiveField.OUTDOOR_HUMIDITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        assertEquals(records.size(), decoded.size());
+        int inexact = 0;
+        for (HistoricalRecord rec : decoded) {
+            double value = ArchiveField.DEW_POINT.getValue(rec);
+            if ((float)value != value)
+                inexact++;
+
+            List<LocalDateTime> found = times(index.query(ArchiveField.DEW_POINT, value, value));
+            assertTrue(found.contains(rec.getTime()));
+            assertEquals(bruteForce(decoded, ArchiveField.DEW_POINT, value, value, LocalDateTime.MIN, LocalDateTime.MAX), found);
+        }
+
+        assertTrue(inexact > records.size() / 2);
+    }
+
+    @Test
+    public void testCandidateBlocks() {
+        System.out.println("countCandidateBlocks");
+        List<HistoricalRecord> records = createRecords();
+        ArchiveZoneMapIndex index = new ArchiveZoneMapIndex();
+        index.addHistoricalRecords(records);
+        index.flush();
+
+        //
+        // One block per day, only the hot day is decoded for the hot records
+        //
+        double hot = new Temperature(100.0, Temperature.Unit.FAHRENHEIT).get(Temperature.Unit.CELSIUS);
+        assertEquals(DAYS + 1, index.getBlockCount());
+        assertEquals(1, index.countCandidateBlocks(ArchiveField.AVG_OUTDOOR_TEMPERATURE, hot, Double.POSITIVE_INFINITY, LocalDateTime.MIN, LocalDateTime.MAX));
+        assertEquals(0, index.countCandidateBlocks(ArchiveField.AVG_OUTDOOR_TEMPERATURE, 50.0, Double.POSITIVE_INFINITY, LocalDateTime.MIN, LocalDateTime.MAX));
+        assertEquals(0, index.countCandidateBlocks(ArchiveField.RAINFALL, 0.0, Double.POSITIVE_INFINITY, LocalDateTime.MIN, LocalDateTime.MAX));
+        assertEquals(index.getBlockCount(), index.countCandidateBlocks(ArchiveField.OUTDOOR_HUMIDITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, LocalDateTime.MIN, LocalDateTime.MAX));
+
+        List<HistoricalRecord> found = index.query(ArchiveField.AVG_OUTDOOR_TEMPERATURE, hot, Double.POSITIVE_INFINITY);
+        assertEquals(8, found.size());
+        assertEquals(bruteForce(records, ArchiveField.AVG_OUTDOOR_TEMPERATURE, hot, Double.POSITIVE_INFINITY, LocalDateTime.MIN, LocalDateTime.MAX), times(found));
+    }
+
+    @Test
+    public void testTimeRange() {
+        System.out.println("time range");
+        List<HistoricalRecord> records = createRecords();
+        ArchiveZoneMapIndex index = new ArchiveZoneMapIndex(50);
+        index.addHistoricalRecords(records);
+        index.flush();
+
+        //
+        // The blocks that end before the start of the range are skipped and the records outside of the range are
+        // clipped from the blocks at the ends of the range
+        //
+        LocalDateTime start = START.plusDays(3).plusHours(5).plusMinutes(15);
+        LocalDateTime end = START.plusDays(4).plusHours(2);
+        int blocks = index.countCandidateBlocks(ArchiveField.OUTDOOR_HUMIDITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, start, end);
+        assertTrue(blocks >= 2 && blocks <= 3);
+        assertEquals(bruteForce(records, ArchiveField.OUTDOOR_HUMIDITY, 40.0, 60.0, start, end),
+                     times(index.query(ArchiveField.OUTDOOR_HUMIDITY, 40.0, 60.0, start, end)));
+        assertEquals(bruteForce(records, ArchiveField.OUTDOOR_HUMIDITY, 0.0, 100.0, start, end).size(),
+                     index.query(ArchiveField.OUTDOOR_HUMIDITY, 0.0, 100.0, start, end).size());
+        assertEquals(0, index.query(ArchiveField.OUTDOOR_HUMIDITY, 0.0, 100.0, START.minusDays(5), START).size());
+        assertEquals(0, index.query(ArchiveField.OUTDOOR_HUMIDITY, 0.0, 100.0, START.plusDays(DAYS + 1), LocalDateTime.MAX).size());
+    }
+
+    @Test
+    public void testDerivedField() {
+        System.out.println("derived field");
+        List<HistoricalRecord> records = createRecords();
+        ArchiveZoneMapIndex index = new ArchiveZoneMapIndex();
+        index.addHistoricalRecords(records);
+        index.flush();
+
+        //
+        // The dew point is not stored, its zone map is calculated from the decoded records, so the expected records
+        // are found from the decoded records as well
+        //
+        List<HistoricalRecord> decoded = index.query(ArchiveField.OUTDOOR_HUMIDITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        for (double low = 0.0; low < 30.0; low += 2.5) {
+            List<LocalDateTime> expected = bruteForce(decoded, ArchiveField.DEW_POINT, low, low + 2.5, LocalDateTime.MIN, LocalDateTime.MAX);
+            assertEquals(expected, times(index.query(ArchiveField.DEW_POINT, low, low + 2.5)));
+        }
+
+        assertEquals(0, index.countCandidateBlocks(ArchiveField.DEW_POINT, 40.0, Double.POSITIVE_INFINITY, LocalDateTime.MIN, LocalDateTime.MAX));
+    }
+
+    @Test
+    public void testOpenBlock() {
+        System.out.println("open block");
+        List<HistoricalRecord> records = createRecords();
+        ArchiveZoneMapIndex index = new ArchiveZoneMapIndex();
+        index.addHistoricalRecords(records.subList(0, HOT_DAY * 96 + 60));
+
+        //
+        // Half of the hot day is still in the open block, its records are found without being compressed
+        //
+        assertEquals(HOT_DAY, index.getBlockCount());
+        double hot = new Temperature(100.0, Temperature.Unit.FAHRENHEIT).get(Temperature.Unit.CELSIUS);
+        List<HistoricalRecord> found = index.query(ArchiveField.AVG_OUTDOOR_TEMPERATURE, hot, Double.POSITIVE_INFINITY);
+        assertEquals(bruteForce(records.subList(0, HOT_DAY * 96 + 60), ArchiveField.AVG_OUTDOOR_TEMPERATURE, hot, Double.POSITIVE_INFINITY, LocalDateTime.MIN, LocalDateTime.MAX),
+                     times(found));
+        assertEquals(4, found.size());
+        assertEquals(0, index.countCandidateBlocks(ArchiveField.AVG_OUTDOOR_TEMPERATURE, hot, Double.POSITIVE_INFINITY, LocalDateTime.MIN, LocalDateTime.MAX));
+
+        LocalDateTime last = records.get(HOT_DAY * 96 + 59).getTime();
+        assertEquals(1, index.query(ArchiveField.AVG_OUTDOOR_TEMPERATURE, hot, Double.POSITIVE_INFINITY, last, LocalDateTime.MAX).size());
+        assertEquals(3, index.query(ArchiveField.AVG_OUTDOOR_TEMPERATURE, hot, Double.POSITIVE_INFINITY, LocalDateTime.MIN, last).size());
+    }
+}
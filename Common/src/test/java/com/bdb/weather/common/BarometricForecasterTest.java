@@ -0,0 +1,106 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.Speed;
+
+public class BarometricForecasterTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 1, 10, 6, 0);
+
+    public BarometricForecasterTest() {
+    }
+
+    /**
+     * Replay current weather every minute with a linear pressure change.
+     */
+    private void replay(BarometricForecaster forecaster, int startMinute, int minutes, double startInHg, double inHgPerHour, double windDirection) {
+        for (int i = startMinute; i < startMinute + minutes; i++) {
+            CurrentWeather cw = new CurrentWeather();
+            cw.setTime(START.plusMinutes(i));
+            cw.setWindSpeed(new Speed(5.0, Speed.Unit.METERS_PER_SEC));
+            cw.setWindDirection(new Heading(windDirection));
+            cw.setBarometricPressure(new Pressure(startInHg + inHgPerHour * (i - startMinute) / 60.0, Pressure.Unit.IN_HG));
+            forecaster.handleCurrentWeather(cw);
+        }
+    }
+
+    @Test
+    public void testDecisionTable() {
+        System.out.println("decisionTable");
+        assertEquals(0, ForecastRule.windSector(350.0));
+        assertEquals(2, ForecastRule.windSector(95.0));
+        assertEquals(0, ForecastRule.pressureBand(29.80));
+        assertEquals(3, ForecastRule.pressureBand(30.10));
+        assertEquals(4, ForecastRule.pressureBand(30.20));
+
+        assertEquals(ForecastRule.FAIR_SLIGHT_TEMPERATURE_CHANGE, BarometricForecaster.lookupRule(6, 3, WeatherTrend.STEADY, false));
+        assertEquals(ForecastRule.RAIN_WITHIN_18_HOURS, BarometricForecaster.lookupRule(3, 3, WeatherTrend.FALLING_SLOWLY, false));
+        //
+        // E to NE overrides SE to NE and E to N overrides S to E
+        //
+        assertEquals(ForecastRule.SEASONAL_RAIN_WITHIN_24_HOURS, BarometricForecaster.lookupRule(2, 3, WeatherTrend.FALLING_SLOWLY, false));
+        assertEquals(ForecastRule.SEVERE_STORM, BarometricForecaster.lookupRule(3, 0, WeatherTrend.FALLING_RAPIDLY, false));
+        assertEquals(ForecastRule.NORTHEAST_GALE, BarometricForecaster.lookupRule(2, 0, WeatherTrend.FALLING_RAPIDLY, false));
+        assertEquals(ForecastRule.CLEARING_AND_COLDER, BarometricForecaster.lookupRule(6, 0, WeatherTrend.RISING_RAPIDLY, true));
+        assertNull(BarometricForecaster.lookupRule(6, 0, WeatherTrend.RISING_RAPIDLY, false));
+        assertNull(BarometricForecaster.lookupRule(0, 2, WeatherTrend.STEADY, false));
+    }
+
+    @Test
+    public void testReplay() {
+        System.out.println("replay");
+        BarometricForecaster forecaster = new BarometricForecaster();
+
+        //
+        // No forecast until there is 3 hours of pressure history
+        //
+        replay(forecaster, 0, 120, 29.75, -.03, 135.0);
+        assertNull(forecaster.getForecastRule());
+
+        replay(forecaster, 120, 120, 29.69, -.03, 135.0);
+        assertEquals(WeatherTrend.FALLING_RAPIDLY, forecaster.getPressureTrend());
+        assertEquals(ForecastRule.SEVERE_STORM, forecaster.getForecastRule());
+        assertEquals(Forecast.MOSTLY_CLOUDY_WITH_RAIN, forecaster.getForecast());
+        assertEquals(START.plusMinutes(239), forecaster.getForecastTime());
+    }
+
+    @Test
+    public void testGoingToWest() {
+        System.out.println("goingToWest");
+        BarometricForecaster forecaster = new BarometricForecaster();
+
+        replay(forecaster, 0, 180, 29.40, .03, 200.0);
+        replay(forecaster, 180, 60, 29.49, .03, 270.0);
+        assertEquals(WeatherTrend.RISING_RAPIDLY, forecaster.getPressureTrend());
+        assertEquals(ForecastRule.CLEARING_AND_COLDER, forecaster.getForecastRule());
+
+        //
+        // Once the wind has been from the west for the whole history it is no longer going to the west
+        //
+        replay(forecaster, 240, 240, 29.52, .03, 270.0);
+        assertNull(forecaster.getForecastRule());
+    }
+}
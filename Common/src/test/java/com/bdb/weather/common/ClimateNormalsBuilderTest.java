@@ -0,0 +1,169 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class ClimateNormalsBuilderTest {
+    private static final int YEARS = 15;
+
+    public ClimateNormalsBuilderTest() {
+    }
+
+    private static double seasonal(int day, double mean, double amplitude) {
+        return mean - amplitude * Math.cos(2.0 * Math.PI * (day - 15) / ClimateNormalsBuilder.DAYS);
+    }
+
+    private List<SummaryRecord> createSummaries() {
+        Random random = new Random(3);
+        TemperatureBinMgr binMgr = new TemperatureBinMgr(null);
+        WindParameters windParameters = new WindParameters();
+        List<SummaryRecord> records = new ArrayList<>();
+        for (LocalDate date = LocalDate.of(2001, 1, 1); date.getYear() < 2001 + YEARS; date = date.plusDays(1)) {
+            int day = ClimateNormalsBuilder.dayIndex(date);
+            SummaryRecord rec = new SummaryRecord(windParameters, binMgr, date);
+            rec.setMaxOutdoorTemp(new Temperature(seasonal(day, 20.0, 10.0) + random.nextGaussian() * 4.0, Temperature.Unit.CELSIUS), date.atTime(15, 0));
+            rec.setMinOutdoorTemp(new Temperature(seasonal(day, 8.0, 8.0) + random.nextGaussian() * 4.0, Temperature.Unit.CELSIUS), date.atTime(6, 0));
+            records.add(rec);
+        }
+
+        return records;
+    }
+
+    @Test
+    public void testHarmonicNormals() {
+        System.out.println("harmonicNormals");
+        DayOfYearCollection<WeatherAverage> normals = new ClimateNormalsBuilder().buildNormals(createSummaries());
+        double maxError = 0.0;
+        LocalDate date = LocalDate.of(2001, 1, 1);
+        for (int d = 0; d < ClimateNormalsBuilder.DAYS; d++, date = date.plusDays(1)) {
+            WeatherAverage avg = normals.item(date);
+            maxError = Math.max(maxError, Math.abs(avg.getHighTemperature().get(Temperature.Unit.CELSIUS) - seasonal(d, 20.0, 10.0)));
+            maxError = Math.max(maxError, Math.abs(avg.getLowTemperature().get(Temperature.Unit.CELSIUS) - seasonal(d, 8.0, 8.0)));
+        }
+
+        System.out.println("Harmonic normals maximum error: " + maxError);
+        assertTrue(maxError < 1.0);
+        assertEquals(Month.FEBRUARY, normals.item(LocalDate.of(2004, 2, 28)).getMonth());
+    }
+
+    @Test
+    public void testMovingWindowNormals() {
+        System.out.println("movingWindowNormals");
+        List<SummaryRecord> records = createSummaries();
+        //
+        // A missing week of data is covered by the window
+        //
+        records.removeIf((rec) -> rec.getDate().getMonth() == Month.JUNE && rec.getDate().getDayOfMonth() <= 7);
+        ClimateNormalsBuilder builder = new ClimateNormalsBuilder(ClimateNormalsBuilder.Smoothing.MOVING_WINDOW, 31);
+        DayWeatherAverages averages = builder.buildDayWeatherAverages(records);
+        WeatherAverage june = averages.getAverage(LocalDate.of(2016, 6, 3));
+        int day = ClimateNormalsBuilder.dayIndex(LocalDate.of(2001, 6, 3));
+        assertEquals(seasonal(day, 20.0, 10.0), june.getHighTemperature().get(Temperature.Unit.CELSIUS), 1.0);
+    }
+
+    @Test
+    public void testLeapDay() {
+        System.out.println("leapDay");
+        assertEquals(58, ClimateNormalsBuilder.dayIndex(LocalDate.of(2016, 2, 28)));
+        assertEquals(59, ClimateNormalsBuilder.dayIndex(LocalDate.of(2016, 2, 29)));
+        assertEquals(59, ClimateNormalsBuilder.dayIndex(LocalDate.of(2016, 3, 1)));
+        assertEquals(364, ClimateNormalsBuilder.dayIndex(LocalDate.of(2016, 12, 31)));
+        assertEquals(59, ClimateNormalsBuilder.dayIndex(LocalDate.of(2015, 3, 1)));
+        assertEquals(364, ClimateNormalsBuilder.dayIndex(LocalDate.of(2015, 12, 31)));
+
+        //
+        // With a window of one day the normals are the raw means, so February 29 is averaged into March 1 and not
+        // into February 28
+        //
+        TemperatureBinMgr binMgr = new TemperatureBinMgr(null);
+        WindParameters windParameters = new WindParameters();
+        List<SummaryRecord> records = new ArrayList<>();
+        LocalDate[] dates = {LocalDate.of(2015, 2, 28), LocalDate.of(2015, 3, 1), LocalDate.of(2016, 2, 28), LocalDate.of(2016, 2, 29), LocalDate.of(2016, 3, 1)};
+        double[] highs = {10.0, 20.0, 12.0, 30.0, 22.0};
+        for (int i = 0; i < dates.length; i++) {
+            SummaryRecord rec = new SummaryRecord(windParameters, binMgr, dates[i]);
+            rec.setMaxOutdoorTemp(new Temperature(highs[i], Temperature.Unit.CELSIUS), dates[i].atTime(15, 0));
+            rec.setMinOutdoorTemp(new Temperature(highs[i] - 10.0, Temperature.Unit.CELSIUS), dates[i].atTime(6, 0));
+            records.add(rec);
+        }
+
+        ClimateNormalsBuilder builder = new ClimateNormalsBuilder(ClimateNormalsBuilder.Smoothing.MOVING_WINDOW, 1);
+        DayOfYearCollection<WeatherAverage> normals = builder.buildNormals(records);
+        assertEquals(11.0, normals.item(Month.FEBRUARY, 28).getHighTemperature().get(Temperature.Unit.CELSIUS), 1e-9);
+        assertEquals(24.0, normals.item(Month.MARCH, 1).getHighTemperature().get(Temperature.Unit.CELSIUS), 1e-9);
+        assertEquals(24.0, normals.item(LocalDate.of(2016, 2, 29)).getHighTemperature().get(Temperature.Unit.CELSIUS), 1e-9);
+    }
+
+    @Test
+    public void testMonthlyInterpolation() {
+        System.out.println("monthlyInterpolation");
+        double[] highs = {5.0, 7.0, 12.0, 17.0, 22.0, 27.0, 30.0, 29.0, 24.0, 17.0, 10.0, 6.0};
+        double[] rain = {80.0, 70.0, 60.0, 50.0, 30.0, 10.0, 2.0, 5.0, 20.0, 50.0, 70.0, 90.0};
+        List<WeatherAverage> list = new ArrayList<>();
+        for (Month month : Month.values())
+            list.add(new WeatherAverage(month,
+                                        new Temperature(highs[month.ordinal()], Temperature.Unit.CELSIUS),
+                                        new Temperature(highs[month.ordinal()] - 10.0, Temperature.Unit.CELSIUS),
+                                        new Temperature(highs[month.ordinal()] - 5.0, Temperature.Unit.CELSIUS),
+                                        new Depth(rain[month.ordinal()], Depth.Unit.MILLIMETERS)));
+
+        DayOfYearCollection<WeatherAverage> daily = new ClimateNormalsBuilder().interpolateMonthlyNormals(new MonthWeatherAverages(list));
+        double maxStep = 0.0;
+        double previous = daily.item(Month.DECEMBER, 31).getHighTemperature().get(Temperature.Unit.CELSIUS);
+        for (Month month : Month.values()) {
+            double high = 0.0;
+            double total = 0.0;
+            for (int day = 1; day <= month.length(false); day++) {
+                WeatherAverage avg = daily.item(month, day);
+                double value = avg.getHighTemperature().get(Temperature.Unit.CELSIUS);
+                maxStep = Math.max(maxStep, Math.abs(value - previous));
+                previous = value;
+                high += value;
+                total += avg.getRainfall().get(Depth.Unit.MILLIMETERS);
+            }
+
+            assertEquals(highs[month.ordinal()], high / month.length(false), 1e-6);
+            assertEquals(rain[month.ordinal()], total, .5);
+        }
+
+        System.out.println("Largest change between days: " + maxStep);
+        assertTrue(maxStep < .5);
+    }
+
+    @Test
+    public void testInterpolateConstant() {
+        System.out.println("interpolateConstant");
+        double[] means = new double[12];
+        Arrays.fill(means, 12.5);
+        for (double value : ClimateNormalsBuilder.interpolateMonthlyMeans(means))
+            assertEquals(12.5, value, 1e-9);
+    }
+}
@@ -0,0 +1,107 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Temperature;
+
+public class CurrentWeatherHistoryTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 3, 1, 12, 0);
+    private static final Duration ONE_MINUTE = Duration.ofMinutes(1);
+    private static final Duration FIVE_MINUTES = Duration.ofMinutes(5);
+
+    public CurrentWeatherHistoryTest() {
+    }
+
+    /**
+     * Add one sample every 10 seconds, the temperature of each being its index.
+     */
+    private CurrentWeatherHistory createHistory(int capacity, int samples) {
+        CurrentWeatherHistory history = new CurrentWeatherHistory(capacity, ONE_MINUTE, FIVE_MINUTES);
+        for (int i = 0; i < samples; i++) {
+            CurrentWeather cw = new CurrentWeather();
+            cw.setTime(START.plusSeconds(i * 10));
+            cw.setOutsideTemperature(new Temperature(i, Temperature.Unit.CELSIUS));
+            history.handleCurrentWeather(cw);
+        }
+
+        return history;
+    }
+
+    @Test
+    public void testStatistics() {
+        System.out.println("statistics");
+        CurrentWeatherHistory history = createHistory(100, 60);
+
+        assertEquals(59.0, history.getLatest(CurrentWeatherField.OUTSIDE_TEMPERATURE), .001);
+        assertEquals(START.plusSeconds(590), history.getLatestTime());
+        //
+        // The one minute window includes the samples from 53 through 59
+        //
+        assertEquals(53.0, history.getMinimum(CurrentWeatherField.OUTSIDE_TEMPERATURE, ONE_MINUTE), .001);
+        assertEquals(59.0, history.getMaximum(CurrentWeatherField.OUTSIDE_TEMPERATURE, ONE_MINUTE), .001);
+        assertEquals(56.0, history.getMean(CurrentWeatherField.OUTSIDE_TEMPERATURE, ONE_MINUTE), .001);
+        assertEquals(29.0, history.getMinimum(CurrentWeatherField.OUTSIDE_TEMPERATURE, FIVE_MINUTES), .001);
+        assertEquals(44.0, history.getMean(CurrentWeatherField.OUTSIDE_TEMPERATURE, FIVE_MINUTES), .001);
+        assertTrue(Double.isNaN(history.getMean(CurrentWeatherField.OUTSIDE_HUMIDITY, FIVE_MINUTES)));
+    }
+
+    @Test
+    public void testWrap() {
+        System.out.println("wrap");
+        CurrentWeatherHistory history = createHistory(20, 100);
+
+        assertEquals(20, history.size());
+        //
+        // The statistics only cover the samples that are still in the history
+        //
+        assertEquals(80.0, history.getMinimum(CurrentWeatherField.OUTSIDE_TEMPERATURE, FIVE_MINUTES), .001);
+        assertEquals(89.5, history.getMean(CurrentWeatherField.OUTSIDE_TEMPERATURE, FIVE_MINUTES), .001);
+
+        //
+        // Readers only get the last 19 samples, as the oldest slot is the next to be written
+        //
+        long[] times = new long[50];
+        double[] values = new double[50];
+        int n = history.copyWindow(CurrentWeatherField.OUTSIDE_TEMPERATURE, FIVE_MINUTES, times, values);
+        assertEquals(19, n);
+        assertEquals(81.0, values[0], .001);
+        assertEquals(99.0, values[18], .001);
+    }
+
+    @Test
+    public void testForEach() {
+        System.out.println("forEach");
+        CurrentWeatherHistory history = createHistory(100, 60);
+
+        double[] sum = new double[1];
+        int[] count = new int[1];
+        assertTrue(history.forEach(CurrentWeatherField.OUTSIDE_TEMPERATURE, ONE_MINUTE, (time, value) -> {
+            sum[0] += value;
+            count[0]++;
+        }));
+        assertEquals(7, count[0]);
+        assertEquals(56.0, sum[0] / count[0], .001);
+    }
+}
@@ -0,0 +1,152 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Temperature;
+
+public class DegreeDayAccumulatorTest {
+    private static final Temperature BASE_65F = new Temperature(65.0, Temperature.Unit.FAHRENHEIT);
+    private static final Temperature BASE_10C = new Temperature(10.0, Temperature.Unit.CELSIUS);
+    private static final Temperature UPPER_30C = new Temperature(30.0, Temperature.Unit.CELSIUS);
+
+    public DegreeDayAccumulatorTest() {
+    }
+
+    private SummaryRecord createSummary(LocalDate date, double high, double low) {
+        SummaryRecord rec = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), date);
+        rec.setMaxOutdoorTemp(new Temperature(high, Temperature.Unit.CELSIUS), date.atTime(15, 0));
+        rec.setMinOutdoorTemp(new Temperature(low, Temperature.Unit.CELSIUS), date.atTime(6, 0));
+        return rec;
+    }
+
+    @Test
+    public void testDailyMethod() {
+        System.out.println("dailyMethod");
+        DegreeDayAccumulator heating = new DegreeDayAccumulator(DegreeDayAccumulator.Type.HEATING, BASE_65F, BASE_10C);
+        LocalDate start = LocalDate.of(2015, 12, 30);
+        for (int i = 0; i < 10; i++)
+            heating.applySummaryRecord(createSummary(start.plusDays(i), 10.0, 0.0));
+
+        double base65 = BASE_65F.get(Temperature.Unit.CELSIUS);
+        assertEquals(base65 - 5.0, heating.getDailyValue(BASE_65F, start), 1e-9);
+        assertEquals(5.0, heating.getDailyValue(BASE_10C, start), 1e-9);
+        assertEquals(50.0, heating.getTotal(BASE_10C, start, start.plusDays(9)), 1e-9);
+        assertEquals(40.0, heating.getYearToDate(BASE_10C, LocalDate.of(2016, 1, 8)), 1e-9);
+        assertEquals(15.0, heating.getTotal(BASE_10C, LocalDate.of(2015, 12, 31), LocalDate.of(2016, 1, 2)), 1e-9);
+
+        //
+        // Summarizing a day again and adding an earlier day update the totals
+        //
+        heating.applySummaryRecord(createSummary(LocalDate.of(2016, 1, 1), 30.0, 20.0));
+        heating.applySummaryRecord(createSummary(LocalDate.of(2015, 12, 1), 4.0, 0.0));
+        assertEquals(45.0, heating.getTotal(BASE_10C, start, start.plusDays(9)), 1e-9);
+        assertEquals(18.0, heating.getTotal(BASE_10C, LocalDate.of(2015, 1, 1), LocalDate.of(2016, 1, 1)), 1e-9);
+        assertEquals(LocalDate.of(2016, 1, 8), heating.getLastDate());
+
+        double[] totals = heating.getRunningTotals(BASE_10C, 2016);
+        assertEquals(366, totals.length);
+        assertEquals(0.0, totals[0], 1e-9);
+        assertEquals(35.0, totals[7], 1e-9);
+        assertEquals(35.0, totals[365], 1e-9);
+    }
+
+    @Test
+    public void testGrowingDegreeDays() {
+        System.out.println("growingDegreeDays");
+        DegreeDayAccumulator growing = new DegreeDayAccumulator(DegreeDayAccumulator.Type.GROWING, Arrays.asList(BASE_10C), UPPER_30C);
+        LocalDate date = LocalDate.of(2016, 7, 1);
+        growing.applySummaryRecord(createSummary(date, 35.0, 5.0));
+        growing.applySummaryRecord(createSummary(date.plusDays(1), 8.0, 2.0));
+        growing.applySummaryRecord(createSummary(date.plusDays(2), 26.0, 14.0));
+        assertEquals(10.0, growing.getDailyValue(BASE_10C, date), 1e-9);
+        assertEquals(0.0, growing.getDailyValue(BASE_10C, date.plusDays(1)), 1e-9);
+        assertEquals(20.0, growing.getTotal(BASE_10C, date, date.plusDays(2)), 1e-9);
+    }
+
+    @Test
+    public void testIntegrationMethod() {
+        System.out.println("integrationMethod");
+        DegreeDayAccumulator cooling = new DegreeDayAccumulator(DegreeDayAccumulator.Type.COOLING, BASE_10C);
+        DegreeDayAccumulator chill = new DegreeDayAccumulator(DegreeDayAccumulator.Type.CHILL_HOURS, new Temperature(7.2, Temperature.Unit.CELSIUS));
+        LocalDateTime start = LocalDateTime.of(2016, 1, 1, 0, 0);
+        List<HistoricalRecord> records = new ArrayList<>();
+        for (int i = 0; i < 288 * 2; i++) {
+            LocalDateTime time = start.plusMinutes(5L * (i + 1));
+            HistoricalRecord rec = new HistoricalRecord(time);
+            rec.setDuration(Duration.ofMinutes(5));
+            //
+            // 6 hours at 4 C and 18 hours at 14 C each day
+            //
+            double t = (i % 288) < 72 ? 4.0 : 14.0;
+            rec.setAvgOutdoorTemperature(new Temperature(t, Temperature.Unit.CELSIUS));
+            records.add(rec);
+        }
+
+        cooling.applyHistoricalRecords(records);
+        chill.applyHistoricalRecords(records);
+        assertEquals(3.0, cooling.getDailyValue(BASE_10C, LocalDate.of(2016, 1, 1)), 1e-9);
+        assertEquals(6.0, cooling.getTotal(BASE_10C, LocalDate.of(2016, 1, 1), LocalDate.of(2016, 1, 2)), 1e-9);
+        assertEquals(12.0, chill.getYearToDate(new Temperature(7.2, Temperature.Unit.CELSIUS), LocalDate.of(2016, 12, 31)), 1e-9);
+
+        chill.applySummaryRecord(createSummary(LocalDate.of(2016, 1, 3), 5.0, 0.0));
+        assertEquals(0.0, chill.getDailyValue(new Temperature(7.2, Temperature.Unit.CELSIUS), LocalDate.of(2016, 1, 3)), 1e-9);
+    }
+
+    @Test
+    public void testGapAfterQuery() {
+        System.out.println("gapAfterQuery");
+        DegreeDayAccumulator heating = new DegreeDayAccumulator(DegreeDayAccumulator.Type.HEATING, BASE_10C);
+
+        //
+        // A day without a summary after the totals were queried, such as a station outage, keeps the earlier days
+        //
+        heating.applySummaryRecord(createSummary(LocalDate.of(2016, 1, 1), 10.0, 0.0));
+        assertEquals(5.0, heating.getYearToDate(BASE_10C, LocalDate.of(2016, 1, 1)), 1e-9);
+        heating.applySummaryRecord(createSummary(LocalDate.of(2016, 1, 3), 14.0, 2.0));
+        assertEquals(7.0, heating.getYearToDate(BASE_10C, LocalDate.of(2016, 1, 3)), 1e-9);
+        assertEquals(5.0, heating.getYearToDate(BASE_10C, LocalDate.of(2016, 1, 2)), 1e-9);
+        assertEquals(2.0, heating.getTotal(BASE_10C, LocalDate.of(2016, 1, 2), LocalDate.of(2016, 1, 3)), 1e-9);
+
+        heating.applySummaryRecord(createSummary(LocalDate.of(2016, 3, 1), 10.0, 10.0));
+        double[] totals = heating.getRunningTotals(BASE_10C, 2016);
+        assertEquals(7.0, totals[59], 1e-9);
+        assertEquals(7.0, totals[60], 1e-9);
+        assertEquals(7.0, totals[365], 1e-9);
+
+        heating.applySummaryRecord(createSummary(LocalDate.of(2016, 12, 31), 0.0, 0.0));
+        assertEquals(17.0, heating.getYearToDate(BASE_10C, LocalDate.of(2016, 12, 31)), 1e-9);
+        assertEquals(7.0, heating.getYearToDate(BASE_10C, LocalDate.of(2016, 12, 30)), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownBase() {
+        System.out.println("unknownBase");
+        DegreeDayAccumulator heating = new DegreeDayAccumulator(DegreeDayAccumulator.Type.HEATING, BASE_65F);
+        heating.getTotal(BASE_10C, LocalDate.of(2016, 1, 1), LocalDate.of(2016, 1, 2));
+    }
+}
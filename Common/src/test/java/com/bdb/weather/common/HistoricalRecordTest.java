@@ -24,7 +24,9 @@ import org.junit.After;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -33,7 +35,9 @@ import org.junit.Test;
 import com.bdb.weather.common.measurement.Depth;
 import com.bdb.weather.common.measurement.Heading;
 import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.LeafWetness;
 import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.SoilMoisture;
 import com.bdb.weather.common.measurement.SolarRadiation;
 import com.bdb.weather.common.measurement.Speed;
 import com.bdb.weather.common.measurement.Temperature;
@@ -91,6 +95,98 @@ public class HistoricalRecordTest {
         assertEquals(duration, instance.getDuration());
     }
 
+    /**
+     * Test of the extra sensor values of class HistoricalRecord.
+     */
+    @Test
+    public void testExtraSensorValues() {
+        System.out.println("extraSensorValues");
+        HistoricalRecord instance = new HistoricalRecord(LocalDateTime.now());
+        instance.setTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID + 2, new Temperature(20.0, Temperature.Unit.CELSIUS));
+        instance.setTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID, new Temperature(10.0, Temperature.Unit.CELSIUS));
+        instance.setTemperatureForSensor(Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID, new Temperature(15.0, Temperature.Unit.CELSIUS));
+        instance.setHumidityForSensor(Sensor.HYGROMETER_BASE_SENSOR_ID, new Humidity(55.0));
+        instance.setLeafWetnessForSensor(Sensor.LEAF_WETNESS_BASE_SENSOR_ID, new LeafWetness(3));
+        instance.setSoilMoistureForSensor(Sensor.SOIL_MOISTURE_BASE_SENSOR_ID + 1, new SoilMoisture(40.0));
+
+        assertEquals(new Temperature(10.0, Temperature.Unit.CELSIUS), instance.getTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID));
+        assertEquals(new Temperature(20.0, Temperature.Unit.CELSIUS), instance.getTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID + 2));
+        assertNull(instance.getTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID + 1));
+        assertEquals(new Humidity(55.0), instance.getHumidityForSensor(Sensor.HYGROMETER_BASE_SENSOR_ID));
+        assertEquals(new LeafWetness(3), instance.getLeafWetnessForSensor(Sensor.LEAF_WETNESS_BASE_SENSOR_ID));
+        assertEquals(new SoilMoisture(40.0), instance.getSoilMoistureForSensor(Sensor.SOIL_MOISTURE_BASE_SENSOR_ID + 1));
+        assertNull(instance.getSoilMoistureForSensor(Sensor.SOIL_MOISTURE_BASE_SENSOR_ID));
+        assertEquals(6, instance.getMeasurementEntries().size());
+
+        ExtraSensorValues values = instance.getExtraSensorValues();
+        assertEquals(3, values.getSensorCount(SensorType.THERMOMETER));
+        int[] expectedIds = {Sensor.THERMOMETER_BASE_SENSOR_ID, Sensor.THERMOMETER_BASE_SENSOR_ID + 2, Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID};
+        double[] expectedValues = {10.0, 20.0, 15.0};
+        int n = 0;
+        for (int id = values.nextSensorId(SensorType.THERMOMETER, 0); id >= 0; id = values.nextSensorId(SensorType.THERMOMETER, id + 1)) {
+            assertEquals(expectedIds[n], id);
+            assertEquals(expectedValues[n], values.getValue(SensorType.THERMOMETER, id), .0001);
+            n++;
+        }
+        assertEquals(3, n);
+
+        HistoricalRecord copy = new HistoricalRecord(instance.getTime());
+        copy.setSoilMoistureForSensor(Sensor.SOIL_MOISTURE_BASE_SENSOR_ID + 1, new SoilMoisture(40.0));
+        copy.setLeafWetnessForSensor(Sensor.LEAF_WETNESS_BASE_SENSOR_ID, new LeafWetness(3));
+        copy.setHumidityForSensor(Sensor.HYGROMETER_BASE_SENSOR_ID, new Humidity(55.0));
+        copy.setTemperatureForSensor(Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID, new Temperature(15.0, Temperature.Unit.CELSIUS));
+        copy.setTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID, new Temperature(10.0, Temperature.Unit.CELSIUS));
+        copy.setTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID + 2, new Temperature(20.0, Temperature.Unit.CELSIUS));
+        assertEquals(instance, copy);
+        assertEquals(instance.hashCode(), copy.hashCode());
+
+        instance.setTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID + 2, null);
+        assertNull(instance.getTemperatureForSensor(Sensor.THERMOMETER_BASE_SENSOR_ID + 2));
+        assertEquals(new Temperature(15.0, Temperature.Unit.CELSIUS), instance.getTemperatureForSensor(Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID));
+        assertEquals(5, values.size());
+        assertFalse(instance.equals(copy));
+    }
+
+    /**
+     * Test of the sensor ID ranges of class ExtraSensorValues.
+     */
+    @Test
+    public void testExtraSensorRanges() {
+        System.out.println("extraSensorRanges");
+        ExtraSensorValues values = new ExtraSensorValues();
+        //
+        // The ranges are added out of order, a range is inserted between two others
+        //
+        values.setValue(SensorType.THERMOMETER, Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID + 99, 7.0);
+        values.setValue(SensorType.THERMOMETER, Sensor.THERMOMETER_BASE_SENSOR_ID + 64, 1.0);
+        values.setValue(SensorType.THERMOMETER, Sensor.LEAF_TEMPERATURE_BASE_SENSOR_ID, 5.0);
+        values.setValue(SensorType.THERMOMETER, Sensor.THERMOMETER_BASE_SENSOR_ID + 3, 0.5);
+        values.setValue(SensorType.THERMOMETER, Sensor.LEAF_TEMPERATURE_BASE_SENSOR_ID, 5.5);
+
+        int[] expectedIds = {Sensor.THERMOMETER_BASE_SENSOR_ID + 3, Sensor.THERMOMETER_BASE_SENSOR_ID + 64,
+                             Sensor.LEAF_TEMPERATURE_BASE_SENSOR_ID, Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID + 99};
+        double[] expectedValues = {0.5, 1.0, 5.5, 7.0};
+        int n = 0;
+        for (int id = values.nextSensorId(SensorType.THERMOMETER, 0); id >= 0; id = values.nextSensorId(SensorType.THERMOMETER, id + 1)) {
+            assertEquals(expectedIds[n], id);
+            assertEquals(expectedValues[n], values.getValue(SensorType.THERMOMETER, id), .0001);
+            n++;
+        }
+        assertEquals(4, n);
+        assertEquals(Sensor.LEAF_TEMPERATURE_BASE_SENSOR_ID, values.nextSensorId(SensorType.THERMOMETER, Sensor.THERMOMETER_BASE_SENSOR_ID + 65));
+        assertEquals(Sensor.LEAF_TEMPERATURE_BASE_SENSOR_ID, values.nextSensorId(SensorType.THERMOMETER, 300));
+        assertEquals(-1, values.nextSensorId(SensorType.THERMOMETER, Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID + 100));
+        assertFalse(values.hasValue(SensorType.THERMOMETER, Sensor.THERMOMETER_BASE_SENSOR_ID + 99));
+        assertFalse(values.hasValue(SensorType.THERMOMETER, Sensor.HYGROMETER_BASE_SENSOR_ID + 3));
+        assertFalse(values.hasValue(SensorType.THERMOMETER, -1));
+        assertTrue(Double.isNaN(values.getValue(SensorType.THERMOMETER, Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID)));
+
+        values.removeValue(SensorType.THERMOMETER, Sensor.LEAF_TEMPERATURE_BASE_SENSOR_ID);
+        assertEquals(3, values.getSensorCount(SensorType.THERMOMETER));
+        assertEquals(Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID + 99, values.nextSensorId(SensorType.THERMOMETER, Sensor.THERMOMETER_BASE_SENSOR_ID + 65));
+        assertEquals(7.0, values.getValue(SensorType.THERMOMETER, Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID + 99), .0001);
+    }
+
     /**
      * Test of getMeasurementEntries method, of class HistoricalRecord.
      */
@@ -0,0 +1,134 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+
+public class IntervalIndexTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 1, 1, 0, 0);
+
+    public IntervalIndexTest() {
+    }
+
+    private List<Storm> createStorms(Random random, int count) {
+        List<Storm> storms = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDateTime start = START.plusMinutes(random.nextInt(365 * 1440));
+            storms.add(new Storm(start, start.plusMinutes(random.nextInt(3 * 1440)), new Depth(1.0)));
+        }
+
+        return storms;
+    }
+
+    private boolean contains(Storm storm, LocalDateTime time) {
+        return !time.isBefore(storm.getStartTime()) && (storm.getEndTime() == null || !time.isAfter(storm.getEndTime()));
+    }
+
+    @Test
+    public void testStab() {
+        System.out.println("stab");
+        Random random = new Random(3);
+        List<Storm> storms = createStorms(random, 500);
+        IntervalIndex<Storm> index = IntervalIndex.ofStorms(storms);
+        assertEquals(storms.size(), index.size());
+
+        for (int i = 0; i < 1000; i++) {
+            LocalDateTime time = START.plusMinutes(random.nextInt(370 * 1440));
+            List<Storm> found = index.stab(time);
+            int expected = 0;
+            for (Storm storm : storms)
+                if (contains(storm, time)) {
+                    expected++;
+                    assertTrue(found.contains(storm));
+                }
+
+            assertEquals(expected, found.size());
+            assertEquals(expected > 0, index.contains(time));
+        }
+    }
+
+    @Test
+    public void testOverlapping() {
+        System.out.println("overlapping");
+        Random random = new Random(4);
+        List<Storm> storms = createStorms(random, 500);
+        storms.add(new Storm(START.plusDays(200), new Depth(1.0)));
+        IntervalIndex<Storm> index = IntervalIndex.ofStorms(storms);
+
+        for (int i = 0; i < 500; i++) {
+            LocalDateTime start = START.plusMinutes(random.nextInt(370 * 1440));
+            LocalDateTime end = start.plusMinutes(random.nextInt(1440) + 1);
+            List<Storm> found = index.overlapping(start, end);
+            int expected = 0;
+            for (Storm storm : storms)
+                if (storm.getStartTime().isBefore(end) && (storm.getEndTime() == null || !storm.getEndTime().isBefore(start)))
+                    expected++;
+
+            assertEquals(expected, found.size());
+            for (int j = 1; j < found.size(); j++)
+                assertFalse(found.get(j).getStartTime().isBefore(found.get(j - 1).getStartTime()));
+        }
+
+        assertTrue(index.overlapping(START, START).isEmpty());
+    }
+
+    @Test
+    public void testMarkRecords() {
+        System.out.println("markRecords");
+        List<BadBattery> badBatteries = new ArrayList<>();
+        BadBattery battery = new BadBattery(1, START.plusHours(1));
+        battery.incrementMeasurementCount(START.plusHours(2));
+        badBatteries.add(battery);
+        badBatteries.add(new BadBattery(2, START.plusHours(5)));
+        IntervalIndex<BadBattery> index = IntervalIndex.ofBadBatteries(badBatteries);
+
+        List<HistoricalRecord> records = new ArrayList<>();
+        for (int i = 0; i < 96; i++) {
+            HistoricalRecord rec = new HistoricalRecord(START.plusMinutes(i * 5L));
+            rec.setDuration(Duration.ofMinutes(5));
+            records.add(rec);
+        }
+
+        BitSet marks = index.markRecords(records);
+        //
+        // 1:00 to 2:00 inclusive and the single report at 5:00
+        //
+        assertEquals(14, marks.cardinality());
+        assertTrue(marks.get(12));
+        assertTrue(marks.get(24));
+        assertFalse(marks.get(25));
+        assertTrue(marks.get(60));
+
+        List<HistoricalRecord> good = index.excludeRecords(records);
+        assertEquals(records.size() - 14, good.size());
+        for (HistoricalRecord rec : good)
+            assertFalse(index.contains(rec.getTime()));
+    }
+}
@@ -0,0 +1,186 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Temperature;
+
+public class LiveDailySummaryTest {
+    private static final LocalDate DAY1 = LocalDate.of(2016, 3, 1);
+    private static final LocalDate DAY2 = DAY1.plusDays(1);
+    private static final CurrentWeatherField TEMPERATURE = CurrentWeatherField.OUTSIDE_TEMPERATURE;
+
+    public LiveDailySummaryTest() {
+    }
+
+    private static void apply(LiveDailySummary summary, LocalDateTime time, double temperature) {
+        CurrentWeather cw = new CurrentWeather();
+        cw.setTime(time);
+        cw.setOutsideTemperature(new Temperature(temperature, Temperature.Unit.CELSIUS));
+        summary.handleCurrentWeather(cw);
+    }
+
+    private static SummaryRecord createSummary(LocalDate date, double low, LocalDateTime lowTime, double high, LocalDateTime highTime, double mean) {
+        SummaryRecord rec = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), date);
+        rec.setMinOutdoorTemp(new Temperature(low, Temperature.Unit.CELSIUS), lowTime);
+        rec.setMaxOutdoorTemp(new Temperature(high, Temperature.Unit.CELSIUS), highTime);
+        rec.setAvgOutdoorTemp(new Temperature(mean, Temperature.Unit.CELSIUS), Duration.ofDays(1));
+        return rec;
+    }
+
+    @Test
+    public void testMidnightRollover() {
+        System.out.println("midnight rollover");
+        LiveDailySummary summary = new LiveDailySummary(new WindParameters());
+        //
+        // 0 for two minutes, then 30 for the last minute of the day
+        //
+        apply(summary, DAY1.atTime(23, 57), 0.0);
+        apply(summary, DAY1.atTime(23, 58), 0.0);
+        apply(summary, DAY1.atTime(23, 59), 30.0);
+        assertNull(summary.getPreviousDay());
+
+        //
+        // The first sample of the new day weights the last sample of the previous day up to midnight only
+        //
+        apply(summary, DAY2.atTime(0, 2), 20.0);
+        DailySummarySnapshot previous = summary.getPreviousDay();
+        assertEquals(DAY1, previous.getDate());
+        assertEquals(3, previous.getNumSamples());
+        assertEquals(10.0, previous.getAverage(TEMPERATURE), .001);
+        assertEquals(30.0, previous.getMaximum(TEMPERATURE), .001);
+        assertEquals(DAY1.atTime(23, 59), previous.getMaximumTime(TEMPERATURE));
+        assertFalse(previous.isReconciled());
+
+        //
+        // The new day starts from its first sample, the time between midnight and the first sample is not weighted
+        //
+        DailySummarySnapshot today = summary.getToday();
+        assertEquals(DAY2, today.getDate());
+        assertEquals(1, today.getNumSamples());
+        assertEquals(20.0, today.getAverage(TEMPERATURE), .001);
+        apply(summary, DAY2.atTime(0, 3), 40.0);
+        apply(summary, DAY2.atTime(0, 6), 10.0);
+        assertEquals(35.0, summary.getToday().getAverage(TEMPERATURE), .001);
+        assertEquals(10.0, summary.getToday().getMinimum(TEMPERATURE), .001);
+
+        //
+        // A gap longer than the maximum sample duration is not weighted, even across midnight
+        //
+        apply(summary, DAY2.atTime(23, 50), 50.0);
+        apply(summary, DAY2.plusDays(1).atTime(0, 10), 0.0);
+        assertEquals(35.0, summary.getPreviousDay().getAverage(TEMPERATURE), .001);
+        assertEquals(50.0, summary.getPreviousDay().getMaximum(TEMPERATURE), .001);
+    }
+
+    @Test
+    public void testReconcileToday() {
+        System.out.println("reconcile today");
+        LiveDailySummary summary = new LiveDailySummary(new WindParameters());
+        apply(summary, DAY1.atTime(10, 0), 12.0);
+        apply(summary, DAY1.atTime(10, 1), 14.0);
+
+        //
+        // The archive saw a lower low while the current weather was not received, its high is lower than the live high
+        //
+        assertTrue(summary.reconcile(createSummary(DAY1, 5.0, DAY1.atTime(6, 0), 13.0, DAY1.atTime(9, 0), 9.0)));
+        DailySummarySnapshot today = summary.getToday();
+        assertEquals(5.0, today.getMinimum(TEMPERATURE), .001);
+        assertEquals(DAY1.atTime(6, 0), today.getMinimumTime(TEMPERATURE));
+        assertEquals(14.0, today.getMaximum(TEMPERATURE), .001);
+        assertEquals(DAY1.atTime(10, 1), today.getMaximumTime(TEMPERATURE));
+        //
+        // The live average is kept for the current day
+        //
+        assertEquals(12.0, today.getAverage(TEMPERATURE), .001);
+        assertFalse(today.isReconciled());
+
+        //
+        // The merged extremes stay as samples continue
+        //
+        apply(summary, DAY1.atTime(10, 2), 11.0);
+        assertEquals(5.0, summary.getToday().getMinimum(TEMPERATURE), .001);
+
+        assertFalse(summary.reconcile(createSummary(DAY1.minusDays(3), 0.0, DAY1.minusDays(3).atTime(6, 0), 20.0, DAY1.minusDays(3).atTime(15, 0), 10.0)));
+    }
+
+    @Test
+    public void testReconcilePreviousDay() {
+        System.out.println("reconcile previous day");
+        LiveDailySummary summary = new LiveDailySummary(new WindParameters());
+        apply(summary, DAY1.atTime(23, 58), 12.0);
+        apply(summary, DAY1.atTime(23, 59), 14.0);
+        apply(summary, DAY2.atTime(0, 0), 13.0);
+        DailySummarySnapshot live = summary.getPreviousDay();
+
+        //
+        // The archive values replace the live values of the completed day, even when they are less extreme
+        //
+        assertTrue(summary.reconcile(createSummary(DAY1, 8.0, DAY1.atTime(5, 0), 13.5, DAY1.atTime(16, 0), 11.0)));
+        DailySummarySnapshot reconciled = summary.getPreviousDay();
+        assertNotSame(live, reconciled);
+        assertTrue(reconciled.isReconciled());
+        assertEquals(8.0, reconciled.getMinimum(TEMPERATURE), .001);
+        assertEquals(13.5, reconciled.getMaximum(TEMPERATURE), .001);
+        assertEquals(DAY1.atTime(16, 0), reconciled.getMaximumTime(TEMPERATURE));
+        assertEquals(11.0, reconciled.getAverage(TEMPERATURE), .001);
+        assertEquals(live.getNumSamples(), reconciled.getNumSamples());
+        assertEquals(12.0, live.getMinimum(TEMPERATURE), .001);
+        assertFalse(live.isReconciled());
+
+        //
+        // The current day is not changed by the summary of the previous day
+        //
+        assertEquals(13.0, summary.getToday().getMinimum(TEMPERATURE), .001);
+    }
+
+    @Test
+    public void testSnapshotsImmutable() {
+        System.out.println("snapshots immutable");
+        LiveDailySummary summary = new LiveDailySummary(new WindParameters());
+        apply(summary, DAY1.atTime(10, 0), 12.0);
+        DailySummarySnapshot first = summary.getToday();
+        assertSame(first, summary.getToday());
+
+        //
+        // Later samples, reconciliation and the rollover publish new snapshots and leave the earlier ones as they were
+        //
+        apply(summary, DAY1.atTime(10, 1), 20.0);
+        summary.reconcile(createSummary(DAY1, 2.0, DAY1.atTime(6, 0), 25.0, DAY1.atTime(9, 0), 9.0));
+        apply(summary, DAY2.atTime(0, 1), 0.0);
+        assertNotSame(first, summary.getToday());
+        assertEquals(DAY1, first.getDate());
+        assertEquals(1, first.getNumSamples());
+        assertEquals(12.0, first.getMinimum(TEMPERATURE), .001);
+        assertEquals(12.0, first.getMaximum(TEMPERATURE), .001);
+        assertEquals(12.0, first.getAverage(TEMPERATURE), .001);
+        assertEquals(DAY1.atTime(10, 0), first.getTime());
+        assertEquals(2.0, summary.getPreviousDay().getMinimum(TEMPERATURE), .001);
+    }
+}
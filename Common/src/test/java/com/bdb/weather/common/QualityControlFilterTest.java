@@ -0,0 +1,171 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.QualityControlFilter.Check;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class QualityControlFilterTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 1, 1, 0, 0);
+    private static final int INTERVAL = 300;
+
+    public QualityControlFilterTest() {
+    }
+
+    private long[] createTimes(int count) {
+        long[] times = new long[count];
+        long start = START.toEpochSecond(ZoneOffset.UTC);
+        for (int i = 0; i < count; i++)
+            times[i] = start + (long)i * INTERVAL;
+
+        return times;
+    }
+
+    private double[] createTemperatures(int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++)
+            values[i] = 10.0 + 8.0 * Math.sin(i * 2.0 * Math.PI / 288.0);
+
+        return values;
+    }
+
+    @Test
+    public void testCheckValues() {
+        System.out.println("checkValues");
+        QualityControlFilter filter = new QualityControlFilter(new WeatherStation());
+        int count = 288 * 3;
+        long[] times = createTimes(count);
+        double[] values = createTemperatures(count);
+        values[100] = 200.0;
+        values[200] += 15.0;
+        values[300] = Double.NaN;
+        for (int i = 500; i < 600; i++)
+            values[i] = 5.0;
+
+        byte[] flags = filter.checkValues(ArchiveField.AVG_OUTDOOR_TEMPERATURE, times, values, count);
+        assertTrue(QualityControlFilter.isFlagged(flags[100], Check.RANGE));
+        assertTrue(QualityControlFilter.isFlagged(flags[100], Check.STEP));
+        assertTrue(QualityControlFilter.isFlagged(flags[200], Check.STEP));
+        assertFalse(QualityControlFilter.isFlagged(flags[201], Check.STEP));
+        assertEquals(0, flags[300]);
+        assertEquals(0, flags[571]);
+        assertTrue(QualityControlFilter.isFlagged(flags[572], Check.STUCK));
+        assertTrue(QualityControlFilter.isFlagged(flags[599], Check.STUCK));
+        assertEquals(Check.STEP.getFlag(), flags[600]);
+
+        int flagged = 0;
+        for (byte f : flags)
+            if (f != 0)
+                flagged++;
+
+        assertEquals(3 + 28, flagged);
+        assertEquals(200.0, values[100], 0.0);
+    }
+
+    @Test
+    public void testRainTotals() {
+        System.out.println("rainTotals");
+        WeatherStation ws = new WeatherStation();
+        QualityControlFilter filter = new QualityControlFilter(ws);
+        int count = 288 * 2;
+        long[] times = createTimes(count);
+        double[] rain = new double[count];
+        //
+        // 253.5mm of the 254mm daily limit
+        //
+        for (int i = 0; i < 253; i++)
+            rain[i] = 1.0;
+
+        rain[253] = .5;
+        rain[254] = 5.0;
+        rain[256] = 300.0;
+        rain[260] = .5;
+        rain[265] = .1;
+        rain[288] = 1.0;
+
+        //
+        // The values that go over the limit are flagged and left out of the total, so the dry records that follow
+        // are not flagged and the total can still reach the limit
+        //
+        byte[] flags = filter.checkValues(ArchiveField.RAINFALL, times, rain, count);
+        assertEquals(0, flags[253]);
+        assertTrue(QualityControlFilter.isFlagged(flags[254], Check.RANGE));
+        assertEquals(0, flags[255]);
+        assertTrue(QualityControlFilter.isFlagged(flags[256], Check.RANGE));
+        assertEquals(0, flags[260]);
+        assertTrue(QualityControlFilter.isFlagged(flags[265], Check.RANGE));
+        assertEquals(0, flags[287]);
+        assertEquals(0, flags[288]);
+
+        int flagged = 0;
+        for (byte f : flags)
+            if (f != 0)
+                flagged++;
+
+        assertEquals(3, flagged);
+    }
+
+    @Test
+    public void testCheckCurrentWeather() {
+        System.out.println("checkCurrentWeather");
+        QualityControlFilter filter = new QualityControlFilter(new WeatherStation());
+        double[] values = {20.0, 20.1, 35.0, 20.2, 20.2, 90.0};
+        boolean[] stepped = {false, false, true, false, false, true};
+        for (int i = 0; i < values.length; i++) {
+            CurrentWeather cw = new CurrentWeather();
+            cw.setTime(START.plusSeconds(i * 3));
+            cw.setOutsideTemperature(new Temperature(values[i], Temperature.Unit.CELSIUS));
+            Map<CurrentWeatherField,Set<Check>> failures = filter.checkCurrentWeather(cw);
+            Set<Check> checks = failures.get(CurrentWeatherField.OUTSIDE_TEMPERATURE);
+            assertEquals(stepped[i], checks != null && checks.contains(Check.STEP));
+            assertEquals(i == 5, checks != null && checks.contains(Check.RANGE));
+        }
+    }
+
+    @Test
+    public void testBulkThroughput() {
+        System.out.println("bulkThroughput");
+        QualityControlFilter filter = new QualityControlFilter(new WeatherStation());
+        int count = 288 * 3653;
+        long[] times = createTimes(count);
+        double[] values = createTemperatures(count);
+
+        long best = Long.MAX_VALUE;
+        byte[] flags = null;
+        for (int pass = 0; pass < 5; pass++) {
+            long start = System.nanoTime();
+            flags = filter.checkValues(ArchiveField.AVG_OUTDOOR_TEMPERATURE, times, values, count);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        for (byte f : flags)
+            assertEquals(0, f);
+
+        System.out.println("Checked " + count + " values in " + best / 1000000 + " ms, " + (count * 16L * 1000) / Math.max(best, 1) + " MB/s");
+    }
+}
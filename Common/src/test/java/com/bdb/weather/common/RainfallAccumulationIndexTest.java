@@ -0,0 +1,158 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+
+public class RainfallAccumulationIndexTest {
+    private static final LocalDate FIRST = LocalDate.of(2019, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(2021, 12, 31);
+
+    public RainfallAccumulationIndexTest() {
+    }
+
+    /**
+     * Monthly averages of 10mm more than the month before, starting with 10mm in January.
+     */
+    private static MonthWeatherAverages createNormals() {
+        List<WeatherAverage> list = new ArrayList<>();
+        for (Month month : Month.values())
+            list.add(new WeatherAverage(month, null, null, null, new Depth(month.getValue() * 10.0, Depth.Unit.MILLIMETERS)));
+
+        return new MonthWeatherAverages(list);
+    }
+
+    private static double bruteForceNormal(LocalDate start, LocalDate end) {
+        double total = 0.0;
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1))
+            total += date.getMonthValue() * 10.0 / date.lengthOfMonth();
+
+        return total;
+    }
+
+    private static double bruteForceActual(Map<LocalDate,Double> rain, LocalDate start, LocalDate end) {
+        double total = 0.0;
+        for (Map.Entry<LocalDate,Double> entry : rain.entrySet())
+            if (!entry.getKey().isBefore(start) && !entry.getKey().isAfter(end))
+                total += entry.getValue();
+
+        return total;
+    }
+
+    @Test
+    public void testActualRainfall() {
+        System.out.println("getActualRainfall");
+        RainfallAccumulationIndex index = new RainfallAccumulationIndex(Month.OCTOBER, createNormals());
+        Map<LocalDate,Double> rain = new HashMap<>();
+        Random random = new Random(27);
+
+        //
+        // Put the days in random order, replacing some of them
+        //
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = FIRST; !date.isAfter(LAST); date = date.plusDays(1))
+            dates.add(date);
+
+        for (int i = 0; i < dates.size() * 3 / 2; i++) {
+            LocalDate date = dates.get(random.nextInt(dates.size()));
+            double mm = random.nextInt(4) == 0 ? random.nextInt(50) / 2.0 : 0.0;
+            rain.put(date, mm);
+            index.putDailyRainfall(date, new Depth(mm, Depth.Unit.MILLIMETERS));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            LocalDate start = FIRST.minusDays(100).plusDays(random.nextInt(1300));
+            LocalDate end = start.plusDays(random.nextInt(800));
+            assertEquals(bruteForceActual(rain, start, end), index.getActualRainfall(start, end).get(Depth.Unit.MILLIMETERS), .0001);
+        }
+
+        double total = bruteForceActual(rain, FIRST, LAST);
+        assertEquals(total, index.getActualRainfall(LocalDate.MIN, LocalDate.MAX).get(Depth.Unit.MILLIMETERS), .0001);
+        assertEquals(bruteForceActual(rain, LocalDate.of(2020, 10, 1), LocalDate.of(2021, 3, 15)),
+                     index.getWeatherYearToDateRainfall(LocalDate.of(2021, 3, 15)).get(Depth.Unit.MILLIMETERS), .0001);
+        assertEquals(bruteForceActual(rain, LocalDate.of(2021, 3, 9), LocalDate.of(2021, 3, 15)),
+                     index.getRainfallForLastDays(LocalDate.of(2021, 3, 15), 7).get(Depth.Unit.MILLIMETERS), .0001);
+    }
+
+    @Test
+    public void testNormalRainfall() {
+        System.out.println("getNormalRainfall");
+        Random random = new Random(1027);
+        for (Month startMonth : new Month[]{Month.JANUARY, Month.FEBRUARY, Month.MARCH, Month.OCTOBER}) {
+            RainfallAccumulationIndex index = new RainfallAccumulationIndex(startMonth, createNormals());
+            index.putDailyRainfall(LAST, new Depth(5.0, Depth.Unit.MILLIMETERS));
+            for (int i = 0; i < 300; i++) {
+                LocalDate start = LocalDate.of(1890, 1, 1).plusDays(random.nextInt(60000));
+                LocalDate end = start.plusDays(random.nextInt(random.nextBoolean() ? 400 : 20000));
+                assertEquals(bruteForceNormal(start, end), index.getNormalRainfall(start, end).get(Depth.Unit.MILLIMETERS), .0001);
+            }
+
+            //
+            // Each weather year has the normal of a whole year
+            //
+            assertEquals(780.0, index.getNormalRainfall(LocalDate.of(1999, startMonth, 1), LocalDate.of(2000, startMonth, 1).minusDays(1)).get(Depth.Unit.MILLIMETERS), .0001);
+            assertEquals(780.0 * 400, index.getNormalRainfall(LocalDate.of(1600, startMonth, 1), LocalDate.of(2000, startMonth, 1).minusDays(1)).get(Depth.Unit.MILLIMETERS), .0001);
+        }
+    }
+
+    @Test
+    public void testDistantRange() {
+        System.out.println("distant range");
+        RainfallAccumulationIndex index = new RainfallAccumulationIndex(Month.OCTOBER, createNormals());
+        index.putDailyRainfall(LocalDate.of(2020, 5, 1), new Depth(12.0, Depth.Unit.MILLIMETERS));
+
+        //
+        // Queries far from the data neither fail nor add years to the index
+        //
+        assertTrue(index.getNormalRainfall(LocalDate.MIN, LocalDate.MAX).get(Depth.Unit.MILLIMETERS) > 0.0);
+        assertEquals(12.0, index.getActualRainfall(LocalDate.MIN, LocalDate.MAX).get(Depth.Unit.MILLIMETERS), .0001);
+        assertEquals(0.0, index.getActualRainfall(LocalDate.of(1900, 1, 1), LocalDate.of(1900, 12, 31)).get(Depth.Unit.MILLIMETERS), .0001);
+        assertEquals(-bruteForceNormal(LocalDate.of(1900, 1, 1), LocalDate.of(1900, 12, 31)),
+                     index.getDepartureFromNormal(LocalDate.of(1900, 1, 1), LocalDate.of(1900, 12, 31)).get(Depth.Unit.MILLIMETERS), .0001);
+    }
+
+    @Test
+    public void testRefreshNormals() {
+        System.out.println("refreshNormals");
+        MonthWeatherAverages normals = createNormals();
+        RainfallAccumulationIndex index = new RainfallAccumulationIndex(Month.JANUARY, normals);
+        LocalDate start = LocalDate.of(2021, 1, 1);
+        LocalDate end = LocalDate.of(2021, 1, 31);
+        assertEquals(10.0, index.getNormalRainfall(start, end).get(Depth.Unit.MILLIMETERS), .0001);
+
+        //
+        // The normals are a snapshot until they are refreshed
+        //
+        normals.getAverage(start).setRainfall(new Depth(62.0, Depth.Unit.MILLIMETERS));
+        assertEquals(10.0, index.getNormalRainfall(start, end).get(Depth.Unit.MILLIMETERS), .0001);
+        index.refreshNormals();
+        assertEquals(62.0, index.getNormalRainfall(start, end).get(Depth.Unit.MILLIMETERS), .0001);
+    }
+}
@@ -0,0 +1,136 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+
+public class RainfallIntensityDurationTest {
+    private static final LocalDate DAY1 = LocalDate.of(2016, 1, 10);
+    private static final LocalDate DAY2 = DAY1.plusDays(1);
+
+    public RainfallIntensityDurationTest() {
+    }
+
+    private RainfallIntensityDuration createEngine() {
+        RainfallIntensityDuration engine = new RainfallIntensityDuration();
+        //
+        // Two days of five minute records. 1mm per record from 23:00 to 01:00 across midnight and 4mm in the 10:05 record
+        // of the second day.
+        //
+        LocalDateTime time = DAY1.atStartOfDay().plusMinutes(5);
+        LocalDateTime end = DAY2.plusDays(1).atStartOfDay();
+        while (!time.isAfter(end)) {
+            double rain = 0.0;
+            if (time.isAfter(DAY1.atTime(23, 0)) && !time.isAfter(DAY2.atTime(1, 0)))
+                rain = 1.0;
+            else if (time.equals(DAY2.atTime(10, 5)))
+                rain = 4.0;
+
+            engine.applyRainfall(time, 5, rain);
+            time = time.plusMinutes(5);
+        }
+
+        return engine;
+    }
+
+    @Test
+    public void testMaximumRainfall() {
+        System.out.println("getMaximumRainfall");
+        RainfallIntensityDuration engine = createEngine();
+
+        assertEquals(new Depth(1.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.FIVE_MINUTES, DAY1));
+        assertEquals(new Depth(4.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.FIVE_MINUTES, DAY2));
+        assertEquals(new Depth(12.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.ONE_HOUR, DAY1));
+        assertEquals(new Depth(12.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.ONE_HOUR, DAY2));
+        assertEquals(new Depth(24.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.TWO_HOURS, DAY1, DAY2));
+        assertEquals(new Depth(28.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.TWENTY_FOUR_HOURS, DAY1, DAY2));
+        assertEquals(DAY2.atTime(1, 0), engine.getMaximumRainfallTime(RainfallDuration.TWO_HOURS, DAY1, DAY2));
+        assertEquals(new Depth(12.0, Depth.Unit.MILLIMETERS), engine.getMaximumIntensity(RainfallDuration.TWO_HOURS, DAY1, DAY2));
+        assertNull(engine.getMaximumRainfall(RainfallDuration.ONE_HOUR, DAY1.minusDays(5), DAY1.minusDays(1)));
+    }
+
+    @Test
+    public void testHourlyRainfall() {
+        System.out.println("getHourlyRainfall");
+        RainfallIntensityDuration engine = createEngine();
+
+        DayHourRain rain = engine.getHourlyRainfall(DAY2);
+        assertEquals(12.0, rain.getRainMillimeters(0), .001);
+        assertEquals(4.0, rain.getRainMillimeters(10), .001);
+        assertEquals(0.0, rain.getRainMillimeters(11), .001);
+        assertEquals(12.0, engine.getHourlyRainfall(DAY1).getRainMillimeters(23), .001);
+    }
+
+    @Test
+    public void testTrailingMaxima() {
+        System.out.println("getTrailingMaxima");
+        RainfallIntensityDuration engine = createEngine();
+
+        double[] maxima = engine.getTrailingMaxima(RainfallDuration.FIVE_MINUTES, DAY1, DAY2.plusDays(1), 2);
+        assertEquals(3, maxima.length);
+        assertEquals(1.0, maxima[0], .001);
+        assertEquals(4.0, maxima[1], .001);
+        assertEquals(4.0, maxima[2], .001);
+    }
+
+    @Test
+    public void testResolution() {
+        System.out.println("resolution");
+        RainfallIntensityDuration engine = new RainfallIntensityDuration(10);
+        assertFalse(engine.isDurationSupported(RainfallDuration.FIVE_MINUTES));
+        assertFalse(engine.isDurationSupported(RainfallDuration.FIFTEEN_MINUTES));
+        engine.applyRainfall(DAY1.atTime(10, 10), 10, 2.0);
+        assertNull(engine.getMaximumRainfall(RainfallDuration.FIVE_MINUTES, DAY1));
+        assertEquals(new Depth(2.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.TEN_MINUTES, DAY1));
+    }
+
+    @Test
+    public void testRepeatedHour() {
+        System.out.println("repeated hour");
+        RainfallIntensityDuration engine = new RainfallIntensityDuration();
+        //
+        // The hour from 01:00 to 02:00 is applied twice, as the local time archive does when daylight saving time ends,
+        // with 1mm per record the second time
+        //
+        for (LocalDateTime time = DAY1.atTime(0, 5); !time.isAfter(DAY1.atTime(2, 0)); time = time.plusMinutes(5))
+            engine.applyRainfall(time, 5, 0.0);
+
+        for (LocalDateTime time = DAY1.atTime(1, 5); !time.isAfter(DAY1.atTime(3, 0)); time = time.plusMinutes(5))
+            engine.applyRainfall(time, 5, time.isAfter(DAY1.atTime(2, 0)) ? 0.0 : 1.0);
+
+        assertEquals(12.0, engine.getHourlyRainfall(DAY1).getRainMillimeters(1), .001);
+        assertEquals(0.0, engine.getHourlyRainfall(DAY1).getRainMillimeters(2), .001);
+        assertEquals(new Depth(12.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.ONE_HOUR, DAY1));
+        assertEquals(new Depth(12.0, Depth.Unit.MILLIMETERS), engine.getMaximumRainfall(RainfallDuration.TWENTY_FOUR_HOURS, DAY1));
+
+        //
+        // A record that straddles the latest slot keeps its newer part in place
+        //
+        engine.applyRainfall(DAY1.atTime(3, 5), 10, 2.0);
+        assertEquals(1.0, engine.getHourlyRainfall(DAY1).getRainMillimeters(2), .001);
+        assertEquals(1.0, engine.getHourlyRainfall(DAY1).getRainMillimeters(3), .001);
+    }
+}
@@ -0,0 +1,191 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.AngularMeasurement;
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Distance;
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.SolarRadiation;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class ReferenceEvapotranspirationTest {
+    //
+    // The locations of examples 18 and 19 of FAO Irrigation and Drainage Paper 56
+    //
+    private static final GeographicLocation BRUSSELS = new GeographicLocation(new AngularMeasurement(50.8, AngularMeasurement.Unit.DEGREES),
+                                                                              new AngularMeasurement(4.35, AngularMeasurement.Unit.DEGREES),
+                                                                              new Distance(100.0, Depth.Unit.METERS));
+    private static final GeographicLocation NDIAYE = new GeographicLocation(new AngularMeasurement(16.0 + 13.0 / 60.0, AngularMeasurement.Unit.DEGREES),
+                                                                            new AngularMeasurement(-16.25, AngularMeasurement.Unit.DEGREES),
+                                                                            new Distance(8.0, Depth.Unit.METERS));
+
+    public ReferenceEvapotranspirationTest() {
+    }
+
+    @Test
+    public void testDaily() {
+        System.out.println("daily");
+        ReferenceEvapotranspiration calculator = new ReferenceEvapotranspiration(BRUSSELS, ZoneOffset.ofHours(1), 2.0);
+        LocalDate date = LocalDate.of(2016, 7, 6);
+        assertEquals(41.09, calculator.getExtraterrestrialRadiation(LocalDate.of(2015, 7, 6)), .1);
+
+        //
+        // Rs of 22.07 MJ/m2/day from the sunshine hours of the example
+        //
+        double solarRadiation = 22.07 / .0864;
+        double et = calculator.computeDaily(LocalDate.of(2015, 7, 6), 21.5, 12.3, 84.0, 63.0, 2.078, solarRadiation);
+        assertEquals(3.9, et, .05);
+
+        SummaryRecord rec = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), date);
+        assertNull(calculator.computeDaily(rec));
+    }
+
+    @Test
+    public void testPeriods() {
+        System.out.println("periods");
+        ReferenceEvapotranspiration calculator = new ReferenceEvapotranspiration(NDIAYE, ZoneOffset.UTC, 2.0);
+        long[] times = {LocalDateTime.of(2015, 10, 1, 3, 0).toEpochSecond(ZoneOffset.UTC), LocalDateTime.of(2015, 10, 1, 15, 0).toEpochSecond(ZoneOffset.UTC)};
+        int[] durations = {3600, 3600};
+        double[] temperatures = {28.0, 38.0};
+        double[] humidities = {90.0, 52.0};
+        double[] windSpeeds = {1.9, 3.3};
+        double[] solarRadiation = {0.0, 2.450e6 / 3600.0};
+        double[] et = new double[2];
+        calculator.computePeriods(times, durations, temperatures, humidities, windSpeeds, solarRadiation, et, 2);
+        assertEquals(0.0, et[0], .01);
+        assertEquals(0.63, et[1], .02);
+    }
+
+    @Test
+    public void testBackfill() {
+        System.out.println("backfill");
+        ReferenceEvapotranspiration calculator = new ReferenceEvapotranspiration(BRUSSELS, ZoneOffset.ofHours(1), 2.0);
+        LocalDateTime start = LocalDateTime.of(2015, 7, 6, 0, 0);
+        List<HistoricalRecord> records = new ArrayList<>();
+        for (int i = 0; i < 288 * 30; i++) {
+            LocalDateTime time = start.plusMinutes(5L * (i + 1));
+            double hour = time.getHour() + time.getMinute() / 60.0;
+            HistoricalRecord rec = new HistoricalRecord(time);
+            rec.setDuration(Duration.ofMinutes(5));
+            rec.setAvgOutdoorTemperature(new Temperature(17.0 - 4.5 * Math.cos((hour - 3.0) * Math.PI / 12.0), Temperature.Unit.CELSIUS));
+            rec.setOutdoorHumidity(new Humidity(74.0 + 10.0 * Math.cos((hour - 3.0) * Math.PI / 12.0)));
+            rec.setAvgWind(new Wind(new Speed(2.078), new Heading(180.0f)));
+            rec.setAvgSolarRadiation(new SolarRadiation(Math.max(0.0, 600.0 * Math.sin((hour - 5.0) * Math.PI / 16.0))));
+            if (i % 2 == 0)
+                rec.setEvapotranspiration(new Depth(0.01, Depth.Unit.MILLIMETERS));
+
+            records.add(rec);
+        }
+
+        int count = calculator.backfillHistoricalRecords(records);
+        assertEquals(records.size() / 2, count);
+
+        double total = 0.0;
+        for (int i = 0; i < 288; i++) {
+            Depth et = records.get(i).getEvapotranspiration();
+            if (i % 2 == 0)
+                assertEquals(0.01, et.get(Depth.Unit.MILLIMETERS), 1e-9);
+            else
+                total += et.get(Depth.Unit.MILLIMETERS);
+        }
+
+        //
+        // Half of the periods of a summer day in Brussels
+        //
+        System.out.println("Half day ET: " + total);
+        assertTrue(total > 1.0 && total < 3.5);
+    }
+
+    @Test
+    public void testBackfillWithoutSolarRadiation() {
+        System.out.println("backfill without solar radiation");
+        ReferenceEvapotranspiration calculator = new ReferenceEvapotranspiration(BRUSSELS, ZoneOffset.ofHours(1), 2.0);
+        LocalDate date = LocalDate.of(2015, 7, 6);
+        List<HistoricalRecord> records = new ArrayList<>();
+        for (int i = 0; i < 288 * 2; i++) {
+            LocalDateTime time = date.atStartOfDay().plusMinutes(5L * (i + 1));
+            double hour = time.getHour() + time.getMinute() / 60.0;
+            HistoricalRecord rec = new HistoricalRecord(time);
+            rec.setDuration(Duration.ofMinutes(5));
+            rec.setAvgOutdoorTemperature(new Temperature(16.9 - 4.6 * Math.cos((hour - 3.0) * Math.PI / 12.0), Temperature.Unit.CELSIUS));
+            rec.setOutdoorHumidity(new Humidity(73.5 + 10.5 * Math.cos((hour - 3.0) * Math.PI / 12.0)));
+            rec.setAvgWind(new Wind(new Speed(2.078), new Heading(180.0f)));
+            records.add(rec);
+        }
+
+        //
+        // The solar radiation is estimated from the temperature range, so every record is filled, the night periods
+        // with little or no ET
+        //
+        assertEquals(records.size(), calculator.backfillHistoricalRecords(records));
+        double total = 0.0;
+        double night = 0.0;
+        for (int i = 0; i < 288; i++) {
+            double et = records.get(i).getEvapotranspiration().get(Depth.Unit.MILLIMETERS);
+            total += et;
+            if (i < 24)
+                night += et;
+        }
+
+        double daily = calculator.computeDaily(date, 21.5, 12.3, 84.0, 63.0, 2.078, Double.NaN);
+        System.out.println("Estimated day ET: " + total + " daily equation: " + daily);
+        assertEquals(daily, total, daily * .3);
+        assertTrue(night < total * .02);
+    }
+
+    @Test
+    public void testBackfillSummaries() {
+        System.out.println("backfill summaries");
+        ReferenceEvapotranspiration calculator = new ReferenceEvapotranspiration(BRUSSELS, ZoneOffset.ofHours(1), 2.0);
+        LocalDate date = LocalDate.of(2015, 7, 6);
+        List<SummaryRecord> summaries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            SummaryRecord rec = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), date.plusDays(i));
+            rec.setMaxOutdoorTemp(new Temperature(21.5, Temperature.Unit.CELSIUS), date.plusDays(i).atTime(15, 0));
+            rec.setMinOutdoorTemp(new Temperature(12.3, Temperature.Unit.CELSIUS), date.plusDays(i).atTime(5, 0));
+            rec.setAvgWindSpeed(new Speed(2.078), Duration.ofDays(1));
+            summaries.add(rec);
+        }
+
+        //
+        // A total of zero is a real total and is kept
+        //
+        summaries.get(0).setTotalET(new Depth(0.0, Depth.Unit.MILLIMETERS));
+        summaries.get(1).setTotalET(null);
+        summaries.get(2).setTotalET(new Depth(2.5, Depth.Unit.MILLIMETERS));
+        assertEquals(1, calculator.backfillSummaryRecords(summaries));
+        assertEquals(0.0, summaries.get(0).getTotalET().get(Depth.Unit.MILLIMETERS), 0.0);
+        assertEquals(calculator.computeDaily(summaries.get(1)).get(Depth.Unit.MILLIMETERS), summaries.get(1).getTotalET().get(Depth.Unit.MILLIMETERS), 1e-9);
+        assertEquals(2.5, summaries.get(2).getTotalET().get(Depth.Unit.MILLIMETERS), 0.0);
+    }
+}
@@ -0,0 +1,155 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.Speed;
+
+public class RollingWeatherAggregatorTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 3, 1, 12, 0);
+
+    public RollingWeatherAggregatorTest() {
+    }
+
+    private static CurrentWeather createCurrentWeather(int seconds, double speed, int direction, double gust, double rainToday) {
+        CurrentWeather cw = new CurrentWeather();
+        cw.setTime(START.plusSeconds(seconds));
+        cw.setWindSpeed(new Speed(speed, Speed.Unit.METERS_PER_SEC));
+        cw.setWindDirection(new Heading(direction));
+        cw.setGustSpeed(new Speed(gust, Speed.Unit.METERS_PER_SEC));
+        cw.setGustDirection(new Heading(direction));
+        cw.setRainToday(new Depth(rainToday, Depth.Unit.MILLIMETERS));
+        return cw;
+    }
+
+    @Test
+    public void testWind() {
+        System.out.println("wind");
+        RollingWeatherAggregator aggregator = new RollingWeatherAggregator();
+        //
+        // 4 m/s from 350 then 6 m/s from 10 degrees, alternating every 10 seconds for 20 minutes
+        //
+        for (int seconds = 0; seconds <= 1200; seconds += 10) {
+            boolean even = seconds % 20 == 0;
+            aggregator.handleCurrentWeather(createCurrentWeather(seconds, even ? 4.0 : 6.0, even ? 350 : 10, 7.0, 0.0));
+        }
+
+        assertEquals(5.0, aggregator.getWindSpeed2MinAvg().get(Speed.Unit.METERS_PER_SEC), .01);
+        assertEquals(5.0, aggregator.getWindSpeed10MinAvg().get(Speed.Unit.METERS_PER_SEC), .01);
+        //
+        // The vector mean leans toward the stronger wind from 10 degrees
+        //
+        double direction = aggregator.getWindDirection10MinAvg().get();
+        assertEquals(Math.toDegrees(Math.atan(Math.sin(Math.toRadians(10)) / 5 / Math.cos(Math.toRadians(10)))), direction, .5);
+        assertEquals(4.92, aggregator.getVectorWindSpeed10MinAvg().get(Speed.Unit.METERS_PER_SEC), .01);
+    }
+
+    @Test
+    public void testGust() {
+        System.out.println("gust");
+        RollingWeatherAggregator aggregator = new RollingWeatherAggregator();
+        for (int seconds = 0; seconds <= 1200; seconds += 10) {
+            double gust = seconds == 180 ? 20.0 : 7.0;
+            aggregator.handleCurrentWeather(createCurrentWeather(seconds, 3.0, seconds == 180 ? 270 : 90, gust, 0.0));
+
+            //
+            // The peak gust is not known until the samples cover 10 minutes
+            //
+            if (seconds < 600) {
+                assertNull(aggregator.getGust10Min());
+                assertNull(aggregator.getGustDirection10Min());
+            }
+            else if (seconds < 780) {
+                assertEquals(20.0, aggregator.getGust10Min().get(Speed.Unit.METERS_PER_SEC), .001);
+                assertEquals(270.0, aggregator.getGustDirection10Min().get(), .001);
+            }
+            else {
+                assertEquals(7.0, aggregator.getGust10Min().get(Speed.Unit.METERS_PER_SEC), .001);
+                assertEquals(90.0, aggregator.getGustDirection10Min().get(), .001);
+            }
+        }
+
+        aggregator.clear();
+        aggregator.handleCurrentWeather(createCurrentWeather(1210, 3.0, 90, 7.0, 0.0));
+        assertNull(aggregator.getGust10Min());
+    }
+
+    @Test
+    public void testRain() {
+        System.out.println("rain");
+        RollingWeatherAggregator aggregator = new RollingWeatherAggregator();
+        //
+        // The rain today starts at 2mm and increases by .2mm each minute
+        //
+        for (int seconds = 0; seconds <= 4000; seconds += 10) {
+            aggregator.handleCurrentWeather(createCurrentWeather(seconds, 3.0, 90, 7.0, 2.0 + (seconds / 60) * .2));
+
+            if (seconds < 900)
+                assertNull(aggregator.getRain15Minute());
+            else
+                assertEquals(3.0, aggregator.getRain15Minute().get(Depth.Unit.MILLIMETERS), .001);
+
+            if (seconds < 3600)
+                assertNull(aggregator.getRainHour());
+            else
+                assertEquals(12.0, aggregator.getRainHour().get(Depth.Unit.MILLIMETERS), .001);
+        }
+
+        //
+        // The rain stops, after which the windows empty
+        //
+        double rainToday = 2.0 + (4000 / 60) * .2;
+        for (int seconds = 4010; seconds <= 8000; seconds += 10)
+            aggregator.handleCurrentWeather(createCurrentWeather(seconds, 3.0, 90, 7.0, rainToday));
+
+        assertEquals(0.0, aggregator.getRain15Minute().get(Depth.Unit.MILLIMETERS), .001);
+        assertEquals(0.0, aggregator.getRainHour().get(Depth.Unit.MILLIMETERS), .001);
+    }
+
+    @Test
+    public void testPressure() {
+        System.out.println("pressure");
+        RollingWeatherAggregator aggregator = new RollingWeatherAggregator();
+        //
+        // The pressure falls by 1 millibar per hour
+        //
+        for (int minutes = 0; minutes <= 240; minutes++) {
+            CurrentWeather cw = new CurrentWeather();
+            cw.setTime(START.plusMinutes(minutes));
+            cw.setBarometricPressure(new Pressure(1015.0 - minutes / 60.0, Pressure.Unit.MILLIBAR));
+            aggregator.handleCurrentWeather(cw);
+
+            if (minutes < 180) {
+                assertNull(aggregator.getPressureChange3Hour());
+                assertNull(aggregator.getPressureTrend());
+            }
+            else {
+                assertEquals(-3.0, aggregator.getPressureChange3Hour().get(Pressure.Unit.MILLIBAR), .001);
+                assertEquals(WeatherTrend.FALLING_RAPIDLY, aggregator.getPressureTrend());
+            }
+        }
+    }
+}
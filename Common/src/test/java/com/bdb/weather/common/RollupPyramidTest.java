@@ -0,0 +1,131 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class RollupPyramidTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 2, 1, 0, 0);
+    private static final int DAYS = 10;
+
+    public RollupPyramidTest() {
+    }
+
+    /**
+     * Create 5 minute archive records where the temperature is the hour of the day and it rains .2 mm per hour. The time
+     * of a record is the end of its interval.
+     */
+    private RollupPyramid createPyramid() {
+        RollupPyramid pyramid = new RollupPyramid();
+        for (int i = 0; i < DAYS * 288; i++) {
+            LocalDateTime time = START.plusMinutes(i * 5L);
+            HistoricalRecord rec = new HistoricalRecord(time.plusMinutes(5));
+            rec.setDuration(Duration.ofMinutes(5));
+            rec.setAvgOutdoorTemperature(new Temperature(time.getHour(), Temperature.Unit.CELSIUS));
+            if (time.getMinute() == 0)
+                rec.setRainfall(new Depth(.2, Depth.Unit.MILLIMETERS));
+
+            pyramid.applyHistoricalRecord(rec);
+        }
+
+        return pyramid;
+    }
+
+    @Test
+    public void testLevels() {
+        System.out.println("levels");
+        RollupPyramid pyramid = createPyramid();
+        LocalDateTime end = START.plusDays(DAYS);
+
+        assertEquals(DAYS * 288, pyramid.getBucketCount(RollupLevel.FIVE_MINUTE, START, end));
+        assertEquals(DAYS * 24, pyramid.getBucketCount(RollupLevel.HOUR, START, end));
+        //
+        // February 1, 2016 was a Monday
+        //
+        assertEquals(2, pyramid.getBucketCount(RollupLevel.WEEK, START, end));
+
+        RollupSeries series = pyramid.query(ArchiveField.AVG_OUTDOOR_TEMPERATURE, START, end, 100);
+        assertEquals(RollupLevel.DAY, series.getLevel());
+        assertEquals(DAYS, series.size());
+        assertEquals(START.plusDays(3), series.getTime(3));
+        assertEquals(0.0, series.getMinimum(3), .001);
+        assertEquals(23.0, series.getMaximum(3), .001);
+        assertEquals(11.5, series.getMean(3), .001);
+
+        series = pyramid.query(ArchiveField.RAINFALL, START, end, 1);
+        assertEquals(RollupLevel.MONTH, series.getLevel());
+        assertEquals(DAYS * 24 * .2, series.getSum(0), .001);
+
+        series = pyramid.query(ArchiveField.RAINFALL, RollupLevel.HOUR, START.plusHours(5).plusMinutes(30), START.plusHours(8));
+        assertEquals(3, series.size());
+        assertEquals(START.plusHours(5), series.getTime(0));
+    }
+
+    @Test
+    public void testDownsampling() {
+        System.out.println("downsampling");
+        RollupPyramid pyramid = createPyramid();
+        LocalDateTime end = START.plusDays(DAYS);
+
+        RollupSeries series = pyramid.queryDownsampled(ArchiveField.AVG_OUTDOOR_TEMPERATURE, START, end, 50);
+        assertTrue(series.isDownsampled());
+        assertEquals(RollupLevel.HOUR, series.getLevel());
+        assertEquals(50, series.size());
+        assertEquals(START, series.getTime(0));
+        assertEquals(end.minusHours(1), series.getTime(49));
+
+        //
+        // The peaks of the daily cycle are kept
+        //
+        double max = 0.0;
+        for (int i = 0; i < series.size(); i++)
+            max = Math.max(max, series.getMean(i));
+
+        assertTrue(max >= 20.0);
+    }
+
+    @Test
+    public void testMidnightRecord() {
+        System.out.println("midnight record");
+        RollupPyramid pyramid = new RollupPyramid();
+        //
+        // The record from 23:55 to midnight belongs to the day that is ending, and with it the month that is ending
+        //
+        HistoricalRecord rec = new HistoricalRecord(START);
+        rec.setDuration(Duration.ofMinutes(5));
+        rec.setRainfall(new Depth(1.0, Depth.Unit.MILLIMETERS));
+        pyramid.applyHistoricalRecord(rec);
+
+        RollupSeries series = pyramid.query(ArchiveField.RAINFALL, RollupLevel.DAY, START.minusDays(1), START.plusDays(1));
+        assertEquals(1, series.size());
+        assertEquals(START.minusDays(1), series.getTime(0));
+        assertEquals(1.0, series.getSum(0), .001);
+        series = pyramid.query(ArchiveField.RAINFALL, RollupLevel.MONTH, START.minusMonths(1), START.plusMonths(1));
+        assertEquals(START.minusMonths(1), series.getTime(0));
+        series = pyramid.query(ArchiveField.RAINFALL, RollupLevel.FIVE_MINUTE, START.minusDays(1), START.plusDays(1));
+        assertEquals(START.minusMinutes(5), series.getTime(0));
+    }
+}
@@ -0,0 +1,254 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.util.measurement.Measurement;
+import com.bdb.util.measurement.MeasurementStatistics;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class SensorAccumulatorsTest {
+    private static final LocalDate DAY = LocalDate.of(2016, 5, 1);
+    private static final int THERMOMETER = Sensor.THERMOMETER_BASE_SENSOR_ID;
+    private static final int SOIL_TEMPERATURE = Sensor.SOIL_TEMPERATURE_BASE_SENSOR_ID + 3;
+    private static final int HYGROMETER = Sensor.HYGROMETER_BASE_SENSOR_ID;
+
+    public SensorAccumulatorsTest() {
+    }
+
+    /**
+     * Create 5 minute archive records for a number of days, with a 10 minute record now and then.
+     */
+    private static List<HistoricalRecord> createRecords(LocalDate first, int days, long seed) {
+        Random random = new Random(seed);
+        List<HistoricalRecord> records = new ArrayList<>();
+        LocalDateTime time = first.atStartOfDay();
+        LocalDateTime end = first.plusDays(days).atStartOfDay();
+        while (time.isBefore(end)) {
+            Duration duration = Duration.ofMinutes(random.nextInt(10) == 0 ? 10 : 5);
+            time = time.plus(duration);
+            HistoricalRecord rec = new HistoricalRecord(time);
+            rec.setDuration(duration);
+            rec.setTemperatureForSensor(THERMOMETER, new Temperature(random.nextInt(400) / 10.0, Temperature.Unit.CELSIUS));
+            rec.setTemperatureForSensor(SOIL_TEMPERATURE, new Temperature(10.0 + random.nextInt(100) / 10.0, Temperature.Unit.CELSIUS));
+            if (random.nextBoolean())
+                rec.setHumidityForSensor(HYGROMETER, new Humidity(20 + random.nextInt(80)));
+
+            records.add(rec);
+        }
+
+        return records;
+    }
+
+    /**
+     * Find the statistics of a sensor in the records, the earliest time of a tied minimum or maximum being kept.
+     */
+    private static double[] bruteForce(List<HistoricalRecord> records, SensorType type, int sensorId) {
+        double min = Double.NaN;
+        double max = Double.NaN;
+        double minTime = 0;
+        double maxTime = 0;
+        double sum = 0.0;
+        double seconds = 0.0;
+        for (HistoricalRecord rec : records) {
+            double value = rec.getExtraSensorValues().getValue(type, sensorId);
+            if (Double.isNaN(value))
+                continue;
+
+            double t = rec.getTime().toEpochSecond(ZoneOffset.UTC);
+            if (Double.isNaN(min) || value < min) {
+                min = value;
+                minTime = t;
+            }
+
+            if (Double.isNaN(max) || value > max) {
+                max = value;
+                maxTime = t;
+            }
+
+            sum += value * rec.getDuration().getSeconds();
+            seconds += rec.getDuration().getSeconds();
+        }
+
+        return new double[]{min, minTime, max, maxTime, sum / seconds, seconds};
+    }
+
+    private static MeasurementStatisticsEntry<? extends Measurement> find(SummaryRecord summary, int sensorId) {
+        for (MeasurementStatisticsEntry<? extends Measurement> entry : summary.getSensorValues())
+            if (entry.getSensorId() == sensorId)
+                return entry;
+
+        return null;
+    }
+
+    private static void assertStatistics(double[] expected, MeasurementStatisticsEntry<? extends Measurement> entry, Enum<?> unit) {
+        MeasurementStatistics<? extends Measurement> stats = entry.getStats();
+        assertEquals(expected[0], get(stats.getMinimumValue(), unit), .0001);
+        assertEquals((long)expected[1], stats.getMinimumTime().toEpochSecond(ZoneOffset.UTC));
+        assertEquals(expected[2], get(stats.getMaximumValue(), unit), .0001);
+        assertEquals((long)expected[3], stats.getMaximumTime().toEpochSecond(ZoneOffset.UTC));
+        assertEquals(expected[4], get(stats.getAverage(), unit), .0001);
+        assertEquals((long)expected[5], stats.getAverageDuration().getSeconds());
+    }
+
+    private static double get(Measurement m, Enum<?> unit) {
+        if (unit instanceof Temperature.Unit)
+            return m.get((Temperature.Unit)unit);
+        else
+            return m.get((Humidity.Unit)unit);
+    }
+
+    private static SummaryRecord createSummary(LocalDate date, List<HistoricalRecord> records) {
+        SummaryRecord summary = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), date);
+        for (HistoricalRecord rec : records)
+            summary.applyHistoricalRecord(rec);
+
+        return summary;
+    }
+
+    /**
+     * Save the sensor statistics of a summary and read them back into another summary, as the database does.
+     */
+    private static SummaryRecord reload(SummaryRecord summary) {
+        SummaryRecord reloaded = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), summary.getDate());
+        for (MeasurementStatisticsEntry<? extends Measurement> entry : summary.getSensorValues())
+            reloaded.addSensorStatistics(entry);
+
+        return reloaded;
+    }
+
+    @Test
+    public void testDailySummary() {
+        System.out.println("daily summary");
+        List<HistoricalRecord> records = createRecords(DAY, 1, 39);
+        SummaryRecord summary = createSummary(DAY, records);
+        assertEquals(3, summary.getSensorValues().size());
+        assertStatistics(bruteForce(records, SensorType.THERMOMETER, THERMOMETER), find(summary, THERMOMETER), Temperature.Unit.CELSIUS);
+        assertStatistics(bruteForce(records, SensorType.THERMOMETER, SOIL_TEMPERATURE), find(summary, SOIL_TEMPERATURE), Temperature.Unit.CELSIUS);
+        assertStatistics(bruteForce(records, SensorType.HYGROMETER, HYGROMETER), find(summary, HYGROMETER), Humidity.Unit.RELATIVE_HUMIDITY);
+    }
+
+    @Test
+    public void testRollup() {
+        System.out.println("rollup");
+        //
+        // A month made of daily summaries has the statistics of all of the records of the days
+        //
+        List<HistoricalRecord> all = new ArrayList<>();
+        SummaryRecord month = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), DAY);
+        for (int day = 0; day < 5; day++) {
+            List<HistoricalRecord> records = createRecords(DAY.plusDays(day), 1, day);
+            all.addAll(records);
+            month.applySummaryRecord(createSummary(DAY.plusDays(day), records));
+        }
+
+        assertEquals(3, month.getSensorValues().size());
+        assertStatistics(bruteForce(all, SensorType.THERMOMETER, THERMOMETER), find(month, THERMOMETER), Temperature.Unit.CELSIUS);
+        assertStatistics(bruteForce(all, SensorType.THERMOMETER, SOIL_TEMPERATURE), find(month, SOIL_TEMPERATURE), Temperature.Unit.CELSIUS);
+        assertStatistics(bruteForce(all, SensorType.HYGROMETER, HYGROMETER), find(month, HYGROMETER), Humidity.Unit.RELATIVE_HUMIDITY);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        System.out.println("round trip");
+        List<HistoricalRecord> records = createRecords(DAY, 1, 139);
+        SummaryRecord summary = createSummary(DAY, records);
+        SummaryRecord reloaded = reload(summary);
+
+        //
+        // The reloaded statistics do not know how many values were accumulated, but they are equal to the original
+        //
+        SensorAccumulators original = new SensorAccumulators();
+        SensorAccumulators copy = new SensorAccumulators();
+        for (HistoricalRecord rec : records)
+            for (int id = rec.getExtraSensorValues().nextSensorId(SensorType.THERMOMETER, 0); id >= 0; id = rec.getExtraSensorValues().nextSensorId(SensorType.THERMOMETER, id + 1))
+                original.applyValue(SensorType.THERMOMETER, id, rec.getExtraSensorValues().getValue(SensorType.THERMOMETER, id), rec.getTime(), rec.getDuration());
+
+        for (MeasurementStatisticsEntry<? extends Measurement> entry : original.toEntries(DAY))
+            copy.setStatistics(entry);
+
+        assertEquals(original, copy);
+        assertEquals(original.hashCode(), copy.hashCode());
+        copy.applyValue(SensorType.THERMOMETER, THERMOMETER, 100.0, DAY.atTime(12, 0), Duration.ofMinutes(5));
+        assertFalse(original.equals(copy));
+
+        //
+        // A month rolled up from reloaded days has the same statistics as one rolled up from the original days
+        //
+        List<HistoricalRecord> nextRecords = createRecords(DAY.plusDays(1), 1, 239);
+        SummaryRecord next = createSummary(DAY.plusDays(1), nextRecords);
+        SummaryRecord month = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), DAY);
+        month.applySummaryRecord(summary);
+        month.applySummaryRecord(next);
+        SummaryRecord reloadedMonth = new SummaryRecord(new WindParameters(), new TemperatureBinMgr(null), DAY);
+        reloadedMonth.applySummaryRecord(reloaded);
+        reloadedMonth.applySummaryRecord(reload(next));
+        for (int sensorId : new int[]{THERMOMETER, SOIL_TEMPERATURE, HYGROMETER}) {
+            MeasurementStatistics<? extends Measurement> expected = find(month, sensorId).getStats();
+            MeasurementStatistics<? extends Measurement> actual = find(reloadedMonth, sensorId).getStats();
+            assertEquals(expected.getMinimumValue(), actual.getMinimumValue());
+            assertEquals(expected.getMinimumTime(), actual.getMinimumTime());
+            assertEquals(expected.getMaximumValue(), actual.getMaximumValue());
+            assertEquals(expected.getMaximumTime(), actual.getMaximumTime());
+            assertEquals(expected.getAverage(), actual.getAverage());
+            assertEquals(expected.getAverageDuration(), actual.getAverageDuration());
+        }
+    }
+
+    @Test
+    public void testPartialStatistics() {
+        System.out.println("partial statistics");
+        //
+        // Statistics without a minimum or an average are kept as they were read
+        //
+        MeasurementStatistics<Temperature> stats = new MeasurementStatistics<>(new Temperature(0.0));
+        stats.setMaximum(new Temperature(25.0, Temperature.Unit.CELSIUS), DAY.atTime(15, 0));
+        SensorAccumulators sensors = new SensorAccumulators();
+        sensors.setStatistics(new MeasurementStatisticsEntry<>(DAY, THERMOMETER, SensorType.THERMOMETER, stats));
+
+        List<MeasurementStatisticsEntry<? extends Measurement>> entries = sensors.toEntries(DAY);
+        assertEquals(1, entries.size());
+        MeasurementStatistics<? extends Measurement> read = entries.get(0).getStats();
+        assertNull(read.getMinimumValue());
+        assertNull(read.getAverage());
+        assertEquals(25.0, read.getMaximumValue().get(Temperature.Unit.CELSIUS), .0001);
+        assertEquals(DAY.atTime(15, 0), read.getMaximumTime());
+
+        //
+        // Values applied later fill in the missing statistics
+        //
+        sensors.applyValue(SensorType.THERMOMETER, THERMOMETER, 20.0, DAY.atTime(16, 0), Duration.ofMinutes(5));
+        read = sensors.toEntries(DAY).get(0).getStats();
+        assertEquals(20.0, read.getMinimumValue().get(Temperature.Unit.CELSIUS), .0001);
+        assertEquals(25.0, read.getMaximumValue().get(Temperature.Unit.CELSIUS), .0001);
+        assertEquals(20.0, read.getAverage().get(Temperature.Unit.CELSIUS), .0001);
+    }
+}
@@ -0,0 +1,175 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SensorManagerTest {
+    private static final int SOIL_1 = 600;
+    private static final int SOIL_2 = 601;
+    private static final int THERMOMETER = 1;
+    private static final int EXTRA_THERMOMETER = 400;
+    private final SensorManager manager = SensorManager.getInstance();
+    private final List<Sensor> saved = new ArrayList<>();
+
+    public SensorManagerTest() {
+    }
+
+    /**
+     * The sensor manager is a singleton, so the sensors of other tests are removed and put back afterwards.
+     */
+    @Before
+    public void setUp() {
+        saved.addAll(manager.getAllSensors());
+        removeAll();
+        manager.addSensors(Arrays.asList(new Sensor(THERMOMETER, SensorType.THERMOMETER),
+                                         new Sensor(EXTRA_THERMOMETER, SensorType.THERMOMETER),
+                                         new Sensor(SOIL_1, SensorType.SOIL_MOISTURE),
+                                         new Sensor(SOIL_2, SensorType.SOIL_MOISTURE)));
+    }
+
+    @After
+    public void tearDown() {
+        removeAll();
+        manager.addSensors(saved);
+    }
+
+    private void removeAll() {
+        for (Sensor sensor : new ArrayList<>(manager.getAllSensors()))
+            manager.removeSensor(sensor.getSensorId());
+    }
+
+    private static List<Integer> ids(Collection<Sensor> sensors) {
+        List<Integer> ids = new ArrayList<>();
+        for (Sensor sensor : sensors)
+            ids.add(sensor.getSensorId());
+
+        return ids;
+    }
+
+    @Test
+    public void testGetSensors() {
+        System.out.println("getSensors");
+        assertEquals(Arrays.asList(THERMOMETER, EXTRA_THERMOMETER), ids(manager.getSensors(SensorType.THERMOMETER, true, true)));
+        assertEquals(Arrays.asList(THERMOMETER), ids(manager.getSensors(SensorType.THERMOMETER, true, false)));
+        assertEquals(Arrays.asList(EXTRA_THERMOMETER), ids(manager.getSensors(SensorType.THERMOMETER, false, true)));
+        assertTrue(manager.getSensors(SensorType.THERMOMETER, false, false).isEmpty());
+        assertEquals(Arrays.asList(THERMOMETER), ids(manager.getStandardSensors(SensorType.THERMOMETER)));
+        assertEquals(Arrays.asList(EXTRA_THERMOMETER), ids(manager.getExtraSensors(SensorType.THERMOMETER)));
+        assertEquals(Arrays.asList(SOIL_1, SOIL_2), ids(manager.getExtraSensors(SensorType.SOIL_MOISTURE)));
+        assertTrue(manager.getStandardSensors(SensorType.SOIL_MOISTURE).isEmpty());
+        assertTrue(manager.getSensors(SensorType.LEAF_WETNESS, true, true).isEmpty());
+    }
+
+    @Test
+    public void testSlots() {
+        System.out.println("slots");
+        assertEquals(4, manager.getSensorCount());
+        assertEquals(Arrays.asList(THERMOMETER, EXTRA_THERMOMETER, SOIL_1, SOIL_2), ids(manager.getAllSensors()));
+        assertEquals(2, manager.getSensorSlot(SOIL_1));
+        assertEquals(-1, manager.getSensorSlot(-5));
+        assertEquals(-1, manager.getSensorSlot(10000));
+
+        //
+        // Removing a sensor moves the slots of the later sensors
+        //
+        Sensor removed = manager.removeSensor(EXTRA_THERMOMETER);
+        assertEquals(EXTRA_THERMOMETER, removed.getSensorId());
+        assertNull(manager.removeSensor(EXTRA_THERMOMETER));
+        assertFalse(manager.sensorInstalled(EXTRA_THERMOMETER));
+        assertNull(manager.getSensor(EXTRA_THERMOMETER));
+        assertEquals(-1, manager.getSensorSlot(EXTRA_THERMOMETER));
+        assertEquals(1, manager.getSensorSlot(SOIL_1));
+        assertEquals(2, manager.getSensorSlot(SOIL_2));
+        assertEquals(SOIL_2, manager.getSensor(SOIL_2).getSensorId());
+        for (Sensor sensor : manager.getAllSensors())
+            assertSame(sensor, new ArrayList<>(manager.getAllSensors()).get(manager.getSensorSlot(sensor.getSensorId())));
+
+        //
+        // Removing the sensor with the highest ID shrinks the table
+        //
+        manager.removeSensor(SOIL_2);
+        assertEquals(-1, manager.getSensorSlot(SOIL_2));
+        assertFalse(manager.sensorInstalled(SOIL_2));
+        assertTrue(manager.sensorInstalled(SOIL_1));
+
+        //
+        // Replacing a sensor keeps its slot
+        //
+        Sensor replacement = new Sensor(SOIL_1, SensorType.SOIL_MOISTURE, "Garden");
+        manager.addSensor(replacement);
+        assertSame(replacement, manager.getSensor(SOIL_1));
+        assertEquals(2, manager.getSensorCount());
+        assertEquals(1, manager.getSensorSlot(SOIL_1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidId() {
+        System.out.println("invalid ID");
+        manager.addSensor(new Sensor(-1, SensorType.THERMOMETER));
+    }
+
+    @Test
+    public void testListeners() {
+        System.out.println("listeners");
+        List<String> events = new ArrayList<>();
+        SensorManager.SensorListener listener = new SensorManager.SensorListener() {
+            @Override
+            public void sensorAdded(Sensor sensor) {
+                //
+                // The snapshot with the sensor is published before the listeners are called
+                //
+                assertSame(sensor, manager.getSensor(sensor.getSensorId()));
+                assertTrue(manager.getExtraSensors(sensor.getType()).contains(sensor));
+                events.add("added " + sensor.getSensorId());
+            }
+
+            @Override
+            public void sensorRemoved(Sensor sensor) {
+                assertFalse(manager.sensorInstalled(sensor.getSensorId()));
+                assertFalse(manager.getAllSensors().contains(sensor));
+                events.add("removed " + sensor.getSensorId());
+            }
+        };
+
+        manager.addSensorListener(listener);
+        try {
+            manager.addSensors(Arrays.asList(new Sensor(602, SensorType.SOIL_MOISTURE), new Sensor(603, SensorType.SOIL_MOISTURE)));
+            manager.removeSensor(602);
+            manager.removeSensor(602);
+        }
+        finally {
+            manager.removeSensorListener(listener);
+        }
+
+        manager.removeSensor(603);
+        assertEquals(Arrays.asList("added 602", "added 603", "removed 602"), events);
+    }
+}
@@ -0,0 +1,236 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SensorStationHealthMonitorTest {
+    private static final LocalDateTime START = LocalDateTime.of(2016, 4, 1, 0, 0);
+    private static final int STATION = 1;
+
+    public SensorStationHealthMonitorTest() {
+    }
+
+    /**
+     * A listener that records the events as strings.
+     */
+    private static class EventRecorder implements SensorStationHealthMonitor.HealthListener {
+        private final List<String> events = new ArrayList<>();
+        private final List<BadBattery> detected = new ArrayList<>();
+
+        @Override
+        public void badBatteryDetected(BadBattery badBattery) {
+            detected.add(badBattery);
+            events.add("battery bad");
+        }
+
+        @Override
+        public void badBatteryEnded(BadBattery badBattery) {
+            events.add("battery good " + badBattery.getMeasurementCount());
+        }
+
+        @Override
+        public void healthChanged(int sensorStationId, SensorStationHealthMonitor.Condition condition, boolean degraded, LocalDateTime time) {
+            events.add(condition + " " + degraded);
+        }
+    }
+
+    @Test
+    public void testPacketLoss() {
+        System.out.println("packet loss");
+        SensorStationHealthMonitor monitor = new SensorStationHealthMonitor(Duration.ofMinutes(1));
+        Random random = new Random(40);
+
+        //
+        // The estimate is an exponentially weighted average over the expected reports, 1 for a lost report and 0 for a
+        // received one
+        //
+        double expected = 0.0;
+        double sum = 0.0;
+        int samples = 0;
+        monitor.applyStatus(new SensorStationStatus(STATION, START, null, null, null));
+        for (int minute = 1; minute <= 50000; minute++) {
+            if (random.nextInt(10) == 0) {
+                expected = .9 * expected + .1;
+                continue;
+            }
+
+            expected = .9 * expected;
+            monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(minute), null, null, null));
+            assertEquals(expected, monitor.getPacketLoss(STATION), 1e-9);
+            if (minute > 1000) {
+                sum += monitor.getPacketLoss(STATION);
+                samples++;
+            }
+        }
+
+        //
+        // The estimate is not biased low by the gaps counting as a single sample
+        //
+        assertEquals(.1, sum / samples, .01);
+        assertTrue(Double.isNaN(monitor.getPacketLoss(STATION + 1)));
+    }
+
+    @Test
+    public void testVoltageSlope() {
+        System.out.println("voltage slope");
+        SensorStationHealthMonitor monitor = new SensorStationHealthMonitor(Duration.ofHours(1));
+        EventRecorder recorder = new EventRecorder();
+        monitor.addHealthListener(recorder);
+        Random random = new Random(140);
+        List<double[]> samples = new ArrayList<>();
+
+        //
+        // A battery that falls by .1 volts a day with some noise
+        //
+        for (int hour = 0; hour <= 24 * 6; hour++) {
+            double days = hour / 24.0;
+            float voltage = (float)(4.0 - .1 * days + (random.nextDouble() - .5) * .02);
+            samples.add(new double[]{days, voltage});
+            monitor.applyStatus(new SensorStationStatus(STATION, START.plusHours(hour), voltage, null, null));
+
+            if (hour < 24)
+                assertTrue(Double.isNaN(monitor.getVoltageSlope(STATION)));
+            else
+                assertEquals(weightedSlope(samples), monitor.getVoltageSlope(STATION), 1e-6);
+        }
+
+        assertEquals(-.1, monitor.getVoltageSlope(STATION), .01);
+        assertTrue(monitor.isDegraded(STATION, SensorStationHealthMonitor.Condition.FALLING_VOLTAGE));
+
+        //
+        // The battery is replaced and the slope recovers as the old samples decay
+        //
+        for (int hour = 24 * 6 + 1; hour <= 24 * 20; hour++) {
+            double days = hour / 24.0;
+            samples.add(new double[]{days, 4.2});
+            monitor.applyStatus(new SensorStationStatus(STATION, START.plusHours(hour), 4.2f, null, null));
+            assertEquals(weightedSlope(samples), monitor.getVoltageSlope(STATION), 1e-6);
+        }
+
+        assertFalse(monitor.isDegraded(STATION, SensorStationHealthMonitor.Condition.FALLING_VOLTAGE));
+        assertEquals(2, recorder.events.size());
+        assertEquals("FALLING_VOLTAGE true", recorder.events.get(0));
+        assertEquals("FALLING_VOLTAGE false", recorder.events.get(1));
+    }
+
+    /**
+     * The slope of a linear regression of the voltage samples with weights that halve every 3 days of age.
+     */
+    private static double weightedSlope(List<double[]> samples) {
+        double latest = samples.get(samples.size() - 1)[0];
+        double s0 = 0.0, sx = 0.0, sxx = 0.0, sy = 0.0, sxy = 0.0;
+        for (double[] sample : samples) {
+            double x = sample[0] - latest;
+            double w = Math.pow(.5, -x / 3.0);
+            s0 += w;
+            sx += w * x;
+            sxx += w * x * x;
+            sy += w * sample[1];
+            sxy += w * x * sample[1];
+        }
+
+        return (s0 * sxy - sx * sy) / (s0 * sxx - sx * sx);
+    }
+
+    @Test
+    public void testHysteresis() {
+        System.out.println("hysteresis");
+        SensorStationHealthMonitor monitor = new SensorStationHealthMonitor(Duration.ofMinutes(1));
+        EventRecorder recorder = new EventRecorder();
+        monitor.addHealthListener(recorder);
+        int minute = 0;
+
+        //
+        // The link quality falls below the threshold once, then stays between the thresholds without more events
+        //
+        monitor.applyStatus(new SensorStationStatus(STATION, START, null, null, 90));
+        while (monitor.getLinkQuality(STATION) >= 70.0)
+            monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(++minute), null, null, 60));
+
+        assertTrue(monitor.isDegraded(STATION, SensorStationHealthMonitor.Condition.LOW_LINK_QUALITY));
+        for (int i = 0; i < 100; i++)
+            monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(++minute), null, null, i % 2 == 0 ? 65 : 85));
+
+        assertTrue(monitor.getLinkQuality(STATION) > 70.0 && monitor.getLinkQuality(STATION) < 80.0);
+        assertTrue(monitor.isDegraded(STATION, SensorStationHealthMonitor.Condition.LOW_LINK_QUALITY));
+        assertEquals(1, recorder.events.size());
+
+        while (monitor.getLinkQuality(STATION) <= 80.0)
+            monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(++minute), null, null, 95));
+
+        assertFalse(monitor.isDegraded(STATION, SensorStationHealthMonitor.Condition.LOW_LINK_QUALITY));
+        assertEquals(2, recorder.events.size());
+        assertEquals("LOW_LINK_QUALITY false", recorder.events.get(1));
+
+        //
+        // A station that stops reporting is degraded until it reports again
+        //
+        monitor.checkReporting(START.plusMinutes(minute + 5));
+        assertFalse(monitor.isDegraded(STATION, SensorStationHealthMonitor.Condition.NOT_REPORTING));
+        monitor.checkReporting(START.plusMinutes(minute + 11));
+        assertTrue(monitor.isDegraded(STATION, SensorStationHealthMonitor.Condition.NOT_REPORTING));
+        monitor.checkReporting(START.plusMinutes(minute + 12));
+        monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(minute + 13), null, null, 95));
+        assertFalse(monitor.isDegraded(STATION, SensorStationHealthMonitor.Condition.NOT_REPORTING));
+        assertEquals("NOT_REPORTING true", recorder.events.get(2));
+        assertEquals("NOT_REPORTING false", recorder.events.get(3));
+    }
+
+    @Test
+    public void testBadBattery() {
+        System.out.println("bad battery");
+        SensorStationHealthMonitor monitor = new SensorStationHealthMonitor(Duration.ofMinutes(1));
+        EventRecorder recorder = new EventRecorder();
+        monitor.addHealthListener(recorder);
+        monitor.applyStatus(new SensorStationStatus(STATION, START, null, true, null));
+        assertNull(monitor.getBadBattery(STATION));
+
+        monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(1), null, false, null));
+        BadBattery first = monitor.getBadBattery(STATION);
+        monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(2), null, false, null));
+        monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(3), null, false, null));
+
+        //
+        // The episodes that were handed out are not changed by later reports
+        //
+        assertEquals(1, recorder.detected.size());
+        assertEquals(1, recorder.detected.get(0).getMeasurementCount());
+        assertEquals(Duration.ZERO, recorder.detected.get(0).getDuration());
+        assertEquals(1, first.getMeasurementCount());
+        BadBattery current = monitor.getBadBattery(STATION);
+        assertEquals(3, current.getMeasurementCount());
+        assertEquals(Duration.ofMinutes(2), current.getDuration());
+        assertEquals(START.plusMinutes(1), current.getTimeDetected());
+
+        monitor.applyStatus(new SensorStationStatus(STATION, START.plusMinutes(4), null, true, null));
+        assertNull(monitor.getBadBattery(STATION));
+        assertEquals(3, current.getMeasurementCount());
+        assertEquals("battery good 3", recorder.events.get(recorder.events.size() - 1));
+    }
+}
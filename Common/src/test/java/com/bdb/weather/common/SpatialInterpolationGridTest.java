@@ -0,0 +1,316 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.AngularMeasurement;
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Distance;
+import com.bdb.weather.common.measurement.Pressure;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class SpatialInterpolationGridTest {
+    private static final double SOUTH = 40.0;
+    private static final double WEST = -105.0;
+    private static final double STEP = .01;
+    private static final int SIZE = 11;
+    private static final double LAPSE_RATE = SpatialInterpolationGrid.STANDARD_LAPSE_RATE;
+
+    public SpatialInterpolationGridTest() {
+    }
+
+    /**
+     * The location and values of a station as the test knows them.
+     */
+    private static final class TestStation {
+        private final double latitude;
+        private final double longitude;
+        private final double altitude;
+        private final double temperature;
+        private final double pressure;
+        private final double rainfall;
+
+        TestStation(int row, int column, double altitude, double temperature, double pressure, double rainfall) {
+            this.latitude = SOUTH + row * STEP;
+            this.longitude = WEST + column * STEP;
+            this.altitude = altitude;
+            this.temperature = temperature;
+            this.pressure = pressure;
+            this.rainfall = rainfall;
+        }
+
+        GeographicLocation location() {
+            return new GeographicLocation(new AngularMeasurement(latitude, AngularMeasurement.Unit.DEGREES),
+                                          new AngularMeasurement(longitude, AngularMeasurement.Unit.DEGREES),
+                                          new Distance(altitude, Depth.Unit.METERS));
+        }
+
+        CurrentWeather currentWeather() {
+            CurrentWeather current = new CurrentWeather();
+            if (!Double.isNaN(temperature))
+                current.setOutsideTemperature(new Temperature(temperature, Temperature.Unit.CELSIUS));
+
+            if (!Double.isNaN(pressure))
+                current.setBarometricPressure(new Pressure(pressure, Pressure.Unit.MILLIBAR));
+
+            if (!Double.isNaN(rainfall))
+                current.setRainToday(new Depth(rainfall, Depth.Unit.MILLIMETERS));
+
+            return current;
+        }
+    }
+
+    private static SpatialInterpolationGrid createGrid() {
+        return new SpatialInterpolationGrid(new GeographicLocation(new AngularMeasurement(SOUTH, AngularMeasurement.Unit.DEGREES),
+                                                                   new AngularMeasurement(WEST, AngularMeasurement.Unit.DEGREES)),
+                                            new GeographicLocation(new AngularMeasurement(SOUTH + (SIZE - 1) * STEP, AngularMeasurement.Unit.DEGREES),
+                                                                   new AngularMeasurement(WEST + (SIZE - 1) * STEP, AngularMeasurement.Unit.DEGREES)),
+                                            SIZE, SIZE);
+    }
+
+    private static void apply(SpatialInterpolationGrid grid, Map<Integer,TestStation> stations) {
+        for (Map.Entry<Integer,TestStation> entry : stations.entrySet()) {
+            grid.addStation(entry.getKey(), entry.getValue().location());
+            grid.applyCurrentWeather(entry.getKey(), entry.getValue().currentWeather());
+        }
+    }
+
+    /**
+     * The great circle distance in meters.
+     */
+    private static double haversine(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLatitude = Math.toRadians(latitude2 - latitude1);
+        double dLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.pow(Math.sin(dLatitude / 2.0), 2.0)
+                   + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * Math.pow(Math.sin(dLongitude / 2.0), 2.0);
+        return 2.0 * 6371000.0 * Math.asin(Math.sqrt(a));
+    }
+
+    /**
+     * The inverse distance squared weighted mean of one value of the stations that have the value.
+     */
+    private static double idw(double latitude, double longitude, Iterable<TestStation> stations, ToDoubleFunction<TestStation> value) {
+        double sum = 0.0;
+        double total = 0.0;
+        for (TestStation station : stations) {
+            double v = value.applyAsDouble(station);
+            if (Double.isNaN(v))
+                continue;
+
+            double distance = Math.max(1.0, haversine(latitude, longitude, station.latitude, station.longitude));
+            double w = 1.0 / (distance * distance);
+            sum += w * v;
+            total += w;
+        }
+
+        return total == 0.0 ? Double.NaN : sum / total;
+    }
+
+    /**
+     * Compare the grid with an interpolation of the stations that is calculated from scratch.
+     */
+    private static void compare(SpatialInterpolationGrid grid, Map<Integer,TestStation> stations, double[] terrain) {
+        assertEquals(new ArrayList<>(stations.keySet()), grid.getStationIds());
+        for (int row = 0; row < SIZE; row++) {
+            for (int column = 0; column < SIZE; column++) {
+                double latitude = grid.getLatitude(row);
+                double longitude = grid.getLongitude(column);
+                double altitude = terrain != null ? terrain[row * SIZE + column] : idw(latitude, longitude, stations.values(), (s) -> s.altitude);
+                double seaLevel = idw(latitude, longitude, stations.values(), (s) -> s.temperature + LAPSE_RATE * s.altitude);
+                assertEquals(altitude, grid.getAltitude(row, column), 1e-3);
+                assertEquals(seaLevel - LAPSE_RATE * altitude, grid.getTemperature(row, column), 1e-4);
+                assertEquals(idw(latitude, longitude, stations.values(), (s) -> s.pressure), grid.getPressure(row, column), 1e-3);
+                assertEquals(idw(latitude, longitude, stations.values(), (s) -> s.rainfall), grid.getRainfall(row, column), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void testStationGridPoint() {
+        System.out.println("station grid point");
+        SpatialInterpolationGrid grid = createGrid();
+        Map<Integer,TestStation> stations = new LinkedHashMap<>();
+        stations.put(1, new TestStation(2, 3, 0.0, 15.0, 1010.0, 2.0));
+        stations.put(2, new TestStation(8, 8, 0.0, 25.0, 1020.0, 10.0));
+        stations.put(3, new TestStation(5, 0, 0.0, 20.0, 1015.0, 0.0));
+        apply(grid, stations);
+        grid.refresh();
+
+        //
+        // The values of a station are reproduced at its grid point
+        //
+        for (TestStation station : stations.values()) {
+            int row = (int)Math.round((station.latitude - SOUTH) / STEP);
+            int column = (int)Math.round((station.longitude - WEST) / STEP);
+            assertEquals(station.temperature, grid.getTemperature(row, column), 1e-3);
+            assertEquals(station.pressure, grid.getPressure(row, column), 1e-3);
+            assertEquals(station.rainfall, grid.getRainfall(row, column), 1e-3);
+        }
+
+        compare(grid, stations, null);
+        for (double temperature : grid.getTemperatures())
+            assertTrue(temperature >= 15.0 && temperature <= 25.0);
+
+        assertEquals(SIZE * SIZE, grid.getPressures().length);
+        assertEquals(SIZE * SIZE, grid.getRainfall().length);
+    }
+
+    @Test
+    public void testLapseRate() {
+        System.out.println("lapse rate");
+        SpatialInterpolationGrid grid = createGrid();
+
+        //
+        // Two valley stations and a ridge station that is colder by exactly the lapse rate
+        //
+        Map<Integer,TestStation> stations = new LinkedHashMap<>();
+        stations.put(1, new TestStation(1, 1, 1000.0, 20.0, 1013.0, Double.NaN));
+        stations.put(2, new TestStation(9, 1, 1000.0, 20.0, 1013.0, Double.NaN));
+        stations.put(3, new TestStation(5, 6, 2500.0, 20.0 - 1500.0 * LAPSE_RATE, 1013.0, Double.NaN));
+        double[] terrain = new double[SIZE * SIZE];
+        for (int row = 0; row < SIZE; row++)
+            for (int column = 0; column < SIZE; column++)
+                terrain[row * SIZE + column] = column >= 5 && column <= 7 ? 2500.0 : 1000.0;
+
+        apply(grid, stations);
+        grid.setTerrain(terrain);
+        grid.refresh();
+
+        //
+        // The ridge does not cool the valley floor and the valley does not warm the ridge
+        //
+        for (int row = 0; row < SIZE; row++) {
+            for (int column = 0; column < SIZE; column++) {
+                double expected = terrain[row * SIZE + column] == 1000.0 ? 20.0 : 20.0 - 1500.0 * LAPSE_RATE;
+                assertEquals(expected, grid.getTemperature(row, column), 1e-4);
+                assertEquals(1013.0 * Math.pow(1.0 - 2.25577e-5 * terrain[row * SIZE + column], 5.25588), grid.getStationPressure(row, column), 1e-3);
+                assertTrue(Double.isNaN(grid.getRainfall(row, column)));
+            }
+        }
+
+        compare(grid, stations, terrain);
+    }
+
+    @Test
+    public void testMissingValue() {
+        System.out.println("missing value");
+        SpatialInterpolationGrid grid = createGrid();
+        Map<Integer,TestStation> stations = new LinkedHashMap<>();
+        stations.put(1, new TestStation(0, 0, 100.0, 10.0, 1000.0, 5.0));
+        stations.put(2, new TestStation(5, 5, 200.0, 12.0, Double.NaN, 6.0));
+        stations.put(3, new TestStation(10, 10, 300.0, Double.NaN, 1010.0, 7.0));
+        apply(grid, stations);
+        grid.refresh();
+
+        //
+        // The weights of the stations with a value are renormalized, so the station without a barometer does not pull
+        // the pressure toward zero, even at its own grid point
+        //
+        compare(grid, stations, null);
+        assertEquals(1005.0, grid.getPressure(5, 5), .01);
+        for (double pressure : grid.getPressures())
+            assertTrue(pressure >= 1000.0 && pressure <= 1010.0);
+
+        assertEquals(12.0, grid.getTemperature(5, 5), 1e-3);
+        assertEquals(10.0, grid.getTemperature(0, 0), 1e-3);
+    }
+
+    @Test
+    public void testWeightsRecalculated() {
+        System.out.println("weights recalculated");
+        SpatialInterpolationGrid grid = createGrid();
+        Map<Integer,TestStation> stations = new LinkedHashMap<>();
+        stations.put(1, new TestStation(1, 2, 50.0, 10.0, 1000.0, 1.0));
+        stations.put(2, new TestStation(7, 9, 400.0, 14.0, 1008.0, 3.0));
+        apply(grid, stations);
+        grid.refresh();
+        compare(grid, stations, null);
+
+        //
+        // An added station is part of the next refresh
+        //
+        stations.put(3, new TestStation(10, 0, 900.0, 4.0, 1004.0, 9.0));
+        apply(grid, stations);
+        grid.refresh();
+        compare(grid, stations, null);
+
+        //
+        // A station that is moved keeps its values
+        //
+        TestStation moved = new TestStation(4, 4, 200.0, 10.0, 1000.0, 1.0);
+        stations.put(1, moved);
+        grid.addStation(1, moved.location());
+        grid.refresh();
+        compare(grid, stations, null);
+
+        //
+        // A removed station is left out
+        //
+        stations.remove(2);
+        grid.removeStation(2);
+        grid.removeStation(2);
+        grid.refresh();
+        compare(grid, stations, null);
+
+        //
+        // Setting the terrain and clearing it again
+        //
+        double[] terrain = new double[SIZE * SIZE];
+        for (int cell = 0; cell < terrain.length; cell++)
+            terrain[cell] = 100.0 + cell * 5.0;
+
+        grid.setTerrain(terrain);
+        terrain[0] = -1000.0;
+        grid.refresh();
+        terrain[0] = 100.0;
+        compare(grid, stations, terrain);
+        grid.setTerrain(null);
+        grid.refresh();
+        compare(grid, stations, null);
+
+        //
+        // The values of the grid only change when it is refreshed
+        //
+        double[] before = grid.getTemperatures();
+        grid.applyCurrentWeather(3, new TestStation(10, 0, 900.0, 30.0, 1004.0, 9.0).currentWeather());
+        assertTrue(Arrays.equals(before, grid.getTemperatures()));
+        grid.refresh();
+        assertTrue(grid.getTemperature(10, 0) > 29.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStation() {
+        System.out.println("unknown station");
+        createGrid().applyCurrentWeather(5, new CurrentWeather());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTerrainSize() {
+        System.out.println("terrain size");
+        createGrid().setTerrain(new double[SIZE]);
+    }
+}
@@ -0,0 +1,121 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class StreakTrackerTest {
+    private static final LocalDate START = LocalDate.of(2016, 7, 1);
+    private static final StreakCondition DRY = StreakCondition.dryDay(new Depth(0.2, Depth.Unit.MILLIMETERS));
+    private static final StreakCondition HOT = StreakCondition.highAbove(new Temperature(32.0, Temperature.Unit.CELSIUS));
+    //
+    // Rainfall (mm) and high temperature (C) for ten days
+    //
+    private static final double RAIN[] = {0.0, 0.0, 5.0, 0.0, 0.0, 0.0, 0.0, 1.0, 0.0, 0.0};
+    private static final double HIGH[] = {30.0, 33.0, 34.0, 35.0, 31.0, 33.0, 33.0, 33.0, 33.0, 20.0};
+
+    private final TemperatureBinMgr binMgr = new TemperatureBinMgr(null);
+    private final WindParameters windParameters = new WindParameters();
+
+    public StreakTrackerTest() {
+    }
+
+    private SummaryRecord createRecord(LocalDate date, double rain, double high) {
+        SummaryRecord rec = new SummaryRecord(windParameters, binMgr, date);
+        rec.setTotalRainfall(new Depth(rain, Depth.Unit.MILLIMETERS));
+        rec.setMaxOutdoorTemp(new Temperature(high, Temperature.Unit.CELSIUS), date.atTime(15, 0));
+        return rec;
+    }
+
+    private StreakTracker createTracker() {
+        StreakTracker tracker = new StreakTracker(DRY, HOT);
+        for (int i = 0; i < RAIN.length; i++)
+            tracker.applySummaryRecord(createRecord(START.plusDays(i), RAIN[i], HIGH[i]));
+
+        return tracker;
+    }
+
+    @Test
+    public void testLongestStreak() {
+        System.out.println("getLongestStreak");
+        StreakTracker tracker = createTracker();
+
+        assertEquals(new Streak(DRY, START.plusDays(3), START.plusDays(6)), tracker.getLongestStreak(DRY));
+        assertEquals(new Streak(HOT, START.plusDays(5), START.plusDays(8)), tracker.getLongestStreak(HOT));
+        assertEquals(new Streak(HOT, START.plusDays(1), START.plusDays(3)), tracker.getLongestStreak(HOT, START, START.plusDays(6)));
+        assertEquals(2, tracker.getLongestStreak(DRY, START.plusDays(5), START.plusDays(9)).getLength());
+    }
+
+    @Test
+    public void testCurrentStreak() {
+        System.out.println("getCurrentStreak");
+        StreakTracker tracker = createTracker();
+
+        assertEquals(new Streak(DRY, START.plusDays(8), START.plusDays(9)), tracker.getCurrentStreak(DRY));
+        assertNull(tracker.getCurrentStreak(HOT));
+
+        tracker.applySummaryRecord(createRecord(START.plusDays(10), 0.0, 35.0));
+        assertEquals(3, tracker.getCurrentStreak(DRY).getLength());
+        assertEquals(1, tracker.getCurrentStreak(HOT).getLength());
+
+        //
+        // A missing day ends the streak
+        //
+        tracker.applySummaryRecord(createRecord(START.plusDays(12), 0.0, 35.0));
+        assertEquals(1, tracker.getCurrentStreak(DRY).getLength());
+    }
+
+    @Test
+    public void testStreaksInRange() {
+        System.out.println("getStreaks");
+        StreakTracker tracker = createTracker();
+
+        List<Streak> streaks = tracker.getStreaks(DRY, START.plusDays(1), START.plusDays(8));
+        assertEquals(3, streaks.size());
+        assertEquals(new Streak(DRY, START.plusDays(1), START.plusDays(1)), streaks.get(0));
+        assertEquals(new Streak(DRY, START.plusDays(3), START.plusDays(6)), streaks.get(1));
+        assertEquals(new Streak(DRY, START.plusDays(8), START.plusDays(8)), streaks.get(2));
+    }
+
+    @Test
+    public void testResummarize() {
+        System.out.println("resummarize");
+        StreakTracker tracker = createTracker();
+
+        //
+        // The rain on the third day was a bad reading, which joins the first two dry streaks
+        //
+        tracker.applySummaryRecord(createRecord(START.plusDays(2), 0.0, 34.0));
+        assertEquals(new Streak(DRY, START, START.plusDays(6)), tracker.getLongestStreak(DRY));
+
+        //
+        // A day before the first day extends the streak backwards
+        //
+        tracker.applySummaryRecord(createRecord(START.minusDays(1), 0.0, 20.0));
+        assertEquals(new Streak(DRY, START.minusDays(1), START.plusDays(6)), tracker.getLongestStreak(DRY));
+        assertEquals(new Streak(HOT, START.plusDays(5), START.plusDays(8)), tracker.getLongestStreak(HOT));
+    }
+}
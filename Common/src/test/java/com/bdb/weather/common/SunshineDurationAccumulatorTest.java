@@ -0,0 +1,173 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.astronomical.SolarPositionCalculator;
+import com.bdb.weather.common.measurement.AngularMeasurement;
+import com.bdb.weather.common.measurement.SolarRadiation;
+
+public class SunshineDurationAccumulatorTest {
+    private static final GeographicLocation LOCATION = new GeographicLocation(new AngularMeasurement(40.0, AngularMeasurement.Unit.DEGREES),
+                                                                              new AngularMeasurement(0.0, AngularMeasurement.Unit.DEGREES));
+    private static final SolarPositionCalculator CALCULATOR = new SolarPositionCalculator(LOCATION, ZoneOffset.UTC);
+    private static final LocalDate DAY = LocalDate.of(2016, 6, 20);
+
+    public SunshineDurationAccumulatorTest() {
+    }
+
+    /**
+     * Create the 5 minute records of a day with the clear-sky irradiance multiplied by a factor.
+     */
+    private static List<HistoricalRecord> createDay(LocalDate date, double factor) {
+        List<HistoricalRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 288; i++) {
+            LocalDateTime time = date.atStartOfDay().plusMinutes(i * 5L);
+            HistoricalRecord rec = new HistoricalRecord(time);
+            rec.setDuration(Duration.ofMinutes(5));
+            double irradiance = CALCULATOR.getClearSkyIrradiance(time.minusSeconds(150)) * factor;
+            rec.setAvgSolarRadiation(new SolarRadiation(irradiance));
+            records.add(rec);
+        }
+
+        return records;
+    }
+
+    /**
+     * The sunshine seconds of each record calculated without the accumulator.
+     */
+    private static long bruteForce(List<HistoricalRecord> records, LocalDate date) {
+        long seconds = 0;
+        for (HistoricalRecord rec : records) {
+            LocalDateTime middle = rec.getTime().minusSeconds(rec.getDuration().getSeconds() / 2);
+            if (!middle.toLocalDate().equals(date))
+                continue;
+
+            double sine = Math.sin(Math.toRadians(CALCULATOR.getElevation(middle)));
+            double dni = SunshineDurationAccumulator.directNormalIrradiance(rec.getAvgSolarRadiation().get(), sine,
+                                                                            CALCULATOR.getExtraterrestrialIrradiance(middle.getDayOfYear()));
+            if (dni > SunshineDurationAccumulator.SUNSHINE_THRESHOLD)
+                seconds += rec.getDuration().getSeconds();
+        }
+
+        return seconds;
+    }
+
+    @Test
+    public void testClearAndOvercast() {
+        System.out.println("clear and overcast");
+        SunshineDurationAccumulator accumulator = new SunshineDurationAccumulator(CALCULATOR);
+        List<HistoricalRecord> clear = createDay(DAY, 1.0);
+        List<HistoricalRecord> overcast = createDay(DAY.plusDays(1), .2);
+        accumulator.applyHistoricalRecords(clear);
+        accumulator.applyHistoricalRecords(overcast);
+
+        //
+        // A clear day is sunny from shortly after sunrise until shortly before sunset, which is about 15 hours apart at
+        // 40 degrees north in June
+        //
+        Duration sunshine = accumulator.getSunshineDuration(DAY);
+        assertTrue(sunshine.compareTo(Duration.ofHours(12)) > 0 && sunshine.compareTo(Duration.ofHours(15)) < 0);
+        assertEquals(bruteForce(clear, DAY), sunshine.getSeconds(), 300);
+        assertEquals(1.0, accumulator.getClearSkyIndex(DAY), .01);
+
+        assertEquals(Duration.ZERO, accumulator.getSunshineDuration(DAY.plusDays(1)));
+        assertEquals(.2, accumulator.getClearSkyIndex(DAY.plusDays(1)), .01);
+        assertEquals(accumulator.getSolarEnergy(DAY) * .2, accumulator.getSolarEnergy(DAY.plusDays(1)), .2);
+
+        double[] hours = accumulator.getSunshineHours(DAY.minusDays(1), DAY.plusDays(2));
+        assertEquals(4, hours.length);
+        assertEquals(0.0, hours[0], 0.0);
+        assertEquals(sunshine.getSeconds() / 3600.0, hours[1], 1e-9);
+        assertEquals(0.0, hours[2], 0.0);
+        assertEquals(0.0, hours[3], 0.0);
+        assertTrue(Double.isNaN(accumulator.getClearSkyIndex(DAY.plusDays(2))));
+    }
+
+    @Test
+    public void testSolarEnergy() {
+        System.out.println("solar energy");
+        SunshineDurationAccumulator accumulator = new SunshineDurationAccumulator(LOCATION, ZoneOffset.UTC);
+        List<HistoricalRecord> records = createDay(DAY, .5);
+
+        //
+        // The record that ends at midnight belongs to the day that it measured
+        //
+        HistoricalRecord last = records.get(records.size() - 1);
+        assertEquals(DAY.plusDays(1).atStartOfDay(), last.getTime());
+        last.setAvgSolarRadiation(new SolarRadiation(100.0));
+        accumulator.applyHistoricalRecords(records);
+
+        double joules = 0.0;
+        for (HistoricalRecord rec : records)
+            joules += rec.getAvgSolarRadiation().get() * 300.0;
+
+        assertEquals(joules / 1.0e6, accumulator.getSolarEnergy(DAY), 1e-9);
+        assertEquals(0.0, accumulator.getSolarEnergy(DAY.plusDays(1)), 0.0);
+
+        //
+        // Records without solar radiation are skipped
+        //
+        HistoricalRecord missing = new HistoricalRecord(DAY.plusDays(2).atTime(12, 0));
+        missing.setDuration(Duration.ofMinutes(5));
+        accumulator.applyHistoricalRecord(missing);
+        assertTrue(Double.isNaN(accumulator.getClearSkyIndex(DAY.plusDays(2))));
+    }
+
+    @Test
+    public void testOutOfOrderDays() {
+        System.out.println("out of order days");
+        Random random = new Random(245);
+        List<List<HistoricalRecord>> days = new ArrayList<>();
+        SunshineDurationAccumulator inOrder = new SunshineDurationAccumulator(CALCULATOR);
+        for (int d = 0; d < 20; d++) {
+            List<HistoricalRecord> records = createDay(LocalDate.of(2015, 12, 25).plusDays(d), .3 + random.nextDouble() * .7);
+            days.add(records);
+            inOrder.applyHistoricalRecords(records);
+        }
+
+        //
+        // Days that are applied before the first day move the days that are already accumulated
+        //
+        List<List<HistoricalRecord>> shuffled = new ArrayList<>(days);
+        Collections.shuffle(shuffled, random);
+        SunshineDurationAccumulator outOfOrder = new SunshineDurationAccumulator(CALCULATOR);
+        for (List<HistoricalRecord> records : shuffled)
+            outOfOrder.applyHistoricalRecords(records);
+
+        for (int d = 0; d < days.size(); d++) {
+            LocalDate date = LocalDate.of(2015, 12, 25).plusDays(d);
+            assertEquals(inOrder.getSunshineDuration(date), outOfOrder.getSunshineDuration(date));
+            assertEquals(inOrder.getSolarEnergy(date), outOfOrder.getSolarEnergy(date), 1e-9);
+            assertEquals(inOrder.getClearSkyIndex(date), outOfOrder.getClearSkyIndex(date), 1e-12);
+            assertEquals(bruteForce(days.get(d), date), outOfOrder.getSunshineDuration(date).getSeconds(), 300);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Heading;
+import com.bdb.weather.common.measurement.Humidity;
+import com.bdb.weather.common.measurement.Speed;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class WeatherUtilsTest {
+    private static final int COUNT = 10000;
+
+    public WeatherUtilsTest() {
+    }
+
+    private List<HistoricalRecord> createRecords(int count) {
+        Random random = new Random(11);
+        LocalDateTime start = LocalDateTime.of(2016, 1, 1, 0, 0);
+        List<HistoricalRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HistoricalRecord rec = new HistoricalRecord(start.plusMinutes(5L * i));
+            rec.setDuration(Duration.ofMinutes(5));
+            double t = -20.0 + random.nextDouble() * 65.0;
+            rec.setAvgOutdoorTemperature(new Temperature(t, Temperature.Unit.CELSIUS));
+            rec.setLowOutdoorTemperature(new Temperature(t - 1.0, Temperature.Unit.CELSIUS));
+            rec.setHighOutdoorTemperature(new Temperature(t + 1.0, Temperature.Unit.CELSIUS));
+            rec.setOutdoorHumidity(new Humidity(5.0 + random.nextInt(96)));
+            rec.setAvgWind(new Wind(new Speed(random.nextDouble() * 15.0), new Heading((float)random.nextInt(360))));
+            records.add(rec);
+        }
+
+        return records;
+    }
+
+    @Test
+    public void testBulkKernels() {
+        System.out.println("bulkKernels");
+        List<HistoricalRecord> records = createRecords(COUNT);
+        double[] temperatures = new double[COUNT];
+        double[] humidities = new double[COUNT];
+        double[] speeds = new double[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            temperatures[i] = ArchiveField.AVG_OUTDOOR_TEMPERATURE.getValue(records.get(i));
+            humidities[i] = ArchiveField.OUTDOOR_HUMIDITY.getValue(records.get(i));
+            speeds[i] = ArchiveField.AVG_WIND_SPEED.getValue(records.get(i));
+        }
+
+        double[] dewPoints = new double[COUNT];
+        double[] heatIndexes = new double[COUNT];
+        double[] windChills = new double[COUNT];
+        WeatherUtils.dewPoint(temperatures, humidities, dewPoints, COUNT);
+        WeatherUtils.heatIndex(temperatures, humidities, heatIndexes, COUNT);
+        WeatherUtils.windChill(temperatures, speeds, windChills, COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            HistoricalRecord rec = records.get(i);
+            assertEquals(rec.getDewPoint().get(Temperature.Unit.CELSIUS), dewPoints[i], 1e-9);
+            assertEquals(rec.getHeatIndex().get(Temperature.Unit.CELSIUS), heatIndexes[i], 1e-9);
+            assertEquals(rec.getWindChill().get(Temperature.Unit.CELSIUS), windChills[i], 1e-9);
+        }
+
+        temperatures[0] = Double.NaN;
+        humidities[1] = Double.NaN;
+        WeatherUtils.dewPoint(temperatures, humidities, dewPoints, 2);
+        WeatherUtils.heatIndex(temperatures, humidities, heatIndexes, 2);
+        assertTrue(Double.isNaN(dewPoints[0]) && Double.isNaN(dewPoints[1]));
+        assertTrue(Double.isNaN(heatIndexes[0]) && Double.isNaN(heatIndexes[1]));
+    }
+
+    @Test
+    public void testVaporPressure() {
+        System.out.println("vaporPressure");
+        double[] temperatures = {0.0, 20.0, 30.0};
+        double[] humidities = {100.0, 50.0, 80.0};
+        double[] vaporPressures = new double[3];
+        double[] absoluteHumidities = new double[3];
+        WeatherUtils.vaporPressure(temperatures, humidities, vaporPressures, 3);
+        WeatherUtils.absoluteHumidity(temperatures, humidities, absoluteHumidities, 3);
+        assertEquals(6.11, vaporPressures[0], .01);
+        assertEquals(11.69, vaporPressures[1], .05);
+        assertEquals(33.9, vaporPressures[2], .2);
+        assertEquals(4.85, absoluteHumidities[0], .05);
+        assertEquals(8.65, absoluteHumidities[1], .05);
+        assertEquals(24.3, absoluteHumidities[2], .2);
+    }
+
+    @Test
+    public void testMemoization() {
+        System.out.println("memoization");
+        HistoricalRecord rec = createRecords(1).get(0);
+        Temperature dewPoint = rec.getDewPoint();
+        Temperature heatIndex = rec.getHeatIndex();
+        Temperature windChill = rec.getWindChill();
+        assertSame(dewPoint, rec.getDewPoint());
+        assertSame(heatIndex, rec.getHeatIndex());
+        assertSame(windChill, rec.getWindChill());
+
+        rec.setOutdoorHumidity(new Humidity(10.0));
+        assertNotSame(dewPoint, rec.getDewPoint());
+        assertEquals(WeatherUtils.dewPoint(rec.getAvgOutdoorTemperature(), new Humidity(10.0)), rec.getDewPoint());
+        assertSame(windChill, rec.getWindChill());
+
+        rec.setAvgWind(null);
+        assertEquals(null, rec.getWindChill());
+    }
+
+    @Test
+    public void testSummarizationSaving() {
+        System.out.println("summarizationSaving");
+        TemperatureBinMgr binMgr = new TemperatureBinMgr(null);
+        WindParameters windParameters = new WindParameters();
+        List<HistoricalRecord> records = createRecords(1000);
+        SummaryRecord summary = new SummaryRecord(windParameters, binMgr, LocalDate.of(2016, 1, 1));
+
+        //
+        // In one pass each record is summarized and its derived values are read again, as when the same records are
+        // indexed by archive field, so each value is read four times. Each calculation creates a new temperature, so
+        // counting the distinct instances that are read counts the calculations, which is one per derived value of
+        // each record.
+        //
+        Set<Temperature> calculated = Collections.newSetFromMap(new IdentityHashMap<>());
+        int reads = 0;
+        for (HistoricalRecord rec : records) {
+            Temperature[] before = {rec.getDewPoint(), rec.getHeatIndex(), rec.getWindChill()};
+            summary.applyHistoricalRecord(rec);
+            assertEquals(before[0].get(Temperature.Unit.CELSIUS), ArchiveField.DEW_POINT.getValue(rec), 0.0);
+            assertEquals(before[1].get(Temperature.Unit.CELSIUS), ArchiveField.HEAT_INDEX.getValue(rec), 0.0);
+            assertEquals(before[2].get(Temperature.Unit.CELSIUS), ArchiveField.WIND_CHILL.getValue(rec), 0.0);
+            Temperature[] after = {rec.getDewPoint(), rec.getHeatIndex(), rec.getWindChill()};
+            for (int i = 0; i < before.length; i++) {
+                assertSame(before[i], after[i]);
+                calculated.add(before[i]);
+            }
+
+            reads += 4 * before.length;
+        }
+
+        assertEquals(3 * records.size(), calculated.size());
+        assertEquals(4 * calculated.size(), reads);
+    }
+}
@@ -0,0 +1,312 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.measurement.Depth;
+import com.bdb.weather.common.measurement.Temperature;
+
+public class YearOverYearMatrixTest {
+    private static final DailyMetric[] METRICS = {DailyMetric.HIGH_TEMPERATURE, DailyMetric.RAINFALL};
+    private final TemperatureBinMgr binMgr = new TemperatureBinMgr(null);
+    private final WindParameters windParameters = new WindParameters();
+
+    public YearOverYearMatrixTest() {
+    }
+
+    private SummaryRecord createSummary(LocalDate date, double high, double rain) {
+        SummaryRecord rec = new SummaryRecord(windParameters, binMgr, date);
+        if (!Double.isNaN(high))
+            rec.setMaxOutdoorTemp(new Temperature(high, Temperature.Unit.CELSIUS), date.atTime(15, 0));
+
+        rec.setTotalRainfall(new Depth(rain, Depth.Unit.MILLIMETERS));
+        return rec;
+    }
+
+    /**
+     * The column of a date, calculated with the days of a leap year.
+     */
+    private static int leapYearColumn(LocalDate date) {
+        return LocalDate.of(2016, date.getMonth(), date.getDayOfMonth()).getDayOfYear() - 1;
+    }
+
+    /**
+     * The values of one metric recalculated from the latest summary of each day.
+     */
+    private static final class BruteForce {
+        private final int firstYear;
+        private final double[][] values;
+        private final double[][] toDate;
+
+        BruteForce(Map<LocalDate,SummaryRecord> summaries, DailyMetric metric, int firstYear, int lastYear) {
+            this.firstYear = firstYear;
+            values = new double[lastYear - firstYear + 1][YearOverYearMatrix.DAYS];
+            toDate = new double[values.length][YearOverYearMatrix.DAYS];
+            for (double[] row : values)
+                Arrays.fill(row, Double.NaN);
+
+            for (SummaryRecord rec : summaries.values())
+                values[rec.getDate().getYear() - firstYear][leapYearColumn(rec.getDate())] = metric.getValue(rec);
+
+            for (int y = 0; y < values.length; y++) {
+                double sum = 0.0;
+                int count = 0;
+                for (int c = 0; c < YearOverYearMatrix.DAYS; c++) {
+                    if (!Double.isNaN(values[y][c])) {
+                        sum += values[y][c];
+                        count++;
+                    }
+
+                    toDate[y][c] = count == 0 ? Double.NaN : metric.isAccumulated() ? sum : sum / count;
+                }
+            }
+        }
+
+        double value(LocalDate date, boolean running) {
+            return (running ? toDate : values)[date.getYear() - firstYear][leapYearColumn(date)];
+        }
+
+        /**
+         * The values of the same column of all years.
+         */
+        double[] column(LocalDate date, boolean running) {
+            double[][] matrix = running ? toDate : values;
+            return Arrays.stream(matrix).mapToDouble((row) -> row[leapYearColumn(date)]).filter((v) -> !Double.isNaN(v)).toArray();
+        }
+
+        int rank(LocalDate date, boolean running) {
+            double value = value(date, running);
+            if (Double.isNaN(value))
+                return 0;
+
+            return 1 + (int)Arrays.stream(column(date, running)).filter((v) -> v > value).count();
+        }
+
+        double percentile(LocalDate date, boolean running) {
+            double value = value(date, running);
+            if (Double.isNaN(value))
+                return Double.NaN;
+
+            double[] column = column(date, running);
+            long below = Arrays.stream(column).filter((v) -> v < value).count();
+            long equal = Arrays.stream(column).filter((v) -> v == value).count();
+            return (below + equal / 2.0) * 100.0 / column.length;
+        }
+
+        double normal(LocalDate date, boolean running) {
+            return Arrays.stream(column(date, running)).average().orElse(Double.NaN);
+        }
+    }
+
+    private static void compare(YearOverYearMatrix matrix, Map<LocalDate,SummaryRecord> summaries, int firstYear, int lastYear) {
+        for (DailyMetric metric : METRICS) {
+            BruteForce expected = new BruteForce(summaries, metric, firstYear, lastYear);
+            for (int year = firstYear; year <= lastYear; year++) {
+                for (LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+                    assertEquals(expected.value(date, false), matrix.getValue(metric, date), 0.0);
+                    assertEquals(expected.value(date, true), matrix.getToDateValue(metric, date), 0.0);
+                    for (boolean running : new boolean[]{false, true}) {
+                        assertEquals(expected.rank(date, running), matrix.getRank(metric, date, running));
+                        assertEquals(expected.percentile(date, running), matrix.getPercentile(metric, date, running), 1e-9);
+                        assertEquals(expected.normal(date, running), matrix.getNormal(metric, date, running), 1e-9);
+                        assertEquals(expected.value(date, running) - expected.normal(date, running), matrix.getDeparture(metric, date, running), 1e-9);
+                    }
+                }
+
+                for (boolean running : new boolean[]{false, true}) {
+                    int[] ranks = matrix.getRanks(metric, year, running);
+                    double[] departures = matrix.getDepartures(metric, year, running);
+                    for (LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+                        assertEquals(expected.rank(date, running), ranks[YearOverYearMatrix.column(date)]);
+                        assertEquals(expected.value(date, running) - expected.normal(date, running), departures[YearOverYearMatrix.column(date)], 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfOrderSummaries() {
+        System.out.println("out of order summaries");
+        Random random = new Random(48);
+        YearOverYearMatrix matrix = new YearOverYearMatrix(METRICS);
+        Map<LocalDate,SummaryRecord> summaries = new HashMap<>();
+
+        //
+        // The years arrive out of order so that rows are added before and after the existing rows. Small integer
+        // values make ties common and keep the running totals exact.
+        //
+        int[] years = {2013, 2011, 2015, 2010, 2016, 2012};
+        int firstYear = Integer.MAX_VALUE;
+        int lastYear = Integer.MIN_VALUE;
+        for (int year : years) {
+            for (LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+                if (random.nextInt(10) == 0)
+                    continue;
+
+                double high = random.nextInt(8) == 0 ? Double.NaN : random.nextInt(5);
+                SummaryRecord rec = createSummary(date, high, random.nextInt(3));
+                summaries.put(date, rec);
+                matrix.applySummaryRecord(rec);
+            }
+
+            firstYear = Math.min(firstYear, year);
+            lastYear = Math.max(lastYear, year);
+            assertEquals(lastYear - firstYear + 1, matrix.getYears().size());
+            assertEquals(firstYear, (int)matrix.getYears().get(0));
+
+            //
+            // Replace some of the days of the years so far after the cached columns are built, including days
+            // that lose their value and days that are replaced with the same values
+            //
+            for (int i = 0; i < 200; i++) {
+                LocalDate date = LocalDate.of(firstYear, 1, 1).plusDays(random.nextInt(366 * (lastYear - firstYear + 1)));
+                if (date.getYear() > lastYear)
+                    continue;
+
+                double high = random.nextInt(6) == 0 ? Double.NaN : random.nextInt(5);
+                SummaryRecord rec = createSummary(date, high, random.nextInt(3));
+                summaries.put(date, rec);
+                matrix.applySummaryRecord(rec);
+                if (i % 50 == 0) {
+                    BruteForce expected = new BruteForce(summaries, DailyMetric.RAINFALL, firstYear, lastYear);
+                    assertEquals(expected.rank(date, true), matrix.getRank(DailyMetric.RAINFALL, date, true));
+                }
+            }
+
+            compare(matrix, summaries, firstYear, lastYear);
+        }
+    }
+
+    @Test
+    public void testTodayUpdates() {
+        System.out.println("today updates");
+        Random random = new Random(148);
+        YearOverYearMatrix matrix = new YearOverYearMatrix(METRICS);
+        Map<LocalDate,SummaryRecord> summaries = new HashMap<>();
+        for (LocalDate date = LocalDate.of(2012, 1, 1); date.getYear() < 2016; date = date.plusDays(1)) {
+            SummaryRecord rec = createSummary(date, random.nextInt(10), random.nextInt(4));
+            summaries.put(date, rec);
+            matrix.applySummaryRecord(rec);
+        }
+
+        //
+        // The summary of the current day is applied again as the day goes on, with a query after each update
+        //
+        LocalDate today = LocalDate.of(2015, 7, 10);
+        for (int i = 0; i < 20; i++) {
+            SummaryRecord rec = createSummary(today, i % 10, i);
+            summaries.put(today, rec);
+            matrix.applySummaryRecord(rec);
+            BruteForce expected = new BruteForce(summaries, DailyMetric.RAINFALL, 2012, 2015);
+            for (LocalDate date = today.minusDays(1); date.getYear() == today.getYear(); date = date.plusDays(1)) {
+                assertEquals(expected.value(date, true), matrix.getToDateValue(DailyMetric.RAINFALL, date), 0.0);
+                assertEquals(expected.rank(date, true), matrix.getRank(DailyMetric.RAINFALL, date, true));
+            }
+        }
+
+        compare(matrix, summaries, 2012, 2015);
+    }
+
+    @Test
+    public void testRankTies() {
+        System.out.println("rank ties");
+        YearOverYearMatrix matrix = new YearOverYearMatrix(METRICS);
+        double[] highs = {1.0, 2.0, 2.0, 3.0};
+        for (int i = 0; i < highs.length; i++)
+            matrix.applySummaryRecord(createSummary(LocalDate.of(2010 + i, 5, 1), highs[i], 0.0));
+
+        //
+        // Equal values share the higher rank and count as half below in the percentile
+        //
+        LocalDate low = LocalDate.of(2010, 5, 1);
+        LocalDate tied = LocalDate.of(2011, 5, 1);
+        LocalDate high = LocalDate.of(2013, 5, 1);
+        assertEquals(4, matrix.getRank(DailyMetric.HIGH_TEMPERATURE, low, false));
+        assertEquals(2, matrix.getRank(DailyMetric.HIGH_TEMPERATURE, tied, false));
+        assertEquals(2, matrix.getRank(DailyMetric.HIGH_TEMPERATURE, LocalDate.of(2012, 5, 1), false));
+        assertEquals(1, matrix.getRank(DailyMetric.HIGH_TEMPERATURE, high, false));
+        assertEquals(12.5, matrix.getPercentile(DailyMetric.HIGH_TEMPERATURE, low, false), 1e-9);
+        assertEquals(50.0, matrix.getPercentile(DailyMetric.HIGH_TEMPERATURE, tied, false), 1e-9);
+        assertEquals(87.5, matrix.getPercentile(DailyMetric.HIGH_TEMPERATURE, high, false), 1e-9);
+        assertEquals(2.0, matrix.getNormal(DailyMetric.HIGH_TEMPERATURE, tied, false), 1e-9);
+        assertEquals(1.0, matrix.getDeparture(DailyMetric.HIGH_TEMPERATURE, high, false), 1e-9);
+
+        //
+        // All of the years tied
+        //
+        for (int i = 0; i < highs.length; i++)
+            matrix.applySummaryRecord(createSummary(LocalDate.of(2010 + i, 5, 1), 5.0, 0.0));
+
+        for (int i = 0; i < highs.length; i++) {
+            assertEquals(1, matrix.getRank(DailyMetric.HIGH_TEMPERATURE, LocalDate.of(2010 + i, 5, 1), false));
+            assertEquals(50.0, matrix.getPercentile(DailyMetric.HIGH_TEMPERATURE, LocalDate.of(2010 + i, 5, 1), false), 1e-9);
+        }
+
+        assertEquals(0, matrix.getRank(DailyMetric.HIGH_TEMPERATURE, LocalDate.of(2010, 5, 2), false));
+        assertTrue(Double.isNaN(matrix.getPercentile(DailyMetric.HIGH_TEMPERATURE, LocalDate.of(2010, 5, 2), false)));
+    }
+
+    @Test
+    public void testLeapDay() {
+        System.out.println("leap day");
+        assertEquals(58, YearOverYearMatrix.column(LocalDate.of(2015, 2, 28)));
+        assertEquals(60, YearOverYearMatrix.column(LocalDate.of(2015, 3, 1)));
+        assertEquals(59, YearOverYearMatrix.column(LocalDate.of(2016, 2, 29)));
+        assertEquals(60, YearOverYearMatrix.column(LocalDate.of(2016, 3, 1)));
+        assertEquals(365, YearOverYearMatrix.column(LocalDate.of(2015, 12, 31)));
+        assertEquals(365, YearOverYearMatrix.column(LocalDate.of(2016, 12, 31)));
+
+        //
+        // February 29 is only compared with the other leap years, and March 1 is the same column in every year
+        //
+        YearOverYearMatrix matrix = new YearOverYearMatrix(METRICS);
+        for (int year = 2011; year <= 2016; year++)
+            for (LocalDate date = LocalDate.of(year, 2, 27); date.getMonthValue() < 4; date = date.plusDays(1))
+                matrix.applySummaryRecord(createSummary(date, year - 2000, 1.0));
+
+        LocalDate leapDay = LocalDate.of(2016, 2, 29);
+        assertEquals(1, matrix.getRank(DailyMetric.HIGH_TEMPERATURE, leapDay, false));
+        assertEquals(75.0, matrix.getPercentile(DailyMetric.HIGH_TEMPERATURE, leapDay, false), 1e-9);
+        assertEquals(14.0, matrix.getNormal(DailyMetric.HIGH_TEMPERATURE, leapDay, false), 1e-9);
+        assertEquals(13.5, matrix.getNormal(DailyMetric.HIGH_TEMPERATURE, LocalDate.of(2015, 3, 1), false), 1e-9);
+        assertEquals(6, matrix.getRank(DailyMetric.HIGH_TEMPERATURE, LocalDate.of(2011, 3, 1), false));
+
+        //
+        // The total to date of March 1 includes February 29 only in the leap years
+        //
+        assertEquals(34.0, matrix.getToDateValue(DailyMetric.RAINFALL, LocalDate.of(2016, 3, 31)), 0.0);
+        assertEquals(33.0, matrix.getToDateValue(DailyMetric.RAINFALL, LocalDate.of(2015, 3, 31)), 0.0);
+        assertEquals(4.0, matrix.getToDateValue(DailyMetric.RAINFALL, LocalDate.of(2016, 3, 1)), 0.0);
+        assertEquals(3.0, matrix.getToDateValue(DailyMetric.RAINFALL, LocalDate.of(2015, 3, 1)), 0.0);
+        int[] ranks = matrix.getRanks(DailyMetric.HIGH_TEMPERATURE, 2015, false);
+        assertEquals(0, ranks[59]);
+        assertEquals(2, ranks[60]);
+        assertArrayEquals(new int[]{0, 0, 0}, Arrays.copyOfRange(ranks, 0, 3));
+    }
+}
@@ -0,0 +1,124 @@
+/* 
+ * Copyright (C) 2026 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.weather.common.astronomical;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bdb.weather.common.GeographicLocation;
+import com.bdb.weather.common.measurement.AngularMeasurement;
+
+public class SolarPositionCalculatorTest {
+    private static final GeographicLocation LOCATION = new GeographicLocation(new AngularMeasurement(40.0, AngularMeasurement.Unit.DEGREES),
+                                                                              new AngularMeasurement(0.0, AngularMeasurement.Unit.DEGREES));
+
+    public SolarPositionCalculatorTest() {
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    @Test
+    public void testDayOfYear() {
+        System.out.println("dayOfYear");
+        //
+        // The leap days of the century years and the days around them
+        //
+        LocalDate[] dates = {
+            LocalDate.of(1900, 2, 28), LocalDate.of(1900, 3, 1), LocalDate.of(1900, 12, 31),
+            LocalDate.of(2000, 2, 29), LocalDate.of(2000, 3, 1), LocalDate.of(2000, 12, 31),
+            LocalDate.of(2100, 2, 28), LocalDate.of(2100, 3, 1), LocalDate.of(2016, 12, 31),
+            LocalDate.of(1969, 12, 31), LocalDate.of(1970, 1, 1)
+        };
+
+        int[] expected = {59, 60, 365, 60, 61, 366, 59, 60, 366, 365, 1};
+        for (int i = 0; i < dates.length; i++) {
+            assertEquals(expected[i], SolarPositionCalculator.dayOfYear(epochSecond(dates[i].atStartOfDay())));
+            assertEquals(expected[i], SolarPositionCalculator.dayOfYear(epochSecond(dates[i].atTime(23, 59, 59))));
+        }
+
+        Random random = new Random(45);
+        for (int i = 0; i < 10000; i++) {
+            long second = (long)((random.nextDouble() - .5) * 2.0e10);
+            LocalDateTime time = LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+            assertEquals(time.getDayOfYear(), SolarPositionCalculator.dayOfYear(second));
+        }
+    }
+
+    @Test
+    public void testSolarNoon() {
+        System.out.println("solar noon");
+        SolarPositionCalculator calculator = new SolarPositionCalculator(LOCATION, ZoneOffset.UTC);
+
+        //
+        // On the prime meridian the sun is highest near noon, 90 degrees less the latitude plus the declination
+        //
+        LocalDateTime summer = LocalDateTime.of(2016, 6, 21, 12, 0);
+        assertEquals(90.0 - 40.0 + 23.44, calculator.getElevation(summer), .3);
+        assertEquals(180.0, calculator.getAzimuth(summer), 3.0);
+        LocalDateTime winter = LocalDateTime.of(2016, 12, 21, 12, 0);
+        assertEquals(90.0 - 40.0 - 23.44, calculator.getElevation(winter), .3);
+        assertEquals(180.0, calculator.getAzimuth(winter), 1.0);
+
+        //
+        // The sun rises in the east and sets in the west
+        //
+        assertEquals(90.0, calculator.getAzimuth(LocalDateTime.of(2016, 3, 20, 6, 0)), 3.0);
+        assertEquals(270.0, calculator.getAzimuth(LocalDateTime.of(2016, 3, 20, 18, 0)), 3.0);
+        assertTrue(calculator.getElevation(LocalDateTime.of(2016, 6, 21, 0, 0)) < -20.0);
+        assertEquals(0.0, calculator.getClearSkyIrradiance(LocalDateTime.of(2016, 6, 21, 0, 0)), 0.0);
+        assertTrue(calculator.getClearSkyIrradiance(summer) > 900.0);
+    }
+
+    @Test
+    public void testTables() {
+        System.out.println("tables");
+        SolarPositionCalculator calculator = new SolarPositionCalculator(LOCATION, ZoneOffset.ofHours(-1));
+        Random random = new Random(145);
+
+        //
+        // The tabulated values are close to the calculated elevation at any time, including the leap day and the last
+        // day of a leap year
+        //
+        LocalDateTime[] times = new LocalDateTime[2000];
+        long[] seconds = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = LocalDateTime.of(2016, 1, 1, 0, 0).plusSeconds(random.nextInt(366 * 86400));
+            seconds[i] = epochSecond(times[i]);
+        }
+
+        times[0] = LocalDateTime.of(2016, 2, 29, 13, 17);
+        times[1] = LocalDateTime.of(2016, 12, 31, 23, 59, 59);
+        seconds[0] = epochSecond(times[0]);
+        seconds[1] = epochSecond(times[1]);
+        double[] sines = new double[times.length];
+        calculator.getSineElevations(seconds, sines, times.length);
+        for (int i = 0; i < times.length; i++) {
+            double sine = Math.sin(Math.toRadians(calculator.getElevation(times[i])));
+            assertEquals(sine, calculator.getSineElevation(seconds[i]), 2e-4);
+            assertEquals(sine, sines[i], 2e-4);
+        }
+    }
+}
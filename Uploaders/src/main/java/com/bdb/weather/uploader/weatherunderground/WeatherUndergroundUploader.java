@@ -34,6 +34,7 @@ import com.bdb.util.ThreadUtils;
 
 import com.bdb.weather.common.CurrentWeather;
 import com.bdb.weather.common.CurrentWeatherSubscriber;
+import com.bdb.weather.common.RollingWeatherAggregator;
 import com.bdb.weather.common.WeatherSenseConstants;
 import com.bdb.weather.common.WeatherUtils;
 import com.bdb.weather.common.measurement.Depth;
@@ -109,7 +110,7 @@ public class WeatherUndergroundUploader implements CurrentWeatherSubscriber.Curr
     private static final String SOFTWARE_URL_TAG = "softwaretype=";
     private static final String DEW_POINT_URL_TAG = "dewptf=";
     private static final String WIND_SPEED_2_MIN_AVG_TAG = "windspdmph_avg2m=";
-    private static final String WIND_DIR_2_MIN_AVG_TAG = "windir_avg2m=";
+    private static final String WIND_DIR_2_MIN_AVG_TAG = "winddir_avg2m=";
     private static final String WIND_GUST_10_MIN_TAG = "windgustmph_10m=";
     private static final String WIND_GUST_DIR_10_MIN_TAG = "windgustdir_10m=";
     private static final String SOLAR_RADIATION_TAG = "solarradiation=";
@@ -125,6 +126,7 @@ public class WeatherUndergroundUploader implements CurrentWeatherSubscriber.Curr
     private String urlString;
     private final ExecutorService executor;
     private final Statistics statistics;
+    private final RollingWeatherAggregator aggregator;
     private static final Logger logger = Logger.getLogger(WeatherUndergroundUploader.class.getName());
 
     /**
@@ -148,6 +150,7 @@ public class WeatherUndergroundUploader implements CurrentWeatherSubscriber.Curr
         this.password = password;
         this.urlString = url;
         this.statistics = new Statistics();
+        this.aggregator = new RollingWeatherAggregator();
         logger.setLevel(Level.FINEST);
         executor = Executors.newSingleThreadExecutor();
     }
@@ -187,6 +190,11 @@ public class WeatherUndergroundUploader implements CurrentWeatherSubscriber.Curr
      */
     @Override
     public void handleCurrentWeather(CurrentWeather current) {
+        //
+        // The aggregator is always fed so that its windows are full once the station information is provided
+        //
+        aggregator.handleCurrentWeather(current);
+
         if (wuStationId == null || password == null) {
             logger.info("Skipping weather underground update. No weather station information provided.");
             return;
@@ -201,10 +209,10 @@ public class WeatherUndergroundUploader implements CurrentWeatherSubscriber.Curr
         record.windSpeedMph = current.getWindSpeed();
         record.windGustMph = current.getGustSpeed();
         record.windGustDir = current.getGustDirection();
-        record.windSpeedMphAvg2Min = current.getWindSpeed2MinAvg();
-        record.windDirAvg2Min = record.windDir;
-        record.windGust10Min = current.getGustSpeed();
-        record.winGustDir10Min = current.getGustDirection();
+        record.windSpeedMphAvg2Min = current.getWindSpeed2MinAvg() != null ? current.getWindSpeed2MinAvg() : aggregator.getWindSpeed2MinAvg();
+        record.windDirAvg2Min = aggregator.getWindDirection2MinAvg();
+        record.windGust10Min = aggregator.getGust10Min();
+        record.winGustDir10Min = aggregator.getGustDirection10Min();
         record.outdoorHumidity = current.getOutsideHumidity();
         record.dewPoint = current.getDewPoint();
         record.outdoorTemperature = current.getOutsideTemperature();
@@ -213,9 +221,10 @@ public class WeatherUndergroundUploader implements CurrentWeatherSubscriber.Curr
         record.indoorHumidity = current.getInsideHumidity();
         //
         // Note the rain rate from the console is ignored due to the ICD published by weather underground.
-        // The rain rate is the amount of rain that has fallen in the past hour.
+        // The rain rate is the amount of rain that has fallen in the past hour. Not all consoles report
+        // the rain for the past hour, in which case it is calculated locally.
         //
-        record.rainRate = current.getRainHour();
+        record.rainRate = current.getRainHour() != null ? current.getRainHour() : aggregator.getRainHour();
         record.rainToday = current.getRainToday();
         record.solarRadiation = current.getSolarRadiation();
         record.uvIndex = current.getUvIndex();
@@ -301,21 +310,22 @@ public class WeatherUndergroundUploader implements CurrentWeatherSubscriber.Curr
             sb.append(WIND_GUST_URL_TAG).append(Speed.Unit.MILES_PER_HOUR.getFormatter().format(record.windGustMph.get(Speed.Unit.MILES_PER_HOUR))).append(URL_FIELD_SEPARATOR);
 
         if (record.windSpeedMphAvg2Min != null)
-            sb.append(WIND_SPEED_2_MIN_AVG_TAG).append(record.windSpeedMphAvg2Min.get(Speed.Unit.MILES_PER_HOUR)).append(URL_FIELD_SEPARATOR);
+            sb.append(WIND_SPEED_2_MIN_AVG_TAG).append(Speed.Unit.MILES_PER_HOUR.getFormatter().format(record.windSpeedMphAvg2Min.get(Speed.Unit.MILES_PER_HOUR))).append(URL_FIELD_SEPARATOR);
 
-        if (record.windDir != null) {
+        if (record.windDir != null)
             sb.append(WIND_DIR_URL_TAG).append(record.windDir.toString()).append(URL_FIELD_SEPARATOR);
-            sb.append(WIND_GUST_DIR_URL_TAG).append(record.windDir.toString()).append(URL_FIELD_SEPARATOR);
-        }
+
+        if (record.windGustDir != null)
+            sb.append(WIND_GUST_DIR_URL_TAG).append(record.windGustDir.toString()).append(URL_FIELD_SEPARATOR);
 
         if (record.windDirAvg2Min != null)
             sb.append(WIND_DIR_2_MIN_AVG_TAG).append(record.windDirAvg2Min.toString()).append(URL_FIELD_SEPARATOR);
 
         if (record.windGust10Min != null)
-            sb.append(WIND_GUST_10_MIN_TAG).append(record.windGust10Min.get(Speed.Unit.MILES_PER_HOUR)).append(URL_FIELD_SEPARATOR);
+            sb.append(WIND_GUST_10_MIN_TAG).append(Speed.Unit.MILES_PER_HOUR.getFormatter().format(record.windGust10Min.get(Speed.Unit.MILES_PER_HOUR))).append(URL_FIELD_SEPARATOR);
 
         if (record.winGustDir10Min != null)
-            sb.append(WIND_GUST_DIR_10_MIN_TAG).append(record.windGust10Min.toString()).append(URL_FIELD_SEPARATOR);
+            sb.append(WIND_GUST_DIR_10_MIN_TAG).append(record.winGustDir10Min.toString()).append(URL_FIELD_SEPARATOR);
 
         if (record.rainRate != null)
             sb.append(RAIN_RATE_URL_TAG).append(Depth.Unit.INCHES.getFormatter().format(record.rainRate.get(Depth.Unit.INCHES))).append(URL_FIELD_SEPARATOR);